@@ -24,6 +24,12 @@ public interface JsonTags {
     public static final String BUILD_VERSION = "buildVersion";
     public static final String QUEUE_DUMP = "queueDump";
     public static final String CALLABLE_DUMP = "callableDump";
+    public static final String SLOW_COMMANDS = "slowCommands";
+    public static final String SLOW_COMMAND_NAME = "name";
+    public static final String SLOW_COMMAND_KEY = "key";
+    public static final String SLOW_COMMAND_START = "start";
+    public static final String SLOW_COMMAND_TIME = "time";
+    public static final String SLOW_COMMAND_PHASES = "phases";
     public static final String UNIQUE_MAP_DUMP = "uniqueMapDump";
     public static final String UNIQUE_ENTRY_DUMP = "uniqueEntryDump";
 
@@ -158,6 +164,10 @@ public interface JsonTags {
     public static final String INSTR_TIMER_OWN_MAX_TIME = "ownMaxTime";
     public static final String INSTR_TIMER_TOTAL_MIN_TIME = "totalMinTime";
     public static final String INSTR_TIMER_TOTAL_MAX_TIME = "totalMaxTime";
+    public static final String INSTR_TIMER_TOTAL_P50_TIME = "totalTimeP50";
+    public static final String INSTR_TIMER_TOTAL_P95_TIME = "totalTimeP95";
+    public static final String INSTR_TIMER_TOTAL_P99_TIME = "totalTimeP99";
+    public static final String INSTR_TIMER_TOTAL_P999_TIME = "totalTimeP999";
 
     public static final String INSTR_VARIABLE_VALUE = "value";
     public static final String INSTR_SAMPLER_VALUE = "value";
@@ -118,6 +118,8 @@ public interface RestConstants {
 
     public static final String ADMIN_QUEUE_DUMP_RESOURCE = "queue-dump";
 
+    public static final String ADMIN_SLOW_COMMANDS_RESOURCE = "slow-commands";
+
     public static final String OOZIE_ERROR_CODE = "oozie-error-code";
 
     public static final String OOZIE_ERROR_MESSAGE = "oozie-error-message";
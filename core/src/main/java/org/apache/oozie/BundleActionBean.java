@@ -48,6 +48,10 @@ import org.apache.openjpa.persistence.jdbc.Index;
 
         @NamedQuery(name = "GET_BUNDLE_ACTIONS_BY_LAST_MODIFIED_TIME", query = "select OBJECT(w) from BundleActionBean w where w.lastModifiedTimestamp >= :lastModifiedTime"),
 
+        @NamedQuery(name = "GET_BUNDLE_IDS_BY_ACTIONS_LAST_MODIFIED_TIME", query = "select distinct w.bundleId from BundleActionBean w where w.lastModifiedTimestamp >= :lastModifiedTime"),
+
+        @NamedQuery(name = "GET_BUNDLE_ACTIONS_STATUS_PENDING_COUNT_GROUP_BY_BUNDLEID", query = "select w.bundleId, w.status, w.pending, count(w) from BundleActionBean w where w.bundleId IN (:bundleIds) group by w.bundleId, w.status, w.pending"),
+
         @NamedQuery(name = "GET_BUNDLE_WAITING_ACTIONS_OLDER_THAN", query = "select OBJECT(a) from BundleActionBean a where a.pending > 0 AND a.lastModifiedTimestamp <= :lastModifiedTime"),
 
         @NamedQuery(name = "GET_BUNDLE_ACTION", query = "select OBJECT(w) from BundleActionBean w where w.bundleActionId = :bundleActionId"),
@@ -19,6 +19,8 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.persistence.Basic;
@@ -36,6 +38,7 @@ import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.PropertiesUtils;
 import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.db.DirtyFieldTracker;
 import org.apache.openjpa.persistence.jdbc.Index;
 
 /**
@@ -64,6 +67,14 @@ import org.apache.openjpa.persistence.jdbc.Index;
 
     @NamedQuery(name = "GET_RUNNING_ACTIONS", query = "select OBJECT(a) from WorkflowActionBean a where a.pending = 1 AND a.status = 'RUNNING' AND a.lastCheckTimestamp < :lastCheckTime"),
 
+    @NamedQuery(name = "GET_RUNNING_ACTION_IDS", query = "select a.id from WorkflowActionBean a where a.pending = 1 AND a.status = 'RUNNING' AND a.lastCheckTimestamp < :lastCheckTime AND a.id > :lastId order by a.id"),
+
+    @NamedQuery(name = "GET_RUNNING_ACTION_IDS_OF_TYPES", query = "select a.id from WorkflowActionBean a where a.pending = 1 AND a.status = 'RUNNING' AND a.type IN (:types) AND a.lastCheckTimestamp < :lastCheckTime AND a.id > :lastId order by a.id"),
+
+    @NamedQuery(name = "GET_RUNNING_ACTION_IDS_NOT_OF_TYPES", query = "select a.id from WorkflowActionBean a where a.pending = 1 AND a.status = 'RUNNING' AND a.type NOT IN (:types) AND a.lastCheckTimestamp < :lastCheckTime AND a.id > :lastId order by a.id"),
+
+    @NamedQuery(name = "GET_PENDING_ACTIONS_COLUMNS", query = "select a.id, a.wfId, a.status, a.type, a.pendingAgeTimestamp from WorkflowActionBean a where a.pending = 1 AND a.pendingAgeTimestamp < :pendingAge AND a.status <> 'RUNNING' AND a.id > :lastId order by a.id"),
+
     @NamedQuery(name = "GET_RETRY_MANUAL_ACTIONS", query = "select OBJECT(a) from WorkflowActionBean a where a.wfId = :wfId AND (a.status = 'START_RETRY' OR a.status = 'START_MANUAL' OR a.status = 'END_RETRY' OR a.status = 'END_MANUAL')") })
 
 public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
@@ -120,6 +131,9 @@ public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
     @Lob
     private String slaXml = null;
 
+    @Transient
+    private DirtyFieldTracker dirtyFields = new DirtyFieldTracker();
+
     /**
      * Default constructor.
      */
@@ -556,4 +570,56 @@ public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
         this.endTimestamp = DateUtils.convertDateToTimestamp(endTime);
     }
 
+    /**
+     * Mark the current state of the action as the state in the DB, from now on the changed fields are tracked.
+     * <p/>
+     * It is called by the JPA executors that read or write the action.
+     */
+    public void resetDirtyFields() {
+        dirtyFields.reset(getPersistentFields());
+    }
+
+    /**
+     * Return the fields changed since {@link #resetDirtyFields()} was called.
+     *
+     * @return the changed fields with their values keyed by JPQL field name, <code>null</code> if the action is not
+     * tracked.
+     */
+    public Map<String, Object> getDirtyFields() {
+        return dirtyFields.getChanged(getPersistentFields());
+    }
+
+    private Map<String, Object> getPersistentFields() {
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        fields.put("status", status);
+        fields.put("pending", pending);
+        fields.put("pendingAgeTimestamp", pendingAgeTimestamp);
+        fields.put("lastCheckTimestamp", lastCheckTimestamp);
+        fields.put("startTimestamp", startTimestamp);
+        fields.put("endTimestamp", endTimestamp);
+        fields.put("executionPath", executionPath);
+        fields.put("signalValue", signalValue);
+        fields.put("logToken", logToken);
+        fields.put("wfId", wfId);
+        fields.put("name", getName());
+        fields.put("cred", getCred());
+        fields.put("type", getType());
+        fields.put("retries", getRetries());
+        fields.put("userRetryCount", getUserRetryCount());
+        fields.put("userRetryMax", getUserRetryMax());
+        fields.put("userRetryInterval", getUserRetryInterval());
+        fields.put("transition", getTransition());
+        fields.put("externalId", getExternalId());
+        fields.put("externalStatus", getExternalStatus());
+        fields.put("trackerUri", getTrackerUri());
+        fields.put("consoleUrl", getConsoleUrl());
+        fields.put("errorCode", getErrorCode());
+        // LOB columns
+        fields.put("conf", getConf());
+        fields.put("data", getData());
+        fields.put("errorMessage", getErrorMessage());
+        fields.put("slaXml", slaXml);
+        return fields;
+    }
+
 }
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.apache.oozie.util.DateUtils;
+
+/**
+ * A parsed workflow application definition, stored once and shared by all the workflow jobs of the same definition.
+ * <p/>
+ * The ID is the digest of the serialized definition, workflow instances reference the definition by it instead of
+ * embedding the definition in their own blob.
+ */
+@Entity
+@Table(name = "WF_DEFINITIONS")
+public class WorkflowDefinitionBean {
+
+    @Id
+    @Column(name = "id")
+    private String id = null;
+
+    @Basic
+    @Column(name = "created_time")
+    private java.sql.Timestamp createdTimestamp = null;
+
+    @Column(name = "definition")
+    @Lob
+    private byte[] definition = null;
+
+    public WorkflowDefinitionBean() {
+    }
+
+    /**
+     * Create a workflow definition bean.
+     *
+     * @param id digest of the definition.
+     * @param definition serialized definition.
+     */
+    public WorkflowDefinitionBean(String id, byte[] definition) {
+        this.id = id;
+        this.definition = definition;
+        setCreatedTime(new Date());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public byte[] getDefinition() {
+        return definition;
+    }
+
+    public void setDefinition(byte[] definition) {
+        this.definition = definition;
+    }
+
+    public Date getCreatedTime() {
+        return DateUtils.toDate(createdTimestamp);
+    }
+
+    public void setCreatedTime(Date createdTime) {
+        this.createdTimestamp = DateUtils.convertDateToTimestamp(createdTime);
+    }
+
+    public Timestamp getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+}
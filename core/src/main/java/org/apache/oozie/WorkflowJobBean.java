@@ -20,12 +20,15 @@ import org.apache.oozie.client.rest.JsonWorkflowJob;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.db.DirtyFieldTracker;
 import org.apache.hadoop.io.Writable;
 
 import java.io.DataInput;
 import java.io.IOException;
 import java.io.DataOutput;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.persistence.Entity;
 import javax.persistence.Column;
@@ -33,6 +36,7 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Basic;
 import javax.persistence.Lob;
+import javax.persistence.Transient;
 
 import java.sql.Timestamp;
 
@@ -117,6 +121,9 @@ public class WorkflowJobBean extends JsonWorkflowJob implements Writable {
     @Lob
     private String slaXml = null;
 
+    @Transient
+    private DirtyFieldTracker dirtyFields = new DirtyFieldTracker();
+
     /**
      * Default constructor.
      */
@@ -354,4 +361,47 @@ public class WorkflowJobBean extends JsonWorkflowJob implements Writable {
         return pInstance;
     }
 
+    /**
+     * Mark the current state of the job as the state in the DB, from now on the changed fields are tracked.
+     * <p/>
+     * It is called by the JPA executors that read or write the job.
+     */
+    public void resetDirtyFields() {
+        dirtyFields.reset(getPersistentFields());
+    }
+
+    /**
+     * Return the fields changed since {@link #resetDirtyFields()} was called.
+     *
+     * @return the changed fields with their values keyed by JPQL field name, <code>null</code> if the job is not
+     * tracked.
+     */
+    public Map<String, Object> getDirtyFields() {
+        return dirtyFields.getChanged(getPersistentFields());
+    }
+
+    private Map<String, Object> getPersistentFields() {
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        fields.put("status", status);
+        fields.put("lastModifiedTimestamp", lastModifiedTimestamp);
+        fields.put("createdTimestamp", createdTimestamp);
+        fields.put("startTimestamp", startTimestamp);
+        fields.put("endTimestamp", endTimestamp);
+        fields.put("externalId", externalId);
+        fields.put("logToken", logToken);
+        fields.put("appName", getAppName());
+        fields.put("appPath", getAppPath());
+        fields.put("user", getUser());
+        fields.put("group", getGroup());
+        fields.put("run", getRun());
+        fields.put("parentId", getParentId());
+        // LOB columns
+        fields.put("conf", getConf());
+        fields.put("protoActionConf", protoActionConf);
+        fields.put("authToken", authToken);
+        fields.put("slaXml", slaXml);
+        fields.put("wfInstance", wfInstance);
+        return fields;
+    }
+
 }
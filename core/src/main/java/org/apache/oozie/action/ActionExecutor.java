@@ -447,6 +447,32 @@ public abstract class ActionExecutor {
      */
     public abstract void check(Context context, WorkflowAction action) throws ActionExecutorException;
 
+    /**
+     * Check if an action has completed using the data delivered with its completion callback. <p/> Executors that
+     * support completion callbacks use the data to complete the action without querying the external system. <p/> The
+     * default implementation ignores the data and calls {@link #check(Context, WorkflowAction)}.
+     *
+     * @param context executor context.
+     * @param action the action to end.
+     * @param completionData data delivered with the completion callback, <code>null</code> if none.
+     * @throws ActionExecutorException thrown if the action could not be checked.
+     */
+    public void check(Context context, WorkflowAction action, Properties completionData)
+            throws ActionExecutorException {
+        check(context, action);
+    }
+
+    /**
+     * Return if the executor actions notify their completion with a callback. <p/> Running actions of executors that
+     * support completion callbacks are checked less often by the {@link org.apache.oozie.service.ActionCheckerService}.
+     * <p/> The default implementation returns <code>false</code>.
+     *
+     * @return if the executor actions notify their completion with a callback.
+     */
+    public boolean isCompletionCallbackSupported() {
+        return false;
+    }
+
     /**
      * Kill an action. <p/> The {@link Context#setEndData} method must be called within this method.
      *
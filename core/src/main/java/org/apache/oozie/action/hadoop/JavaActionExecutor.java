@@ -21,9 +21,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.math.BigInteger;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,6 +69,12 @@ import org.apache.hadoop.security.token.TokenIdentifier;
 
 public class JavaActionExecutor extends ActionExecutor {
 
+    /**
+     * Configuration property that enables the launcher completion callback, when enabled the launcher POSTs its
+     * outcome, output data and error data to Oozie as soon as the main class completes.
+     */
+    public static final String CONF_LAUNCHER_COMPLETION_CALLBACK = CONF_PREFIX + "launcher.completion.callback";
+
     private static final String HADOOP_USER = "user.name";
     private static final String HADOOP_UGI = "hadoop.job.ugi";
     private static final String HADOOP_JOB_TRACKER = "mapred.job.tracker";
@@ -75,6 +83,15 @@ public class JavaActionExecutor extends ActionExecutor {
     private static final Set<String> DISALLOWED_PROPERTIES = new HashSet<String>();
 
     private static int maxActionOutputLen;
+    private static boolean completionCallback;
+
+    /**
+     * Action variable with the secret of the action launcher, the launcher sends it with its completion data.
+     */
+    static final String LAUNCHER_SECRET = "launcher.secret";
+
+    private static final int LAUNCHER_SECRET_BITS = 128;
+    private static final SecureRandom SECRET_RANDOM = new SecureRandom();
 
     private static final String SUCCEEDED = "SUCCEEDED";
     private static final String KILLED = "KILLED";
@@ -117,6 +134,7 @@ public class JavaActionExecutor extends ActionExecutor {
     public void initActionType() {
         super.initActionType();
         maxActionOutputLen = getOozieConf().getInt(CallbackServlet.CONF_MAX_DATA_LEN, 2 * 1024);
+        completionCallback = getOozieConf().getBoolean(CONF_LAUNCHER_COMPLETION_CALLBACK, true);
         try {
             List<Class> classes = getLauncherClasses();
             Class[] launcherClasses = classes.toArray(new Class[classes.size()]);
@@ -381,6 +399,7 @@ public class JavaActionExecutor extends ActionExecutor {
 
     private static final String QUEUE_NAME = "mapred.job.queue.name";
     private static final String OOZIE_LAUNCHER_QUEUE_NAME = "oozie.launcher.mapred.job.queue.name";
+    private static final String OOZIE_LAUNCHER_MAX_ATTEMPTS = "oozie.launcher.mapred.map.max.attempts";
 
     private static final Set<String> SPECIAL_PROPERTIES = new HashSet<String>();
 
@@ -483,6 +502,15 @@ public class JavaActionExecutor extends ActionExecutor {
 
     void injectLauncherCallback(Context context, Configuration launcherConf) {
         injectCallback(context, launcherConf);
+        if (completionCallback) {
+            String secret = new BigInteger(LAUNCHER_SECRET_BITS, SECRET_RANDOM).toString(Character.MAX_RADIX);
+            LauncherMapper.setupCompletionCallback(launcherConf, context.getCallbackUrl("$jobStatus"), secret);
+            // the action may complete with the callback before the launcher task ends, a failure of the launcher
+            // task after that must not run the main class again, unless the workflow asks for launcher retries
+            if (launcherConf.get(OOZIE_LAUNCHER_MAX_ATTEMPTS) == null) {
+                launcherConf.setInt("mapred.map.max.attempts", 1);
+            }
+        }
     }
 
     public void submitLauncher(FileSystem actionFs, Context context, WorkflowAction action) throws ActionExecutorException {
@@ -576,6 +604,9 @@ public class JavaActionExecutor extends ActionExecutor {
                 }
                 launcherId = runningJob.getID().toString();
                 XLog.getLog(getClass()).debug("After submission get the launcherId " + launcherId);
+                if (completionCallback) {
+                    context.setVar(LAUNCHER_SECRET, LauncherMapper.getCompletionSecret(launcherJobConf));
+                }
             }
 
             String jobTracker = launcherJobConf.get(HADOOP_JOB_TRACKER);
@@ -853,29 +884,16 @@ public class JavaActionExecutor extends ActionExecutor {
                     }
                     else {
                         XLog log = XLog.getLog(getClass());
-                        String errorReason;
                         Path actionError = LauncherMapper.getErrorPath(context.getActionDir());
                         if (actionFs.exists(actionError)) {
                             InputStream is = actionFs.open(actionError);
                             BufferedReader reader = new BufferedReader(new InputStreamReader(is));
                             Properties props = PropertiesUtils.readProperties(reader, -1);
                             reader.close();
-                            String errorCode = props.getProperty("error.code");
-                            if (errorCode.equals("0")) {
-                                errorCode = "JA018";
-                            }
-                            errorReason = props.getProperty("error.reason");
-                            log.warn("Launcher ERROR, reason: {0}", errorReason);
-                            String exMsg = props.getProperty("exception.message");
-                            String errorInfo = (exMsg != null) ? exMsg : errorReason;
-                            context.setErrorInfo(errorCode, errorInfo);
-                            String exStackTrace = props.getProperty("exception.stacktrace");
-                            if (exMsg != null) {
-                                log.warn("Launcher exception: {0}{E}{1}", exMsg, exStackTrace);
-                            }
+                            setLauncherError(context, props);
                         }
                         else {
-                            errorReason = XLog.format("LauncherMapper died, check Hadoop log for job [{0}:{1}]", action
+                            String errorReason = XLog.format("LauncherMapper died, check Hadoop log for job [{0}:{1}]", action
                                     .getTrackerUri(), action.getExternalId());
                             log.warn(errorReason);
                         }
@@ -963,6 +981,79 @@ public class JavaActionExecutor extends ActionExecutor {
         }
     }
 
+    /**
+     * Check the action using the completion data its launcher delivered with the completion callback. <p/> If the
+     * data is the completion data of the action launcher the action is completed without contacting the JobTracker or
+     * the NameNode. Otherwise, or if the launcher swapped the action ID or failed without error data, the action is
+     * checked with {@link #check(Context, WorkflowAction)}.
+     *
+     * @param context executor context.
+     * @param action the action to check.
+     * @param completionData data delivered with the completion callback, <code>null</code> if none.
+     * @throws ActionExecutorException thrown if the action could not be checked.
+     */
+    @Override
+    public void check(Context context, WorkflowAction action, Properties completionData)
+            throws ActionExecutorException {
+        if (!LauncherMapper.isCompletionData(completionData, action.getExternalId(), context.getVar(LAUNCHER_SECRET))
+                || LauncherMapper.hasCompletionIdSwap(completionData)) {
+            if (completionData != null) {
+                XLog.getLog(getClass()).debug("Callback data is not the completion data of launcher [{0}]",
+                                              action.getExternalId());
+            }
+            check(context, action);
+            return;
+        }
+        try {
+            if (LauncherMapper.isCompletionSuccessful(completionData)) {
+                XLog.getLog(getClass()).info(XLog.STD, "action completed, external ID [{0}], launcher callback",
+                        action.getExternalId());
+                Properties props = null;
+                if (getCaptureOutput(action)) {
+                    props = LauncherMapper.getCompletionOutput(completionData);
+                }
+                context.setExecutionData(SUCCEEDED, props);
+            }
+            else {
+                Properties props = LauncherMapper.getCompletionError(completionData);
+                if (props == null) {
+                    check(context, action);
+                    return;
+                }
+                XLog.getLog(getClass()).info(XLog.STD, "action completed, external ID [{0}], launcher callback",
+                        action.getExternalId());
+                setLauncherError(context, props);
+                context.setExecutionData(FAILED_KILLED, null);
+            }
+        }
+        catch (Exception ex) {
+            XLog.getLog(getClass()).warn("Exception in check(). Message[{0}]", ex.getMessage(), ex);
+            throw convertException(ex);
+        }
+    }
+
+    private void setLauncherError(Context context, Properties props) {
+        XLog log = XLog.getLog(getClass());
+        String errorCode = props.getProperty("error.code");
+        if (errorCode.equals("0")) {
+            errorCode = "JA018";
+        }
+        String errorReason = props.getProperty("error.reason");
+        log.warn("Launcher ERROR, reason: {0}", errorReason);
+        String exMsg = props.getProperty("exception.message");
+        String errorInfo = (exMsg != null) ? exMsg : errorReason;
+        context.setErrorInfo(errorCode, errorInfo);
+        String exStackTrace = props.getProperty("exception.stacktrace");
+        if (exMsg != null) {
+            log.warn("Launcher exception: {0}{E}{1}", exMsg, exStackTrace);
+        }
+    }
+
+    @Override
+    public boolean isCompletionCallbackSupported() {
+        return completionCallback;
+    }
+
     private static Set<String> FINAL_STATUS = new HashSet<String>();
 
     static {
@@ -24,9 +24,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
 import java.security.Permission;
 import java.text.MessageFormat;
 import java.util.Properties;
@@ -66,6 +70,18 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
 
     private static final String OOZIE_ACTION_DIR_PATH = "oozie.action.dir.path";
     private static final String OOZIE_ACTION_RECOVERY_ID = "oozie.action.recovery.id";
+    private static final String OOZIE_ACTION_CALLBACK_URL = "oozie.action.callback.url";
+    private static final String OOZIE_ACTION_CALLBACK_SECRET = "oozie.action.callback.secret";
+
+    private static final String COMPLETION_LAUNCHER_ID = "oozie.launcher.id";
+    private static final String COMPLETION_SECRET = "oozie.launcher.secret";
+    private static final String COMPLETION_STATUS = "oozie.launcher.status";
+    private static final String COMPLETION_ID_SWAP = "oozie.launcher.id.swap";
+    private static final String COMPLETION_OUTPUT_PREFIX = "oozie.launcher.output.";
+    private static final String COMPLETION_ERROR_PREFIX = "oozie.launcher.error.";
+    private static final String COMPLETION_SUCCEEDED = "SUCCEEDED";
+    private static final String COMPLETION_FAILED = "FAILED";
+    private static final int COMPLETION_CALLBACK_TIMEOUT = 30 * 1000;
 
     static final String ACTION_CONF_XML = "action.xml";
     private static final String ACTION_OUTPUT_PROPS = "output.properties";
@@ -191,6 +207,137 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
         launcherConf.set("mapred.output.dir", new Path(actionDir, "output").toString());
     }
 
+    /**
+     * Set the URL the launcher notifies its completion to. <p/> The launcher POSTs its completion data, main
+     * outcome, output data and error data, to the URL replacing <code>$jobStatus</code> with the main outcome. The
+     * completion data carries the given secret, Oozie uses the completion data only if the secret matches the one of
+     * the action.
+     *
+     * @param launcherConf launcher job configuration.
+     * @param callbackUrl callback URL.
+     * @param secret secret of the launcher.
+     */
+    public static void setupCompletionCallback(Configuration launcherConf, String callbackUrl, String secret) {
+        launcherConf.set(OOZIE_ACTION_CALLBACK_URL, callbackUrl);
+        launcherConf.set(OOZIE_ACTION_CALLBACK_SECRET, secret);
+    }
+
+    /**
+     * Return the secret the launcher sends with its completion data.
+     *
+     * @param launcherConf launcher job configuration.
+     * @return the secret, <code>null</code> if the completion callback is not set up.
+     */
+    public static String getCompletionSecret(Configuration launcherConf) {
+        return launcherConf.get(OOZIE_ACTION_CALLBACK_SECRET);
+    }
+
+    /**
+     * Create the completion data of a launcher.
+     *
+     * @param launcherId launcher job ID.
+     * @param secret secret of the launcher.
+     * @param succeeded if the main class completed successfully.
+     * @param idSwap if the main class swapped the action ID.
+     * @param output output data, <code>null</code> if none.
+     * @param error error data, <code>null</code> if none.
+     * @return the completion data.
+     */
+    static Properties createCompletionData(String launcherId, String secret, boolean succeeded, boolean idSwap,
+            Properties output, Properties error) {
+        Properties data = new Properties();
+        data.setProperty(COMPLETION_LAUNCHER_ID, launcherId);
+        if (secret != null) {
+            data.setProperty(COMPLETION_SECRET, secret);
+        }
+        data.setProperty(COMPLETION_STATUS, (succeeded) ? COMPLETION_SUCCEEDED : COMPLETION_FAILED);
+        if (idSwap) {
+            data.setProperty(COMPLETION_ID_SWAP, "true");
+        }
+        copyProperties(output, "", data, COMPLETION_OUTPUT_PREFIX);
+        copyProperties(error, "", data, COMPLETION_ERROR_PREFIX);
+        return data;
+    }
+
+    /**
+     * Return if the data delivered with a callback is the completion data of the given launcher, the data must carry
+     * the launcher job ID and the secret of the launcher.
+     *
+     * @param data callback data, it may be <code>null</code>.
+     * @param launcherId launcher job ID of the action.
+     * @param secret secret of the launcher of the action, it may be <code>null</code>.
+     * @return if the data is the completion data of the launcher.
+     */
+    public static boolean isCompletionData(Properties data, String launcherId, String secret) {
+        if (data == null || launcherId == null || secret == null || secret.length() == 0
+                || !launcherId.equals(data.getProperty(COMPLETION_LAUNCHER_ID))
+                || data.getProperty(COMPLETION_STATUS) == null) {
+            return false;
+        }
+        String dataSecret = data.getProperty(COMPLETION_SECRET);
+        try {
+            return dataSecret != null
+                    && MessageDigest.isEqual(secret.getBytes("UTF-8"), dataSecret.getBytes("UTF-8"));
+        }
+        catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Return if the main class of the launcher completed successfully.
+     *
+     * @param data completion data.
+     * @return if the main class of the launcher completed successfully.
+     */
+    public static boolean isCompletionSuccessful(Properties data) {
+        return COMPLETION_SUCCEEDED.equals(data.getProperty(COMPLETION_STATUS));
+    }
+
+    /**
+     * Return if the main class of the launcher swapped the action ID.
+     *
+     * @param data completion data.
+     * @return if the main class of the launcher swapped the action ID.
+     */
+    public static boolean hasCompletionIdSwap(Properties data) {
+        return Boolean.parseBoolean(data.getProperty(COMPLETION_ID_SWAP));
+    }
+
+    /**
+     * Return the output data of the launcher.
+     *
+     * @param data completion data.
+     * @return the output data, empty if the launcher did not produce output data.
+     */
+    public static Properties getCompletionOutput(Properties data) {
+        Properties output = new Properties();
+        copyProperties(data, COMPLETION_OUTPUT_PREFIX, output, "");
+        return output;
+    }
+
+    /**
+     * Return the error data of the launcher.
+     *
+     * @param data completion data.
+     * @return the error data, <code>null</code> if the launcher did not produce error data.
+     */
+    public static Properties getCompletionError(Properties data) {
+        Properties error = new Properties();
+        copyProperties(data, COMPLETION_ERROR_PREFIX, error, "");
+        return (error.getProperty("error.code") != null) ? error : null;
+    }
+
+    private static void copyProperties(Properties from, String fromPrefix, Properties to, String toPrefix) {
+        if (from != null) {
+            for (String name : from.stringPropertyNames()) {
+                if (name.startsWith(fromPrefix)) {
+                    to.setProperty(toPrefix + name.substring(fromPrefix.length()), from.getProperty(name));
+                }
+            }
+        }
+    }
+
     public static boolean isMainDone(RunningJob runningJob) throws IOException {
         return runningJob.isComplete();
     }
@@ -299,6 +446,9 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
     private ScheduledThreadPoolExecutor timer;
 
     private boolean configFailure = false;
+    private Properties completionOutput;
+    private Properties completionError;
+    private boolean idSwap;
 
     public LauncherMapper() {
     }
@@ -319,6 +469,7 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
     }
 
     public void map(K1 key, V1 value, OutputCollector<K2, V2> collector, Reporter reporter) throws IOException {
+        boolean succeeded = true;
         try {
             if (configFailure) {
                 throw new LauncherException();
@@ -440,6 +591,7 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
                             Properties props = new Properties();
                             props.load(new FileReader(outputData));
                             props.store(System.out, "");
+                            completionOutput = props;
                             System.out.println();
                             System.out.println("=======================");
                             System.out.println();
@@ -454,6 +606,7 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
                             FileSystem fs = FileSystem.get(getJobConf());
                             fs.copyFromLocalFile(new Path(newId.toString()), new Path(actionDir, ACTION_NEW_ID_PROPS));
                             reporter.incrCounter(COUNTER_GROUP, COUNTER_DO_ID_SWAP, 1);
+                            idSwap = true;
 
                             System.out.println("Oozie Launcher, copying new Hadoop job id to file: "
                                     + new Path(actionDir, ACTION_NEW_ID_PROPS).toUri());
@@ -488,11 +641,65 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
             }
         }
         catch (LauncherException ex) {
+            succeeded = false;
             reporter.incrCounter(COUNTER_GROUP, COUNTER_LAUNCHER_ERROR, 1);
             System.out.println();
             System.out.println("Oozie Launcher failed, finishing Hadoop job gracefully");
             System.out.println();
         }
+        notifyCompletion(succeeded);
+    }
+
+    /**
+     * Notify Oozie the completion of the main class, it is a best effort, if the notification fails Oozie finds out
+     * the completion of the launcher from the job end notification or by polling.
+     *
+     * @param succeeded if the main class completed successfully.
+     */
+    private void notifyCompletion(boolean succeeded) {
+        String callbackUrl = getJobConf().get(OOZIE_ACTION_CALLBACK_URL);
+        if (callbackUrl != null) {
+            try {
+                Properties data = createCompletionData(getJobConf().get("mapred.job.id"),
+                                                       getJobConf().get(OOZIE_ACTION_CALLBACK_SECRET), succeeded,
+                                                       idSwap, completionOutput, completionError);
+                String payload = toString(data);
+                int maxOutputData = getJobConf().getInt(CONF_OOZIE_ACTION_MAX_OUTPUT_DATA, 2 * 1024);
+                if (payload.length() > maxOutputData) {
+                    // the stack trace is in the error file of the action dir, it is not needed for the completion
+                    data.remove(COMPLETION_ERROR_PREFIX + "exception.stacktrace");
+                    payload = toString(data);
+                }
+                if (payload.length() > maxOutputData) {
+                    System.out.println("Oozie Launcher, completion data exceeds maximum, not notifying Oozie");
+                    return;
+                }
+                String status = (succeeded) ? COMPLETION_SUCCEEDED : COMPLETION_FAILED;
+                HttpURLConnection conn = (HttpURLConnection) new URL(callbackUrl.replace("$jobStatus", status))
+                        .openConnection();
+                conn.setConnectTimeout(COMPLETION_CALLBACK_TIMEOUT);
+                conn.setReadTimeout(COMPLETION_CALLBACK_TIMEOUT);
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setRequestProperty("content-type", "text/plain;charset=UTF-8");
+                Writer writer = new OutputStreamWriter(conn.getOutputStream(), "UTF-8");
+                writer.write(payload);
+                writer.close();
+                System.out.println("Oozie Launcher, notified completion to Oozie, HTTP status ["
+                        + conn.getResponseCode() + "]");
+                conn.disconnect();
+            }
+            catch (IOException ex) {
+                System.out.println("Oozie Launcher, could not notify completion to Oozie, " + ex.getMessage());
+            }
+        }
+    }
+
+    private static String toString(Properties props) throws IOException {
+        StringWriter writer = new StringWriter();
+        props.store(writer, "");
+        writer.close();
+        return writer.toString();
     }
 
     public void close() throws IOException {
@@ -568,6 +775,7 @@ public class LauncherMapper<K1, V1, K2, V2> implements Mapper<K1, V1, K2, V2>, R
             OutputStream os = fs.create(new Path(actionDir, ACTION_ERROR_PROPS));
             errorProps.store(os, "");
             os.close();
+            completionError = errorProps;
 
             System.out.print("Failing Oozie Launcher, " + reason + "\n");
             System.err.print("Failing Oozie Launcher, " + reason + "\n");
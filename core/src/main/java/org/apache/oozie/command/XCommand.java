@@ -21,6 +21,7 @@ import org.apache.oozie.service.CallableQueueService;
 import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.MemoryLocksService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.SlowCommandsService;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.MemoryLocks;
 import org.apache.oozie.util.XCallable;
@@ -28,6 +29,7 @@ import org.apache.oozie.util.XLog;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -47,7 +49,9 @@ import java.util.UUID;
  * <li>execution: command logic</li>
  * </ul>
  * <p/>
- * It has built in instrumentation and logging.
+ * It has built in instrumentation and logging. The time spent in each phase (queue wait, lock acquire, load,
+ * precondition, execute, JPA and requeue flush) is added to a timer per command name and phase, slow executions are
+ * reported to the {@link SlowCommandsService}.
  */
 public abstract class XCommand<T> implements XCallable<T> {
     public static final String DEFAULT_LOCK_TIMEOUT = "oozie.command.default.lock.timeout";
@@ -56,6 +60,14 @@ public abstract class XCommand<T> implements XCallable<T> {
 
     public static final Long DEFAULT_REQUEUE_DELAY = 10L;
 
+    private static final String PHASE_QUEUE_WAIT = "queueWait";
+    private static final String PHASE_ACQUIRE_LOCK = "acquireLock";
+    private static final String PHASE_LOAD = "load";
+    private static final String PHASE_PRECONDITION = "precondition";
+    private static final String PHASE_EXECUTE = "execute";
+    private static final String PHASE_JPA = "jpa";
+    private static final String PHASE_QUEUE_FLUSH = "queueFlush";
+
     public XLog LOG = XLog.getLog(getClass());
 
     private String key;
@@ -66,6 +78,11 @@ public abstract class XCommand<T> implements XCallable<T> {
     private MemoryLocks.LockToken lock;
     private boolean used = false;
 
+    private long readyTime;
+    private long jpaTime;
+
+    private static ThreadLocal<XCommand<?>> current = new ThreadLocal<XCommand<?>>();
+
     private Map<Long, List<XCommand<?>>> commandQueue;
     protected boolean dryrun = false;
     protected Instrumentation instrumentation;
@@ -143,6 +160,29 @@ public abstract class XCommand<T> implements XCallable<T> {
         return createdTime;
     }
 
+    /**
+     * Set the time the command became due for execution in the callable queue. <p/> It is set by the {@link
+     * CallableQueueService} before running the command, the command reports the time between this and the start of
+     * its execution as queue wait.
+     *
+     * @param readyTime due time in milliseconds.
+     */
+    public void setReadyTime(long readyTime) {
+        this.readyTime = readyTime;
+    }
+
+    /**
+     * Add time spent in JPA executors to the command running in the current thread, if any.
+     *
+     * @param time time in milliseconds.
+     */
+    public static void addJPATime(long time) {
+        XCommand<?> command = current.get();
+        if (command != null) {
+            command.jpaTime += time;
+        }
+    }
+
     /**
      * Queue a command for execution after the current command execution completes.
      * <p/>
@@ -231,34 +271,49 @@ public abstract class XCommand<T> implements XCallable<T> {
         Instrumentation instrumentation = Services.get().get(InstrumentationService.class).get();
         instrumentation.incr(INSTRUMENTATION_GROUP, getName() + ".executions", 1);
         Instrumentation.Cron callCron = new Instrumentation.Cron();
+        Map<String, Long> phases = new LinkedHashMap<String, Long>();
+        Instrumentation.Cron phase;
+        long queueWait = -1;
+        XCommand<?> previous = current.get();
+        current.set(this);
+        jpaTime = 0;
         try {
             callCron.start();
+            if (readyTime > 0) {
+                queueWait = Math.max(0, System.currentTimeMillis() - readyTime);
+                readyTime = 0;
+            }
+            phase = startPhase();
             eagerLoadState();
+            stopPhase(phases, PHASE_LOAD, phase);
             LOG = XLog.resetPrefix(LOG);
+            phase = startPhase();
             eagerVerifyPrecondition();
+            stopPhase(phases, PHASE_PRECONDITION, phase);
             try {
                 T ret = null;
                 if (isLockRequired()) {
-                    Instrumentation.Cron acquireLockCron = new Instrumentation.Cron();
-                    acquireLockCron.start();
+                    phase = startPhase();
                     acquireLock();
-                    acquireLockCron.stop();
-                    instrumentation.addCron(INSTRUMENTATION_GROUP, getName() + ".acquireLock", acquireLockCron);
+                    stopPhase(phases, PHASE_ACQUIRE_LOCK, phase);
                 }
                 if (!isLockRequired() || (isLockRequired() && lock != null)) {
                     LOG.debug("Load state for [{0}]", getEntityKey());
+                    phase = startPhase();
                     loadState();
+                    stopPhase(phases, PHASE_LOAD, phase);
                     LOG = XLog.resetPrefix(LOG);
                     LOG.debug("Precondition check for command [{0}] key [{1}]", getName(), getEntityKey());
+                    phase = startPhase();
                     verifyPrecondition();
+                    stopPhase(phases, PHASE_PRECONDITION, phase);
                     LOG.debug("Execute command [{0}] key [{1}]", getName(), getEntityKey());
-                    Instrumentation.Cron executeCron = new Instrumentation.Cron();
-                    executeCron.start();
+                    phase = startPhase();
                     ret = execute();
-                    executeCron.stop();
-                    instrumentation.addCron(INSTRUMENTATION_GROUP, getName() + ".execute", executeCron);
+                    stopPhase(phases, PHASE_EXECUTE, phase);
                 }
                 if (commandQueue != null) {
+                    phase = startPhase();
                     CallableQueueService callableQueueService = Services.get().get(CallableQueueService.class);
                     for (Map.Entry<Long, List<XCommand<?>>> entry : commandQueue.entrySet()) {
                         LOG.debug("Queuing [{0}] commands with delay [{1}]ms", entry.getValue().size(), entry.getKey());
@@ -267,6 +322,7 @@ public abstract class XCommand<T> implements XCallable<T> {
                                     .size(), entry.getKey());
                         }
                     }
+                    stopPhase(phases, PHASE_QUEUE_FLUSH, phase);
                 }
                 return ret;
             }
@@ -299,7 +355,57 @@ public abstract class XCommand<T> implements XCallable<T> {
         finally {
             FaultInjection.deactivate("org.apache.oozie.command.SkipCommitFaultInjection");
             callCron.stop();
+            current.set(previous);
             instrumentation.addCron(INSTRUMENTATION_GROUP, getName() + ".call", callCron);
+            addPhases(instrumentation, callCron, queueWait, phases);
+        }
+    }
+
+    private static Instrumentation.Cron startPhase() {
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        return cron;
+    }
+
+    /**
+     * Record the time of a completed phase. A phase run twice (eager and locked load/precondition) adds both times,
+     * the time spent between the two runs is not counted.
+     */
+    private static void stopPhase(Map<String, Long> phases, String phase, Instrumentation.Cron cron) {
+        cron.stop();
+        Long time = phases.get(phase);
+        phases.put(phase, ((time != null) ? time : 0) + cron.getOwn());
+    }
+
+    /**
+     * Add the phase times of the execution to the command timers and report the execution to the {@link
+     * SlowCommandsService}. <p/> Only the completed phases are recorded, a phase interrupted by an exception is not
+     * added.
+     */
+    private void addPhases(Instrumentation instrumentation, Instrumentation.Cron callCron, long queueWait,
+                           Map<String, Long> phases) {
+        Map<String, Long> times = new LinkedHashMap<String, Long>();
+        if (queueWait >= 0) {
+            instrumentation.addTime(INSTRUMENTATION_GROUP, getName() + "." + PHASE_QUEUE_WAIT, queueWait);
+            times.put(PHASE_QUEUE_WAIT, queueWait);
+        }
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            instrumentation.addTime(INSTRUMENTATION_GROUP, getName() + "." + entry.getKey(), entry.getValue());
+            times.put(entry.getKey(), entry.getValue());
+        }
+        instrumentation.addTime(INSTRUMENTATION_GROUP, getName() + "." + PHASE_JPA, jpaTime);
+        times.put(PHASE_JPA, jpaTime);
+        SlowCommandsService slowCommands = Services.get().get(SlowCommandsService.class);
+        if (slowCommands != null) {
+            String entityKey;
+            try {
+                entityKey = getEntityKey();
+            }
+            catch (RuntimeException ex) {
+                entityKey = null;
+            }
+            slowCommands.add(new SlowCommandsService.CommandTrace(getName(), entityKey, callCron.getStart(),
+                                                                   callCron.getOwn(), times));
         }
     }
 
@@ -14,6 +14,7 @@
  */
 package org.apache.oozie.command.bundle;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.oozie.BundleJobBean;
@@ -25,6 +26,7 @@ import org.apache.oozie.command.XCommand;
 import org.apache.oozie.executor.jpa.BundleActionsDeleteForPurgeJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobDeleteJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobsGetForPurgeJPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
@@ -74,16 +76,22 @@ public class BundlePurgeXCommand extends XCommand<Void> {
 
         int actionDeleted = 0;
         if (jobList != null && jobList.size() != 0) {
+            // all the deletes are done in a single transaction, for each job the job and its actions are deleted
+            List<JPAExecutor<?>> deleteList = new ArrayList<JPAExecutor<?>>();
             for (BundleJobBean bundle : jobList) {
                 String jobId = bundle.getId();
-                try {
-                    jpaService.execute(new BundleJobDeleteJPAExecutor(jobId));
-                    actionDeleted += jpaService.execute(new BundleActionsDeleteForPurgeJPAExecutor(jobId));
-                }
-                catch (JPAExecutorException e) {
-                    throw new CommandException(e);
+                deleteList.add(new BundleJobDeleteJPAExecutor(jobId));
+                deleteList.add(new BundleActionsDeleteForPurgeJPAExecutor(jobId));
+            }
+            try {
+                List<Object> results = jpaService.executeBatch(deleteList);
+                for (int i = 1; i < results.size(); i += 2) {
+                    actionDeleted += (Integer) results.get(i);
                 }
             }
+            catch (JPAExecutorException e) {
+                throw new CommandException(e);
+            }
             LOG.debug("ENDED Bundle-Purge deleted jobs :" + jobList.size() + " and actions " + actionDeleted);
         }
         else {
@@ -16,6 +16,8 @@ package org.apache.oozie.command.coord;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -32,11 +34,16 @@ import org.apache.oozie.command.PreconditionException;
 import org.apache.oozie.coord.CoordELEvaluator;
 import org.apache.oozie.coord.CoordELFunctions;
 import org.apache.oozie.executor.jpa.CoordActionGetJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionUpdateLastModifiedTimeJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.service.CoordInputCheckBackoffService;
 import org.apache.oozie.service.HadoopAccessorException;
+import org.apache.oozie.service.DatasetAvailabilityService;
+import org.apache.oozie.service.DependencyRegistryService;
 import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.RecoveryService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.ELEvaluator;
@@ -58,10 +65,25 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
     private CoordinatorActionBean coordAction = null;
     private CoordinatorJobBean coordJob = null;
     private JPAService jpaService = null;
+    private final boolean notified;
 
     public CoordActionInputCheckXCommand(String actionId) {
+        this(actionId, false);
+    }
+
+    /**
+     * Create an input check for a coordinator action.
+     * <p/>
+     * An input check triggered by a dependency notification of the {@link DependencyRegistryService} has its own key,
+     * it must not be discarded as a duplicate of the delayed input check the action is requeued with.
+     *
+     * @param actionId coordinator action ID
+     * @param notified if the input check is triggered by a dependency notification
+     */
+    public CoordActionInputCheckXCommand(String actionId, boolean notified) {
         super("coord_action_input", "coord_action_input", 1);
         this.actionId = ParamChecker.notEmpty(actionId, "actionId");
+        this.notified = notified;
     }
 
     /* (non-Javadoc)
@@ -75,17 +97,11 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         // otherwise, requeue this action for delay execution;
         Date nominalTime = coordAction.getNominalTime();
         Date currentTime = new Date();
+        Date origLastModifiedTime = coordAction.getLastModifiedTime();
         if (nominalTime.compareTo(currentTime) > 0) {
-            queue(new CoordActionInputCheckXCommand(coordAction.getId()), Math.max(
-                    (nominalTime.getTime() - currentTime.getTime()), COMMAND_REQUEUE_INTERVAL));
-            // update lastModifiedTime
-            coordAction.setLastModifiedTime(new Date());
-            try {
-                jpaService.execute(new org.apache.oozie.executor.jpa.CoordActionUpdateJPAExecutor(coordAction));
-            }
-            catch (JPAExecutorException e) {
-                throw new CommandException(e);
-            }
+            requeue(Math.max((nominalTime.getTime() - currentTime.getTime()), COMMAND_REQUEUE_INTERVAL));
+            // nothing changed, the action is not updated
+            skipUpdate(origLastModifiedTime, currentTime);
             LOG.info("[" + actionId
                     + "]::ActionInputCheck:: nominal Time is newer than current time, so requeue and wait. Current="
                     + currentTime + ", nominal=" + nominalTime);
@@ -93,7 +109,9 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
             return null;
         }
 
-        StringBuilder actionXml = new StringBuilder(coordAction.getActionXml());
+        String origActionXml = coordAction.getActionXml();
+        String origMissingDeps = coordAction.getMissingDependencies();
+        StringBuilder actionXml = new StringBuilder(origActionXml);
         Instrumentation.Cron cron = new Instrumentation.Cron();
         try {
             Configuration actionConf = new XConfiguration(new StringReader(coordAction.getRunConf()));
@@ -106,13 +124,20 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
             LOG.info("[" + actionId + "]::CoordActionInputCheck:: Missing deps:" + nonExistList.toString() + " "
                     + nonResolvedList.toString());
             boolean status = checkInput(actionXml, existList, nonExistList, actionConf);
+            String missingList = nonExistList.toString();
             coordAction.setLastModifiedTime(currentTime);
             coordAction.setActionXml(actionXml.toString());
             if (nonResolvedList.length() > 0 && status == false) {
                 nonExistList.append(CoordCommandUtils.RESOLVED_UNRESOLVED_SEPARATOR).append(nonResolvedList);
             }
             coordAction.setMissingDependencies(nonExistList.toString());
+            boolean update = true;
             if (status == true) {
+                unregisterDependencies();
+                CoordInputCheckBackoffService backoffService = Services.get().get(CoordInputCheckBackoffService.class);
+                if (backoffService != null) {
+                    backoffService.recordArrival(coordAction.getJobId(), currentTime.getTime() - nominalTime.getTime());
+                }
                 coordAction.setStatus(CoordinatorAction.Status.READY);
                 // pass jobID to the CoordActionReadyXCommand
                 queue(new CoordActionReadyXCommand(coordAction.getJobId()), 100);
@@ -123,14 +148,27 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
                         / (60 * 1000);
                 int timeOut = coordAction.getTimeOut();
                 if ((timeOut >= 0) && (waitingTime > timeOut)) {
+                    unregisterDependencies();
                     queue(new CoordActionTimeOutXCommand(coordAction), 100);
                 }
                 else {
-                    queue(new CoordActionInputCheckXCommand(coordAction.getId()), COMMAND_REQUEUE_INTERVAL);
+                    if (!registerDependencies(missingList, actionConf)) {
+                        long timeLeft = (timeOut >= 0) ? (timeOut - waitingTime) * 60 * 1000 : -1;
+                        requeue(getRequeueDelay(currentTime.getTime() - nominalTime.getTime(),
+                                                getInputFrequency(actionXml.toString()), timeLeft));
+                    }
+                    // the action is still waiting, it is updated only if some data became available
+                    update = !origActionXml.equals(coordAction.getActionXml())
+                            || !nonExistList.toString().equals(origMissingDeps);
                 }
             }
-            coordAction.setLastModifiedTime(new Date());
-            jpaService.execute(new org.apache.oozie.executor.jpa.CoordActionUpdateJPAExecutor(coordAction));
+            if (update) {
+                coordAction.setLastModifiedTime(new Date());
+                jpaService.execute(new org.apache.oozie.executor.jpa.CoordActionUpdateJPAExecutor(coordAction));
+            }
+            else {
+                skipUpdate(origLastModifiedTime, currentTime);
+            }
         }
         catch (Exception e) {
             throw new CommandException(ErrorCode.E1021, e.getMessage(), e);
@@ -140,6 +178,122 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         return null;
     }
 
+    /**
+     * Return the max interval between two input checks of a waiting action: half the age at which the
+     * {@link RecoveryService} recovers a WAITING action.
+     *
+     * @return the max interval in milliseconds
+     */
+    private static long getMaxCheckInterval() {
+        return Services.get().getConf().getInt(RecoveryService.CONF_COORD_OLDER_THAN, 600) * 1000L / 2;
+    }
+
+    /**
+     * Requeue the input check of the action, the delay never exceeds the max check interval.
+     *
+     * @param delay delay of the input check in milliseconds
+     */
+    private void requeue(long delay) {
+        queue(new CoordActionInputCheckXCommand(coordAction.getId()), Math.min(delay, getMaxCheckInterval()));
+    }
+
+    /**
+     * Skip the update of an action that has not changed.
+     * <p/>
+     * The last modified time of the action is still set once per max check interval, with an update of that column
+     * only. As checks are requeued within the max check interval, the action never looks stuck to the
+     * {@link RecoveryService}, which would otherwise page it and queue an input check at each of its runs.
+     *
+     * @param lastModifiedTime last modified time of the action when it was loaded
+     * @param currentTime time of the input check
+     * @throws CommandException thrown if the last modified time could not be updated
+     */
+    private void skipUpdate(Date lastModifiedTime, Date currentTime) throws CommandException {
+        instrumentation.incr(INSTRUMENTATION_GROUP, getName() + ".skippedUpdates", 1);
+        if (lastModifiedTime == null || currentTime.getTime() - lastModifiedTime.getTime() >= getMaxCheckInterval()) {
+            try {
+                jpaService.execute(new CoordActionUpdateLastModifiedTimeJPAExecutor(actionId, currentTime));
+            }
+            catch (JPAExecutorException ex) {
+                throw new CommandException(ErrorCode.E1021, ex.getMessage(), ex);
+            }
+            coordAction.setLastModifiedTime(currentTime);
+        }
+    }
+
+    /**
+     * Return the delay to requeue the input check with, given by the {@link CoordInputCheckBackoffService}.
+     *
+     * @param waitingTime time, in milliseconds, the action has been waiting past its nominal time
+     * @param frequency smallest frequency of the action input datasets in milliseconds, -1 if not known
+     * @param timeLeft time, in milliseconds, left before the action times out, -1 if it does not time out
+     * @return the requeue delay in milliseconds, the default interval if the backoff service is not available
+     */
+    private long getRequeueDelay(long waitingTime, long frequency, long timeLeft) {
+        CoordInputCheckBackoffService backoffService = Services.get().get(CoordInputCheckBackoffService.class);
+        if (backoffService == null) {
+            return COMMAND_REQUEUE_INTERVAL;
+        }
+        return backoffService.getDelay(coordAction.getJobId(), waitingTime, frequency, timeLeft);
+    }
+
+    /**
+     * Return the smallest frequency of the input datasets of the action.
+     *
+     * @param actionXml action xml
+     * @return the frequency in milliseconds, -1 if it could not be determined
+     */
+    @SuppressWarnings("unchecked")
+    private long getInputFrequency(String actionXml) {
+        long frequency = -1;
+        try {
+            Element eAction = XmlUtils.parseXml(actionXml);
+            Element inputList = eAction.getChild("input-events", eAction.getNamespace());
+            if (inputList != null) {
+                for (Element dEvent : (List<Element>) inputList.getChildren("data-in", eAction.getNamespace())) {
+                    long dsFrequency = CoordELEvaluator.getDSObject(dEvent).getFrequencyInMillis();
+                    if (dsFrequency > 0 && (frequency < 0 || dsFrequency < frequency)) {
+                        frequency = dsFrequency;
+                    }
+                }
+            }
+        }
+        catch (Exception ex) {
+            LOG.debug("[" + actionId + "]::ActionInputCheck:: Could not get the input frequency, " + ex.getMessage());
+        }
+        return frequency;
+    }
+
+    /**
+     * Register the first missing URI of the action with the {@link DependencyRegistryService}, the action gets an input
+     * check queued when the URI becomes available, it is requeued at the registry interval only.
+     *
+     * @param missingList missing URIs of the action
+     * @param actionConf action configuration
+     * @return true if the URI was registered, false if the registry is not available or no URI is missing (only
+     *         latest/future instances are not resolved)
+     */
+    private boolean registerDependencies(String missingList, Configuration actionConf) {
+        DependencyRegistryService registry = Services.get().get(DependencyRegistryService.class);
+        if (registry == null || missingList.length() == 0) {
+            return false;
+        }
+        // URIs are checked in order, the ones after the first missing one have not been checked
+        String uri = missingList.split(CoordELFunctions.INSTANCE_SEPARATOR)[0];
+        registry.register(actionId, Collections.singletonList(uri), actionConf.get(OozieClient.USER_NAME),
+                          actionConf.get(OozieClient.GROUP_NAME));
+        requeue(registry.getRequeueInterval());
+        LOG.debug("[" + actionId + "]::ActionInputCheck:: Registered dependency " + uri);
+        return true;
+    }
+
+    private void unregisterDependencies() {
+        DependencyRegistryService registry = Services.get().get(DependencyRegistryService.class);
+        if (registry != null) {
+            registry.unregister(actionId);
+        }
+    }
+
     /**
      * To check the list of input paths if all of them exist
      *
@@ -348,11 +502,12 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         }
 
         nonExistList.delete(0, nonExistList.length());
+        int availableCount = getAvailableCount(uriList, conf);
         boolean allExists = true;
         String existSeparator = "", nonExistSeparator = "";
         for (int i = 0; i < uriList.length; i++) {
             if (allExists) {
-                allExists = pathExists(uriList[i], conf);
+                allExists = i < availableCount;
                 LOG.info("[" + actionId + "]::ActionInputCheck:: File:" + uriList[i] + ", Exists? :" + allExists);
             }
             if (allExists) {
@@ -367,6 +522,30 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
         return allExists;
     }
 
+    /**
+     * Return how many paths of a list exist before the first one that does not, the paths are checked in parallel by
+     * the {@link DatasetAvailabilityService} if it is available
+     *
+     * @param uriList uri paths
+     * @param actionConf action configuration
+     * @return the number of leading existing paths
+     * @throws IOException thrown if unable to access a path
+     */
+    private int getAvailableCount(String[] uriList, Configuration actionConf) throws IOException {
+        DatasetAvailabilityService availabilityService = Services.get().get(DatasetAvailabilityService.class);
+        if (availabilityService != null) {
+            String user = ParamChecker.notEmpty(actionConf.get(OozieClient.USER_NAME), OozieClient.USER_NAME);
+            String group = ParamChecker.notEmpty(actionConf.get(OozieClient.GROUP_NAME), OozieClient.GROUP_NAME);
+            return availabilityService.getAvailableCount(Arrays.asList(uriList), user, group);
+        }
+        for (int i = 0; i < uriList.length; i++) {
+            if (!pathExists(uriList[i], actionConf)) {
+                return i;
+            }
+        }
+        return uriList.length;
+    }
+
     /**
      * Check if given path exists
      *
@@ -497,7 +676,7 @@ public class CoordActionInputCheckXCommand extends CoordinatorXCommand<Void> {
      */
     @Override
     public String getKey(){
-        return getName() + "_" + actionId;
+        return getName() + ((notified) ? "_notified_" : "_") + actionId;
     }
 
 }
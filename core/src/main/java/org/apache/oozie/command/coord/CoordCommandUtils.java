@@ -16,7 +16,9 @@ package org.apache.oozie.command.coord;
 
 import java.io.StringReader;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.CoordinatorActionBean;
@@ -28,6 +30,7 @@ import org.apache.oozie.coord.CoordELFunctions;
 import org.apache.oozie.coord.CoordUtils;
 import org.apache.oozie.coord.CoordinatorJobException;
 import org.apache.oozie.coord.SyncCoordAction;
+import org.apache.oozie.coord.SyncCoordDataset;
 import org.apache.oozie.coord.TimeUnit;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.UUIDService;
@@ -44,6 +47,69 @@ public class CoordCommandUtils {
     public static int UNEXPECTED = -1;
     public static final String RESOLVED_UNRESOLVED_SEPARATOR = ";";
 
+    /**
+     * State reused across the materialization of the actions of a coordinator job.
+     * <p/>
+     * The EL evaluators are created and loaded with the job configuration once, only the action and dataset
+     * variables are set for each data event. The datasets of the data events and the job configuration XML are
+     * computed once as well.
+     */
+    public static class MaterializationContext {
+        private final Configuration conf;
+        private final Map<String, ELEvaluator> evaluators = new HashMap<String, ELEvaluator>();
+        private final Map<String, SyncCoordDataset> datasets = new HashMap<String, SyncCoordDataset>();
+        private String confXml;
+
+        /**
+         * Create a materialization context for a coordinator job.
+         *
+         * @param conf job configuration, it must not be modified while the context is used.
+         */
+        public MaterializationContext(Configuration conf) {
+            this.conf = conf;
+        }
+
+        /**
+         * Return the evaluator of an EL group configured for a data event of an action.
+         *
+         * @param group EL group.
+         * @param event data event element, <code>null</code> for an evaluator without dataset.
+         * @param appInst action being materialized.
+         * @return the evaluator, it is reused by the next call for the same group.
+         * @throws Exception thrown if the dataset of the event could not be read.
+         */
+        public ELEvaluator getEvaluator(String group, Element event, SyncCoordAction appInst) throws Exception {
+            ELEvaluator eval = evaluators.get(group);
+            if (eval == null) {
+                eval = CoordELEvaluator.createELEvaluatorForGroup(conf, group);
+                evaluators.put(group, eval);
+            }
+            SyncCoordDataset ds = null;
+            if (event != null) {
+                String key = event.getName() + "#" + event.getAttributeValue("name");
+                ds = datasets.get(key);
+                if (ds == null) {
+                    ds = CoordELEvaluator.getDSObject(event);
+                    datasets.put(key, ds);
+                }
+            }
+            CoordELFunctions.configureEvaluator(eval, ds, appInst);
+            return eval;
+        }
+
+        /**
+         * Return the job configuration as XML.
+         *
+         * @return the job configuration as XML.
+         */
+        public String getConfXml() {
+            if (confXml == null) {
+                confXml = XmlUtils.prettyPrint(conf).toString();
+            }
+            return confXml;
+        }
+    }
+
     /**
      * parse a function like coord:latest(n)/future() and return the 'n'.
      * <p/>
@@ -57,8 +123,12 @@ public class CoordCommandUtils {
      */
     public static int getInstanceNumber(String function, Element event, SyncCoordAction appInst, Configuration conf,
             StringBuilder restArg) throws Exception {
-        ELEvaluator eval = CoordELEvaluator
-                .createInstancesELEvaluator("coord-action-create-inst", event, appInst, conf);
+        return getInstanceNumber(function, event, appInst, restArg, new MaterializationContext(conf));
+    }
+
+    private static int getInstanceNumber(String function, Element event, SyncCoordAction appInst,
+            StringBuilder restArg, MaterializationContext context) throws Exception {
+        ELEvaluator eval = context.getEvaluator("coord-action-create-inst", event, appInst);
         String newFunc = CoordELFunctions.evalAndWrap(eval, function);
         int funcType = getFuncType(newFunc);
         if (funcType == CURRENT || funcType == LATEST) {
@@ -160,6 +230,11 @@ public class CoordCommandUtils {
      */
     public static void resolveInstanceRange(Element event, StringBuilder instances, SyncCoordAction appInst,
             Configuration conf, ELEvaluator eval) throws Exception {
+        resolveInstanceRange(event, instances, appInst, conf, eval, new MaterializationContext(conf));
+    }
+
+    private static void resolveInstanceRange(Element event, StringBuilder instances, SyncCoordAction appInst,
+            Configuration conf, ELEvaluator eval, MaterializationContext context) throws Exception {
         Element eStartInst = event.getChild("start-instance", event.getNamespace());
         Element eEndInst = event.getChild("end-instance", event.getNamespace());
         if (eStartInst != null && eEndInst != null) {
@@ -170,9 +245,9 @@ public class CoordCommandUtils {
                                                          // arguments for
                                                          // future
                                                          // function
-            int startIndex = getInstanceNumber(strStart, event, appInst, conf, restArg);
+            int startIndex = getInstanceNumber(strStart, event, appInst, restArg, context);
             restArg.delete(0, restArg.length());
-            int endIndex = getInstanceNumber(strEnd, event, appInst, conf, restArg);
+            int endIndex = getInstanceNumber(strEnd, event, appInst, restArg, context);
             if (startIndex > endIndex) {
                 throw new CommandException(ErrorCode.E1010,
                         " start-instance should be equal or earlier than the end-instance \n"
@@ -323,12 +398,19 @@ public class CoordCommandUtils {
      */
     public static boolean materializeSLA(Element eSla, Date nominalTime, Configuration conf)
             throws CoordinatorJobException {
+        return materializeSLA(eSla, nominalTime, new MaterializationContext(conf));
+    }
+
+    private static boolean materializeSLA(Element eSla, Date nominalTime, MaterializationContext context)
+            throws CoordinatorJobException {
         if (eSla == null) {
             // eAppXml.getNamespace("sla"));
             return false;
         }
         try {
-            ELEvaluator evalSla = CoordELEvaluator.createSLAEvaluator(nominalTime, conf);
+            SyncCoordAction appInst = new SyncCoordAction();
+            appInst.setNominalTime(nominalTime);
+            ELEvaluator evalSla = context.getEvaluator("coord-sla-create", null, appInst);
             List<Element> elemList = eSla.getChildren();
             for (Element elem : elemList) {
                 String updated;
@@ -365,9 +447,32 @@ public class CoordCommandUtils {
      * @return one materialized action for specific nominal time
      * @throws Exception
      */
-    @SuppressWarnings("unchecked")
     public static String materializeOneInstance(String jobId, boolean dryrun, Element eAction, Date nominalTime,
             Date actualTime, int instanceCount, Configuration conf, CoordinatorActionBean actionBean) throws Exception {
+        return materializeOneInstance(jobId, dryrun, eAction, nominalTime, actualTime, instanceCount, conf, actionBean,
+                                      new MaterializationContext(conf));
+    }
+
+    /**
+     * Materialize one instance for specific nominal time, reusing the evaluators and datasets of a materialization
+     * context across the instances of a job.
+     *
+     * @param jobId coordinator job id
+     * @param dryrun true if it is dryrun
+     * @param eAction frequency unexploded-job
+     * @param nominalTime materialization time
+     * @param actualTime action actual time
+     * @param instanceCount instance numbers
+     * @param conf job configuration
+     * @param actionBean CoordinatorActionBean to materialize
+     * @param context materialization context of the job
+     * @return one materialized action for specific nominal time
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public static String materializeOneInstance(String jobId, boolean dryrun, Element eAction, Date nominalTime,
+            Date actualTime, int instanceCount, Configuration conf, CoordinatorActionBean actionBean,
+            MaterializationContext context) throws Exception {
         String actionId = Services.get().get(UUIDService.class).generateChildId(jobId, instanceCount + "");
         SyncCoordAction appInst = new SyncCoordAction();
         appInst.setActionId(actionId);
@@ -386,7 +491,7 @@ public class CoordCommandUtils {
         List<Element> dataInList = null;
         if (inputList != null) {
             dataInList = inputList.getChildren("data-in", eAction.getNamespace());
-            materializeDataEvents(dataInList, appInst, conf, dependencyList);
+            materializeDataEvents(dataInList, appInst, conf, dependencyList, context);
         }
 
         Element outputList = eAction.getChild("output-events", eAction.getNamespace());
@@ -395,7 +500,7 @@ public class CoordCommandUtils {
             dataOutList = outputList.getChildren("data-out", eAction.getNamespace());
             StringBuffer tmp = new StringBuffer();
             // no dependency checks
-            materializeDataEvents(dataOutList, appInst, conf, tmp);
+            materializeDataEvents(dataOutList, appInst, conf, tmp, context);
         }
 
         eAction.removeAttribute("start");
@@ -405,11 +510,11 @@ public class CoordCommandUtils {
         eAction.setAttribute("action-actual-time", DateUtils.formatDateUTC(actualTime));
 
         boolean isSla = CoordCommandUtils.materializeSLA(eAction.getChild("action", eAction.getNamespace()).getChild(
-                "info", eAction.getNamespace("sla")), nominalTime, conf);
+                "info", eAction.getNamespace("sla")), nominalTime, context);
 
         // Setting up action bean
-        actionBean.setCreatedConf(XmlUtils.prettyPrint(conf).toString());
-        actionBean.setRunConf(XmlUtils.prettyPrint(conf).toString());
+        actionBean.setCreatedConf(context.getConfXml());
+        actionBean.setRunConf(context.getConfXml());
         actionBean.setCreatedTime(actualTime);
         actionBean.setJobId(jobId);
         actionBean.setId(actionId);
@@ -458,6 +563,11 @@ public class CoordCommandUtils {
      */
     public static void materializeDataEvents(List<Element> events, SyncCoordAction appInst, Configuration conf,
             StringBuffer dependencyList) throws Exception {
+        materializeDataEvents(events, appInst, conf, dependencyList, new MaterializationContext(conf));
+    }
+
+    private static void materializeDataEvents(List<Element> events, SyncCoordAction appInst, Configuration conf,
+            StringBuffer dependencyList, MaterializationContext context) throws Exception {
 
         if (events == null) {
             return;
@@ -465,11 +575,11 @@ public class CoordCommandUtils {
         StringBuffer unresolvedList = new StringBuffer();
         for (Element event : events) {
             StringBuilder instances = new StringBuilder();
-            ELEvaluator eval = CoordELEvaluator.createInstancesELEvaluator(event, appInst, conf);
+            ELEvaluator eval = context.getEvaluator("coord-action-create", event, appInst);
             // Handle list of instance tag
             resolveInstances(event, instances, appInst, conf, eval);
             // Handle start-instance and end-instance
-            resolveInstanceRange(event, instances, appInst, conf, eval);
+            resolveInstanceRange(event, instances, appInst, conf, eval, context);
             // Separate out the unresolved instances
             separateResolvedAndUnresolved(event, instances, dependencyList);
             String tmpUnresolved = event.getChildTextTrim("unresolved-instances", event.getNamespace());
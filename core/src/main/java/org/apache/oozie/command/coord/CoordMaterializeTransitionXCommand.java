@@ -17,14 +17,17 @@ package org.apache.oozie.command.coord;
 import java.io.IOException;
 import java.io.StringReader;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.SLAEventBean;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.Job;
 import org.apache.oozie.client.SLAEvent.SlaAppType;
@@ -37,7 +40,9 @@ import org.apache.oozie.executor.jpa.CoordActionInsertJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordActionsActiveCountJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobUpdateJPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.SLAEventInsertJPAExecutor;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Service;
 import org.apache.oozie.service.Services;
@@ -53,6 +58,13 @@ import org.jdom.Element;
 
 /**
  * Materialize actions for specified start and end time for coordinator job.
+ * <p/>
+ * The materialized actions and their SLA registration events are inserted together with the job update in a single
+ * JPA batch, one transaction for the whole materialization.
+ * <p/>
+ * If the job is behind (a backfill, its next materialization time is before the materialization window of the
+ * current time), the materialization window is extended up to the materialization window of the current time and up
+ * to {@link #CONF_BACKFILL_MAX_ACTIONS} actions are materialized by a single command.
  */
 public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCommand {
     private static final int LOOKAHEAD_WINDOW = 300; // We look ahead 5 minutes for materialization;
@@ -64,11 +76,20 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
     private final int materializationWindow;
     private int lastActionNumber = 1; // over-ride by DB value
     private CoordinatorJob.Status prevStatus = null;
+    private int maxActions = Integer.MAX_VALUE;
+    private final List<JPAExecutor<?>> insertList = new ArrayList<JPAExecutor<?>>();
     /**
      * Default MAX timeout in minutes, after which coordinator input check will timeout
      */
     public static final String CONF_DEFAULT_MAX_TIMEOUT = Service.CONF_PREFIX + "coord.default.max.timeout";
 
+    /**
+     * Max number of actions materialized by a single command for a job that is behind, 0 disables backfill
+     * materialization.
+     */
+    public static final String CONF_BACKFILL_MAX_ACTIONS = Service.CONF_PREFIX
+            + "coord.materialization.backfill.max.actions";
+
     /**
      * The constructor for class {@link CoordMaterializeTransitionXCommand}
      *
@@ -94,11 +115,18 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
     @Override
     public void updateJob() throws CommandException {
         try {
-            jpaService.execute(new CoordJobUpdateJPAExecutor(coordJob));
+            List<JPAExecutor<?>> batch = new ArrayList<JPAExecutor<?>>(insertList);
+            batch.add(new CoordJobUpdateJPAExecutor(coordJob));
+            jpaService.executeBatch(batch);
+            LOG.debug("Inserted [{0}] actions/SLA events and updated job [{1}] in one batch", insertList.size(),
+                      jobId);
         }
         catch (JPAExecutorException jex) {
             throw new CommandException(jex);
         }
+        finally {
+            insertList.clear();
+        }
     }
 
     /* (non-Javadoc)
@@ -153,6 +181,15 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
         long startTimeMilli = startTime.getTime();
         long endTimeMilli = startTimeMilli + (materializationWindow * 1000);
 
+        // a job that is behind catches up to the materialization window of the current time
+        long currentEndTimeMilli = System.currentTimeMillis() + (materializationWindow * 1000);
+        int backfillMaxActions = Services.get().getConf().getInt(CONF_BACKFILL_MAX_ACTIONS, 1000);
+        if (backfillMaxActions > 0 && endTimeMilli < currentEndTimeMilli) {
+            endTimeMilli = currentEndTimeMilli;
+            maxActions = backfillMaxActions;
+            LOG.debug("Coord job id=" + jobId + " is behind, materializing up to " + maxActions + " actions");
+        }
+
         startMatdTime = DateUtils.toDate(new Timestamp(startTimeMilli));
         endMatdTime = DateUtils.toDate(new Timestamp(endTimeMilli));
         // if MaterializationWindow end time is greater than endTime
@@ -280,39 +317,35 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
         origStart.setTime(coordJob.getStartTimestamp());
         // Move to the End of duration, if needed.
         DateUtils.moveToEnd(origStart, endOfFlag);
-        // Cloning the start time to be used in loop iteration
-        Calendar effStart = (Calendar) origStart.clone();
-        // Move the time when the previous action finished
-        effStart.add(freqTU.getCalendarUnit(), lastActionNumber * frequency);
+        // Nominal time of the action after the previous action
+        Date effStart = getNominalTime(origStart, freqTU, frequency, lastActionNumber);
 
         StringBuilder actionStrings = new StringBuilder();
-        Date jobPauseTime = coordJob.getPauseTime();
-        Calendar pause = null;
-        if (jobPauseTime != null) {
-            pause = Calendar.getInstance(appTz);
-            pause.setTime(DateUtils.convertDateToTimestamp(jobPauseTime));
-        }
+        Date pause = coordJob.getPauseTime();
 
         String action = null;
         JPAService jpaService = Services.get().get(JPAService.class);
         int numWaitingActions = jpaService.execute(new CoordActionsActiveCountJPAExecutor(coordJob.getId()));
-        int maxActionToBeCreated = coordJob.getMatThrottling() - numWaitingActions;
+        int maxActionToBeCreated = Math.min(coordJob.getMatThrottling() - numWaitingActions, maxActions);
         LOG.debug("Coordinator job :" + coordJob.getId() + ", maxActionToBeCreated :" + maxActionToBeCreated
                 + ", Mat_Throttle :" + coordJob.getMatThrottling() + ", numWaitingActions :" + numWaitingActions);
 
-        while (effStart.compareTo(end) < 0 && maxActionToBeCreated-- > 0) {
+        // the job configuration, evaluators and datasets are shared by all the actions of the job
+        CoordCommandUtils.MaterializationContext context = new CoordCommandUtils.MaterializationContext(jobConf);
+        int timeout = coordJob.getTimeout();
+        int materialized = 0;
+        while (effStart.compareTo(end.getTime()) < 0 && maxActionToBeCreated-- > 0) {
             if (pause != null && effStart.compareTo(pause) >= 0) {
                 break;
             }
             CoordinatorActionBean actionBean = new CoordinatorActionBean();
             lastActionNumber++;
 
-            int timeout = coordJob.getTimeout();
-            LOG.debug("Materializing action for time=" + effStart.getTime() + ", lastactionnumber=" + lastActionNumber
+            LOG.debug("Materializing action for time=" + effStart + ", lastactionnumber=" + lastActionNumber
                     + " timeout=" + timeout + " minutes");
             Date actualTime = new Date();
-            action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(),
-                    effStart.getTime(), actualTime, lastActionNumber, jobConf, actionBean);
+            action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(), effStart,
+                    actualTime, lastActionNumber, jobConf, actionBean, context);
             actionBean.setTimeOut(timeout);
 
             if (!dryrun) {
@@ -322,12 +355,14 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
                 actionStrings.append("action for new instance");
                 actionStrings.append(action);
             }
-            // Restore the original start time
-            effStart = (Calendar) origStart.clone();
-            effStart.add(freqTU.getCalendarUnit(), lastActionNumber * frequency);
+            materialized++;
+            effStart = getNominalTime(origStart, freqTU, frequency, lastActionNumber);
+        }
+        if (!dryrun && instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, getName() + ".actions", materialized);
         }
 
-        endMatdTime = new Date(effStart.getTimeInMillis());
+        endMatdTime = new Date(effStart.getTime());
         if (!dryrun) {
             return action;
         }
@@ -336,14 +371,40 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
         }
     }
 
+    /**
+     * Return the nominal time of an action of the job.
+     * <p/>
+     * Minute and hour frequencies are fixed durations, the nominal time is computed arithmetically. Day and month
+     * frequencies depend on the time zone of the job, the nominal time is computed with a calendar.
+     *
+     * @param origStart start time of the job, moved to the end of duration.
+     * @param freqTU time unit of the job frequency.
+     * @param frequency job frequency.
+     * @param actionNumber number of actions before the action, 0 for the first action.
+     * @return the nominal time of the action.
+     */
+    static Date getNominalTime(Calendar origStart, TimeUnit freqTU, int frequency, int actionNumber) {
+        switch (freqTU) {
+            case MINUTE:
+                return new Date(origStart.getTimeInMillis() + (long) actionNumber * frequency * 60 * 1000);
+            case HOUR:
+                return new Date(origStart.getTimeInMillis() + (long) actionNumber * frequency * 60 * 60 * 1000);
+            default:
+                Calendar cal = (Calendar) origStart.clone();
+                cal.add(freqTU.getCalendarUnit(), actionNumber * frequency);
+                return cal.getTime();
+        }
+    }
+
     private void storeToDB(CoordinatorActionBean actionBean, String actionXml) throws Exception {
         LOG.debug("In storeToDB() coord action id = " + actionBean.getId() + ", size of actionXml = "
                 + actionXml.length());
         actionBean.setActionXml(actionXml);
 
-        jpaService.execute(new CoordActionInsertJPAExecutor(actionBean));
+        insertList.add(new CoordActionInsertJPAExecutor(actionBean));
         writeActionRegistration(actionXml, actionBean);
 
+        // the commands are queued after execute(), once the batch has been committed by updateJob()
         // TODO: time 100s should be configurable
         queue(new CoordActionNotificationXCommand(actionBean), 100);
         queue(new CoordActionInputCheckXCommand(actionBean.getId()), 100);
@@ -352,8 +413,11 @@ public class CoordMaterializeTransitionXCommand extends MaterializeTransitionXCo
     private void writeActionRegistration(String actionXml, CoordinatorActionBean actionBean) throws Exception {
         Element eAction = XmlUtils.parseXml(actionXml);
         Element eSla = eAction.getChild("action", eAction.getNamespace()).getChild("info", eAction.getNamespace("sla"));
-        SLADbOperations.writeSlaRegistrationEvent(eSla, actionBean.getId(), SlaAppType.COORDINATOR_ACTION, coordJob
-                .getUser(), coordJob.getGroup(), LOG);
+        SLAEventBean slaEvent = SLADbOperations.createSlaRegistrationEvent(eSla, actionBean.getId(),
+                SlaAppType.COORDINATOR_ACTION, coordJob.getUser(), coordJob.getGroup());
+        if (slaEvent != null) {
+            insertList.add(new SLAEventInsertJPAExecutor(slaEvent));
+        }
     }
 
     private void updateJobMaterializeInfo(CoordinatorJobBean job) throws CommandException {
@@ -14,6 +14,7 @@
  */
 package org.apache.oozie.command.coord;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.oozie.CoordinatorJobBean;
@@ -24,6 +25,7 @@ import org.apache.oozie.command.PreconditionException;
 import org.apache.oozie.executor.jpa.CoordActionsDeleteForPurgeJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobDeleteJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobsGetForPurgeJPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
@@ -52,16 +54,22 @@ public class CoordPurgeXCommand extends CoordinatorXCommand<Void> {
 
         int actionDeleted = 0;
         if (jobList != null && jobList.size() != 0) {
+            // all the deletes are done in a single transaction, for each job the job and its actions are deleted
+            List<JPAExecutor<?>> deleteList = new ArrayList<JPAExecutor<?>>();
             for (CoordinatorJobBean coord : jobList) {
                 String jobId = coord.getId();
-                try {
-                    jpaService.execute(new CoordJobDeleteJPAExecutor(jobId));
-                    actionDeleted += jpaService.execute(new CoordActionsDeleteForPurgeJPAExecutor(jobId));
-                }
-                catch (JPAExecutorException e) {
-                    throw new CommandException(e);
+                deleteList.add(new CoordJobDeleteJPAExecutor(jobId));
+                deleteList.add(new CoordActionsDeleteForPurgeJPAExecutor(jobId));
+            }
+            try {
+                List<Object> results = jpaService.executeBatch(deleteList);
+                for (int i = 1; i < results.size(); i += 2) {
+                    actionDeleted += (Integer) results.get(i);
                 }
             }
+            catch (JPAExecutorException e) {
+                throw new CommandException(e);
+            }
             LOG.debug("ENDED Coord-Purge deleted jobs :" + jobList.size() + " and actions " + actionDeleted);
         }
         else {
@@ -16,6 +16,7 @@ package org.apache.oozie.command.wf;
 
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Properties;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
@@ -54,6 +55,7 @@ public class ActionCheckXCommand extends ActionXCommand<Void> {
     private WorkflowActionBean wfAction = null;
     private JPAService jpaService = null;
     private ActionExecutor executor = null;
+    private Properties completionData = null;
 
     public ActionCheckXCommand(String actionId) {
         this(actionId, -1);
@@ -70,6 +72,19 @@ public class ActionCheckXCommand extends ActionXCommand<Void> {
         this(actionId, 0, checkDelay);
     }
 
+    /**
+     * Create a check command for an action that notified its completion with a callback.
+     *
+     * @param actionId action ID.
+     * @param priority command priority.
+     * @param checkDelay action check delay, <code>-1</code> to check the action regardless of its last check time.
+     * @param completionData data delivered with the completion callback, <code>null</code> if none.
+     */
+    public ActionCheckXCommand(String actionId, int priority, int checkDelay, Properties completionData) {
+        this(actionId, priority, checkDelay);
+        this.completionData = completionData;
+    }
+
     @Override
     protected void eagerLoadState() throws CommandException {
         try {
@@ -156,7 +171,12 @@ public class ActionCheckXCommand extends ActionXCommand<Void> {
 
             Instrumentation.Cron cron = new Instrumentation.Cron();
             cron.start();
-            executor.check(context, wfAction);
+            if (completionData != null) {
+                executor.check(context, wfAction, completionData);
+            }
+            else {
+                executor.check(context, wfAction);
+            }
             cron.stop();
             addActionCron(wfAction.getType(), cron);
 
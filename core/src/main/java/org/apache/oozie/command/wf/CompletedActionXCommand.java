@@ -34,6 +34,7 @@ import org.apache.oozie.util.ParamChecker;
 public class CompletedActionXCommand extends WorkflowXCommand<Void> {
     private final String actionId;
     private final String externalStatus;
+    private final Properties actionData;
     private JPAService jpaService;
     private WorkflowActionBean wfactionBean;
 
@@ -41,6 +42,7 @@ public class CompletedActionXCommand extends WorkflowXCommand<Void> {
         super("callback", "callback", priority);
         this.actionId = ParamChecker.notEmpty(actionId, "actionId");
         this.externalStatus = ParamChecker.notEmpty(externalStatus, "externalStatus");
+        this.actionData = actionData;
     }
 
     public CompletedActionXCommand(String actionId, String externalStatus, Properties actionData) {
@@ -94,7 +96,7 @@ public class CompletedActionXCommand extends WorkflowXCommand<Void> {
         // this is done because oozie notifications (of sub-wfs) is send
         // every status change, not only on completion.
         if (executor.isCompleted(externalStatus)) {
-            queue(new ActionCheckXCommand(this.wfactionBean.getId(), getPriority(), -1));
+            queue(new ActionCheckXCommand(this.wfactionBean.getId(), getPriority(), -1, actionData));
         }
         return null;
     }
@@ -14,6 +14,7 @@
  */
 package org.apache.oozie.command.wf;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.oozie.ErrorCode;
@@ -23,6 +24,7 @@ import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.PreconditionException;
+import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.executor.jpa.WorkflowActionsDeleteForPurgeJPAExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobDeleteJPAExecutor;
@@ -46,16 +48,22 @@ public class PurgeXCommand extends WorkflowXCommand<Void> {
 
         int actionDeleted = 0;
         if (jobList != null && jobList.size() != 0) {
+            // all the deletes are done in a single transaction, for each job the job and its actions are deleted
+            List<JPAExecutor<?>> deleteList = new ArrayList<JPAExecutor<?>>();
             for (WorkflowJobBean w : jobList) {
                 String wfId = w.getId();
-                try {
-                    jpaService.execute(new WorkflowJobDeleteJPAExecutor(wfId));
-                    actionDeleted += jpaService.execute(new WorkflowActionsDeleteForPurgeJPAExecutor(wfId));
-                }
-                catch (JPAExecutorException e) {
-                    throw new CommandException(e);
+                deleteList.add(new WorkflowJobDeleteJPAExecutor(wfId));
+                deleteList.add(new WorkflowActionsDeleteForPurgeJPAExecutor(wfId));
+            }
+            try {
+                List<Object> results = jpaService.executeBatch(deleteList);
+                for (int i = 1; i < results.size(); i += 2) {
+                    actionDeleted += (Integer) results.get(i);
                 }
             }
+            catch (JPAExecutorException e) {
+                throw new CommandException(e);
+            }
             LOG.debug("ENDED Workflow-Purge deleted jobs :" + jobList.size() + " and actions " + actionDeleted);
         }
         else {
@@ -208,11 +208,11 @@ public class CoordELEvaluator {
     /**
      * Create Dataset object using the Dataset XML information
      *
-     * @param eData
-     * @return
+     * @param eData data-in or data-out element
+     * @return the dataset of the element
      * @throws Exception
      */
-    private static SyncCoordDataset getDSObject(Element eData) throws Exception {
+    public static SyncCoordDataset getDSObject(Element eData) throws Exception {
         SyncCoordDataset ds = new SyncCoordDataset();
         Element eDataset = eData.getChild("dataset", eData.getNamespace());
         // System.out.println("eDATA :"+ XmlUtils.prettyPrint(eData));
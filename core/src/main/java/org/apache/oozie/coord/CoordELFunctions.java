@@ -29,6 +29,7 @@ import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.DatasetIndexService;
 import org.apache.oozie.service.HadoopAccessorService;
 
 /**
@@ -251,7 +252,7 @@ public class CoordELFunctions {
                 if (doneFlag.length() > 0) {
                     pathWithDoneFlag += "/" + doneFlag;
                 }
-                if (isPathAvailable(pathWithDoneFlag, user, group, conf)) {
+                if (isInstanceAvailable(ds, uriPath, pathWithDoneFlag, user, group, conf)) {
                     XLog.getLog(CoordELFunctions.class).debug("Found future(" + available + "): " + pathWithDoneFlag);
                     if (available == n) {
                         XLog.getLog(CoordELFunctions.class).debug("Found future File: " + pathWithDoneFlag);
@@ -761,7 +762,7 @@ public class CoordELFunctions {
                 if (doneFlag.length() > 0) {
                     pathWithDoneFlag += "/" + doneFlag;
                 }
-                if (isPathAvailable(pathWithDoneFlag, user, group, conf)) {
+                if (isInstanceAvailable(ds, uriPath, pathWithDoneFlag, user, group, conf)) {
                     XLog.getLog(CoordELFunctions.class).debug("Found latest(" + available + "): " + pathWithDoneFlag);
                     if (available == offset) {
                         XLog.getLog(CoordELFunctions.class).debug("Found Latest File: " + pathWithDoneFlag);
@@ -815,6 +816,29 @@ public class CoordELFunctions {
                 createFileSystem(user, group, path.toUri(), conf).exists(path);
     }
 
+    /**
+     * Check whether a dataset instance is available, using the {@link DatasetIndexService} if it is configured.
+     *
+     * @param ds dataset.
+     * @param uriPath URI of the instance.
+     * @param pathWithDoneFlag URI of the instance with the done flag of the dataset.
+     * @param user user to check the instance as.
+     * @param group group to check the instance as.
+     * @param conf configuration to access the file system of the instance with.
+     * @return if the instance is available.
+     * @throws IOException
+     * @throws HadoopAccessorException
+     */
+    private static boolean isInstanceAvailable(SyncCoordDataset ds, String uriPath, String pathWithDoneFlag,
+                                               String user, String group, Configuration conf)
+            throws IOException, HadoopAccessorException {
+        DatasetIndexService indexService = Services.get().get(DatasetIndexService.class);
+        if (indexService != null) {
+            return indexService.isAvailable(ds.getUriTemplate(), ds.getDoneFlag(), uriPath, user, group, conf);
+        }
+        return isPathAvailable(pathWithDoneFlag, user, group, conf);
+    }
+
     /**
      * @param tm
      * @return a new Evaluator to be used for URI-template evaluation
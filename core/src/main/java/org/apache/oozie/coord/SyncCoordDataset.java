@@ -66,6 +66,30 @@ public class SyncCoordDataset {
         return frequency;
     }
 
+    /**
+     * @return the approximate duration of the frequency in milliseconds, months count as 30 days, -1 if the dataset
+     *         has no frequency
+     */
+    public long getFrequencyInMillis() {
+        if (timeUnit == null || frequency <= 0) {
+            return -1;
+        }
+        switch (timeUnit) {
+            case MINUTE:
+                return frequency * 60L * 1000;
+            case HOUR:
+                return frequency * 60L * 60 * 1000;
+            case DAY:
+            case END_OF_DAY:
+                return frequency * 24L * 60 * 60 * 1000;
+            case MONTH:
+            case END_OF_MONTH:
+                return frequency * 30L * 24 * 60 * 60 * 1000;
+            default:
+                return -1;
+        }
+    }
+
     /**
      * @param frequency the frequency to set
      */
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Count the actions of a set of bundle jobs by status with a single grouped query, without loading the actions.
+ * <p/>
+ * The result maps each bundle id to the number of its actions in each status. Bundles with pending actions are not in
+ * the map, bundles without actions are mapped to an empty map.
+ */
+public class BundleActionsStatusCountGroupByBundleIdJPAExecutor implements
+        JPAExecutor<Map<String, Map<Job.Status, Integer>>> {
+
+    private final List<String> bundleIds;
+
+    public BundleActionsStatusCountGroupByBundleIdJPAExecutor(List<String> bundleIds) {
+        ParamChecker.notNull(bundleIds, "bundleIds");
+        this.bundleIds = bundleIds;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "BundleActionsStatusCountGroupByBundleIdJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<Job.Status, Integer>> execute(EntityManager em) throws JPAExecutorException {
+        Map<String, Map<Job.Status, Integer>> counts = new HashMap<String, Map<Job.Status, Integer>>();
+        if (bundleIds.isEmpty()) {
+            return counts;
+        }
+        try {
+            for (String bundleId : bundleIds) {
+                counts.put(bundleId, new HashMap<Job.Status, Integer>());
+            }
+            Set<String> pendingBundleIds = new HashSet<String>();
+            Query q = em.createNamedQuery("GET_BUNDLE_ACTIONS_STATUS_PENDING_COUNT_GROUP_BY_BUNDLEID");
+            q.setParameter("bundleIds", bundleIds);
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                String bundleId = (String) row[0];
+                if (((Number) row[2]).intValue() > 0) {
+                    pendingBundleIds.add(bundleId);
+                }
+                else {
+                    Job.Status status = Job.Status.valueOf((String) row[1]);
+                    Map<Job.Status, Integer> bundleCounts = counts.get(bundleId);
+                    Integer count = bundleCounts.get(status);
+                    bundleCounts.put(status, ((count != null) ? count : 0) + ((Number) row[3]).intValue());
+                }
+            }
+            counts.keySet().removeAll(pendingBundleIds);
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return counts;
+    }
+}
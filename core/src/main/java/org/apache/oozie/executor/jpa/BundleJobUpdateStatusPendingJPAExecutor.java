@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.BundleJobBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Write the status and the pending flag of a bundle job, the other columns of the job are not written.
+ * <p/>
+ * The job is updated only if its status is still the given previous status, a status changed concurrently (i.e. by a
+ * kill or a suspend) is not overwritten. The executor returns the number of updated jobs.
+ */
+public class BundleJobUpdateStatusPendingJPAExecutor implements JPAExecutor<Integer> {
+
+    private final BundleJobBean bundleJob;
+    private final Job.Status prevStatus;
+
+    public BundleJobUpdateStatusPendingJPAExecutor(BundleJobBean bundleJob, Job.Status prevStatus) {
+        this.bundleJob = ParamChecker.notNull(bundleJob, "bundleJob");
+        this.prevStatus = ParamChecker.notNull(prevStatus, "prevStatus");
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "BundleJobUpdateStatusPendingJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Query q = em.createNamedQuery("UPDATE_BUNDLE_JOB_STATUS_PENDING");
+            q.setParameter("status", bundleJob.getStatusStr());
+            q.setParameter("pending", bundleJob.isPending() ? 1 : 0);
+            q.setParameter("id", bundleJob.getId());
+            q.setParameter("prevStatus", prevStatus.toString());
+            return q.executeUpdate();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Collection;
+
+/**
+ * A {@link JPAExecutor} that changes entities cached by the {@link org.apache.oozie.service.JPAService} entity
+ * cache.
+ * <p/>
+ * The cache entries of the entities are invalidated after the executor transaction ends.
+ */
+public interface CacheInvalidatingJPAExecutor {
+
+    /**
+     * Return the cache keys of the entities changed by the executor.
+     *
+     * @return the cache keys of the changed entities.
+     */
+    public Collection<String> getInvalidatedCacheKeys();
+
+}
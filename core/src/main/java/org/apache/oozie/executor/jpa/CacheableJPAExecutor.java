@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+/**
+ * A {@link JPAExecutor} that reads a single entity whose value can be served from the
+ * {@link org.apache.oozie.service.JPAService} entity cache.
+ * <p/>
+ * The cache keeps its own copy of the entity, callers always get a copy they can modify.
+ */
+public interface CacheableJPAExecutor<T> extends JPAExecutor<T> {
+
+    /**
+     * Return the cache key of the entity read by the executor.
+     *
+     * @return the cache key of the entity.
+     */
+    public String getCacheKey();
+
+    /**
+     * Return a copy of an entity read by the executor, the copy must not share mutable state with the original.
+     *
+     * @param value entity to copy.
+     * @return the copy.
+     */
+    public T copy(T value);
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Set the last modified time of a coordinator action, the other columns of the action are not written.
+ * <p/>
+ * The executor returns the number of updated actions.
+ */
+public class CoordActionUpdateLastModifiedTimeJPAExecutor implements JPAExecutor<Integer> {
+
+    private final String actionId;
+    private final Date lastModifiedTime;
+
+    public CoordActionUpdateLastModifiedTimeJPAExecutor(String actionId, Date lastModifiedTime) {
+        this.actionId = ParamChecker.notEmpty(actionId, "actionId");
+        this.lastModifiedTime = ParamChecker.notNull(lastModifiedTime, "lastModifiedTime");
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordActionUpdateLastModifiedTimeJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Query q = em.createNamedQuery("UPDATE_COORD_ACTION_LAST_MODIFIED_TIME");
+            q.setParameter("lastModifiedTime", new Timestamp(lastModifiedTime.getTime()));
+            q.setParameter("id", actionId);
+            return q.executeUpdate();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+}
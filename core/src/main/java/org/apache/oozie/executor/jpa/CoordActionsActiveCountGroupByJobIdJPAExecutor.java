@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Count the WAITING actions of a set of coordinator jobs with a single grouped query.
+ * <p/>
+ * The result maps each job id to its number of WAITING actions, jobs without WAITING actions are not in the map.
+ */
+public class CoordActionsActiveCountGroupByJobIdJPAExecutor implements JPAExecutor<Map<String, Integer>> {
+
+    private final List<String> jobIds;
+
+    public CoordActionsActiveCountGroupByJobIdJPAExecutor(List<String> jobIds) {
+        ParamChecker.notNull(jobIds, "jobIds");
+        this.jobIds = jobIds;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordActionsActiveCountGroupByJobIdJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> execute(EntityManager em) throws JPAExecutorException {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        if (jobIds.isEmpty()) {
+            return counts;
+        }
+        try {
+            Query q = em.createNamedQuery("GET_COORD_ACTIVE_ACTIONS_COUNT_GROUP_BY_JOBID");
+            q.setParameter("jobIds", jobIds);
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                counts.put((String) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.CoordinatorAction;
+
+/**
+ * Get a page of the coordinator actions to recover, the WAITING and SUBMITTED actions and the pending SUSPENDED,
+ * KILLED and RUNNING actions that have not been modified for a given time.
+ * <p/>
+ * Only the columns needed to recover the actions are read: id, job id, status and external id. The returned beans
+ * have only those properties set. The actions are returned ordered by ID, the next page starts after the last ID of
+ * the previous page.
+ */
+public class CoordActionsGetForRecoveryColumnsJPAExecutor implements JPAExecutor<List<CoordinatorActionBean>> {
+
+    private final long checkAgeSecs;
+    private final String lastId;
+    private final int limit;
+
+    /**
+     * Create the executor.
+     *
+     * @param checkAgeSecs minimum time, in seconds, since the last modification of the actions.
+     * @param lastId last ID of the previous page, <code>null</code> for the first page.
+     * @param limit maximum number of actions to return, if <code>0</code> or less there is no limit.
+     */
+    public CoordActionsGetForRecoveryColumnsJPAExecutor(long checkAgeSecs, String lastId, int limit) {
+        this.checkAgeSecs = checkAgeSecs;
+        this.lastId = (lastId != null) ? lastId : "";
+        this.limit = limit;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordActionsGetForRecoveryColumnsJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CoordinatorActionBean> execute(EntityManager em) throws JPAExecutorException {
+        List<CoordinatorActionBean> actionList = new ArrayList<CoordinatorActionBean>();
+        try {
+            Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+            Query q = em.createNamedQuery("GET_COORD_ACTIONS_FOR_RECOVERY_COLUMNS");
+            q.setParameter("lastModifiedTime", ts);
+            q.setParameter("lastId", lastId);
+            if (limit > 0) {
+                q.setMaxResults(limit);
+            }
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                actionList.add(getBeanForRecoveryAction(row));
+            }
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return actionList;
+    }
+
+    private CoordinatorActionBean getBeanForRecoveryAction(Object[] arr) {
+        CoordinatorActionBean action = new CoordinatorActionBean();
+        action.setId((String) arr[0]);
+        action.setJobId((String) arr[1]);
+        if (arr[2] != null) {
+            action.setStatus(CoordinatorAction.Status.valueOf((String) arr[2]));
+        }
+        action.setExternalId((String) arr[3]);
+        return action;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+
+/**
+ * Get a page of the IDs of the running coordinator actions that have not been modified for a given time.
+ * <p/>
+ * Only the IDs are read, the actions are loaded by the check commands. The IDs are returned in order, the next page
+ * starts after the last ID of the previous page.
+ */
+public class CoordActionsRunningGetIdsJPAExecutor implements JPAExecutor<List<String>> {
+
+    private final long checkAgeSecs;
+    private final String lastId;
+    private final int limit;
+
+    /**
+     * Create the executor.
+     *
+     * @param checkAgeSecs minimum time, in seconds, since the last modification of the actions.
+     * @param lastId last ID of the previous page, <code>null</code> for the first page.
+     * @param limit maximum number of IDs to return, if <code>0</code> or less there is no limit.
+     */
+    public CoordActionsRunningGetIdsJPAExecutor(long checkAgeSecs, String lastId, int limit) {
+        this.checkAgeSecs = checkAgeSecs;
+        this.lastId = (lastId != null) ? lastId : "";
+        this.limit = limit;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordActionsRunningGetIdsJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+            Query q = em.createNamedQuery("GET_RUNNING_ACTION_IDS_OLDER_THAN");
+            q.setParameter("lastModifiedTime", ts);
+            q.setParameter("lastId", lastId);
+            if (limit > 0) {
+                q.setMaxResults(limit);
+            }
+            return q.getResultList();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Count the actions of a set of coordinator jobs by status with a single grouped query, without loading the actions.
+ * <p/>
+ * The result maps each job id to the number of its actions in each status. Jobs with pending actions are not in the
+ * map, jobs without actions are mapped to an empty map.
+ */
+public class CoordActionsStatusCountGroupByJobIdJPAExecutor implements
+        JPAExecutor<Map<String, Map<CoordinatorAction.Status, Integer>>> {
+
+    private final List<String> jobIds;
+
+    public CoordActionsStatusCountGroupByJobIdJPAExecutor(List<String> jobIds) {
+        ParamChecker.notNull(jobIds, "jobIds");
+        this.jobIds = jobIds;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordActionsStatusCountGroupByJobIdJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<CoordinatorAction.Status, Integer>> execute(EntityManager em)
+            throws JPAExecutorException {
+        Map<String, Map<CoordinatorAction.Status, Integer>> counts =
+                new HashMap<String, Map<CoordinatorAction.Status, Integer>>();
+        if (jobIds.isEmpty()) {
+            return counts;
+        }
+        try {
+            for (String jobId : jobIds) {
+                counts.put(jobId, new HashMap<CoordinatorAction.Status, Integer>());
+            }
+            Set<String> pendingJobIds = new HashSet<String>();
+            Query q = em.createNamedQuery("GET_COORD_ACTIONS_STATUS_PENDING_COUNT_GROUP_BY_JOBID");
+            q.setParameter("jobIds", jobIds);
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                String jobId = (String) row[0];
+                if (((Number) row[2]).intValue() > 0) {
+                    pendingJobIds.add(jobId);
+                }
+                else {
+                    CoordinatorAction.Status status = CoordinatorAction.Status.valueOf((String) row[1]);
+                    Map<CoordinatorAction.Status, Integer> jobCounts = counts.get(jobId);
+                    Integer count = jobCounts.get(status);
+                    jobCounts.put(status, ((count != null) ? count : 0) + ((Number) row[3]).intValue());
+                }
+            }
+            counts.keySet().removeAll(pendingJobIds);
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return counts;
+    }
+}
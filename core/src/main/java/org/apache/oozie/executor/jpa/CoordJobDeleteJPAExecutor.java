@@ -14,15 +14,19 @@
  */
 package org.apache.oozie.executor.jpa;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.persistence.EntityManager;
 
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 
 /**
  * Delete coord job
  */
-public class CoordJobDeleteJPAExecutor implements JPAExecutor<Void> {
+public class CoordJobDeleteJPAExecutor implements JPAExecutor<Void>, CacheInvalidatingJPAExecutor {
 
     private String coordJobId = null;
 
@@ -50,4 +54,13 @@ public class CoordJobDeleteJPAExecutor implements JPAExecutor<Void> {
     public String getName() {
         return "CoordJobDeleteJPAExecutor";
     }
-}
\ No newline at end of file
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        return Collections.singletonList(EntityCache.getKey(CoordinatorJobBean.class, coordJobId));
+    }
+
+}
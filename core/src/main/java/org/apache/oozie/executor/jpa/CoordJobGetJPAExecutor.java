@@ -22,11 +22,14 @@ import javax.persistence.Query;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 
 /**
  * Load the CoordinatorJob into a Bean and return it.
+ * <p/>
+ * The job can be served from the {@link org.apache.oozie.service.JPAService} entity cache.
  */
-public class CoordJobGetJPAExecutor implements JPAExecutor<CoordinatorJobBean> {
+public class CoordJobGetJPAExecutor implements CacheableJPAExecutor<CoordinatorJobBean> {
 
     private String coordJobId = null;
 
@@ -68,4 +71,59 @@ public class CoordJobGetJPAExecutor implements JPAExecutor<CoordinatorJobBean> {
             throw new JPAExecutorException(ErrorCode.E0604, coordJobId);
         }
     }
-}
\ No newline at end of file
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheableJPAExecutor#getCacheKey()
+     */
+    @Override
+    public String getCacheKey() {
+        return EntityCache.getKey(CoordinatorJobBean.class, coordJobId);
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheableJPAExecutor#copy(java.lang.Object)
+     */
+    @Override
+    public CoordinatorJobBean copy(CoordinatorJobBean job) {
+        CoordinatorJobBean bean = new CoordinatorJobBean();
+        bean.setId(job.getId());
+        bean.setAppName(job.getAppName());
+        bean.setAppPath(job.getAppPath());
+        bean.setAppNamespace(job.getAppNamespace());
+        bean.setExternalId(job.getExternalId());
+        bean.setBundleId(job.getBundleId());
+        bean.setConf(job.getConf());
+        bean.setStatus(job.getStatus());
+        bean.setFrequency(job.getFrequency());
+        bean.setTimeUnit(job.getTimeUnit());
+        bean.setTimeZone(job.getTimeZone());
+        bean.setConcurrency(job.getConcurrency());
+        bean.setMatThrottling(job.getMatThrottling());
+        bean.setExecution(job.getExecutionOrder());
+        bean.setTimeout(job.getTimeout());
+        bean.setLastActionNumber(job.getLastActionNumber());
+        bean.setLastActionTime(job.getLastActionTime());
+        bean.setNextMaterializedTime(job.getNextMaterializedTime());
+        bean.setStartTime(job.getStartTime());
+        bean.setEndTime(job.getEndTime());
+        bean.setPauseTime(job.getPauseTime());
+        bean.setCreatedTime(job.getCreatedTime());
+        bean.setLastModifiedTime(job.getLastModifiedTime());
+        bean.setSuspendedTime(job.getSuspendedTime());
+        bean.setUser(job.getUser());
+        bean.setGroup(job.getGroup());
+        bean.setConsoleUrl(job.getConsoleUrl());
+        bean.setAuthToken(job.getAuthToken());
+        bean.setJobXml(job.getJobXml());
+        bean.setOrigJobXml(job.getOrigJobXml());
+        bean.setSlaXml(job.getSlaXml());
+        if (job.isPending()) {
+            bean.setPending();
+        }
+        if (job.isDoneMaterialization()) {
+            bean.setDoneMaterialization();
+        }
+        return bean;
+    }
+
+}
@@ -1,14 +1,18 @@
 package org.apache.oozie.executor.jpa;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.persistence.EntityManager;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 
 /**
  * Update the CoordinatorJob into a Bean and persist it.
  */
-public class CoordJobUpdateJPAExecutor implements JPAExecutor<Void> {
+public class CoordJobUpdateJPAExecutor implements JPAExecutor<Void>, CacheInvalidatingJPAExecutor {
 
     private CoordinatorJobBean coordJob = null;
 
@@ -47,4 +51,12 @@ public class CoordJobUpdateJPAExecutor implements JPAExecutor<Void> {
         return "CoordinatorUpdateJobJPAExecutor";
     }
 
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        return Collections.singletonList(EntityCache.getKey(CoordinatorJobBean.class, coordJob.getId()));
+    }
+
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
+
+/**
+ * Write the status, the pending flag and the last modified time of a coordinator job, the other columns of the job
+ * are not written.
+ * <p/>
+ * The job is updated only if its status is still the given previous status, a status changed concurrently (i.e. by a
+ * kill or a suspend) is not overwritten. The executor returns the number of updated jobs.
+ */
+public class CoordJobUpdateStatusPendingJPAExecutor implements JPAExecutor<Integer>, CacheInvalidatingJPAExecutor {
+
+    private final CoordinatorJobBean coordJob;
+    private final Job.Status prevStatus;
+
+    public CoordJobUpdateStatusPendingJPAExecutor(CoordinatorJobBean coordJob, Job.Status prevStatus) {
+        this.coordJob = ParamChecker.notNull(coordJob, "coordJob");
+        this.prevStatus = ParamChecker.notNull(prevStatus, "prevStatus");
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordJobUpdateStatusPendingJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        try {
+            Query q = em.createNamedQuery("UPDATE_COORD_JOB_STATUS_PENDING");
+            q.setParameter("status", coordJob.getStatusStr());
+            q.setParameter("pending", coordJob.isPending() ? 1 : 0);
+            q.setParameter("lastModifiedTime", DateUtils.convertDateToTimestamp(coordJob.getLastModifiedTime()));
+            q.setParameter("id", coordJob.getId());
+            q.setParameter("prevStatus", prevStatus.toString());
+            return q.executeUpdate();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        return Collections.singletonList(EntityCache.getKey(CoordinatorJobBean.class, coordJob.getId()));
+    }
+
+}
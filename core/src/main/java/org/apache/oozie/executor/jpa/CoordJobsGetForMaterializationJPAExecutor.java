@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Get a page of the coordinator jobs which qualify for materialization.
+ * <p/>
+ * Only the id, materialization throttling and last modified time of the jobs are read, the returned beans have only
+ * those properties set. The jobs are ordered by last modified time and id, the next page starts after the last job of
+ * the previous page. Jobs modified at or after the sweep time are not returned, so jobs touched while the sweep runs
+ * are not visited twice.
+ */
+public class CoordJobsGetForMaterializationJPAExecutor implements JPAExecutor<List<CoordinatorJobBean>> {
+
+    private final Date matTime;
+    private final Date sweepTime;
+    private final Date lastModifiedTime;
+    private final String lastId;
+    private final int limit;
+
+    /**
+     * Create the executor for the first page of a sweep.
+     *
+     * @param matTime materialization time.
+     * @param sweepTime start time of the sweep.
+     * @param limit maximum number of jobs to return, if <code>0</code> or less there is no limit.
+     */
+    public CoordJobsGetForMaterializationJPAExecutor(Date matTime, Date sweepTime, int limit) {
+        this(matTime, sweepTime, null, limit);
+    }
+
+    /**
+     * Create the executor for the page following the given job.
+     *
+     * @param matTime materialization time.
+     * @param sweepTime start time of the sweep.
+     * @param lastJob last job of the previous page, <code>null</code> for the first page.
+     * @param limit maximum number of jobs to return, if <code>0</code> or less there is no limit.
+     */
+    public CoordJobsGetForMaterializationJPAExecutor(Date matTime, Date sweepTime, CoordinatorJobBean lastJob,
+                                                     int limit) {
+        ParamChecker.notNull(matTime, "matTime");
+        ParamChecker.notNull(sweepTime, "sweepTime");
+        this.matTime = matTime;
+        this.sweepTime = sweepTime;
+        this.lastModifiedTime = (lastJob != null) ? lastJob.getLastModifiedTime() : new Date(0);
+        this.lastId = (lastJob != null) ? lastJob.getId() : "";
+        this.limit = limit;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordJobsGetForMaterializationJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CoordinatorJobBean> execute(EntityManager em) throws JPAExecutorException {
+        List<CoordinatorJobBean> jobList = new ArrayList<CoordinatorJobBean>();
+        try {
+            Query q = em.createNamedQuery("GET_COORD_JOBS_TO_BE_MATERIALIZED_COLUMNS");
+            q.setParameter("matTime", new Timestamp(matTime.getTime()));
+            q.setParameter("sweepTime", new Timestamp(sweepTime.getTime()));
+            q.setParameter("lastModifiedTime", new Timestamp(lastModifiedTime.getTime()));
+            q.setParameter("lastId", lastId);
+            if (limit > 0) {
+                q.setMaxResults(limit);
+            }
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                CoordinatorJobBean job = new CoordinatorJobBean();
+                job.setId((String) row[0]);
+                if (row[1] != null) {
+                    job.setMatThrottling((Integer) row[1]);
+                }
+                job.setLastModifiedTime(DateUtils.toDate((Timestamp) row[2]));
+                jobList.add(job);
+            }
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return jobList;
+    }
+}
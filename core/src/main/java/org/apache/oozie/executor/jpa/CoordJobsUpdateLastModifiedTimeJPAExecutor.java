@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
+
+/**
+ * Set the last modified time of a set of coordinator jobs with a single bulk update, the other columns of the jobs
+ * are not written.
+ * <p/>
+ * The executor returns the number of updated jobs.
+ */
+public class CoordJobsUpdateLastModifiedTimeJPAExecutor implements JPAExecutor<Integer>, CacheInvalidatingJPAExecutor {
+
+    private final List<String> jobIds;
+    private final Date lastModifiedTime;
+
+    public CoordJobsUpdateLastModifiedTimeJPAExecutor(List<String> jobIds, Date lastModifiedTime) {
+        ParamChecker.notNull(jobIds, "jobIds");
+        ParamChecker.notNull(lastModifiedTime, "lastModifiedTime");
+        this.jobIds = jobIds;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "CoordJobsUpdateLastModifiedTimeJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Integer execute(EntityManager em) throws JPAExecutorException {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            Query q = em.createNamedQuery("UPDATE_COORD_JOBS_LAST_MODIFIED_TIME");
+            q.setParameter("lastModifiedTime", new Timestamp(lastModifiedTime.getTime()));
+            q.setParameter("ids", jobIds);
+            return q.executeUpdate();
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        List<String> keys = new ArrayList<String>(jobIds.size());
+        for (String jobId : jobIds) {
+            keys.add(EntityCache.getKey(CoordinatorJobBean.class, jobId));
+        }
+        return keys;
+    }
+
+}
@@ -101,6 +101,7 @@ public class WorkflowActionGetJPAExecutor implements JPAExecutor<WorkflowActionB
             action.setUserRetryCount(a.getUserRetryCount());
             action.setUserRetryInterval(a.getUserRetryInterval());
             action.setUserRetryMax(a.getUserRetryMax());
+            action.resetDirtyFields();
             return action;
         }
         return null;
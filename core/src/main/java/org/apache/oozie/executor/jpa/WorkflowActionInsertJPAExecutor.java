@@ -45,6 +45,7 @@ public class WorkflowActionInsertJPAExecutor implements JPAExecutor<String> {
     @Override
     public String execute(EntityManager em) throws JPAExecutorException {
         em.persist(wfAction);
+        wfAction.resetDirtyFields();
         return null;
     }
 }
\ No newline at end of file
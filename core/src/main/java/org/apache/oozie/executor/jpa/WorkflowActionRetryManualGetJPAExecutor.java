@@ -52,6 +52,9 @@ public class WorkflowActionRetryManualGetJPAExecutor implements JPAExecutor<List
         catch (IllegalStateException e) {
             throw new JPAExecutorException(ErrorCode.E0601, e.getMessage(), e);
         }
+        for (WorkflowActionBean action : actions) {
+            action.resetDirtyFields();
+        }
         return actions;
     }
 
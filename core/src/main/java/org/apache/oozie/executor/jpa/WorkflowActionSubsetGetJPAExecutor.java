@@ -113,6 +113,7 @@ public class WorkflowActionSubsetGetJPAExecutor implements JPAExecutor<List<Work
             action.setStartTime(a.getStartTime());
             action.setStatus(a.getStatus());
             action.setJobId(a.getWfId());
+            action.resetDirtyFields();
             return action;
         }
         return null;
@@ -14,14 +14,20 @@
 */
 package org.apache.oozie.executor.jpa;
 
+import java.util.Map;
+
 import javax.persistence.EntityManager;
 
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.db.DirtyFieldTracker;
 
 /**
 * Persist the WorkflowAction bean.
+* <p/>
+* If the bean tracks its dirty fields only the changed columns are updated, nothing is written if no field changed.
+* Otherwise the whole bean is merged.
 */
 public class WorkflowActionUpdateJPAExecutor implements JPAExecutor<String> {
 
@@ -41,7 +47,12 @@ public class WorkflowActionUpdateJPAExecutor implements JPAExecutor<String> {
     public String execute(EntityManager em) throws JPAExecutorException {
 
         try {
-            em.merge(wfAction);
+            Map<String, Object> dirtyFields = wfAction.getDirtyFields();
+            if (dirtyFields == null || (!dirtyFields.isEmpty() && DirtyFieldTracker.createUpdateQuery(em,
+                    "WorkflowActionBean", "id", wfAction.getId(), dirtyFields).executeUpdate() == 0)) {
+                em.merge(wfAction);
+            }
+            wfAction.resetDirtyFields();
             return null;
         }
         catch (Exception e) {
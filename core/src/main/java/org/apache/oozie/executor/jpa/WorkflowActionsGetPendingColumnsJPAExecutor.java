@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.util.DateUtils;
+
+/**
+ * Get a page of the workflow actions that are pending for more than a given time.
+ * <p/>
+ * Only the columns needed to recover the actions are read: id, workflow id, status, type and pending age. The
+ * returned beans have only those properties set. The actions are returned ordered by ID, the next page starts after
+ * the last ID of the previous page.
+ */
+public class WorkflowActionsGetPendingColumnsJPAExecutor implements JPAExecutor<List<WorkflowActionBean>> {
+
+    private final long minimumPendingAgeSecs;
+    private final String lastId;
+    private final int limit;
+
+    /**
+     * Create the executor.
+     *
+     * @param minimumPendingAgeSecs minimum pending age of the actions, in seconds.
+     * @param lastId last ID of the previous page, <code>null</code> for the first page.
+     * @param limit maximum number of actions to return, if <code>0</code> or less there is no limit.
+     */
+    public WorkflowActionsGetPendingColumnsJPAExecutor(long minimumPendingAgeSecs, String lastId, int limit) {
+        this.minimumPendingAgeSecs = minimumPendingAgeSecs;
+        this.lastId = (lastId != null) ? lastId : "";
+        this.limit = limit;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "WorkflowActionsGetPendingColumnsJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WorkflowActionBean> execute(EntityManager em) throws JPAExecutorException {
+        List<WorkflowActionBean> actionList = new ArrayList<WorkflowActionBean>();
+        try {
+            Timestamp ts = new Timestamp(System.currentTimeMillis() - minimumPendingAgeSecs * 1000);
+            Query q = em.createNamedQuery("GET_PENDING_ACTIONS_COLUMNS");
+            q.setParameter("pendingAge", ts);
+            q.setParameter("lastId", lastId);
+            if (limit > 0) {
+                q.setMaxResults(limit);
+            }
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                actionList.add(getBeanForPendingAction(row));
+            }
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+        return actionList;
+    }
+
+    private WorkflowActionBean getBeanForPendingAction(Object[] arr) {
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId((String) arr[0]);
+        action.setJobId((String) arr[1]);
+        if (arr[2] != null) {
+            action.setStatus(WorkflowAction.Status.valueOf((String) arr[2]));
+        }
+        action.setType((String) arr[3]);
+        action.setPending();
+        action.setPendingAge(DateUtils.toDate((Timestamp) arr[4]));
+        return action;
+    }
+}
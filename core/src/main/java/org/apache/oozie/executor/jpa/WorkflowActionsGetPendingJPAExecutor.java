@@ -59,6 +59,9 @@ public class WorkflowActionsGetPendingJPAExecutor implements JPAExecutor<List<Wo
         catch (IllegalStateException e) {
             throw new JPAExecutorException(ErrorCode.E0601, e.getMessage(), e);
         }
+        for (WorkflowActionBean action : actionList) {
+            action.resetDirtyFields();
+        }
         return actionList;
     }
 }
\ No newline at end of file
@@ -105,6 +105,7 @@ public class WorkflowActionsRunningGetJPAExecutor implements JPAExecutor<List<Wo
             action.setUserRetryCount(bean.getUserRetryCount());
             action.setUserRetryInterval(bean.getUserRetryInterval());
             action.setUserRetryMax(bean.getUserRetryMax());
+            action.resetDirtyFields();
             return action;
         }
         return null;
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import javax.persistence.EntityManager;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowDefinitionBean;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Persist a workflow definition if it is not stored already.
+ * <p/>
+ * Definitions are content addressed, a stored definition never changes. The executor returns if the definition was
+ * inserted.
+ */
+public class WorkflowDefinitionInsertJPAExecutor implements JPAExecutor<Boolean> {
+
+    private WorkflowDefinitionBean wfDef = null;
+
+    public WorkflowDefinitionInsertJPAExecutor(WorkflowDefinitionBean wfDef) {
+        ParamChecker.notNull(wfDef, "wfDef");
+        this.wfDef = wfDef;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#getName()
+     */
+    @Override
+    public String getName() {
+        return "WorkflowDefinitionInsertJPAExecutor";
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.JPAExecutor#execute(javax.persistence.EntityManager)
+     */
+    @Override
+    public Boolean execute(EntityManager em) throws JPAExecutorException {
+        try {
+            if (em.find(WorkflowDefinitionBean.class, wfDef.getId()) != null) {
+                return false;
+            }
+            em.persist(wfDef);
+            return true;
+        }
+        catch (Exception e) {
+            throw new JPAExecutorException(ErrorCode.E0603, e.getMessage(), e);
+        }
+    }
+
+}
@@ -14,16 +14,20 @@
  */
 package org.apache.oozie.executor.jpa;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.persistence.EntityManager;
 
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 
 /**
  * Delete workflow job
  *
  */
-public class WorkflowJobDeleteJPAExecutor implements JPAExecutor<Void>{
+public class WorkflowJobDeleteJPAExecutor implements JPAExecutor<Void>, CacheInvalidatingJPAExecutor {
 
     private String wfJobId = null;
 
@@ -52,4 +56,12 @@ public class WorkflowJobDeleteJPAExecutor implements JPAExecutor<Void>{
         return "WorkflowJobDeleteJPAExecutor";
     }
 
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        return Collections.singletonList(EntityCache.getKey(WorkflowJobBean.class, wfJobId));
+    }
+
 }
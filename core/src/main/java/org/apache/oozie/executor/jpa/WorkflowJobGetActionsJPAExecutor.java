@@ -94,6 +94,7 @@ public class WorkflowJobGetActionsJPAExecutor implements JPAExecutor<List<Workfl
             action.setUserRetryCount(a.getUserRetryCount());
             action.setUserRetryInterval(a.getUserRetryInterval());
             action.setUserRetryMax(a.getUserRetryMax());
+            action.resetDirtyFields();
             return action;
         }
         return null;
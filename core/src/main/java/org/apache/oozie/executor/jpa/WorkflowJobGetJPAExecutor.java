@@ -22,11 +22,14 @@ import javax.persistence.Query;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 
 /**
  * Load the WorkflowJob into a Bean and return it.
+ * <p/>
+ * The job can be served from the {@link org.apache.oozie.service.JPAService} entity cache.
  */
-public class WorkflowJobGetJPAExecutor implements JPAExecutor<WorkflowJobBean> {
+public class WorkflowJobGetJPAExecutor implements CacheableJPAExecutor<WorkflowJobBean> {
 
     private String wfJobId = null;
 
@@ -62,10 +65,51 @@ public class WorkflowJobGetJPAExecutor implements JPAExecutor<WorkflowJobBean> {
         if (wjBeans != null && wjBeans.size() > 0) {
             bean = wjBeans.get(0);
             bean.setStatus(bean.getStatus());
+            bean.resetDirtyFields();
             return bean;
         }
         else {
             throw new JPAExecutorException(ErrorCode.E0604, wfJobId);
         }
     }
-}
\ No newline at end of file
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheableJPAExecutor#getCacheKey()
+     */
+    @Override
+    public String getCacheKey() {
+        return EntityCache.getKey(WorkflowJobBean.class, wfJobId);
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheableJPAExecutor#copy(java.lang.Object)
+     */
+    @Override
+    public WorkflowJobBean copy(WorkflowJobBean job) {
+        WorkflowJobBean bean = new WorkflowJobBean();
+        bean.setId(job.getId());
+        bean.setAppName(job.getAppName());
+        bean.setAppPath(job.getAppPath());
+        bean.setConf(job.getConf());
+        bean.setStatus(job.getStatus());
+        bean.setExternalId(job.getExternalId());
+        bean.setCreatedTime(job.getCreatedTime());
+        bean.setStartTime(job.getStartTime());
+        bean.setEndTime(job.getEndTime());
+        bean.setLastModifiedTime(job.getLastModifiedTime());
+        bean.setUser(job.getUser());
+        bean.setGroup(job.getGroup());
+        bean.setRun(job.getRun());
+        bean.setParentId(job.getParentId());
+        bean.setConsoleUrl(job.getConsoleUrl());
+        bean.setAuthToken(job.getAuthToken());
+        bean.setLogToken(job.getLogToken());
+        bean.setProtoActionConf(job.getProtoActionConf());
+        bean.setSlaXml(job.getSlaXml());
+        // the instance blob is replaced, not modified in place, when the job changes
+        bean.setWfInstance(job.getWfInstance());
+        bean.resetDirtyFields();
+        return bean;
+    }
+
+}
@@ -45,6 +45,7 @@ public class WorkflowJobInsertJPAExecutor implements JPAExecutor<String> {
     @Override
     public String execute(EntityManager em) throws JPAExecutorException {
         em.persist(wfJob);
+        wfJob.resetDirtyFields();
         return null;
     }
 }
\ No newline at end of file
@@ -14,18 +14,25 @@
 */
 package org.apache.oozie.executor.jpa;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.db.EntityCache;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.db.DirtyFieldTracker;
 
 /**
 * Persist the WorkflowJob bean.
+* <p/>
+* If the bean tracks its dirty fields only the changed columns are updated, otherwise the whole bean is merged.
 */
-public class WorkflowJobUpdateJPAExecutor implements JPAExecutor<Void> {
+public class WorkflowJobUpdateJPAExecutor implements JPAExecutor<Void>, CacheInvalidatingJPAExecutor {
 
     private WorkflowJobBean wfJob = null;
 
@@ -49,7 +56,12 @@ public class WorkflowJobUpdateJPAExecutor implements JPAExecutor<Void> {
     public Void execute(EntityManager em) throws JPAExecutorException {
         try {
             wfJob.setLastModifiedTime(new Date());
-            em.merge(wfJob);
+            Map<String, Object> dirtyFields = wfJob.getDirtyFields();
+            if (dirtyFields == null || (!dirtyFields.isEmpty() && DirtyFieldTracker.createUpdateQuery(em,
+                    "WorkflowJobBean", "id", wfJob.getId(), dirtyFields).executeUpdate() == 0)) {
+                em.merge(wfJob);
+            }
+            wfJob.resetDirtyFields();
             return null;
         }
         catch (Exception e) {
@@ -57,4 +69,12 @@ public class WorkflowJobUpdateJPAExecutor implements JPAExecutor<Void> {
         }
     }
 
-}
\ No newline at end of file
+    /* (non-Javadoc)
+     * @see org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor#getInvalidatedCacheKeys()
+     */
+    @Override
+    public Collection<String> getInvalidatedCacheKeys() {
+        return Collections.singletonList(EntityCache.getKey(WorkflowJobBean.class, wfJob.getId()));
+    }
+
+}
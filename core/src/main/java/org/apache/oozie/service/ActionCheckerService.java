@@ -15,20 +15,20 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.ErrorCode;
-import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.coord.CoordActionCheckCommand;
 import org.apache.oozie.command.coord.CoordActionCheckXCommand;
 import org.apache.oozie.command.wf.ActionCheckCommand;
 import org.apache.oozie.command.wf.ActionCheckXCommand;
-import org.apache.oozie.executor.jpa.CoordActionsRunningGetJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionsRunningGetIdsJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
-import org.apache.oozie.executor.jpa.WorkflowActionsRunningGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionsRunningGetIdsJPAExecutor;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 
@@ -50,11 +50,22 @@ public class ActionCheckerService implements Service {
      */
     public static final String CONF_ACTION_CHECK_DELAY = CONF_PREFIX + "action.check.delay";
 
+    /**
+     * The time, in seconds, between an ActionCheck for the same action, for actions that notify their completion with
+     * a callback.
+     */
+    public static final String CONF_ACTION_CHECK_CALLBACK_DELAY = CONF_PREFIX + "action.check.callback.delay";
+
     /**
      * The number of callables to be queued in a batch.
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
 
+    /**
+     * The number of action IDs read from the database per query.
+     */
+    public static final String CONF_QUERY_PAGE_SIZE = CONF_PREFIX + "query.page.size";
+
     protected static final String INSTRUMENTATION_GROUP = "actionchecker";
     protected static final String INSTR_CHECK_ACTIONS_COUNTER = "checks_wf_actions";
     protected static final String INSTR_CHECK_COORD_ACTIONS_COUNTER = "checks_coord_actions";
@@ -67,11 +78,31 @@ public class ActionCheckerService implements Service {
      */
     static class ActionCheckRunnable implements Runnable {
         private int actionCheckDelay;
+        private int callbackCheckDelay;
+        private int pageSize;
         private List<XCallable<Void>> callables;
         private StringBuilder msg = null;
 
         public ActionCheckRunnable(int actionCheckDelay) {
+            this(actionCheckDelay, 500);
+        }
+
+        public ActionCheckRunnable(int actionCheckDelay, int pageSize) {
+            this(actionCheckDelay, actionCheckDelay, pageSize);
+        }
+
+        /**
+         * Create the runnable.
+         *
+         * @param actionCheckDelay time, in seconds, between checks of the same action.
+         * @param callbackCheckDelay time, in seconds, between checks of the same action for action types that notify
+         * their completion with a callback.
+         * @param pageSize number of action IDs read from the database per query.
+         */
+        public ActionCheckRunnable(int actionCheckDelay, int callbackCheckDelay, int pageSize) {
             this.actionCheckDelay = actionCheckDelay;
+            this.callbackCheckDelay = callbackCheckDelay;
+            this.pageSize = pageSize;
         }
 
         public void run() {
@@ -99,7 +130,8 @@ public class ActionCheckerService implements Service {
         }
 
         /**
-         * check workflow actions
+         * check workflow actions, the actions of types that notify their completion with a callback are checked with
+         * the callback check delay.
          *
          * @throws CommandException
          */
@@ -109,31 +141,50 @@ public class ActionCheckerService implements Service {
                 throw new CommandException(ErrorCode.E0610);
             }
 
-            List<WorkflowActionBean> actions;
-            try {
-                actions = jpaService
-                        .execute(new WorkflowActionsRunningGetJPAExecutor(actionCheckDelay));
+            Set<String> callbackTypes = Collections.emptySet();
+            ActionService actionService = Services.get().get(ActionService.class);
+            if (actionService != null && callbackCheckDelay != actionCheckDelay) {
+                callbackTypes = actionService.getCompletionCallbackTypes();
             }
-            catch (JPAExecutorException je) {
-                throw new CommandException(je);
+            int count = runWFActionCheck(jpaService, actionCheckDelay, callbackTypes, false);
+            if (!callbackTypes.isEmpty()) {
+                count += runWFActionCheck(jpaService, callbackCheckDelay, callbackTypes, true);
             }
 
-            if (actions == null || actions.size() == 0) {
-                return;
+            if (count > 0) {
+                msg.append(" WF_ACTIONS : " + count);
             }
-            msg.append(" WF_ACTIONS : " + actions.size());
+        }
 
-            for (WorkflowActionBean action : actions) {
-                Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                        INSTR_CHECK_ACTIONS_COUNTER, 1);
-                if (useXCommand) {
-                    queueCallable(new ActionCheckXCommand(action.getId()));
+        private int runWFActionCheck(JPAService jpaService, int checkDelay, Set<String> types, boolean includeTypes)
+                throws CommandException {
+            // only the IDs are read, a page at a time, the check commands load the actions
+            int count = 0;
+            String lastId = null;
+            List<String> actionIds;
+            do {
+                try {
+                    actionIds = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(checkDelay, lastId,
+                                                                                               pageSize, types,
+                                                                                               includeTypes));
                 }
-                else {
-                    queueCallable(new ActionCheckCommand(action.getId()));
+                catch (JPAExecutorException je) {
+                    throw new CommandException(je);
                 }
-            }
-
+                for (String actionId : actionIds) {
+                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                            INSTR_CHECK_ACTIONS_COUNTER, 1);
+                    if (useXCommand) {
+                        queueCallable(new ActionCheckXCommand(actionId));
+                    }
+                    else {
+                        queueCallable(new ActionCheckCommand(actionId));
+                    }
+                    lastId = actionId;
+                }
+                count += actionIds.size();
+            } while (pageSize > 0 && actionIds.size() == pageSize);
+            return count;
         }
 
         /**
@@ -147,32 +198,34 @@ public class ActionCheckerService implements Service {
                 throw new CommandException(ErrorCode.E0610);
             }
 
-            List<CoordinatorActionBean> cactions;
-            try {
-                cactions = jpaService.execute(new CoordActionsRunningGetJPAExecutor(
-                        actionCheckDelay));
-            }
-            catch (JPAExecutorException je) {
-                throw new CommandException(je);
-            }
-
-            if (cactions == null || cactions.size() == 0) {
-                return;
-            }
-
-            msg.append(" COORD_ACTIONS : " + cactions.size());
-
-            for (CoordinatorActionBean caction : cactions) {
-                Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                        INSTR_CHECK_COORD_ACTIONS_COUNTER, 1);
-                if (useXCommand) {
-                    queueCallable(new CoordActionCheckXCommand(caction.getId(), actionCheckDelay));
+            int count = 0;
+            String lastId = null;
+            List<String> cactionIds;
+            do {
+                try {
+                    cactionIds = jpaService.execute(new CoordActionsRunningGetIdsJPAExecutor(actionCheckDelay,
+                                                                                             lastId, pageSize));
                 }
-                else {
-                    queueCallable(new CoordActionCheckCommand(caction.getId(), actionCheckDelay));
+                catch (JPAExecutorException je) {
+                    throw new CommandException(je);
                 }
-            }
+                for (String cactionId : cactionIds) {
+                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                            INSTR_CHECK_COORD_ACTIONS_COUNTER, 1);
+                    if (useXCommand) {
+                        queueCallable(new CoordActionCheckXCommand(cactionId, actionCheckDelay));
+                    }
+                    else {
+                        queueCallable(new CoordActionCheckCommand(cactionId, actionCheckDelay));
+                    }
+                    lastId = cactionId;
+                }
+                count += cactionIds.size();
+            } while (pageSize > 0 && cactionIds.size() == pageSize);
 
+            if (count > 0) {
+                msg.append(" COORD_ACTIONS : " + count);
+            }
         }
 
         /**
@@ -208,7 +261,9 @@ public class ActionCheckerService implements Service {
     @Override
     public void init(Services services) {
         Configuration conf = services.getConf();
-        Runnable actionCheckRunnable = new ActionCheckRunnable(conf.getInt(CONF_ACTION_CHECK_DELAY, 600));
+        Runnable actionCheckRunnable = new ActionCheckRunnable(conf.getInt(CONF_ACTION_CHECK_DELAY, 600),
+                                                               conf.getInt(CONF_ACTION_CHECK_CALLBACK_DELAY, 1800),
+                                                               conf.getInt(CONF_QUERY_PAGE_SIZE, 500));
         services.get(SchedulerService.class).schedule(actionCheckRunnable, 10,
                 conf.getInt(CONF_ACTION_CHECK_INTERVAL, 60), SchedulerService.Unit.SEC);
 
@@ -23,8 +23,11 @@ import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.ErrorCode;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class ActionService implements Service {
 
@@ -34,6 +37,7 @@ public class ActionService implements Service {
 
     private Services services;
     private Map<String, Class<? extends ActionExecutor>> executors;
+    private Set<String> completionCallbackTypes;
 
     @SuppressWarnings("unchecked")
     public void init(Services services) throws ServiceException {
@@ -42,6 +46,7 @@ public class ActionService implements Service {
         ActionExecutor.resetInitInfo();
         ActionExecutor.disableInit();
         executors = new HashMap<String, Class<? extends ActionExecutor>>();
+        completionCallbackTypes = new HashSet<String>();
         Class<? extends ActionExecutor>[] classes =
                 (Class<? extends ActionExecutor>[]) services.getConf().getClasses(CONF_ACTION_EXECUTOR_CLASSES);
         registerExecutors(classes);
@@ -63,6 +68,7 @@ public class ActionService implements Service {
         ActionExecutor.resetInitInfo();
         ActionExecutor.disableInit();
         executors = null;
+        completionCallbackTypes = null;
     }
 
     public Class<? extends Service> getInterface() {
@@ -80,6 +86,9 @@ public class ActionService implements Service {
         executor.initActionType();
         ActionExecutor.disableInit();
         executors.put(executor.getType(), klass);
+        if (executor.isCompletionCallbackSupported()) {
+            completionCallbackTypes.add(executor.getType());
+        }
         log.trace("Registered Action executor for action type [{0}] class [{1}]", executor.getType(), klass);
     }
 
@@ -89,4 +98,13 @@ public class ActionService implements Service {
         return (executorClass != null) ? (ActionExecutor) ReflectionUtils.newInstance(executorClass, null) : null;
     }
 
+    /**
+     * Return the action types whose executors notify the completion of their actions with a callback.
+     *
+     * @return the action types whose executors support completion callbacks.
+     */
+    public Set<String> getCompletionCallbackTypes() {
+        return Collections.unmodifiableSet(completionCallbackTypes);
+    }
+
 }
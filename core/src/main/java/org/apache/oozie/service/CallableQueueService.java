@@ -16,11 +16,7 @@ package org.apache.oozie.service;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +28,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
+import org.apache.oozie.command.XCommand;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.PollablePriorityDelayQueue;
@@ -60,6 +57,9 @@ import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
  * of threads is reached, commands remain the queue until threads become available. Sets up a priority queue for the
  * execution of Commands via a ThreadPool. Sets up a Delayed Queue to handle actions which will be ready for execution
  * sometime in the future.
+ * <p/>
+ * Queuing does not synchronize on the service, producers only contend on the underlying queue. The time producers spend
+ * admitting callables is instrumented in the <code>callablequeue</code> group <code>time.admission</code> timer.
  */
 public class CallableQueueService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "callablequeue";
@@ -67,6 +67,7 @@ public class CallableQueueService implements Service, Instrumentable {
     private static final String INSTR_EXECUTED_COUNTER = "executed";
     private static final String INSTR_FAILED_COUNTER = "failed";
     private static final String INSTR_QUEUED_COUNTER = "queued";
+    private static final String INSTR_ADMISSION_TIME_TIMER = "time.admission";
     private static final String INSTR_QUEUE_SIZE_SAMPLER = "queue.size";
     private static final String INSTR_THREADS_ACTIVE_SAMPLER = "threads.active";
 
@@ -81,50 +82,51 @@ public class CallableQueueService implements Service, Instrumentable {
 
     public static final int SAFE_MODE_DELAY = 60000;
 
-    private final Map<String, AtomicInteger> activeCallables = new HashMap<String, AtomicInteger>();
+    private final ConcurrentHashMap<String, AtomicInteger> activeCallables =
+            new ConcurrentHashMap<String, AtomicInteger>();
 
-    private final Map<String, Date> uniqueCallables = new ConcurrentHashMap<String, Date>();
+    private final ConcurrentHashMap<String, Date> uniqueCallables = new ConcurrentHashMap<String, Date>();
 
     private int maxCallableConcurrency;
 
-    private boolean callableBegin(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
+    /**
+     * Return the concurrency counter for a callable type, creating it if it does not exist.
+     * <p/>
+     * Counters are never removed, once created for a type the lookup is lock free.
+     *
+     * @param type callable type.
+     * @return the concurrency counter for the type.
+     */
+    private AtomicInteger getConcurrencyCounter(String type) {
+        AtomicInteger counter = activeCallables.get(type);
+        if (counter == null) {
+            AtomicInteger newCounter = new AtomicInteger();
+            counter = activeCallables.putIfAbsent(type, newCounter);
             if (counter == null) {
-                counter = new AtomicInteger(1);
-                activeCallables.put(callable.getType(), counter);
-                return true;
-            }
-            else {
-                int i = counter.incrementAndGet();
-                return i <= maxCallableConcurrency;
+                counter = newCounter;
             }
         }
+        return counter;
+    }
+
+    private boolean callableBegin(XCallable<?> callable) {
+        return getConcurrencyCounter(callable.getType()).incrementAndGet() <= maxCallableConcurrency;
     }
 
     private void callableEnd(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                throw new IllegalStateException("It should not happen");
-            }
-            else {
-                counter.decrementAndGet();
-            }
+        AtomicInteger counter = activeCallables.get(callable.getType());
+        if (counter == null) {
+            throw new IllegalStateException("It should not happen");
         }
+        counter.decrementAndGet();
     }
 
     private boolean callableReachMaxConcurrency(XCallable<?> callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                return true;
-            }
-            else {
-                int i = counter.get();
-                return i < maxCallableConcurrency;
-            }
+        AtomicInteger counter = activeCallables.get(callable.getType());
+        if (counter == null) {
+            return true;
         }
+        return counter.get() < maxCallableConcurrency;
     }
 
     // Callables are wrapped with the this wrapper for execution, for logging
@@ -150,9 +152,11 @@ public class CallableQueueService implements Service, Instrumentable {
                 return;
             }
             XCallable<?> callable = getElement();
+            long readyTime = System.currentTimeMillis() + getDelay(TimeUnit.MILLISECONDS);
             try {
                 if (callableBegin(callable)) {
                     cron.stop();
+                    setReadyTime(callable, readyTime);
                     addInQueueCron(cron);
                     XLog.Info.get().clear();
                     XLog log = XLog.getLog(getClass());
@@ -195,11 +199,14 @@ public class CallableQueueService implements Service, Instrumentable {
         }
 
         /**
-         * Filter the duplicate callables from the list before queue this.
+         * Filter the duplicate callables from the list before queue this, adding the keys of the non duplicate
+         * callables to the unique map.
          * <p/>
-         * If it is single callable, checking if key is in unique map or not.
+         * If it is single callable, the key is added to the unique map only if it is not there already.
          * <p/>
          * If it is composite callable, remove duplicates callables from the composite.
+         * <p/>
+         * The check and the add are a single atomic operation, no lock is needed to queue concurrently.
          *
          * @return true if this callable should be queued
          */
@@ -209,20 +216,7 @@ public class CallableQueueService implements Service, Instrumentable {
                 return ((CompositeCallable) callable).removeDuplicates();
             }
             else {
-                return uniqueCallables.containsKey(callable.getKey()) == false;
-            }
-        }
-
-        /**
-         * Add the keys to the set
-         */
-        public void addToUniqueCallables() {
-            XCallable<?> callable = getElement();
-            if (callable instanceof CompositeCallable) {
-                ((CompositeCallable) callable).addToUniqueCallables();
-            }
-            else {
-                ((ConcurrentHashMap<String, Date>) uniqueCallables).putIfAbsent(callable.getKey(), new Date());
+                return uniqueCallables.putIfAbsent(callable.getKey(), new Date()) == null;
             }
         }
 
@@ -241,6 +235,27 @@ public class CallableQueueService implements Service, Instrumentable {
 
     }
 
+    /**
+     * Set the time a command became due for execution.
+     * <p/>
+     * The commands of a composite callable run one after the other, only the first one waited in the queue: the wait
+     * of the composite is reported once, by its first command.
+     *
+     * @param callable callable about to run.
+     * @param readyTime due time in milliseconds.
+     */
+    private void setReadyTime(XCallable<?> callable, long readyTime) {
+        if (callable instanceof XCommand) {
+            ((XCommand<?>) callable).setReadyTime(readyTime);
+        }
+        else if (callable instanceof CompositeCallable) {
+            List<XCallable<?>> callables = ((CompositeCallable) callable).callables;
+            if (!callables.isEmpty()) {
+                setReadyTime(callables.get(0), readyTime);
+            }
+        }
+    }
+
     class CompositeCallable implements XCallable<Void> {
         private List<XCallable<?>> callables;
         private String name;
@@ -336,20 +351,19 @@ public class CallableQueueService implements Service, Instrumentable {
         }
 
         /**
-         * Remove the duplicate callables from the list before queue them
+         * Remove the duplicate callables from the list before queue them, adding the keys of the remaining callables
+         * to the unique map.
          *
          * @return true if callables should be queued
          */
         public boolean removeDuplicates() {
-            Set<String> set = new HashSet<String>();
             List<XCallable<?>> filteredCallables = new ArrayList<XCallable<?>>();
             if (callables.size() == 0) {
                 return false;
             }
             for (XCallable<?> callable : callables) {
-                if (!uniqueCallables.containsKey(callable.getKey()) && !set.contains(callable.getKey())) {
+                if (uniqueCallables.putIfAbsent(callable.getKey(), new Date()) == null) {
                     filteredCallables.add(callable);
-                    set.add(callable.getKey());
                 }
             }
             callables = filteredCallables;
@@ -359,15 +373,6 @@ public class CallableQueueService implements Service, Instrumentable {
             return true;
         }
 
-        /**
-         * Add the keys to the set
-         */
-        public void addToUniqueCallables() {
-            for (XCallable<?> callable : callables) {
-                ((ConcurrentHashMap<String, Date>) uniqueCallables).putIfAbsent(callable.getKey(), new Date());
-            }
-        }
-
         /**
          * Remove the keys from the set
          */
@@ -405,6 +410,12 @@ public class CallableQueueService implements Service, Instrumentable {
         }
     }
 
+    private void addAdmissionCron(Instrumentation.Cron cron) {
+        if (instrumentation != null) {
+            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_ADMISSION_TIME_TIMER, cron);
+        }
+    }
+
     /**
      * Initialize the command queue service.
      *
@@ -516,18 +527,17 @@ public class CallableQueueService implements Service, Instrumentable {
     /**
      * @return int size of queue
      */
-    public synchronized int queueSize() {
+    public int queueSize() {
         return queue.size();
     }
 
-    private synchronized boolean queue(CallableWrapper wrapper, boolean ignoreQueueSize) {
+    private boolean queue(CallableWrapper wrapper, boolean ignoreQueueSize) {
         if (!ignoreQueueSize && queue.size() >= queueSize) {
             log.warn("queue if full, ignoring queuing for [{0}]", wrapper.getElement());
             return false;
         }
         if (!executor.isShutdown()) {
             if (wrapper.filterDuplicates()) {
-                wrapper.addToUniqueCallables();
                 try {
                     executor.execute(wrapper);
                 }
@@ -578,7 +588,7 @@ public class CallableQueueService implements Service, Instrumentable {
      * @return <code>true</code> if the callable was queued, <code>false</code> if the queue is full and the callable
      *         was not queued.
      */
-    public synchronized boolean queue(XCallable<?> callable, long delay) {
+    public boolean queue(XCallable<?> callable, long delay) {
         if (callable == null) {
             return true;
         }
@@ -587,7 +597,11 @@ public class CallableQueueService implements Service, Instrumentable {
             log.warn("[queue] System is in SAFEMODE. Hence no callable is queued. current queue size " + queue.size());
         }
         else {
+            Instrumentation.Cron cron = new Instrumentation.Cron();
+            cron.start();
             queued = queue(new CallableWrapper(callable, delay), false);
+            cron.stop();
+            addAdmissionCron(cron);
             if (queued) {
                 incrCounter(INSTR_QUEUED_COUNTER, 1);
             }
@@ -611,7 +625,7 @@ public class CallableQueueService implements Service, Instrumentable {
      *         were not queued.
      */
     @SuppressWarnings("unchecked")
-    public synchronized boolean queueSerial(List<? extends XCallable<?>> callables, long delay) {
+    public boolean queueSerial(List<? extends XCallable<?>> callables, long delay) {
         boolean queued;
         if (callables == null || callables.size() == 0) {
             queued = true;
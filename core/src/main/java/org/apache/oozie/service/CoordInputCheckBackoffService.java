@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Computes when the input check of a WAITING coordinator action is requeued.
+ * <p/>
+ * The delay grows with the time the action has been waiting past its nominal time, a fraction of it given by
+ * {@link #CONF_BACKOFF_FACTOR}, between {@link #CONF_MIN_INTERVAL} and {@link #CONF_MAX_INTERVAL}. It never exceeds
+ * the frequency of the input datasets nor the time left before the action times out.
+ * <p/>
+ * The lateness of the data of each coordinator job, the time between the nominal time and the input check finding
+ * all the data, is averaged in memory. An action waiting less than the usual lateness of its job is requeued half way
+ * to the usual arrival time.
+ */
+public class CoordInputCheckBackoffService implements Service {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "CoordInputCheckBackoffService.";
+
+    /**
+     * Min requeue interval, in seconds.
+     */
+    public static final String CONF_MIN_INTERVAL = CONF_PREFIX + "requeue.interval";
+
+    /**
+     * Max requeue interval, in seconds.
+     */
+    public static final String CONF_MAX_INTERVAL = CONF_PREFIX + "requeue.max.interval";
+
+    /**
+     * Fraction of the waiting time used as the requeue interval.
+     */
+    public static final String CONF_BACKOFF_FACTOR = CONF_PREFIX + "backoff.factor";
+
+    private static final int MAX_JOBS = 10000;
+
+    // weight of the last lateness in the job average
+    private static final double LATENESS_WEIGHT = 0.3;
+
+    private final Map<String, Long> lateness = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+    private long minInterval;
+    private long maxInterval;
+    private float factor;
+
+    /**
+     * Initialize the input check backoff service.
+     *
+     * @param services services instance.
+     */
+    public void init(Services services) {
+        Configuration conf = services.getConf();
+        minInterval = conf.getLong(CONF_MIN_INTERVAL, 60) * 1000;
+        maxInterval = Math.max(minInterval, conf.getLong(CONF_MAX_INTERVAL, 300) * 1000);
+        factor = conf.getFloat(CONF_BACKOFF_FACTOR, 0.1f);
+    }
+
+    /**
+     * Destroy the input check backoff service, the recorded lateness is discarded.
+     */
+    public void destroy() {
+        synchronized (lateness) {
+            lateness.clear();
+        }
+    }
+
+    /**
+     * Return the public interface of the input check backoff service.
+     *
+     * @return {@link CoordInputCheckBackoffService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return CoordInputCheckBackoffService.class;
+    }
+
+    /**
+     * Record that all the data of an action of a coordinator job is available.
+     *
+     * @param jobId coordinator job ID.
+     * @param arrival time, in milliseconds, between the nominal time of the action and now.
+     */
+    public void recordArrival(String jobId, long arrival) {
+        arrival = Math.max(0, arrival);
+        synchronized (lateness) {
+            Long average = lateness.get(jobId);
+            lateness.put(jobId, (average == null) ? arrival
+                                                  : (long) (LATENESS_WEIGHT * arrival
+                                                            + (1 - LATENESS_WEIGHT) * average));
+        }
+    }
+
+    /**
+     * Return the average lateness of the data of a coordinator job.
+     *
+     * @param jobId coordinator job ID.
+     * @return the average lateness in milliseconds, -1 if no action of the job got its data yet.
+     */
+    public long getLateness(String jobId) {
+        synchronized (lateness) {
+            Long average = lateness.get(jobId);
+            return (average != null) ? average : -1;
+        }
+    }
+
+    /**
+     * Return the delay to requeue the input check of a WAITING action with.
+     *
+     * @param jobId coordinator job ID.
+     * @param waitingTime time, in milliseconds, the action has been waiting past its nominal time.
+     * @param frequency smallest frequency of the action input datasets in milliseconds, -1 if not known.
+     * @param timeLeft time, in milliseconds, left before the action times out, -1 if it does not time out.
+     * @return the requeue delay in milliseconds.
+     */
+    public long getDelay(String jobId, long waitingTime, long frequency, long timeLeft) {
+        long average = getLateness(jobId);
+        long delay = (average > waitingTime) ? (average - waitingTime) / 2 : (long) (waitingTime * factor);
+        long max = (frequency > 0) ? Math.min(maxInterval, frequency) : maxInterval;
+        delay = Math.max(minInterval, Math.min(delay, max));
+        if (timeLeft >= 0) {
+            delay = Math.min(delay, timeLeft);
+        }
+        return delay;
+    }
+
+}
@@ -17,14 +17,14 @@ package org.apache.oozie.service;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.command.coord.CoordMaterializeTransitionXCommand;
-import org.apache.oozie.executor.jpa.CoordActionsActiveCountJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobGetRunningActionsCountJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobUpdateJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobsToBeMaterializedJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionsActiveCountGroupByJobIdJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobsGetForMaterializationJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobsUpdateLastModifiedTimeJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
@@ -48,23 +48,34 @@ public class CoordMaterializeTriggerService implements Service {
      * The number of callables to be queued in a batch.
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
+    /**
+     * The number of coordinator jobs read from the database per query during a lookup.
+     */
+    public static final String CONF_LOOKUP_PAGE_SIZE = CONF_PREFIX + "lookup.page.size";
 
     private static final String INSTRUMENTATION_GROUP = "coord_job_mat";
     private static final String INSTR_MAT_JOBS_COUNTER = "jobs";
     private static final int CONF_LOOKUP_INTERVAL_DEFAULT = 300;
     private static final int CONF_MATERIALIZATION_WINDOW_DEFAULT = 3600;
+    private static final int CONF_LOOKUP_PAGE_SIZE_DEFAULT = 50;
 
     /**
      * This runnable class will run in every "interval" to queue CoordMaterializeTransitionXCommand.
      */
     static class CoordMaterializeTriggerRunnable implements Runnable {
         private int materializationWindow;
+        private int pageSize;
         private long delay = 0;
         private List<XCallable<Void>> callables;
         private List<XCallable<Void>> delayedCallables;
 
         public CoordMaterializeTriggerRunnable(int materializationWindow) {
+            this(materializationWindow, CONF_LOOKUP_PAGE_SIZE_DEFAULT);
+        }
+
+        public CoordMaterializeTriggerRunnable(int materializationWindow, int pageSize) {
             this.materializationWindow = materializationWindow;
+            this.pageSize = pageSize;
         }
 
         @Override
@@ -96,6 +107,9 @@ public class CoordMaterializeTriggerService implements Service {
 
         /**
          * Recover coordinator jobs that should be materialized
+         * <p/>
+         * The qualifying jobs are swept a page at a time. For each page the WAITING actions of all the jobs are counted
+         * with one grouped query and the last modified time of the queued jobs is set with one bulk update.
          */
         private void runCoordJobMatLookup() {
             XLog.Info.get().clear();
@@ -104,31 +118,52 @@ public class CoordMaterializeTriggerService implements Service {
             try {
 
                 // get current date
-                Date currDate = new Date(new Date().getTime() + CONF_LOOKUP_INTERVAL_DEFAULT * 1000);
-                // get list of all jobs that have actions that should be materialized.
-                CoordJobsToBeMaterializedJPAExecutor cmatcmd = new CoordJobsToBeMaterializedJPAExecutor(currDate, 50);
-                List<CoordinatorJobBean> materializeJobs = jpaService.execute(cmatcmd);
-                LOG.debug("CoordMaterializeTriggerService - Curr Date= " + currDate + ", Num jobs to materialize = "
-                        + materializeJobs.size());
-                for (CoordinatorJobBean coordJob : materializeJobs) {
-                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                            INSTR_MAT_JOBS_COUNTER, 1);
-                    int numWaitingActions = jpaService
-                            .execute(new CoordActionsActiveCountJPAExecutor(coordJob.getId()));
-                    LOG.debug("Job :" + coordJob.getId() + "  numWaitingActions : " + numWaitingActions + " MatThrottle : "
-                            + coordJob.getMatThrottling());
-                    if (numWaitingActions >= coordJob.getMatThrottling()) {
-                        LOG.debug("Materialization skipped for JobID [" + coordJob.getId() + " already waiting "
-                                + numWaitingActions + " actions. MatThrottle is : " + coordJob.getMatThrottling());
-                        continue;
+                Date sweepTime = new Date();
+                Date currDate = new Date(sweepTime.getTime() + CONF_LOOKUP_INTERVAL_DEFAULT * 1000);
+                int numJobs = 0;
+                CoordinatorJobBean lastJob = null;
+                List<CoordinatorJobBean> materializeJobs;
+                do {
+                    // get a page of the jobs that have actions that should be materialized.
+                    materializeJobs = jpaService.execute(new CoordJobsGetForMaterializationJPAExecutor(currDate,
+                                                                                                       sweepTime,
+                                                                                                       lastJob,
+                                                                                                       pageSize));
+                    if (materializeJobs.isEmpty()) {
+                        break;
                     }
-                    queueCallable(new CoordMaterializeTransitionXCommand(coordJob.getId(), materializationWindow));
-                    //update lastModifiedTime so next time others might have higher chance to get pick up
-                    coordJob.setLastModifiedTime(new Date());
-                    jpaService.execute(new CoordJobUpdateJPAExecutor(coordJob));
-
-                }
+                    numJobs += materializeJobs.size();
+                    lastJob = materializeJobs.get(materializeJobs.size() - 1);
 
+                    List<String> jobIds = new ArrayList<String>(materializeJobs.size());
+                    for (CoordinatorJobBean coordJob : materializeJobs) {
+                        jobIds.add(coordJob.getId());
+                    }
+                    Map<String, Integer> waitingActions = jpaService.execute(
+                            new CoordActionsActiveCountGroupByJobIdJPAExecutor(jobIds));
+
+                    List<String> queuedJobIds = new ArrayList<String>(materializeJobs.size());
+                    for (CoordinatorJobBean coordJob : materializeJobs) {
+                        Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                INSTR_MAT_JOBS_COUNTER, 1);
+                        Integer count = waitingActions.get(coordJob.getId());
+                        int numWaitingActions = (count != null) ? count : 0;
+                        LOG.debug("Job :" + coordJob.getId() + "  numWaitingActions : " + numWaitingActions
+                                + " MatThrottle : " + coordJob.getMatThrottling());
+                        if (numWaitingActions >= coordJob.getMatThrottling()) {
+                            LOG.debug("Materialization skipped for JobID [" + coordJob.getId() + " already waiting "
+                                    + numWaitingActions + " actions. MatThrottle is : "
+                                    + coordJob.getMatThrottling());
+                            continue;
+                        }
+                        queueCallable(new CoordMaterializeTransitionXCommand(coordJob.getId(), materializationWindow));
+                        queuedJobIds.add(coordJob.getId());
+                    }
+                    //update lastModifiedTime so next time others might have higher chance to get pick up
+                    jpaService.execute(new CoordJobsUpdateLastModifiedTimeJPAExecutor(queuedJobIds, new Date()));
+                } while (pageSize > 0 && materializeJobs.size() == pageSize);
+                LOG.debug("CoordMaterializeTriggerService - Curr Date= " + currDate + ", Num jobs to materialize = "
+                        + numJobs);
             }
             catch (JPAExecutorException jex) {
                 LOG.warn("JPAExecutorException while attempting to materialize coordinator jobs", jex);
@@ -165,7 +200,8 @@ public class CoordMaterializeTriggerService implements Service {
     public void init(Services services) throws ServiceException {
         Configuration conf = services.getConf();
         Runnable lookupTriggerJobsRunnable = new CoordMaterializeTriggerRunnable(conf.getInt(
-                CONF_MATERIALIZATION_WINDOW, CONF_MATERIALIZATION_WINDOW_DEFAULT));// Default is 1 hour
+                CONF_MATERIALIZATION_WINDOW, CONF_MATERIALIZATION_WINDOW_DEFAULT),// Default is 1 hour
+                conf.getInt(CONF_LOOKUP_PAGE_SIZE, CONF_LOOKUP_PAGE_SIZE_DEFAULT));
         services.get(SchedulerService.class).schedule(lookupTriggerJobsRunnable, 10,
                                                       conf.getInt(CONF_LOOKUP_INTERVAL, CONF_LOOKUP_INTERVAL_DEFAULT),// Default is 5 minutes
                                                       SchedulerService.Unit.SEC);
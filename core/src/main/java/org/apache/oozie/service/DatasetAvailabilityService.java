@@ -0,0 +1,372 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Service that checks the availability of coordinator dataset instances, sharing the results among all the waiting
+ * coordinator actions.
+ * <p/>
+ * The results are cached by resolved URI. A dataset instance does not go away once it is available, positive results
+ * are cached until they are purged for not being used during the retention period. Negative results are cached for a
+ * short TTL only, the instance may be created any time. Concurrent checks of the same URI are done once, all the
+ * callers get the result of the check in progress.
+ * <p/>
+ * Availability is not considered user dependent, the first user checking an URI determines the cached result.
+ * <p/>
+ * The URIs of a coordinator action are checked in parallel by {@link #getAvailableCount(List, String, String)}, with
+ * a bounded number of threads and a bounded number of concurrent checks per file system (name node).
+ */
+public class DatasetAvailabilityService implements Service, Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "dataset-availability";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "DatasetAvailabilityService.";
+
+    /**
+     * Time, in seconds, a negative result is cached.
+     */
+    public static final String CONF_NEGATIVE_TTL = CONF_PREFIX + "negative.ttl";
+
+    /**
+     * Time, in seconds, an unused positive result is kept.
+     */
+    public static final String CONF_POSITIVE_RETENTION = CONF_PREFIX + "positive.retention";
+
+    /**
+     * Interval, in seconds, of the purge of the cached results.
+     */
+    public static final String CONF_PURGE_INTERVAL = CONF_PREFIX + "purge.interval";
+
+    /**
+     * Number of threads checking URIs in parallel, 1 or less checks the URIs serially.
+     */
+    public static final String CONF_CHECK_THREADS = CONF_PREFIX + "check.threads";
+
+    /**
+     * Max number of concurrent checks against a single file system.
+     */
+    public static final String CONF_CHECKS_PER_FILESYSTEM = CONF_PREFIX + "checks.per.filesystem";
+
+    public static final String INSTR_CACHE_HITS = "cache.hits";
+    public static final String INSTR_CACHE_MISSES = "cache.misses";
+    public static final String INSTR_CHECKS = "checks";
+    public static final String INSTR_DEDUPLICATED = "deduplicated";
+    public static final String INSTR_CACHE_SIZE = "cache.size";
+
+    private static class Availability {
+        private final boolean exists;
+        private final long checkTime;
+        private volatile long accessTime;
+
+        private Availability(boolean exists, long checkTime) {
+            this.exists = exists;
+            this.checkTime = checkTime;
+            this.accessTime = checkTime;
+        }
+    }
+
+    private final ConcurrentMap<String, Availability> cache = new ConcurrentHashMap<String, Availability>();
+    private final ConcurrentMap<String, FutureTask<Boolean>> checks =
+            new ConcurrentHashMap<String, FutureTask<Boolean>>();
+    private final ConcurrentMap<String, Semaphore> fileSystemPermits = new ConcurrentHashMap<String, Semaphore>();
+    private long negativeTtl;
+    private long positiveRetention;
+    private int checksPerFileSystem;
+    private ExecutorService executor;
+    private Instrumentation instr;
+
+    /**
+     * Initialize the dataset availability service.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    public void init(Services services) throws ServiceException {
+        Configuration conf = services.getConf();
+        negativeTtl = conf.getLong(CONF_NEGATIVE_TTL, 60) * 1000;
+        positiveRetention = conf.getLong(CONF_POSITIVE_RETENTION, 24 * 60 * 60) * 1000;
+        checksPerFileSystem = Math.max(1, conf.getInt(CONF_CHECKS_PER_FILESYSTEM, 5));
+        int threads = conf.getInt(CONF_CHECK_THREADS, 10);
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "dataset-availability-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        Runnable purgeRunnable = new Runnable() {
+            public void run() {
+                purge();
+            }
+        };
+        services.get(SchedulerService.class).schedule(purgeRunnable, 10, conf.getInt(CONF_PURGE_INTERVAL, 600),
+                                                      SchedulerService.Unit.SEC);
+    }
+
+    /**
+     * Destroy the dataset availability service.
+     */
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        cache.clear();
+    }
+
+    /**
+     * Return the public interface of the dataset availability service.
+     *
+     * @return {@link DatasetAvailabilityService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return DatasetAvailabilityService.class;
+    }
+
+    /**
+     * Instrument the dataset availability service.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        this.instr = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, INSTR_CACHE_SIZE, new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) cache.size();
+            }
+        });
+    }
+
+    /**
+     * Return if a dataset instance is available.
+     *
+     * @param uri resolved URI of the dataset instance.
+     * @param user user to check the URI as.
+     * @param group group to check the URI as.
+     * @return if the dataset instance is available.
+     * @throws IOException thrown if the availability could not be checked.
+     */
+    public boolean exists(final String uri, final String user, final String group) throws IOException {
+        ParamChecker.notEmpty(uri, "uri");
+        Availability availability = cache.get(uri);
+        long now = System.currentTimeMillis();
+        if (availability != null && (availability.exists || now < availability.checkTime + negativeTtl)) {
+            availability.accessTime = now;
+            incr(INSTR_CACHE_HITS);
+            return availability.exists;
+        }
+        incr(INSTR_CACHE_MISSES);
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                incr(INSTR_CHECKS);
+                boolean exists = checkExists(uri, user, group);
+                // cached before the check is removed, a caller missing the check finds the result
+                cache.put(uri, new Availability(exists, System.currentTimeMillis()));
+                return exists;
+            }
+        });
+        FutureTask<Boolean> check = checks.putIfAbsent(uri, task);
+        if (check == null) {
+            check = task;
+            try {
+                task.run();
+            }
+            finally {
+                checks.remove(uri, task);
+            }
+        }
+        else {
+            incr(INSTR_DEDUPLICATED);
+        }
+        try {
+            return check.get();
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Return how many URIs of a list are available before the first one that is not.
+     * <p/>
+     * The URIs are checked in parallel, in list order, the checks not started yet when a URI is found not available
+     * are cancelled. The result is the same as checking the URIs one after the other until the first one not
+     * available.
+     *
+     * @param uris resolved URIs of the dataset instances.
+     * @param user user to check the URIs as.
+     * @param group group to check the URIs as.
+     * @return the number of leading available URIs, the size of the list if all of them are available.
+     * @throws IOException thrown if the availability of a URI could not be checked.
+     */
+    public int getAvailableCount(List<String> uris, final String user, final String group) throws IOException {
+        ParamChecker.notNull(uris, "uris");
+        if (executor == null || uris.size() < 2) {
+            for (int i = 0; i < uris.size(); i++) {
+                if (!exists(uris.get(i), user, group)) {
+                    return i;
+                }
+            }
+            return uris.size();
+        }
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(uris.size());
+        for (final String uri : uris) {
+            Availability availability = cache.get(uri);
+            if (availability != null && availability.exists) {
+                // cached, the check is done in the calling thread
+                FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        return exists(uri, user, group);
+                    }
+                });
+                task.run();
+                futures.add(task);
+            }
+            else {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        Semaphore permits = getPermits(uri);
+                        permits.acquire();
+                        try {
+                            return exists(uri, user, group);
+                        }
+                        finally {
+                            permits.release();
+                        }
+                    }
+                }));
+            }
+        }
+        int available = 0;
+        try {
+            for (Future<Boolean> future : futures) {
+                if (!future.get()) {
+                    break;
+                }
+                available++;
+            }
+            return available;
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        finally {
+            for (int i = available + 1; i < futures.size(); i++) {
+                futures.get(i).cancel(false);
+            }
+        }
+    }
+
+    private Semaphore getPermits(String uri) {
+        URI fsUri = new Path(uri).toUri();
+        String fileSystem = fsUri.getScheme() + "://" + fsUri.getAuthority();
+        Semaphore permits = fileSystemPermits.get(fileSystem);
+        if (permits == null) {
+            permits = new Semaphore(checksPerFileSystem);
+            Semaphore existing = fileSystemPermits.putIfAbsent(fileSystem, permits);
+            if (existing != null) {
+                permits = existing;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Remove the expired negative results and the positive results not used during the retention period.
+     */
+    public void purge() {
+        long now = System.currentTimeMillis();
+        int purged = 0;
+        Iterator<Map.Entry<String, Availability>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Availability availability = it.next().getValue();
+            if ((availability.exists) ? now >= availability.accessTime + positiveRetention
+                                      : now >= availability.checkTime + negativeTtl) {
+                it.remove();
+                purged++;
+            }
+        }
+        XLog.getLog(getClass()).debug("Purged [{0}] dataset availability results, [{1}] cached", purged,
+                                      cache.size());
+    }
+
+    /**
+     * Check the availability of a dataset instance in its file system.
+     *
+     * @param uri resolved URI of the dataset instance.
+     * @param user user to check the URI as.
+     * @param group group to check the URI as.
+     * @return if the dataset instance is available.
+     * @throws IOException thrown if the availability could not be checked.
+     */
+    protected boolean checkExists(String uri, String user, String group) throws IOException {
+        Path path = new Path(uri);
+        try {
+            return Services.get().get(HadoopAccessorService.class).createFileSystem(user, group, path.toUri(),
+                    new Configuration()).exists(path);
+        }
+        catch (HadoopAccessorException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void incr(String name) {
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Service that indexes the available instances of the synchronous datasets, for the resolution of
+ * <code>coord:latest()</code> and <code>coord:future()</code>.
+ * <p/>
+ * The resolution walks the dataset instances one by one. The index keeps, per dataset, the URIs of the instances found
+ * available by previous resolutions, they are not checked again for {@link #CONF_INSTANCE_TTL}. The index is keyed by
+ * the resolved instance URIs, not by instance times, as datasets with the same URI template but a different timezone
+ * resolve the same instance time to different URIs. When the URI template only varies in its last path segment, all
+ * the instances are in the same parent directory: the parent is listed once per user (the listing is cached for
+ * {@link #CONF_LISTING_TTL}) and instances not in the listing are not available without further check. If the dataset
+ * has no done flag, the listing is the availability of the instances.
+ */
+public class DatasetIndexService implements Service, Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "dataset-index";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "DatasetIndexService.";
+
+    /**
+     * Time, in seconds, a listing of the parent directory of dataset instances is used.
+     */
+    public static final String CONF_LISTING_TTL = CONF_PREFIX + "listing.ttl";
+
+    /**
+     * Time, in seconds, an instance found available is indexed, it is checked again afterwards.
+     */
+    public static final String CONF_INSTANCE_TTL = CONF_PREFIX + "instance.ttl";
+
+    /**
+     * Max number of datasets indexed.
+     */
+    public static final String CONF_MAX_DATASETS = CONF_PREFIX + "max.datasets";
+
+    /**
+     * Max number of available instances indexed per dataset, the oldest ones are dropped.
+     */
+    public static final String CONF_MAX_INSTANCES = CONF_PREFIX + "max.instances";
+
+    /**
+     * Max number of parent directory listings cached, the least recently used ones are dropped.
+     */
+    public static final String CONF_MAX_LISTINGS = CONF_PREFIX + "max.listings";
+
+    public static final String INSTR_INDEX_HITS = "index.hits";
+    public static final String INSTR_LISTINGS = "listings";
+    public static final String INSTR_LISTING_MISSES = "listing.misses";
+    public static final String INSTR_CHECKS = "checks";
+
+    private static class Listing {
+        private final Set<String> names;
+        private final long time;
+
+        private Listing(Set<String> names) {
+            this.names = names;
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    private Map<String, LinkedHashMap<String, Long>> index;
+    private Map<String, Listing> listings;
+    private long listingTtl;
+    private long instanceTtl;
+    private int maxInstances;
+    private Instrumentation instr;
+
+    /**
+     * Initialize the dataset index service.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    public void init(Services services) throws ServiceException {
+        Configuration conf = services.getConf();
+        listingTtl = conf.getLong(CONF_LISTING_TTL, 60) * 1000;
+        instanceTtl = conf.getLong(CONF_INSTANCE_TTL, 600) * 1000;
+        maxInstances = conf.getInt(CONF_MAX_INSTANCES, 5000);
+        final int maxDatasets = conf.getInt(CONF_MAX_DATASETS, 1000);
+        index = new LinkedHashMap<String, LinkedHashMap<String, Long>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LinkedHashMap<String, Long>> eldest) {
+                return size() > maxDatasets;
+            }
+        };
+        final int maxListings = conf.getInt(CONF_MAX_LISTINGS, 1000);
+        listings = new LinkedHashMap<String, Listing>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+                return size() > maxListings || System.currentTimeMillis() >= eldest.getValue().time + listingTtl;
+            }
+        };
+    }
+
+    /**
+     * Destroy the dataset index service.
+     */
+    public void destroy() {
+        synchronized (index) {
+            index.clear();
+        }
+        synchronized (listings) {
+            listings.clear();
+        }
+    }
+
+    /**
+     * Return the public interface of the dataset index service.
+     *
+     * @return {@link DatasetIndexService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return DatasetIndexService.class;
+    }
+
+    /**
+     * Instrument the dataset index service.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        this.instr = instr;
+    }
+
+    /**
+     * Return if an instance of a dataset is available.
+     *
+     * @param uriTemplate URI template of the dataset.
+     * @param doneFlag done flag of the dataset, empty if the dataset has no done flag.
+     * @param uri URI of the instance, the URI template resolved for the instance.
+     * @param user user to check the instance as.
+     * @param group group to check the instance as.
+     * @param conf configuration to access the file system of the instance with.
+     * @return if the instance is available.
+     * @throws IOException thrown if the availability of the instance could not be checked.
+     */
+    public boolean isAvailable(String uriTemplate, String doneFlag, String uri, String user, String group,
+                               Configuration conf) throws IOException {
+        ParamChecker.notEmpty(uriTemplate, "uriTemplate");
+        ParamChecker.notEmpty(uri, "uri");
+        doneFlag = (doneFlag != null) ? doneFlag : "";
+        String dataset = uriTemplate + "#" + doneFlag;
+        String name = uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+        boolean expired = false;
+        synchronized (index) {
+            LinkedHashMap<String, Long> instances = index.get(dataset);
+            Long found = (instances != null) ? instances.get(name) : null;
+            if (found != null) {
+                if (System.currentTimeMillis() < found + instanceTtl) {
+                    incr(INSTR_INDEX_HITS);
+                    return true;
+                }
+                // the instance may have been deleted since, it is checked again
+                instances.remove(name);
+                expired = true;
+            }
+        }
+        String parent = getListableParent(uriTemplate);
+        if (parent != null && name.startsWith(parent + "/") && name.indexOf("/", parent.length() + 1) < 0) {
+            if (!list(parent, user, group, conf).contains(name.substring(parent.length() + 1))) {
+                incr(INSTR_LISTING_MISSES);
+                return false;
+            }
+            if (doneFlag.length() == 0) {
+                addInstance(dataset, name);
+                return true;
+            }
+        }
+        incr(INSTR_CHECKS);
+        boolean available = exists((doneFlag.length() > 0) ? uri + "/" + doneFlag : uri, user, group, conf,
+                                   expired);
+        if (available) {
+            addInstance(dataset, name);
+        }
+        return available;
+    }
+
+    /**
+     * Return the parent directory of all the instances of a dataset.
+     *
+     * @param uriTemplate URI template of the dataset.
+     * @return the parent directory, <code>null</code> if the template varies before its last path segment.
+     */
+    public static String getListableParent(String uriTemplate) {
+        String template = uriTemplate;
+        while (template.endsWith("/")) {
+            template = template.substring(0, template.length() - 1);
+        }
+        int index = template.lastIndexOf("/");
+        int variable = template.indexOf("${");
+        if (index <= 0 || variable < index) {
+            return null;
+        }
+        String parent = template.substring(0, index);
+        // a file system root, 'hdfs://nn', is not listed
+        int authority = parent.indexOf("://");
+        return (authority < 0 || parent.indexOf("/", authority + 3) >= 0) ? parent : null;
+    }
+
+    private void addInstance(String dataset, String uri) {
+        synchronized (index) {
+            LinkedHashMap<String, Long> instances = index.get(dataset);
+            if (instances == null) {
+                instances = new LinkedHashMap<String, Long>();
+                index.put(dataset, instances);
+            }
+            instances.remove(uri);
+            instances.put(uri, System.currentTimeMillis());
+            if (instances.size() > maxInstances) {
+                Iterator<String> it = instances.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private Set<String> list(String parent, String user, String group, Configuration conf) throws IOException {
+        String key = user + "," + group + "#" + parent;
+        Listing listing;
+        synchronized (listings) {
+            listing = listings.get(key);
+        }
+        if (listing == null || System.currentTimeMillis() >= listing.time + listingTtl) {
+            incr(INSTR_LISTINGS);
+            Set<String> names = new HashSet<String>();
+            Path path = new Path(parent);
+            try {
+                FileStatus[] statuses = Services.get().get(HadoopAccessorService.class).createFileSystem(user, group,
+                        path.toUri(), conf).listStatus(path);
+                if (statuses != null) {
+                    for (FileStatus status : statuses) {
+                        names.add(status.getPath().getName());
+                    }
+                }
+            }
+            catch (HadoopAccessorException ex) {
+                throw new IOException(ex);
+            }
+            listing = new Listing(Collections.unmodifiableSet(names));
+            synchronized (listings) {
+                listings.put(key, listing);
+            }
+        }
+        return listing.names;
+    }
+
+    private boolean exists(String uri, String user, String group, Configuration conf, boolean expired)
+            throws IOException {
+        DatasetAvailabilityService availabilityService = Services.get().get(DatasetAvailabilityService.class);
+        // an expired instance is checked on the file system, the availability service would find it in its cache
+        if (availabilityService != null && !expired) {
+            return availabilityService.exists(uri, user, group);
+        }
+        Path path = new Path(uri);
+        try {
+            return Services.get().get(HadoopAccessorService.class).createFileSystem(user, group, path.toUri(), conf)
+                    .exists(path);
+        }
+        catch (HadoopAccessorException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void incr(String name) {
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Source of dataset availability notifications for the {@link DependencyRegistryService}.
+ * <p/>
+ * A source watches the URIs the coordinator actions are waiting for, {@link DependencyRegistryService#getDependencies()},
+ * and calls {@link DependencyRegistryService#available(String)} when one of them becomes available.
+ * <p/>
+ * Implementations must have a public no-arg constructor.
+ */
+public interface DependencyAvailabilitySource {
+
+    /**
+     * Initialize the source.
+     *
+     * @param registry dependency registry to notify.
+     * @param conf Oozie configuration.
+     * @throws ServiceException thrown if the source could not be initialized.
+     */
+    public void init(DependencyRegistryService registry, Configuration conf) throws ServiceException;
+
+    /**
+     * Destroy the source, it must not notify the registry anymore.
+     */
+    public void destroy();
+
+}
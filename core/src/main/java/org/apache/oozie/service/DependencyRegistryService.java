@@ -0,0 +1,337 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.oozie.command.coord.CoordActionInputCheckXCommand;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Registry of the dataset URIs the WAITING coordinator actions are waiting for.
+ * <p/>
+ * The input check of a WAITING action registers the missing URIs of the action instead of requeuing itself every
+ * minute. A {@link DependencyAvailabilitySource} watches the registered URIs, when one becomes available an input check
+ * is queued for the actions waiting for it, and their registrations are dropped (the input check registers the URIs
+ * still missing).
+ * <p/>
+ * The registry is in memory. Registered actions are still requeued, at the {@link #CONF_REQUEUE_INTERVAL} interval, to
+ * time out and to resolve their latest/future instances, registrations not renewed by them expire. Actions waiting
+ * after a restart are recovered by the {@link RecoveryService}.
+ */
+public class DependencyRegistryService implements Service, Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "dependency-registry";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "DependencyRegistryService.";
+
+    /**
+     * {@link DependencyAvailabilitySource} implementation.
+     */
+    public static final String CONF_SOURCE_CLASS = CONF_PREFIX + "source.class";
+
+    /**
+     * Interval, in seconds, at which actions with registered dependencies are still requeued.
+     */
+    public static final String CONF_REQUEUE_INTERVAL = CONF_PREFIX + "requeue.interval";
+
+    public static final String INSTR_REGISTERED = "registered";
+    public static final String INSTR_AVAILABLE = "available";
+    public static final String INSTR_NOTIFIED = "notified";
+    public static final String INSTR_EXPIRED = "expired";
+    public static final String INSTR_URIS = "uris";
+    public static final String INSTR_ACTIONS = "actions";
+
+    /**
+     * A dependency, a URI waited for by one or more actions.
+     */
+    public static class Dependency {
+        private final String uri;
+        private final String user;
+        private final String group;
+        private final Set<String> actionIds = new HashSet<String>();
+
+        private Dependency(String uri, String user, String group) {
+            this.uri = uri;
+            this.user = user;
+            this.group = group;
+        }
+
+        /**
+         * Return the URI waited for.
+         *
+         * @return the URI waited for.
+         */
+        public String getURI() {
+            return uri;
+        }
+
+        /**
+         * Return the user to check the URI as, the user of the first action registering it.
+         *
+         * @return the user to check the URI as.
+         */
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * Return the group to check the URI as, the group of the first action registering it.
+         *
+         * @return the group to check the URI as.
+         */
+        public String getGroup() {
+            return group;
+        }
+    }
+
+    private static class Registration {
+        private final Collection<String> uris;
+        private final long time;
+
+        private Registration(Collection<String> uris) {
+            this.uris = uris;
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    private final Map<String, Dependency> dependencies = new HashMap<String, Dependency>();
+    private final Map<String, Registration> registrations = new HashMap<String, Registration>();
+    private long requeueInterval;
+    private DependencyAvailabilitySource source;
+    private Instrumentation instr;
+
+    /**
+     * Initialize the dependency registry service, it initializes the availability source.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    public void init(Services services) throws ServiceException {
+        Configuration conf = services.getConf();
+        requeueInterval = conf.getLong(CONF_REQUEUE_INTERVAL, 300) * 1000;
+        Runnable purgeRunnable = new Runnable() {
+            public void run() {
+                purge();
+            }
+        };
+        services.get(SchedulerService.class).schedule(purgeRunnable, 10, requeueInterval / 1000,
+                                                      SchedulerService.Unit.SEC);
+        Class<? extends DependencyAvailabilitySource> klass = conf.getClass(CONF_SOURCE_CLASS,
+                PollingDependencyAvailabilitySource.class, DependencyAvailabilitySource.class);
+        source = (DependencyAvailabilitySource) ReflectionUtils.newInstance(klass, null);
+        source.init(this, conf);
+        XLog.getLog(getClass()).info("Dependency availability source [{0}]", klass.getName());
+    }
+
+    /**
+     * Destroy the dependency registry service.
+     */
+    public void destroy() {
+        if (source != null) {
+            source.destroy();
+        }
+        synchronized (this) {
+            dependencies.clear();
+            registrations.clear();
+        }
+    }
+
+    /**
+     * Return the public interface of the dependency registry service.
+     *
+     * @return {@link DependencyRegistryService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return DependencyRegistryService.class;
+    }
+
+    /**
+     * Instrument the dependency registry service.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        this.instr = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, INSTR_URIS, new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                synchronized (DependencyRegistryService.this) {
+                    return (long) dependencies.size();
+                }
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, INSTR_ACTIONS, new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                synchronized (DependencyRegistryService.this) {
+                    return (long) registrations.size();
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the availability source of the registry.
+     *
+     * @return the availability source of the registry.
+     */
+    public DependencyAvailabilitySource getSource() {
+        return source;
+    }
+
+    /**
+     * Return the interval, in milliseconds, at which actions with registered dependencies are requeued.
+     *
+     * @return the requeue interval in milliseconds.
+     */
+    public long getRequeueInterval() {
+        return requeueInterval;
+    }
+
+    /**
+     * Register the URIs a coordinator action is waiting for, replacing its previous registration.
+     *
+     * @param actionId coordinator action ID.
+     * @param uris missing URIs of the action.
+     * @param user user of the action.
+     * @param group group of the action.
+     */
+    public synchronized void register(String actionId, List<String> uris, String user, String group) {
+        ParamChecker.notEmpty(actionId, "actionId");
+        ParamChecker.notEmptyElements(uris, "uris");
+        unregister(actionId);
+        for (String uri : uris) {
+            Dependency dependency = dependencies.get(uri);
+            if (dependency == null) {
+                dependency = new Dependency(uri, user, group);
+                dependencies.put(uri, dependency);
+            }
+            dependency.actionIds.add(actionId);
+        }
+        registrations.put(actionId, new Registration(new ArrayList<String>(uris)));
+        incr(INSTR_REGISTERED, 1);
+    }
+
+    /**
+     * Drop the registration of a coordinator action.
+     *
+     * @param actionId coordinator action ID.
+     * @return if the action was registered.
+     */
+    public synchronized boolean unregister(String actionId) {
+        Registration registration = registrations.remove(actionId);
+        if (registration == null) {
+            return false;
+        }
+        for (String uri : registration.uris) {
+            Dependency dependency = dependencies.get(uri);
+            if (dependency != null) {
+                dependency.actionIds.remove(actionId);
+                if (dependency.actionIds.isEmpty()) {
+                    dependencies.remove(uri);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the URIs a coordinator action is registered for.
+     *
+     * @param actionId coordinator action ID.
+     * @return the registered URIs, <code>null</code> if the action is not registered.
+     */
+    public synchronized Collection<String> getURIs(String actionId) {
+        Registration registration = registrations.get(actionId);
+        return (registration != null) ? new ArrayList<String>(registration.uris) : null;
+    }
+
+    /**
+     * Return a snapshot of the registered dependencies.
+     *
+     * @return the registered dependencies, one per distinct URI.
+     */
+    public synchronized List<Dependency> getDependencies() {
+        return new ArrayList<Dependency>(dependencies.values());
+    }
+
+    /**
+     * Notify the registry that a URI is available, an input check is queued for each action waiting for it.
+     *
+     * @param uri available URI.
+     * @return the IDs of the actions notified.
+     */
+    public List<String> available(String uri) {
+        List<String> actionIds;
+        synchronized (this) {
+            Dependency dependency = dependencies.get(uri);
+            if (dependency == null) {
+                return new ArrayList<String>();
+            }
+            actionIds = new ArrayList<String>(dependency.actionIds);
+            for (String actionId : actionIds) {
+                unregister(actionId);
+            }
+        }
+        incr(INSTR_AVAILABLE, 1);
+        for (String actionId : actionIds) {
+            queueInputCheck(actionId);
+        }
+        incr(INSTR_NOTIFIED, actionIds.size());
+        return actionIds;
+    }
+
+    /**
+     * Queue the input check of a coordinator action with an available dependency.
+     *
+     * @param actionId coordinator action ID.
+     */
+    protected void queueInputCheck(String actionId) {
+        Services.get().get(CallableQueueService.class).queue(new CoordActionInputCheckXCommand(actionId, true));
+    }
+
+    /**
+     * Drop the registrations not renewed during two requeue intervals, their actions are not waiting anymore.
+     */
+    public synchronized void purge() {
+        long expiration = System.currentTimeMillis() - 2 * requeueInterval;
+        List<String> expired = new ArrayList<String>();
+        for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+            if (entry.getValue().time < expiration) {
+                expired.add(entry.getKey());
+            }
+        }
+        for (String actionId : expired) {
+            unregister(actionId);
+        }
+        incr(INSTR_EXPIRED, expired.size());
+    }
+
+    private void incr(String name, int count) {
+        if (instr != null && count > 0) {
+            instr.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+
+}
@@ -14,6 +14,8 @@
  */
 package org.apache.oozie.service;
 
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.ELEvaluator;
 import org.apache.oozie.ErrorCode;
@@ -23,8 +25,10 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The ELService creates {@link ELEvaluator} instances preconfigured with constants and functions defined in the
@@ -32,9 +36,10 @@ import java.util.List;
  * of constant definitions to be available for EL evaluations. <p/> {@link #CONF_FUNCTIONS} list of function definitions
  * to be available for EL evalations. <p/> Definitions must be separated by a comma, definitions are trimmed. <p/> The
  * syntax for a constant definition is <code>PREFIX:NAME=CLASS_NAME#CONSTANT_NAME</code>. <p/> The syntax for a constant
- * definition is <code>PREFIX:NAME=CLASS_NAME#METHOD_NAME</code>.
+ * definition is <code>PREFIX:NAME=CLASS_NAME#METHOD_NAME</code>. <p/> {@link #CONF_EXPRESSION_CACHE_SIZE} maximum
+ * number of parsed EL expressions kept by the {@link ELEvaluator.ExpressionCache}.
  */
-public class ELService implements Service {
+public class ELService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "ELService.";
 
@@ -48,12 +53,16 @@ public class ELService implements Service {
 
     public static final String CONF_GROUPS = CONF_PREFIX + "groups";
 
+    public static final String CONF_EXPRESSION_CACHE_SIZE = CONF_PREFIX + "expression.cache.size";
+
+    public static final String INSTRUMENTATION_GROUP = "el";
+
     private final XLog log = XLog.getLog(getClass());
 
-    //<Group Name>, <List of constants>
-    private HashMap<String, List<ELConstant>> constants;
-    //<Group Name>, <List of functions>
-    private HashMap<String, List<ELFunction>> functions;
+    //<Group Name>, <Constants keyed by PREFIX:NAME>
+    private HashMap<String, Map<String, Object>> constants;
+    //<Group Name>, <Functions keyed by PREFIX:NAME>
+    private HashMap<String, Map<String, Method>> functions;
 
     private static class ELConstant {
         private String name;
@@ -113,24 +122,58 @@ public class ELService implements Service {
     @Override
     public synchronized void init(Services services) throws ServiceException {
         log.trace("Constants and functions registration");
-        constants = new HashMap<String, List<ELConstant>>();
-        functions = new HashMap<String, List<ELFunction>>();
+        constants = new HashMap<String, Map<String, Object>>();
+        functions = new HashMap<String, Map<String, Method>>();
         //Get the list of group names from configuration file
         // defined in the property tag: oozie.service.ELSerice.groups
         //String []groupList = services.getConf().get(CONF_GROUPS, "").trim().split(",");
         String[] groupList = services.getConf().getStrings(CONF_GROUPS, "");
         //For each group, collect the required functions and constants
-        // and store it into HashMap
+        // and store them, read only, into HashMap, evaluators of the group share them
         for (String group : groupList) {
             List<ELConstant> tmpConstants = new ArrayList<ELConstant>();
             tmpConstants.addAll(extractConstants(services.getConf(), CONF_CONSTANTS + group));
             tmpConstants.addAll(extractConstants(services.getConf(), CONF_EXT_CONSTANTS + group));
-            constants.put(group, tmpConstants);
+            Map<String, Object> groupConstants = new HashMap<String, Object>();
+            for (ELConstant constant : tmpConstants) {
+                groupConstants.put(constant.name, constant.value);
+            }
+            constants.put(group, Collections.unmodifiableMap(groupConstants));
             List<ELFunction> tmpFunctions = new ArrayList<ELFunction>();
             tmpFunctions.addAll(extractFunctions(services.getConf(), CONF_FUNCTIONS + group));
             tmpFunctions.addAll(extractFunctions(services.getConf(), CONF_EXT_FUNCTIONS + group));
-            functions.put(group, tmpFunctions);
+            Map<String, Method> groupFunctions = new HashMap<String, Method>();
+            for (ELFunction function : tmpFunctions) {
+                String prefix = (function.prefix.length() > 0) ? function.prefix + ":" : "";
+                groupFunctions.put(prefix + function.name, function.method);
+            }
+            functions.put(group, Collections.unmodifiableMap(groupFunctions));
         }
+        ELEvaluator.setExpressionCacheSize(services.getConf().getInt(CONF_EXPRESSION_CACHE_SIZE,
+                                                                     ELEvaluator.DEFAULT_EXPRESSION_CACHE_SIZE));
+    }
+
+    /**
+     * Instruments the EL service. <p/> It exposes the hits, misses and size of the expression cache.
+     *
+     * @param instr instance to instrument the EL service to.
+     */
+    public void instrument(Instrumentation instr) {
+        instr.addVariable(INSTRUMENTATION_GROUP, "expression.cache.hits", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return ELEvaluator.getExpressionCache().getHits();
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, "expression.cache.misses", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return ELEvaluator.getExpressionCache().getMisses();
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, "expression.cache.size", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) ELEvaluator.getExpressionCache().size();
+            }
+        });
     }
 
     /**
@@ -155,30 +198,25 @@ public class ELService implements Service {
     /**
      * Return an {@link ELEvaluator} pre-configured with the constants and functions for the specific group of
      * EL-functions and variables defined in the configuration. If the group name doesn't exist,
-     * IllegalArgumentException is thrown
+     * IllegalArgumentException is thrown <p/> The constants and functions of the group are shared by all its
+     * evaluators, variables set in an evaluator are not seen by the other evaluators.
      *
      * @param group: Name of the group of required EL Evaluator.
      * @return a preconfigured {@link ELEvaluator}.
      */
     public ELEvaluator createEvaluator(String group) {
-        ELEvaluator.Context context = new ELEvaluator.Context();
-        boolean groupDefined = false;
-        if (constants.containsKey(group)) {
-            for (ELConstant constant : constants.get(group)) {
-                context.setVariable(constant.name, constant.value);
-            }
-            groupDefined = true;
+        Map<String, Object> groupConstants = constants.get(group);
+        Map<String, Method> groupFunctions = functions.get(group);
+        if (groupConstants == null && groupFunctions == null) {
+            throw new IllegalArgumentException("Group " + group + " is not defined");
         }
-        if (functions.containsKey(group)) {
-            for (ELFunction function : functions.get(group)) {
-                context.addFunction(function.prefix, function.name, function.method);
-            }
-            groupDefined = true;
+        if (groupConstants == null) {
+            groupConstants = Collections.emptyMap();
         }
-        if (groupDefined == false) {
-            throw new IllegalArgumentException("Group " + group + " is not defined");
+        if (groupFunctions == null) {
+            groupFunctions = Collections.emptyMap();
         }
-        return new ELEvaluator(context);
+        return new ELEvaluator(new ELEvaluator.Context(groupConstants, groupFunctions));
     }
 
     private static String[] parseDefinition(String str) throws ServiceException {
@@ -22,6 +22,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.util.XLog;
@@ -30,24 +32,134 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.PrivilegedExceptionAction;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The HadoopAccessorService returns HadoopAccessor instances configured to work on behalf of a user-group. <p/> The
  * default accessor used is the base accessor which just injects the UGI into the configuration instance used to
  * create/obtain JobClient and ileSystem instances. <p/> The HadoopAccess class to use can be configured in the
  * <code>oozie-site.xml</code> using the <code>oozie.service.HadoopAccessorService.accessor.class</code> property.
+ * <p/>
+ * JobClient and FileSystem instances are pooled per user, group and cluster. A JobClient is returned to the pool when
+ * it is closed, a FileSystem is shared as it is by the Hadoop <code>FileSystem</code> cache. Pooled instances idle
+ * for longer than the idle timeout are evicted, pooled instances idle for longer than the validate interval are
+ * checked against their cluster before being reused.
  */
-public class HadoopAccessorService implements Service {
+public class HadoopAccessorService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "HadoopAccessorService.";
     public static final String JOB_TRACKER_WHITELIST = CONF_PREFIX + "jobTracker.whitelist";
     public static final String NAME_NODE_WHITELIST = CONF_PREFIX + "nameNode.whitelist";
 
+    /**
+     * Enables pooling of JobClient and FileSystem instances.
+     */
+    public static final String CONF_POOL_ENABLED = CONF_PREFIX + "pool.enabled";
+
+    /**
+     * Max number of idle JobClient instances kept per user, group and cluster.
+     */
+    public static final String CONF_POOL_JOBCLIENT_MAX_SIZE = CONF_PREFIX + "pool.jobclient.max.size";
+
+    /**
+     * Max number of FileSystem instances kept, the least recently used one is evicted.
+     */
+    public static final String CONF_POOL_FILESYSTEM_MAX_SIZE = CONF_PREFIX + "pool.filesystem.max.size";
+
+    /**
+     * Time, in seconds, a pooled instance can be idle before being evicted.
+     */
+    public static final String CONF_POOL_IDLE_TIMEOUT = CONF_PREFIX + "pool.idle.timeout";
+
+    /**
+     * Time, in seconds, a pooled instance can be idle before being validated on reuse.
+     */
+    public static final String CONF_POOL_VALIDATE_INTERVAL = CONF_PREFIX + "pool.validate.interval";
+
+    public static final String INSTRUMENTATION_GROUP = "hadoopaccessor";
+
+    public static final String INSTR_JOBCLIENT_HITS = "jobclient.pool.hits";
+    public static final String INSTR_JOBCLIENT_MISSES = "jobclient.pool.misses";
+    public static final String INSTR_JOBCLIENT_EVICTIONS = "jobclient.pool.evictions";
+    public static final String INSTR_JOBCLIENT_CREATE = "jobclient.create";
+    public static final String INSTR_FILESYSTEM_HITS = "filesystem.pool.hits";
+    public static final String INSTR_FILESYSTEM_MISSES = "filesystem.pool.misses";
+    public static final String INSTR_FILESYSTEM_EVICTIONS = "filesystem.pool.evictions";
+    public static final String INSTR_FILESYSTEM_CREATE = "filesystem.create";
+
     private Set<String> jobTrackerWhitelist = new HashSet<String>();
     private Set<String> nameNodeWhitelist = new HashSet<String>();
 
+    private volatile boolean poolEnabled;
+    private int jobClientPoolMaxSize;
+    private int fileSystemPoolMaxSize;
+    private long poolIdleTimeout;
+    private long poolValidateInterval;
+    private final ConcurrentMap<String, LinkedBlockingDeque<PooledJobClient>> jobClientPool =
+            new ConcurrentHashMap<String, LinkedBlockingDeque<PooledJobClient>>();
+    private final ConcurrentMap<String, PooledFileSystem> fileSystemPool =
+            new ConcurrentHashMap<String, PooledFileSystem>();
+    private Instrumentation instr;
+
+    /**
+     * JobClient handed out by the service, closing it returns it to the pool.
+     */
+    protected class PooledJobClient extends JobClient {
+        private final String poolKey;
+        private final AtomicBoolean borrowed = new AtomicBoolean(true);
+        private volatile long lastUsed;
+
+        /**
+         * Create a pooled JobClient.
+         *
+         * @param poolKey key of the pool the JobClient is returned to.
+         * @param conf JobConf to create the JobClient with.
+         * @throws IOException thrown if the JobClient could not be created.
+         */
+        public PooledJobClient(String poolKey, JobConf conf) throws IOException {
+            super(conf);
+            this.poolKey = poolKey;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Return the JobClient to the pool, it is closed if the pool is full or disabled.
+         *
+         * @throws IOException thrown if the JobClient could not be closed.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (borrowed.compareAndSet(true, false) && !release(this)) {
+                super.close();
+            }
+        }
+
+        private void destroy() {
+            try {
+                super.close();
+            }
+            catch (IOException ex) {
+                XLog.getLog(getClass()).warn("Could not close JobClient, {0}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private static class PooledFileSystem {
+        private final FileSystem fs;
+        private volatile long lastUsed;
+
+        private PooledFileSystem(FileSystem fs) {
+            this.fs = fs;
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+
     public void init(Services services) throws ServiceException {
         for (String name : services.getConf().getStringCollection(JOB_TRACKER_WHITELIST)) {
             String tmp = name.toLowerCase().trim();
@@ -69,6 +181,24 @@ public class HadoopAccessorService implements Service {
         XLog.getLog(getClass()).info(
                 "NAME_NODE_WHITELIST :" + services.getConf().getStringCollection(NAME_NODE_WHITELIST)
                         + ", Total entries :" + nameNodeWhitelist.size());
+        Configuration conf = services.getConf();
+        poolEnabled = conf.getBoolean(CONF_POOL_ENABLED, true);
+        jobClientPoolMaxSize = conf.getInt(CONF_POOL_JOBCLIENT_MAX_SIZE, 10);
+        fileSystemPoolMaxSize = conf.getInt(CONF_POOL_FILESYSTEM_MAX_SIZE, 500);
+        poolIdleTimeout = conf.getLong(CONF_POOL_IDLE_TIMEOUT, 300) * 1000;
+        poolValidateInterval = conf.getLong(CONF_POOL_VALIDATE_INTERVAL, 60) * 1000;
+        XLog.getLog(getClass()).info("Pooling [{0}], JobClient max size [{1}], FileSystem max size [{2}]",
+                                     (poolEnabled) ? "enabled" : "disabled", jobClientPoolMaxSize,
+                                     fileSystemPoolMaxSize);
+        SchedulerService scheduler = services.get(SchedulerService.class);
+        if (poolEnabled && scheduler != null) {
+            long interval = Math.max(1, poolIdleTimeout / 1000);
+            scheduler.schedule(new Runnable() {
+                public void run() {
+                    evict();
+                }
+            }, interval, interval, SchedulerService.Unit.SEC);
+        }
         init(services.getConf());
     }
 
@@ -76,14 +206,49 @@ public class HadoopAccessorService implements Service {
     }
 
     public void destroy() {
+        poolEnabled = false;
+        for (LinkedBlockingDeque<PooledJobClient> idle : jobClientPool.values()) {
+            PooledJobClient jobClient;
+            while ((jobClient = idle.pollFirst()) != null) {
+                jobClient.destroy();
+            }
+        }
+        jobClientPool.clear();
+        fileSystemPool.clear();
     }
 
     public Class<? extends Service> getInterface() {
         return HadoopAccessorService.class;
     }
 
+    /**
+     * Instrument the service, it registers the number of pooled instances.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        this.instr = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, "jobclient.pool.idle", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                long idle = 0;
+                for (LinkedBlockingDeque<PooledJobClient> deque : jobClientPool.values()) {
+                    idle += deque.size();
+                }
+                return idle;
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, "filesystem.pool.size", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) fileSystemPool.size();
+            }
+        });
+    }
+
     /**
      * Return a JobClient created with the provided user/group.
+     * <p/>
+     * The JobClient is taken from the pool if there is an idle one for the user, group and cluster, closing it
+     * returns it to the pool.
      * 
      * @param conf JobConf with all necessary information to create the
      *        JobClient.
@@ -91,14 +256,44 @@ public class HadoopAccessorService implements Service {
      * @throws HadoopAccessorException if the client could not be created.
      */
     public JobClient createJobClient(String user, String group, JobConf conf) throws HadoopAccessorException {
+        ParamChecker.notEmpty(user, "user");
+        ParamChecker.notEmpty(group, "group");
         validateJobTracker(conf.get("mapred.job.tracker"));
-        conf = createConfiguration(user, group, conf);
-        try {
-            return new JobClient(conf);
-        }
-        catch (IOException e) {
-            throw new HadoopAccessorException(ErrorCode.E0902, e);
+        String poolKey = user + "," + group + "@" + conf.get("mapred.job.tracker") + "," +
+                conf.get("fs.default.name");
+        JobClient jobClient = borrowJobClient(poolKey);
+        if (jobClient == null) {
+            Instrumentation.Cron cron = new Instrumentation.Cron();
+            cron.start();
+            try {
+                jobClient = newJobClient(poolKey, user, group, conf);
+            }
+            catch (InterruptedException ex) {
+                throw new HadoopAccessorException(ErrorCode.E0902, ex);
+            }
+            catch (IOException ex) {
+                throw new HadoopAccessorException(ErrorCode.E0902, ex);
+            }
+            cron.stop();
+            addCron(INSTR_JOBCLIENT_CREATE, cron);
         }
+        return jobClient;
+    }
+
+    /**
+     * Create a new JobClient for the provided user/group, it is not taken from the pool.
+     *
+     * @param poolKey key of the pool the JobClient is returned to when it is closed.
+     * @param user user name.
+     * @param group group name.
+     * @param conf JobConf with all necessary information to create the JobClient.
+     * @return a new JobClient, a {@link PooledJobClient}.
+     * @throws IOException thrown if the JobClient could not be created.
+     * @throws InterruptedException thrown if the JobClient creation was interrupted.
+     */
+    protected JobClient newJobClient(String poolKey, String user, String group, JobConf conf) throws IOException,
+            InterruptedException {
+        return new PooledJobClient(poolKey, createConfiguration(user, group, conf));
     }
 
     /**
@@ -111,12 +306,9 @@ public class HadoopAccessorService implements Service {
      */
     public FileSystem createFileSystem(String user, String group, Configuration conf) throws HadoopAccessorException {
         try {
-            validateNameNode(new URI(conf.get("fs.default.name")).getAuthority());
-            conf = createConfiguration(user, group, conf);
-            return FileSystem.get(conf);
-        }
-        catch (IOException e) {
-            throw new HadoopAccessorException(ErrorCode.E0902, e);
+            URI uri = new URI(conf.get("fs.default.name"));
+            validateNameNode(uri.getAuthority());
+            return getFileSystem(user, group, uri, null, conf);
         }
         catch (URISyntaxException e) {
             throw new HadoopAccessorException(ErrorCode.E0902, e);
@@ -136,12 +328,190 @@ public class HadoopAccessorService implements Service {
     public FileSystem createFileSystem(String user, String group, URI uri, Configuration conf)
             throws HadoopAccessorException {
         validateNameNode(uri.getAuthority());
+        return getFileSystem(user, group, uri, uri, conf);
+    }
+
+    private FileSystem getFileSystem(String user, String group, URI keyUri, URI uri, Configuration conf)
+            throws HadoopAccessorException {
+        ParamChecker.notEmpty(user, "user");
+        ParamChecker.notEmpty(group, "group");
+        String scheme = keyUri.getScheme();
+        // a file system with the Hadoop cache disabled is created on every call, it is not pooled either
+        String poolKey = (scheme != null && !conf.getBoolean("fs." + scheme + ".impl.disable.cache", false))
+                ? user + "," + group + "@" + scheme + "://" + keyUri.getAuthority() : null;
+        FileSystem fs = (poolKey != null) ? borrowFileSystem(poolKey) : null;
+        if (fs == null) {
+            Instrumentation.Cron cron = new Instrumentation.Cron();
+            cron.start();
+            try {
+                fs = newFileSystem(user, group, uri, conf);
+            }
+            catch (InterruptedException ex) {
+                throw new HadoopAccessorException(ErrorCode.E0902, ex);
+            }
+            catch (IOException ex) {
+                throw new HadoopAccessorException(ErrorCode.E0902, ex);
+            }
+            cron.stop();
+            addCron(INSTR_FILESYSTEM_CREATE, cron);
+            if (poolKey != null) {
+                poolFileSystem(poolKey, fs);
+            }
+        }
+        return fs;
+    }
+
+    /**
+     * Create a new FileSystem for the provided user/group, it is not taken from the pool.
+     *
+     * @param user user name.
+     * @param group group name.
+     * @param uri file system URI, if <code>null</code> the default file system of the configuration is used.
+     * @param conf Configuration with all necessary information to create the FileSystem.
+     * @return a new FileSystem.
+     * @throws IOException thrown if the FileSystem could not be created.
+     * @throws InterruptedException thrown if the FileSystem creation was interrupted.
+     */
+    protected FileSystem newFileSystem(String user, String group, URI uri, Configuration conf) throws IOException,
+            InterruptedException {
         conf = createConfiguration(user, group, conf);
+        return (uri != null) ? FileSystem.get(uri, conf) : FileSystem.get(conf);
+    }
+
+    private JobClient borrowJobClient(String poolKey) {
+        LinkedBlockingDeque<PooledJobClient> idle = (poolEnabled) ? jobClientPool.get(poolKey) : null;
+        if (idle != null) {
+            PooledJobClient jobClient;
+            // most recently returned first, the least used ones are left to be evicted
+            while ((jobClient = idle.pollFirst()) != null) {
+                long now = System.currentTimeMillis();
+                if (now - jobClient.lastUsed > poolIdleTimeout) {
+                    incr(INSTR_JOBCLIENT_EVICTIONS);
+                    jobClient.destroy();
+                }
+                else if (now - jobClient.lastUsed > poolValidateInterval && !validate(jobClient)) {
+                    jobClient.destroy();
+                }
+                else {
+                    jobClient.borrowed.set(true);
+                    incr(INSTR_JOBCLIENT_HITS);
+                    return jobClient;
+                }
+            }
+        }
+        incr(INSTR_JOBCLIENT_MISSES);
+        return null;
+    }
+
+    private boolean validate(PooledJobClient jobClient) {
         try {
-            return FileSystem.get(uri, conf);
+            jobClient.getClusterStatus();
+            return true;
         }
-        catch (IOException e) {
-            throw new HadoopAccessorException(ErrorCode.E0902, e);
+        catch (IOException ex) {
+            XLog.getLog(getClass()).warn("Pooled JobClient [{0}] is not valid, {1}", jobClient.poolKey,
+                                         ex.getMessage());
+            return false;
+        }
+    }
+
+    private boolean release(PooledJobClient jobClient) {
+        if (!poolEnabled) {
+            return false;
+        }
+        LinkedBlockingDeque<PooledJobClient> idle = jobClientPool.get(jobClient.poolKey);
+        if (idle == null) {
+            LinkedBlockingDeque<PooledJobClient> newIdle = new LinkedBlockingDeque<PooledJobClient>(
+                    Math.max(1, jobClientPoolMaxSize));
+            idle = jobClientPool.putIfAbsent(jobClient.poolKey, newIdle);
+            idle = (idle != null) ? idle : newIdle;
+        }
+        jobClient.lastUsed = System.currentTimeMillis();
+        return jobClientPoolMaxSize > 0 && idle.offerFirst(jobClient);
+    }
+
+    private FileSystem borrowFileSystem(String poolKey) {
+        PooledFileSystem pooled = (poolEnabled) ? fileSystemPool.get(poolKey) : null;
+        if (pooled != null) {
+            long now = System.currentTimeMillis();
+            if (now - pooled.lastUsed > poolIdleTimeout) {
+                fileSystemPool.remove(poolKey, pooled);
+                incr(INSTR_FILESYSTEM_EVICTIONS);
+            }
+            else if (now - pooled.lastUsed > poolValidateInterval && !validate(poolKey, pooled)) {
+                fileSystemPool.remove(poolKey, pooled);
+            }
+            else {
+                pooled.lastUsed = now;
+                incr(INSTR_FILESYSTEM_HITS);
+                return pooled.fs;
+            }
+        }
+        incr(INSTR_FILESYSTEM_MISSES);
+        return null;
+    }
+
+    private boolean validate(String poolKey, PooledFileSystem pooled) {
+        try {
+            pooled.fs.exists(new Path("/"));
+            return true;
+        }
+        catch (IOException ex) {
+            XLog.getLog(getClass()).warn("Pooled FileSystem [{0}] is not valid, {1}", poolKey, ex.getMessage());
+            return false;
+        }
+    }
+
+    private void poolFileSystem(String poolKey, FileSystem fs) {
+        if (poolEnabled && fileSystemPoolMaxSize > 0) {
+            if (fileSystemPool.size() >= fileSystemPoolMaxSize) {
+                String eldest = null;
+                long eldestLastUsed = Long.MAX_VALUE;
+                for (Map.Entry<String, PooledFileSystem> entry : fileSystemPool.entrySet()) {
+                    if (entry.getValue().lastUsed < eldestLastUsed) {
+                        eldest = entry.getKey();
+                        eldestLastUsed = entry.getValue().lastUsed;
+                    }
+                }
+                if (eldest != null && fileSystemPool.remove(eldest) != null) {
+                    incr(INSTR_FILESYSTEM_EVICTIONS);
+                }
+            }
+            fileSystemPool.put(poolKey, new PooledFileSystem(fs));
+        }
+    }
+
+    /**
+     * Evict the pooled instances that have been idle for longer than the idle timeout. <p/> Evicted JobClients are
+     * closed, evicted FileSystems are not as they are shared through the Hadoop <code>FileSystem</code> cache.
+     */
+    void evict() {
+        long now = System.currentTimeMillis();
+        for (LinkedBlockingDeque<PooledJobClient> idle : jobClientPool.values()) {
+            for (PooledJobClient jobClient : idle) {
+                if (now - jobClient.lastUsed > poolIdleTimeout && idle.remove(jobClient)) {
+                    incr(INSTR_JOBCLIENT_EVICTIONS);
+                    jobClient.destroy();
+                }
+            }
+        }
+        for (Map.Entry<String, PooledFileSystem> entry : fileSystemPool.entrySet()) {
+            if (now - entry.getValue().lastUsed > poolIdleTimeout &&
+                fileSystemPool.remove(entry.getKey(), entry.getValue())) {
+                incr(INSTR_FILESYSTEM_EVICTIONS);
+            }
+        }
+    }
+
+    private void incr(String name) {
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
+    private void addCron(String name, Instrumentation.Cron cron) {
+        if (instr != null) {
+            instr.addCron(INSTRUMENTATION_GROUP, name, cron);
         }
     }
 
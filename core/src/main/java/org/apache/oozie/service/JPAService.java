@@ -16,6 +16,9 @@ package org.apache.oozie.service;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import javax.persistence.EntityManager;
@@ -31,6 +34,7 @@ import org.apache.oozie.ErrorCode;
 import org.apache.oozie.FaultInjection;
 import org.apache.oozie.SLAEventBean;
 import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowDefinitionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.client.rest.JsonBundleJob;
 import org.apache.oozie.client.rest.JsonCoordinatorAction;
@@ -38,16 +42,29 @@ import org.apache.oozie.client.rest.JsonCoordinatorJob;
 import org.apache.oozie.client.rest.JsonSLAEvent;
 import org.apache.oozie.client.rest.JsonWorkflowAction;
 import org.apache.oozie.client.rest.JsonWorkflowJob;
+import org.apache.oozie.command.XCommand;
+import org.apache.oozie.executor.jpa.CacheInvalidatingJPAExecutor;
+import org.apache.oozie.executor.jpa.CacheableJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.db.EntityCache;
 import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
 
 /**
  * Service that manages JPA and executes {@link JPAExecutor}.
+ * <p/>
+ * Executors can be run one at a time, each one in its own transaction, or as a batch with {@link
+ * #executeBatch(List)}, where all of them run in a single transaction and their statements are sent to the database
+ * using JDBC batching (up to {@link #CONF_JDBC_BATCH_LIMIT} statements per round trip).
+ * <p/>
+ * If {@link #CONF_CACHE_SIZE} is greater than zero, the entities read by {@link CacheableJPAExecutor}s are kept in
+ * an LRU cache and served from it until they expire ({@link #CONF_CACHE_TTL}) or a {@link
+ * CacheInvalidatingJPAExecutor} changes them. Entities written without a JPAService executor (i.e. by the
+ * StoreService) are not invalidated, they may be served stale up to the cache TTL.
  */
 public class JPAService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "jpa";
@@ -66,11 +83,20 @@ public class JPAService implements Service, Instrumentable {
     public static final String CONF_VALIDATE_DB_CONN = CONF_PREFIX + "validate.db.connection";
     public static final String CONF_VALIDATE_DB_CONN_EVICTION_INTERVAL = CONF_PREFIX + "validate.db.connection.eviction.interval";
     public static final String CONF_VALIDATE_DB_CONN_EVICTION_NUM = CONF_PREFIX + "validate.db.connection.eviction.num";
+    public static final String CONF_JDBC_BATCH_LIMIT = CONF_PREFIX + "jdbc.batch.limit";
+    public static final String CONF_CACHE_SIZE = CONF_PREFIX + "cache.size";
+    public static final String CONF_CACHE_TTL = CONF_PREFIX + "cache.ttl";
 
+    public static final String INSTR_BATCH = "batch";
+    public static final String INSTR_BATCH_EXECUTORS = "batch.executors";
+    public static final String INSTR_CACHE_HITS = "cache.hits";
+    public static final String INSTR_CACHE_MISSES = "cache.misses";
+    public static final String INSTR_CACHE_INVALIDATIONS = "cache.invalidations";
+    public static final String INSTR_CACHE_SIZE = "cache.size";
 
     private EntityManagerFactory factory;
     private Instrumentation instr;
-
+    private EntityCache cache;
     private static XLog LOG;
 
     /**
@@ -85,6 +111,13 @@ public class JPAService implements Service, Instrumentable {
     @Override
     public void instrument(Instrumentation instr) {
         this.instr = instr;
+        if (cache != null) {
+            instr.addVariable(INSTRUMENTATION_GROUP, INSTR_CACHE_SIZE, new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return (long) cache.size();
+                }
+            });
+        }
     }
 
     /**
@@ -106,6 +139,9 @@ public class JPAService implements Service, Instrumentable {
         boolean validateDbConn = conf.getBoolean(CONF_VALIDATE_DB_CONN, false);
         String evictionInterval = conf.get(CONF_VALIDATE_DB_CONN_EVICTION_INTERVAL, "300000").trim();
         String evictionNum = conf.get(CONF_VALIDATE_DB_CONN_EVICTION_NUM, "10").trim();
+        int batchLimit = conf.getInt(CONF_JDBC_BATCH_LIMIT, 50);
+        int cacheSize = conf.getInt(CONF_CACHE_SIZE, 0);
+        long cacheTtl = conf.getLong(CONF_CACHE_TTL, 60);
 
         if (!url.startsWith("jdbc:")) {
             throw new ServiceException(ErrorCode.E0608, url, "invalid JDBC URL, must start with 'jdbc:'");
@@ -149,6 +185,7 @@ public class JPAService implements Service, Instrumentable {
         props.setProperty("openjpa.ConnectionProperties", connProps);
 
         props.setProperty("openjpa.ConnectionDriverName", dataSource);
+        props.setProperty("openjpa.jdbc.DBDictionary", "batchLimit=" + batchLimit);
 
         factory = Persistence.createEntityManagerFactory(persistentUnit, props);
 
@@ -166,6 +203,7 @@ public class JPAService implements Service, Instrumentable {
         entityManager.find(BundleJobBean.class, 1);
         entityManager.find(JsonBundleJob.class, 1);
         entityManager.find(BundleActionBean.class, 1);
+        entityManager.find(WorkflowDefinitionBean.class, 1);
 
         LOG.info(XLog.STD, "All entities initialized");
         // need to use a pseudo no-op transaction so all entities, datasource
@@ -175,6 +213,11 @@ public class JPAService implements Service, Instrumentable {
         LOG.info("JPA configuration: {0}", spi.getConfiguration().getConnectionProperties());
         entityManager.getTransaction().commit();
         entityManager.close();
+
+        if (cacheSize > 0) {
+            cache = new EntityCache(cacheSize, cacheTtl * 1000);
+            LOG.info("Entity cache enabled, size [{0}] TTL [{1}] secs", cacheSize, cacheTtl);
+        }
     }
 
     /**
@@ -193,7 +236,20 @@ public class JPAService implements Service, Instrumentable {
      * @return return value of the JPAExecutor.
      * @throws JPAExecutorException thrown if an jpa executor failed
      */
+    @SuppressWarnings("unchecked")
     public <T> T execute(JPAExecutor<T> executor) throws JPAExecutorException {
+        CacheableJPAExecutor<T> cacheable = null;
+        long cacheGeneration = 0;
+        if (cache != null && executor instanceof CacheableJPAExecutor) {
+            cacheable = (CacheableJPAExecutor<T>) executor;
+            T cached = (T) cache.get(cacheable.getCacheKey());
+            if (cached != null) {
+                incrCounter(INSTR_CACHE_HITS, 1);
+                return cacheable.copy(cached);
+            }
+            incrCounter(INSTR_CACHE_MISSES, 1);
+            cacheGeneration = cache.getGeneration();
+        }
         EntityManager em = getEntityManager();
         Instrumentation.Cron cron = new Instrumentation.Cron();
         try {
@@ -211,13 +267,18 @@ public class JPAService implements Service, Instrumentable {
 
                 em.getTransaction().commit();
             }
+            if (cacheable != null && t != null) {
+                cache.put(cacheable.getCacheKey(), cacheable.copy(t), cacheGeneration);
+            }
             return t;
         }
         finally {
             cron.stop();
+            XCommand.addJPATime(cron.getOwn());
             if (instr != null) {
                 instr.addCron(INSTRUMENTATION_GROUP, executor.getName(), cron);
             }
+            invalidateCache(executor);
             try {
                 if (em.getTransaction().isActive()) {
                     LOG.warn("JPAExecutor [{0}] ended with an active transaction, rolling back", executor.getName());
@@ -243,6 +304,120 @@ public class JPAService implements Service, Instrumentable {
         }
     }
 
+    /**
+     * Execute a list of {@link JPAExecutor} in a single transaction.
+     * <p/>
+     * All the executors share the same EntityManager, the transaction is committed once after the last executor, on
+     * commit the pending inserts/updates are flushed using JDBC batching. If any executor fails the whole batch is
+     * rolled back.
+     *
+     * @param executors JPAExecutors to execute, in order.
+     * @return the return values of the JPAExecutors, in the same order.
+     * @throws JPAExecutorException thrown if an jpa executor failed
+     */
+    public List<Object> executeBatch(List<? extends JPAExecutor<?>> executors) throws JPAExecutorException {
+        List<Object> results = new ArrayList<Object>(executors.size());
+        if (executors.isEmpty()) {
+            return results;
+        }
+        EntityManager em = getEntityManager();
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        try {
+            LOG.trace("Executing batch of [{0}] JPAExecutors", executors.size());
+            if (instr != null) {
+                instr.incr(INSTRUMENTATION_GROUP, INSTR_BATCH, 1);
+                instr.incr(INSTRUMENTATION_GROUP, INSTR_BATCH_EXECUTORS, executors.size());
+            }
+            cron.start();
+            em.getTransaction().begin();
+            for (JPAExecutor<?> executor : executors) {
+                Instrumentation.Cron executorCron = new Instrumentation.Cron();
+                try {
+                    LOG.trace("Executing JPAExecutor [{0}] in batch", executor.getName());
+                    if (instr != null) {
+                        instr.incr(INSTRUMENTATION_GROUP, executor.getName(), 1);
+                    }
+                    executorCron.start();
+                    results.add(executor.execute(em));
+                }
+                finally {
+                    executorCron.stop();
+                    if (instr != null) {
+                        instr.addCron(INSTRUMENTATION_GROUP, executor.getName(), executorCron);
+                    }
+                }
+                if (!em.getTransaction().isActive()) {
+                    throw new JPAExecutorException(ErrorCode.E0603, executor.getName(),
+                                                   "JPAExecutor ended the batch transaction");
+                }
+            }
+            if (FaultInjection.isActive("org.apache.oozie.command.SkipCommitFaultInjection")) {
+                throw new RuntimeException("Skipping Commit for Failover Testing");
+            }
+            em.getTransaction().commit();
+            return results;
+        }
+        finally {
+            cron.stop();
+            XCommand.addJPATime(cron.getOwn());
+            if (instr != null) {
+                instr.addCron(INSTRUMENTATION_GROUP, INSTR_BATCH, cron);
+            }
+            for (JPAExecutor<?> executor : executors) {
+                invalidateCache(executor);
+            }
+            try {
+                if (em.getTransaction().isActive()) {
+                    LOG.warn("Batch of [{0}] JPAExecutors ended with an active transaction, rolling back",
+                             executors.size());
+                    em.getTransaction().rollback();
+                }
+            }
+            catch (Exception ex) {
+                LOG.warn("Could not check/rollback transaction after batch of JPAExecutors, {0}", ex.getMessage(), ex);
+            }
+            try {
+                if (em.isOpen()) {
+                    em.close();
+                }
+                else {
+                    LOG.warn("A JPAExecutor in the batch closed the EntityManager, it should not!");
+                }
+            }
+            catch (Exception ex) {
+                LOG.warn("Could not close EntityManager after batch of JPAExecutors, {0}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the entity cache entries of the entities changed by an executor.
+     * <p/>
+     * It is done whether the executor succeeded or not, the transaction outcome is not always known.
+     */
+    private void invalidateCache(JPAExecutor<?> executor) {
+        if (cache != null && executor instanceof CacheInvalidatingJPAExecutor) {
+            Collection<String> keys = ((CacheInvalidatingJPAExecutor) executor).getInvalidatedCacheKeys();
+            cache.invalidate(keys);
+            incrCounter(INSTR_CACHE_INVALIDATIONS, keys.size());
+        }
+    }
+
+    private void incrCounter(String name, long count) {
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+
+    /**
+     * Return the entity cache.
+     *
+     * @return the entity cache, <code>null</code> if the cache is disabled.
+     */
+    public EntityCache getCache() {
+        return cache;
+    }
+
     /**
      * Return an EntityManager. Used by the StoreService. Once the StoreService is removed this method must be removed.
      *
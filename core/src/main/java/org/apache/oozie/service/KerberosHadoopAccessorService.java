@@ -35,7 +35,6 @@ import org.apache.oozie.service.ServiceException;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.security.PrivilegedExceptionAction;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -112,104 +111,67 @@ public class KerberosHadoopAccessorService extends HadoopAccessorService {
     }
 
     /**
-     * Return a JobClient created with the provided user/group.
+     * Create a new JobClient for the provided user/group, the JobClient is created as a proxy user of the Oozie
+     * Kerberos principal.
+     * <p/>
+     * The MR delegation token is added to the given JobConf when the JobClient is created, JobClients reused from the
+     * pool do not fetch a new one, Oozie propagates it to the launcher jobs it submits.
      *
+     * @param poolKey key of the pool the JobClient is returned to when it is closed.
+     * @param user user name.
+     * @param group group name.
      * @param conf JobConf with all necessary information to create the JobClient.
-     * @return JobClient created with the provided user/group.
-     * @throws HadoopAccessorException if the client could not be created.
+     * @return a new JobClient.
+     * @throws IOException thrown if the JobClient could not be created.
+     * @throws InterruptedException thrown if the JobClient creation was interrupted.
      */
-    public JobClient createJobClient(String user, String group, final JobConf conf) throws HadoopAccessorException {
-        ParamChecker.notEmpty(user, "user");
-        ParamChecker.notEmpty(group, "group");
-        validateJobTracker(conf.get("mapred.job.tracker"));
-        try {
-            UserGroupInformation ugi = getUGI(user);
-            JobClient jobClient = ugi.doAs(new PrivilegedExceptionAction<JobClient>() {
-                public JobClient run() throws Exception {
-                    return new JobClient(conf);
-                }
-            });
-            Token<DelegationTokenIdentifier> mrdt = jobClient.getDelegationToken(new Text("mr token"));
-            conf.getCredentials().addToken(new Text("mr token"), mrdt);
-            return jobClient;
-        }
-        catch (InterruptedException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
-        catch (IOException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
+    protected JobClient newJobClient(final String poolKey, String user, String group, JobConf conf)
+            throws IOException, InterruptedException {
+        UserGroupInformation ugi = getUGI(user);
+        // the pooled JobClient outlives the caller JobConf, it gets its own copy
+        final JobConf clientConf = new JobConf(conf);
+        JobClient jobClient = ugi.doAs(new PrivilegedExceptionAction<JobClient>() {
+            public JobClient run() throws Exception {
+                return new PooledJobClient(poolKey, clientConf);
+            }
+        });
+        Token<DelegationTokenIdentifier> mrdt = jobClient.getDelegationToken(new Text("mr token"));
+        conf.getCredentials().addToken(new Text("mr token"), mrdt);
+        return jobClient;
     }
 
     /**
-     * Return a FileSystem created with the provided user/group.
+     * Create a new FileSystem for the provided user/group, the FileSystem is created as a proxy user of the Oozie
+     * Kerberos principal.
      *
+     * @param user user name.
+     * @param group group name.
+     * @param uri file system URI, if <code>null</code> the default file system of the configuration is used.
      * @param conf Configuration with all necessary information to create the FileSystem.
-     * @return FileSystem created with the provided user/group.
-     * @throws HadoopAccessorException if the filesystem could not be created.
+     * @return a new FileSystem.
+     * @throws IOException thrown if the FileSystem could not be created.
+     * @throws InterruptedException thrown if the FileSystem creation was interrupted.
      */
-    public FileSystem createFileSystem(String user, String group, final Configuration conf)
-            throws HadoopAccessorException {
-        ParamChecker.notEmpty(user, "user");
-        ParamChecker.notEmpty(group, "group");
-        try {
-            validateNameNode(new URI(conf.get("fs.default.name")).getAuthority());
-            UserGroupInformation ugi = getUGI(user);
-            return ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
-                public FileSystem run() throws Exception {
-                    Configuration defaultConf = new Configuration();
+    protected FileSystem newFileSystem(String user, String group, final URI uri, final Configuration conf)
+            throws IOException, InterruptedException {
+        UserGroupInformation ugi = getUGI(user);
+        return ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
+            public FileSystem run() throws Exception {
+                Configuration defaultConf = new Configuration();
+                if (uri == null) {
                     XConfiguration.copy(conf, defaultConf);
                     return FileSystem.get(defaultConf);
                 }
-            });
-        }
-        catch (InterruptedException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
-        catch (IOException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
-        catch (URISyntaxException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
-    }
 
-    /**
-     * Return a FileSystem created with the provided user/group for the specified URI.
-     *
-     * @param uri file system URI.
-     * @param conf Configuration with all necessary information to create the FileSystem.
-     * @return FileSystem created with the provided user/group.
-     * @throws HadoopAccessorException if the filesystem could not be created.
-     */
-    public FileSystem createFileSystem(String user, String group, final URI uri, final Configuration conf)
-            throws HadoopAccessorException {
-        ParamChecker.notEmpty(user, "user");
-        ParamChecker.notEmpty(group, "group");
-        validateNameNode(uri.getAuthority());
-        try {
-            UserGroupInformation ugi = getUGI(user);
-            return ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
-                public FileSystem run() throws Exception {
-                    Configuration defaultConf = new Configuration();
+                defaultConf.set(WorkflowAppService.HADOOP_JT_KERBEROS_NAME, "mapred/_HOST@" + localRealm);
+                defaultConf.set(WorkflowAppService.HADOOP_NN_KERBEROS_NAME, "hdfs/_HOST@" + localRealm);
 
-                    defaultConf.set(WorkflowAppService.HADOOP_JT_KERBEROS_NAME, "mapred/_HOST@" + localRealm);
-                    defaultConf.set(WorkflowAppService.HADOOP_NN_KERBEROS_NAME, "hdfs/_HOST@" + localRealm);
-
-                    XConfiguration.copy(conf, defaultConf);
-                    return FileSystem.get(uri, defaultConf);
-                }
-            });
-        }
-        catch (InterruptedException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
-        catch (IOException ex) {
-            throw new HadoopAccessorException(ErrorCode.E0902, ex);
-        }
+                XConfiguration.copy(conf, defaultConf);
+                return FileSystem.get(uri, defaultConf);
+            }
+        });
     }
 
-
     public void addFileToClassPath(String user, String group, final Path file, final Configuration conf)
             throws IOException {
         ParamChecker.notEmpty(user, "user");
@@ -49,6 +49,7 @@ public abstract class LiteWorkflowStoreService extends WorkflowStoreService {
     public static final String NODE_DEF_VERSION_0 = "_oozie_inst_v_0";
     public static final String NODE_DEF_VERSION_1 = "_oozie_inst_v_1";
     public static final String CONF_NODE_DEF_VERSION = CONF_PREFIX + "node.def.version";
+    public static final String CONF_INSTANCE_COMPRESSION_MIN_SIZE = CONF_PREFIX + "instance.compression.min.size";
 
     /**
      * Delegation method used by the Action and Decision {@link NodeHandler} on start. <p/> This method provides the
@@ -180,8 +181,11 @@ public abstract class LiteWorkflowStoreService extends WorkflowStoreService {
      * @throws WorkflowException thrown if there was an error parsing the action configuration.
     */
     public static String getNodeDefDefaultVersion() throws WorkflowException {
-        Configuration conf = Services.get().get(ConfigurationService.class).getConf();
-        String ret = conf.get(CONF_NODE_DEF_VERSION);
+        String ret = null;
+        if (Services.get() != null) {
+            Configuration conf = Services.get().get(ConfigurationService.class).getConf();
+            ret = conf.get(CONF_NODE_DEF_VERSION);
+        }
         if (ret == null) {
             ret = NODE_DEF_VERSION_1;
         }
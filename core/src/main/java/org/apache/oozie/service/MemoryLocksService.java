@@ -18,8 +18,16 @@ import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.MemoryLocks;
 
+/**
+ * Service that provides in memory READ/WRITE locks for resources, see {@link MemoryLocks}.
+ * <p/>
+ * The number of active locks, the lock wait time histogram (one <code>wait.*</code> variable per bucket) and the
+ * resources with most threads waiting for them (<code>top.contended</code>) are exposed as instrumentation variables
+ * in the <code>locks</code> group.
+ */
 public class MemoryLocksService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "locks";
+    private static final int TOP_CONTENDED_SIZE = 10;
     private MemoryLocks locks;
 
     /**
@@ -62,6 +70,28 @@ public class MemoryLocksService implements Service, Instrumentable {
                 return (long) finalLocks.size();
             }
         });
+        long lowerBound = 0;
+        for (int i = 0; i <= MemoryLocks.WAIT_HISTOGRAM_BOUNDS.length; i++) {
+            final int bucket = i;
+            String name;
+            if (i < MemoryLocks.WAIT_HISTOGRAM_BOUNDS.length) {
+                name = "wait." + lowerBound + "-" + MemoryLocks.WAIT_HISTOGRAM_BOUNDS[i] + "ms";
+                lowerBound = MemoryLocks.WAIT_HISTOGRAM_BOUNDS[i];
+            }
+            else {
+                name = "wait." + lowerBound + "ms+";
+            }
+            instr.addVariable(INSTRUMENTATION_GROUP, name, new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return finalLocks.getWaitHistogram()[bucket];
+                }
+            });
+        }
+        instr.addVariable(INSTRUMENTATION_GROUP, "top.contended", new Instrumentation.Variable<String>() {
+            public String getValue() {
+                return finalLocks.getContendedResources(TOP_CONTENDED_SIZE).toString();
+            }
+        });
     }
 
     /**
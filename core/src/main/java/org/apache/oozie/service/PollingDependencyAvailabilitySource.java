@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.util.XLog;
+
+/**
+ * {@link DependencyAvailabilitySource} that polls the distinct URIs of the {@link DependencyRegistryService} at a
+ * fixed interval.
+ * <p/>
+ * The URIs are checked with the {@link DatasetAvailabilityService} when it is available, directly in their file
+ * system otherwise. The number of checks per poll depends on the number of distinct dataset instances waited for, not
+ * on the number of waiting actions.
+ */
+public class PollingDependencyAvailabilitySource implements DependencyAvailabilitySource {
+
+    /**
+     * Interval, in seconds, of the poll of the registered URIs.
+     */
+    public static final String CONF_POLL_INTERVAL = DependencyRegistryService.CONF_PREFIX + "poll.interval";
+
+    private final XLog log = XLog.getLog(getClass());
+    private volatile DependencyRegistryService registry;
+
+    /**
+     * Initialize the source, it schedules the poll with the {@link SchedulerService}.
+     *
+     * @param registry dependency registry to notify.
+     * @param conf Oozie configuration.
+     * @throws ServiceException thrown if the source could not be initialized.
+     */
+    public void init(DependencyRegistryService registry, Configuration conf) throws ServiceException {
+        this.registry = registry;
+        Runnable pollRunnable = new Runnable() {
+            public void run() {
+                poll();
+            }
+        };
+        Services.get().get(SchedulerService.class).schedule(pollRunnable, 10, conf.getInt(CONF_POLL_INTERVAL, 60),
+                                                            SchedulerService.Unit.SEC);
+    }
+
+    /**
+     * Destroy the source.
+     */
+    public void destroy() {
+        registry = null;
+    }
+
+    /**
+     * Check all the registered URIs, notifying the registry of the available ones.
+     *
+     * @return the number of available URIs.
+     */
+    public int poll() {
+        DependencyRegistryService registry = this.registry;
+        if (registry == null) {
+            return 0;
+        }
+        int available = 0;
+        for (DependencyRegistryService.Dependency dependency : registry.getDependencies()) {
+            try {
+                if (exists(dependency)) {
+                    registry.available(dependency.getURI());
+                    available++;
+                }
+            }
+            catch (IOException ex) {
+                log.warn("Could not check dependency [{0}], {1}", dependency.getURI(), ex.getMessage(), ex);
+            }
+        }
+        log.debug("Polled dependencies, [{0}] available", available);
+        return available;
+    }
+
+    private boolean exists(DependencyRegistryService.Dependency dependency) throws IOException {
+        DatasetAvailabilityService availabilityService = Services.get().get(DatasetAvailabilityService.class);
+        if (availabilityService != null) {
+            return availabilityService.exists(dependency.getURI(), dependency.getUser(), dependency.getGroup());
+        }
+        Path path = new Path(dependency.getURI());
+        try {
+            return Services.get().get(HadoopAccessorService.class).createFileSystem(dependency.getUser(),
+                    dependency.getGroup(), path.toUri(), new Configuration()).exists(path);
+        }
+        catch (HadoopAccessorException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+}
@@ -18,7 +18,9 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.BundleActionBean;
@@ -51,11 +53,11 @@ import org.apache.oozie.command.wf.SignalXCommand;
 import org.apache.oozie.command.wf.SuspendXCommand;
 import org.apache.oozie.executor.jpa.BundleActionsGetWaitingOlderJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobGetJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordActionsGetForRecoveryJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionsGetForRecoveryColumnsJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordActionsGetReadyGroupbyJobIDJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
-import org.apache.oozie.executor.jpa.WorkflowActionsGetPendingJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionsGetPendingColumnsJPAExecutor;
 import org.apache.oozie.util.JobUtils;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XConfiguration;
@@ -83,6 +85,10 @@ public class RecoveryService implements Service {
      * The number of callables to be queued in a batch.
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
+    /**
+     * The number of actions read from the database per query.
+     */
+    public static final String CONF_QUERY_PAGE_SIZE = CONF_PREFIX + "query.page.size";
     /**
      * Age of actions to queue, in seconds.
      */
@@ -113,6 +119,7 @@ public class RecoveryService implements Service {
         private final long olderThan;
         private final long coordOlderThan;
         private final long bundleOlderThan;
+        private final int pageSize;
         private long delay = 0;
         private List<XCallable<?>> callables;
         private List<XCallable<?>> delayedCallables;
@@ -120,9 +127,14 @@ public class RecoveryService implements Service {
         private JPAService jpaService = null;
 
         public RecoveryRunnable(long olderThan, long coordOlderThan,long bundleOlderThan) {
+            this(olderThan, coordOlderThan, bundleOlderThan, 500);
+        }
+
+        public RecoveryRunnable(long olderThan, long coordOlderThan, long bundleOlderThan, int pageSize) {
             this.olderThan = olderThan;
             this.coordOlderThan = coordOlderThan;
             this.bundleOlderThan = bundleOlderThan;
+            this.pageSize = pageSize;
         }
 
         public void run() {
@@ -217,58 +229,85 @@ public class RecoveryService implements Service {
             XLog log = XLog.getLog(getClass());
 
             try {
-                List<CoordinatorActionBean> cactions = jpaService.execute(new CoordActionsGetForRecoveryJPAExecutor(coordOlderThan));
-                msg.append(", COORD_ACTIONS : " + cactions.size());
-                for (CoordinatorActionBean caction : cactions) {
-                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                                                                                INSTR_RECOVERED_COORD_ACTIONS_COUNTER, 1);
-                    if (caction.getStatus() == CoordinatorActionBean.Status.WAITING) {
-                        if (useXCommand) {
-                            queueCallable(new CoordActionInputCheckXCommand(caction.getId()));
-                        } else {
-                            queueCallable(new CoordActionInputCheckCommand(caction.getId()));
-                        }
-
-                        log.info("Recover a WAITTING coord action and resubmit CoordActionInputCheckXCommand :" + caction.getId());
-                    }
-                    else if (caction.getStatus() == CoordinatorActionBean.Status.SUBMITTED) {
-                        CoordinatorJobBean coordJob = jpaService.execute(new CoordJobGetJPAExecutor(caction.getJobId()));
-
-                        if (useXCommand) {
-                            queueCallable(new CoordActionStartXCommand(caction.getId(), coordJob.getUser(), coordJob
-                                    .getAuthToken()));
-                        } else {
-                            queueCallable(new CoordActionStartCommand(caction.getId(), coordJob.getUser(), coordJob
-                                    .getAuthToken()));
-                        }
-
-                        log.info("Recover a SUBMITTED coord action and resubmit CoordActionStartCommand :" + caction.getId());
+                // only the columns needed to queue the commands are read, a page at a time
+                Map<String, CoordinatorJobBean> coordJobs = new HashMap<String, CoordinatorJobBean>();
+                int count = 0;
+                String lastId = null;
+                List<CoordinatorActionBean> cactions;
+                do {
+                    cactions = jpaService.execute(new CoordActionsGetForRecoveryColumnsJPAExecutor(coordOlderThan,
+                                                                                                   lastId, pageSize));
+                    for (CoordinatorActionBean caction : cactions) {
+                        Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                INSTR_RECOVERED_COORD_ACTIONS_COUNTER, 1);
+                        recoverCoordAction(caction, coordJobs, log);
+                        lastId = caction.getId();
                     }
-                    else if (caction.getStatus() == CoordinatorActionBean.Status.SUSPENDED) {
-                        if (caction.getExternalId() != null) {
-                            queueCallable(new SuspendXCommand(caction.getExternalId()));
-                            log.debug("Recover a SUSPENDED coord action and resubmit SuspendXCommand :" + caction.getId());
-                        }
-                    }
-                    else if (caction.getStatus() == CoordinatorActionBean.Status.KILLED) {
-                        if (caction.getExternalId() != null) {
-                            queueCallable(new KillXCommand(caction.getExternalId()));
-                            log.debug("Recover a KILLED coord action and resubmit KillXCommand :" + caction.getId());
-                        }
-                    }
-                    else if (caction.getStatus() == CoordinatorActionBean.Status.RUNNING) {
-                        if (caction.getExternalId() != null) {
-                            queueCallable(new ResumeXCommand(caction.getExternalId()));
-                            log.debug("Recover a RUNNING coord action and resubmit ResumeXCommand :" + caction.getId());
-                        }
-                    }
-                }
+                    count += cactions.size();
+                } while (pageSize > 0 && cactions.size() == pageSize);
+                msg.append(", COORD_ACTIONS : " + count);
             }
             catch (Exception ex) {
                 log.error("Exception, {0}", ex.getMessage(), ex);
             }
         }
 
+        /**
+         * Queue the command to recover a coordinator action.
+         *
+         * @param caction coordinator action, only its id, job id, status and external id are set.
+         * @param coordJobs coordinator jobs already read in this run, keyed by id.
+         * @param log logger.
+         * @throws JPAExecutorException thrown if the coordinator job could not be read.
+         */
+        private void recoverCoordAction(CoordinatorActionBean caction, Map<String, CoordinatorJobBean> coordJobs,
+                                        XLog log) throws JPAExecutorException {
+            if (caction.getStatus() == CoordinatorActionBean.Status.WAITING) {
+                if (useXCommand) {
+                    queueCallable(new CoordActionInputCheckXCommand(caction.getId()));
+                } else {
+                    queueCallable(new CoordActionInputCheckCommand(caction.getId()));
+                }
+
+                log.info("Recover a WAITTING coord action and resubmit CoordActionInputCheckXCommand :" + caction.getId());
+            }
+            else if (caction.getStatus() == CoordinatorActionBean.Status.SUBMITTED) {
+                CoordinatorJobBean coordJob = coordJobs.get(caction.getJobId());
+                if (coordJob == null) {
+                    coordJob = jpaService.execute(new CoordJobGetJPAExecutor(caction.getJobId()));
+                    coordJobs.put(caction.getJobId(), coordJob);
+                }
+
+                if (useXCommand) {
+                    queueCallable(new CoordActionStartXCommand(caction.getId(), coordJob.getUser(), coordJob
+                            .getAuthToken()));
+                } else {
+                    queueCallable(new CoordActionStartCommand(caction.getId(), coordJob.getUser(), coordJob
+                            .getAuthToken()));
+                }
+
+                log.info("Recover a SUBMITTED coord action and resubmit CoordActionStartCommand :" + caction.getId());
+            }
+            else if (caction.getStatus() == CoordinatorActionBean.Status.SUSPENDED) {
+                if (caction.getExternalId() != null) {
+                    queueCallable(new SuspendXCommand(caction.getExternalId()));
+                    log.debug("Recover a SUSPENDED coord action and resubmit SuspendXCommand :" + caction.getId());
+                }
+            }
+            else if (caction.getStatus() == CoordinatorActionBean.Status.KILLED) {
+                if (caction.getExternalId() != null) {
+                    queueCallable(new KillXCommand(caction.getExternalId()));
+                    log.debug("Recover a KILLED coord action and resubmit KillXCommand :" + caction.getId());
+                }
+            }
+            else if (caction.getStatus() == CoordinatorActionBean.Status.RUNNING) {
+                if (caction.getExternalId() != null) {
+                    queueCallable(new ResumeXCommand(caction.getExternalId()));
+                    log.debug("Recover a RUNNING coord action and resubmit ResumeXCommand :" + caction.getId());
+                }
+            }
+        }
+
         /**
          * Recover coordinator actions that are staying in READY too long
          */
@@ -300,78 +339,93 @@ public class RecoveryService implements Service {
         private void runWFRecovery() {
             XLog.Info.get().clear();
             XLog log = XLog.getLog(getClass());
-            // queue command for action recovery
+            // queue command for action recovery, only the columns needed to queue the commands are read
             try {
-                List<WorkflowActionBean> actions = null;
-                try {
-                    actions = jpaService.execute(new WorkflowActionsGetPendingJPAExecutor(olderThan));
-                }
-                catch (JPAExecutorException ex) {
-                    log.warn("Exception while reading pending actions from storage", ex);
-                }
-                //log.debug("QUEUING[{0}] pending wf actions for potential recovery", actions.size());
-                msg.append(" WF_ACTIONS " + actions.size());
-
-                for (WorkflowActionBean action : actions) {
-                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                            INSTR_RECOVERED_ACTIONS_COUNTER, 1);
-                    if (action.getStatus() == WorkflowActionBean.Status.PREP
-                            || action.getStatus() == WorkflowActionBean.Status.START_MANUAL) {
-
-                        if (useXCommand) {
-                            queueCallable(new ActionStartXCommand(action.getId(), action.getType()));
-                        } else {
-                            queueCallable(new ActionStartCommand(action.getId(), action.getType()));
-                        }
-
+                int count = 0;
+                String lastId = null;
+                List<WorkflowActionBean> actions;
+                do {
+                    try {
+                        actions = jpaService.execute(new WorkflowActionsGetPendingColumnsJPAExecutor(olderThan,
+                                                                                                     lastId, pageSize));
                     }
-                    else if (action.getStatus() == WorkflowActionBean.Status.START_RETRY) {
-                        Date nextRunTime = action.getPendingAge();
-                        if (useXCommand) {
-                            queueCallable(new ActionStartXCommand(action.getId(), action.getType()), nextRunTime.getTime()
-                                    - System.currentTimeMillis());
-                        } else {
-                            queueCallable(new ActionStartCommand(action.getId(), action.getType()), nextRunTime.getTime()
-                                    - System.currentTimeMillis());
-                        }
-
+                    catch (JPAExecutorException ex) {
+                        log.warn("Exception while reading pending actions from storage", ex);
+                        break;
                     }
-                    else if (action.getStatus() == WorkflowActionBean.Status.DONE
-                            || action.getStatus() == WorkflowActionBean.Status.END_MANUAL) {
-                        if (useXCommand) {
-                            queueCallable(new ActionEndXCommand(action.getId(), action.getType()));
-                        } else {
-                            queueCallable(new ActionEndCommand(action.getId(), action.getType()));
-                        }
-
+                    for (WorkflowActionBean action : actions) {
+                        Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                INSTR_RECOVERED_ACTIONS_COUNTER, 1);
+                        recoverWFAction(action);
+                        lastId = action.getId();
                     }
-                    else if (action.getStatus() == WorkflowActionBean.Status.END_RETRY) {
-                        Date nextRunTime = action.getPendingAge();
-                        if (useXCommand) {
-                            queueCallable(new ActionEndXCommand(action.getId(), action.getType()), nextRunTime.getTime()
-                                    - System.currentTimeMillis());
-                        } else {
-                            queueCallable(new ActionEndCommand(action.getId(), action.getType()), nextRunTime.getTime()
-                                    - System.currentTimeMillis());
-                        }
+                    count += actions.size();
+                } while (pageSize > 0 && actions.size() == pageSize);
+                msg.append(" WF_ACTIONS " + count);
+            }
+            catch (Exception ex) {
+                log.error("Exception, {0}", ex.getMessage(), ex);
+            }
+        }
 
-                    }
-                    else if (action.getStatus() == WorkflowActionBean.Status.OK
-                            || action.getStatus() == WorkflowActionBean.Status.ERROR) {
-                        if (useXCommand) {
-                            queueCallable(new SignalXCommand(action.getJobId(), action.getId()));
-                        } else {
-                            queueCallable(new SignalCommand(action.getJobId(), action.getId()));
-                        }
+        /**
+         * Queue the command to recover a workflow action.
+         *
+         * @param action workflow action, only its id, job id, status, type and pending age are set.
+         */
+        private void recoverWFAction(WorkflowActionBean action) {
+            if (action.getStatus() == WorkflowActionBean.Status.PREP
+                    || action.getStatus() == WorkflowActionBean.Status.START_MANUAL) {
+
+                if (useXCommand) {
+                    queueCallable(new ActionStartXCommand(action.getId(), action.getType()));
+                } else {
+                    queueCallable(new ActionStartCommand(action.getId(), action.getType()));
+                }
 
-                    }
-                    else if (action.getStatus() == WorkflowActionBean.Status.USER_RETRY) {
-                    	queueCallable(new ActionStartXCommand(action.getId(), action.getType()));
-                    }
+            }
+            else if (action.getStatus() == WorkflowActionBean.Status.START_RETRY) {
+                Date nextRunTime = action.getPendingAge();
+                if (useXCommand) {
+                    queueCallable(new ActionStartXCommand(action.getId(), action.getType()), nextRunTime.getTime()
+                            - System.currentTimeMillis());
+                } else {
+                    queueCallable(new ActionStartCommand(action.getId(), action.getType()), nextRunTime.getTime()
+                            - System.currentTimeMillis());
                 }
+
             }
-            catch (Exception ex) {
-                log.error("Exception, {0}", ex.getMessage(), ex);
+            else if (action.getStatus() == WorkflowActionBean.Status.DONE
+                    || action.getStatus() == WorkflowActionBean.Status.END_MANUAL) {
+                if (useXCommand) {
+                    queueCallable(new ActionEndXCommand(action.getId(), action.getType()));
+                } else {
+                    queueCallable(new ActionEndCommand(action.getId(), action.getType()));
+                }
+
+            }
+            else if (action.getStatus() == WorkflowActionBean.Status.END_RETRY) {
+                Date nextRunTime = action.getPendingAge();
+                if (useXCommand) {
+                    queueCallable(new ActionEndXCommand(action.getId(), action.getType()), nextRunTime.getTime()
+                            - System.currentTimeMillis());
+                } else {
+                    queueCallable(new ActionEndCommand(action.getId(), action.getType()), nextRunTime.getTime()
+                            - System.currentTimeMillis());
+                }
+
+            }
+            else if (action.getStatus() == WorkflowActionBean.Status.OK
+                    || action.getStatus() == WorkflowActionBean.Status.ERROR) {
+                if (useXCommand) {
+                    queueCallable(new SignalXCommand(action.getJobId(), action.getId()));
+                } else {
+                    queueCallable(new SignalCommand(action.getJobId(), action.getId()));
+                }
+
+            }
+            else if (action.getStatus() == WorkflowActionBean.Status.USER_RETRY) {
+            	queueCallable(new ActionStartXCommand(action.getId(), action.getType()));
             }
         }
 
@@ -434,7 +488,8 @@ public class RecoveryService implements Service {
     public void init(Services services) {
         Configuration conf = services.getConf();
         Runnable recoveryRunnable = new RecoveryRunnable(conf.getInt(CONF_WF_ACTIONS_OLDER_THAN, 120), conf.getInt(
-                CONF_COORD_OLDER_THAN, 600),conf.getInt(CONF_BUNDLE_OLDER_THAN, 600));
+                CONF_COORD_OLDER_THAN, 600),conf.getInt(CONF_BUNDLE_OLDER_THAN, 600),
+                conf.getInt(CONF_QUERY_PAGE_SIZE, 500));
         services.get(SchedulerService.class).schedule(recoveryRunnable, 10, conf.getInt(CONF_SERVICE_INTERVAL, 600),
                                                       SchedulerService.Unit.SEC);
 
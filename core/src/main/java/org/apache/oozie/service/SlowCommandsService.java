@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service that keeps the slowest recent commands with the time they spent in each phase of their life-cycle (queue
+ * wait, lock acquire, load, precondition, execute, JPA, requeue flush).
+ * <p/>
+ * {@link #CONF_SIZE} is the number of commands kept, {@link #CONF_WINDOW} how long, in seconds, a command is
+ * considered recent. The commands are exposed by the <code>slow-commands</code> admin resource.
+ */
+public class SlowCommandsService implements Service {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "SlowCommandsService.";
+
+    public static final String CONF_SIZE = CONF_PREFIX + "size";
+
+    public static final String CONF_WINDOW = CONF_PREFIX + "window";
+
+    /**
+     * A command execution with the time it spent in each phase.
+     */
+    public static class CommandTrace {
+        private String name;
+        private String key;
+        private long start;
+        private long time;
+        private Map<String, Long> phases;
+
+        /**
+         * Create a command trace.
+         *
+         * @param name command name.
+         * @param key entity key of the command.
+         * @param start start time of the command execution.
+         * @param time execution time of the command in milliseconds.
+         * @param phases time of each phase in milliseconds, keyed by phase name.
+         */
+        public CommandTrace(String name, String key, long start, long time, Map<String, Long> phases) {
+            this.name = name;
+            this.key = key;
+            this.start = start;
+            this.time = time;
+            this.phases = Collections.unmodifiableMap(new LinkedHashMap<String, Long>(phases));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Map<String, Long> getPhases() {
+            return phases;
+        }
+    }
+
+    private static final Comparator<CommandTrace> SLOWEST_FIRST = new Comparator<CommandTrace>() {
+        public int compare(CommandTrace t1, CommandTrace t2) {
+            return (t1.time > t2.time) ? -1 : (t1.time < t2.time) ? 1 : 0;
+        }
+    };
+
+    private List<CommandTrace> traces;
+    private int size;
+    private long window;
+    private volatile long threshold;
+    private volatile long thresholdUntil;
+
+    /**
+     * Initialize the slow commands service.
+     *
+     * @param services services instance.
+     */
+    @Override
+    public void init(Services services) {
+        size = services.getConf().getInt(CONF_SIZE, 20);
+        window = services.getConf().getInt(CONF_WINDOW, 3600) * 1000L;
+        traces = new ArrayList<CommandTrace>();
+        threshold = 0;
+        thresholdUntil = 0;
+    }
+
+    /**
+     * Destroy the slow commands service.
+     */
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Return the public interface for slow commands service.
+     *
+     * @return {@link SlowCommandsService}.
+     */
+    @Override
+    public Class<? extends Service> getInterface() {
+        return SlowCommandsService.class;
+    }
+
+    /**
+     * Add a command execution. <p/> It is kept if it is among the slowest recent commands. Commands faster than the
+     * fastest kept command return without locking.
+     *
+     * @param trace command execution.
+     */
+    public void add(CommandTrace trace) {
+        if (size <= 0 || (trace.time < threshold && System.currentTimeMillis() < thresholdUntil)) {
+            return;
+        }
+        synchronized (traces) {
+            expire(System.currentTimeMillis());
+            if (traces.size() >= size) {
+                CommandTrace fastest = traces.get(traces.size() - 1);
+                if (trace.time <= fastest.time) {
+                    return;
+                }
+                traces.remove(traces.size() - 1);
+            }
+            int index = Collections.binarySearch(traces, trace, SLOWEST_FIRST);
+            traces.add((index < 0) ? -index - 1 : index, trace);
+            setThreshold();
+        }
+    }
+
+    /**
+     * Return the slowest recent commands, slowest first.
+     *
+     * @return the slowest recent commands.
+     */
+    public List<CommandTrace> getSlowest() {
+        synchronized (traces) {
+            expire(System.currentTimeMillis());
+            return new ArrayList<CommandTrace>(traces);
+        }
+    }
+
+    private void expire(long now) {
+        boolean expired = false;
+        for (Iterator<CommandTrace> it = traces.iterator(); it.hasNext();) {
+            CommandTrace trace = it.next();
+            if (trace.start + trace.time + window < now) {
+                it.remove();
+                expired = true;
+            }
+        }
+        if (expired) {
+            setThreshold();
+        }
+    }
+
+    // commands faster than the threshold are not kept until the first kept command expires
+    private void setThreshold() {
+        long until = Long.MAX_VALUE;
+        for (CommandTrace trace : traces) {
+            until = Math.min(until, trace.start + trace.time + window);
+        }
+        thresholdUntil = until;
+        threshold = (traces.size() >= size) ? traces.get(traces.size() - 1).time : 0;
+    }
+
+}
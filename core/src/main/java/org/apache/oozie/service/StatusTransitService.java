@@ -16,32 +16,31 @@ package org.apache.oozie.service;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.BundleActionBean;
 import org.apache.oozie.BundleJobBean;
-import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.client.CoordinatorAction;
 import org.apache.oozie.client.Job;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.bundle.BundleKillXCommand;
 import org.apache.oozie.command.bundle.BundleStatusUpdateXCommand;
-import org.apache.oozie.executor.jpa.BundleActionsGetByLastModifiedTimeJPAExecutor;
+import org.apache.oozie.executor.jpa.BundleActionsGetBundleIdsByLastModifiedTimeJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleActionsGetJPAExecutor;
+import org.apache.oozie.executor.jpa.BundleActionsStatusCountGroupByBundleIdJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobGetJPAExecutor;
-import org.apache.oozie.executor.jpa.BundleJobUpdateJPAExecutor;
+import org.apache.oozie.executor.jpa.BundleJobUpdateStatusPendingJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobsGetPendingJPAExecutor;
 import org.apache.oozie.executor.jpa.BundleJobsGetRunningJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordActionsGetByLastModifiedTimeJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobGetActionsJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionsGetJobIdsByLastModifiedTimeJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionsStatusCountGroupByJobIdJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
-import org.apache.oozie.executor.jpa.CoordJobUpdateJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobUpdateStatusPendingJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobsGetPendingJPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.MemoryLocks;
@@ -60,6 +59,7 @@ public class StatusTransitService implements Service {
     public static final String CONF_STATUSTRANSIT_INTERVAL = CONF_PREFIX + "statusTransit.interval";
     public static final String CONF_BACKWARD_SUPPORT_FOR_COORD_STATUS = CONF_PREFIX + "backward.support.for.coord.status";
     private static int limit = -1;
+    private static final int STATUS_COUNT_BATCH_SIZE = 500;
     private static Date lastInstanceStartTime = null;
     private final static XLog LOG = XLog.getLog(StatusTransitRunnable.class);
 
@@ -69,10 +69,17 @@ public class StatusTransitService implements Service {
      * It is to update job's status according to its child actions' status. If all child actions' pending flag equals 0
      * (job done), we reset the job's pending flag to 0. If all child actions are succeeded, we set the job's status to
      * SUCCEEDED.
+     * <p/>
+     * The jobs are aggregated in pages of {@link #STATUS_COUNT_BATCH_SIZE} jobs. The child actions are not loaded,
+     * their statuses are counted with one grouped query per page, and the job updates of a page are written in a single
+     * JPA batch right after the page is aggregated.
      */
     static class StatusTransitRunnable implements Runnable {
         private JPAService jpaService = null;
         private MemoryLocks.LockToken lock;
+        private final List<JPAExecutor<Integer>> updateList = new ArrayList<JPAExecutor<Integer>>();
+        // bundle action update of each job update, null if the job update has none
+        private final List<BundleStatusUpdateXCommand> bundleStatusUpdateList = new ArrayList<BundleStatusUpdateXCommand>();
 
         public StatusTransitRunnable() {
             jpaService = Services.get().get(JPAService.class);
@@ -137,14 +144,10 @@ public class StatusTransitService implements Service {
                         + DateUtils.convertDateToString(lastInstanceStartTime));
                 // this is not the first instance, we should only check jobs that have actions been
                 // updated >= start time of last service run;
-                List<BundleActionBean> actionList = jpaService
-                        .execute(new BundleActionsGetByLastModifiedTimeJPAExecutor(lastInstanceStartTime));
-                Set<String> bundleIds = new HashSet<String>();
-                for (BundleActionBean action : actionList) {
-                    bundleIds.add(action.getBundleId());
-                }
+                List<String> bundleIds = jpaService
+                        .execute(new BundleActionsGetBundleIdsByLastModifiedTimeJPAExecutor(lastInstanceStartTime));
                 pendingJobCheckList = new ArrayList<BundleJobBean>();
-                for (String bundleId : bundleIds.toArray(new String[bundleIds.size()])) {
+                for (String bundleId : bundleIds) {
                     BundleJobBean bundle = jpaService.execute(new BundleJobGetJPAExecutor(bundleId));
                     // Running bundle job might have pending false
                     if (bundle.isPending() || bundle.getStatus().equals(Job.Status.RUNNING)) {
@@ -161,151 +164,145 @@ public class StatusTransitService implements Service {
                 CommandException {
             if (bundleLists != null) {
                 for (List<BundleJobBean> listBundleBean : bundleLists) {
-                    for (BundleJobBean bundleJob : listBundleBean) {
-                        try {
-                            String jobId = bundleJob.getId();
-                            Job.Status[] bundleStatus = new Job.Status[1];
-                            bundleStatus[0] = bundleJob.getStatus();
-                            List<BundleActionBean> bundleActions = jpaService.execute(new BundleActionsGetJPAExecutor(
-                                    jobId));
-                            HashMap<Job.Status, Integer> bundleActionStatus = new HashMap<Job.Status, Integer>();
-                            boolean foundPending = false;
-                            for (BundleActionBean bAction : bundleActions) {
-                                if (!bAction.isPending()) {
-                                    int counter = 0;
-                                    if (bundleActionStatus.containsKey(bAction.getStatus())) {
-                                        counter = bundleActionStatus.get(bAction.getStatus()) + 1;
-                                    }
-                                    else {
-                                        ++counter;
-                                    }
-                                    bundleActionStatus.put(bAction.getStatus(), counter);
-                                    if (bAction.getCoordId() == null
-                                            && (bAction.getStatus() == Job.Status.FAILED || bAction.getStatus() == Job.Status.KILLED)) {
-                                        (new BundleKillXCommand(jobId)).call();
-                                        LOG.info("Bundle job ["+ jobId
-                                                        + "] has been killed since one of its coordinator job failed submission.");
-                                    }
-                                }
-                                else {
-                                    foundPending = true;
-                                    break;
-                                }
-                            }
-
-                            if (foundPending) {
-                                continue;
-                            }
-
-                            if (checkTerminalStatus(bundleActionStatus, bundleActions, bundleStatus)) {
-                                LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
-                                        + "' from '" + bundleJob.getStatus() + "'");
-                                updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
-                            }
-                            else if (checkPrepStatus(bundleActionStatus, bundleActions, bundleStatus)) {
-                                LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
-                                        + "' from '" + bundleJob.getStatus() + "'");
-                                updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
-                            }
-                            else if (checkPausedStatus(bundleActionStatus, bundleActions, bundleStatus)) {
-                                LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
-                                        + "' from '" + bundleJob.getStatus() + "'");
-                                updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
-                            }
-                            else if (checkSuspendStatus(bundleActionStatus, bundleActions, bundleStatus)) {
-                                LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
-                                        + "' from '" + bundleJob.getStatus() + "'");
-                                updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
-                            }
-                            else if (checkRunningStatus(bundleActionStatus, bundleActions, bundleStatus)) {
-                                LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
-                                        + "' from '" + bundleJob.getStatus() + "'");
-                                updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
-                            }
-                        }
-                        catch (Exception ex) {
-                            LOG.error("Exception happened during aggregate bundle job's status, job = "
-                                    + bundleJob.getId(), ex);
-                        }
+                    for (int i = 0; i < listBundleBean.size(); i += STATUS_COUNT_BATCH_SIZE) {
+                        aggregateBundleJobsStatusPage(listBundleBean.subList(i, Math.min(i + STATUS_COUNT_BATCH_SIZE,
+                                                                                         listBundleBean.size())));
                     }
                 }
             }
         }
 
+        private void aggregateBundleJobsStatusPage(List<BundleJobBean> listBundleBean) throws JPAExecutorException {
+            List<String> bundleIds = new ArrayList<String>();
+            for (BundleJobBean bundleJob : listBundleBean) {
+                bundleIds.add(bundleJob.getId());
+            }
+            Map<String, Map<Job.Status, Integer>> statusCounts = jpaService
+                    .execute(new BundleActionsStatusCountGroupByBundleIdJPAExecutor(bundleIds));
+            for (BundleJobBean bundleJob : listBundleBean) {
+                try {
+                    String jobId = bundleJob.getId();
+                    Job.Status[] bundleStatus = new Job.Status[1];
+                    bundleStatus[0] = bundleJob.getStatus();
+                    // bundles with pending actions are not in the status counts
+                    Map<Job.Status, Integer> bundleActionStatus = statusCounts.get(jobId);
+                    if (bundleActionStatus == null) {
+                        continue;
+                    }
+                    int bundleActions = getTotal(bundleActionStatus);
+
+                    if (bundleActionStatus.containsKey(Job.Status.FAILED)
+                            || bundleActionStatus.containsKey(Job.Status.KILLED)) {
+                        checkCoordSubmission(jobId);
+                    }
+
+                    if (checkTerminalStatus(bundleActionStatus, bundleActions, bundleStatus)) {
+                        LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
+                                + "' from '" + bundleJob.getStatus() + "'");
+                        updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
+                    }
+                    else if (checkPrepStatus(bundleActionStatus, bundleActions, bundleStatus)) {
+                        LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
+                                + "' from '" + bundleJob.getStatus() + "'");
+                        updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
+                    }
+                    else if (checkPausedStatus(bundleActionStatus, bundleActions, bundleStatus)) {
+                        LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
+                                + "' from '" + bundleJob.getStatus() + "'");
+                        updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
+                    }
+                    else if (checkSuspendStatus(bundleActionStatus, bundleActions, bundleStatus)) {
+                        LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
+                                + "' from '" + bundleJob.getStatus() + "'");
+                        updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
+                    }
+                    else if (checkRunningStatus(bundleActionStatus, bundleActions, bundleStatus)) {
+                        LOG.info("Set bundle job [" + jobId + "] status to '" + bundleStatus[0].toString()
+                                + "' from '" + bundleJob.getStatus() + "'");
+                        updateBundleJob(bundleActionStatus, bundleActions, bundleJob, bundleStatus[0]);
+                    }
+                }
+                catch (Exception ex) {
+                    LOG.error("Exception happened during aggregate bundle job's status, job = "
+                            + bundleJob.getId(), ex);
+                }
+            }
+            flushUpdates();
+        }
+
         private void aggregateCoordJobsStatus(List<CoordinatorJobBean> CoordList) throws JPAExecutorException,
                 CommandException {
             if (CoordList != null) {
                 Configuration conf = Services.get().getConf();
                 boolean backwardSupportForCoordStatus = conf.getBoolean(CONF_BACKWARD_SUPPORT_FOR_COORD_STATUS, false);
 
+                List<CoordinatorJobBean> coordJobs = new ArrayList<CoordinatorJobBean>();
                 for (CoordinatorJobBean coordJob : CoordList) {
-                    try {
-                        // if namespace 0.1 is used and backward support is true, then ignore this coord job
-                        if (backwardSupportForCoordStatus == true && coordJob.getAppNamespace() != null
-                                && coordJob.getAppNamespace().equals(SchemaService.COORDINATOR_NAMESPACE_URI_1)) {
-                            continue;
-                        }
-                        String jobId = coordJob.getId();
-                        Job.Status[] coordStatus = new Job.Status[1];
-                        coordStatus[0] = coordJob.getStatus();
-                        List<CoordinatorActionBean> coordActions = jpaService
-                                .execute(new CoordJobGetActionsJPAExecutor(jobId));
-                        HashMap<CoordinatorAction.Status, Integer> coordActionStatus = new HashMap<CoordinatorAction.Status, Integer>();
-                        boolean foundPending = false;
-                        for (CoordinatorActionBean cAction : coordActions) {
-                            if (!cAction.isPending()) {
-                                int counter = 0;
-                                if (coordActionStatus.containsKey(cAction.getStatus())) {
-                                    counter = coordActionStatus.get(cAction.getStatus()) + 1;
-                                }
-                                else {
-                                    ++counter;
-                                }
-                                coordActionStatus.put(cAction.getStatus(), counter);
-                            }
-                            else {
-                                foundPending = true;
-                                break;
-                            }
-                        }
+                    // if namespace 0.1 is used and backward support is true, then ignore this coord job
+                    if (backwardSupportForCoordStatus == true && coordJob.getAppNamespace() != null
+                            && coordJob.getAppNamespace().equals(SchemaService.COORDINATOR_NAMESPACE_URI_1)) {
+                        continue;
+                    }
+                    coordJobs.add(coordJob);
+                }
+                for (int i = 0; i < coordJobs.size(); i += STATUS_COUNT_BATCH_SIZE) {
+                    aggregateCoordJobsStatusPage(coordJobs.subList(i, Math.min(i + STATUS_COUNT_BATCH_SIZE,
+                                                                               coordJobs.size())));
+                }
+            }
+        }
 
-                        if (foundPending) {
-                            continue;
-                        }
+        private void aggregateCoordJobsStatusPage(List<CoordinatorJobBean> coordJobs) throws JPAExecutorException {
+            List<String> coordIds = new ArrayList<String>();
+            for (CoordinatorJobBean coordJob : coordJobs) {
+                coordIds.add(coordJob.getId());
+            }
+            Map<String, Map<CoordinatorAction.Status, Integer>> statusCounts = jpaService
+                    .execute(new CoordActionsStatusCountGroupByJobIdJPAExecutor(coordIds));
+            for (CoordinatorJobBean coordJob : coordJobs) {
+                try {
+                    String jobId = coordJob.getId();
+                    Job.Status[] coordStatus = new Job.Status[1];
+                    coordStatus[0] = coordJob.getStatus();
+                    // jobs with pending actions are not in the status counts
+                    Map<CoordinatorAction.Status, Integer> coordActionStatus = statusCounts.get(jobId);
+                    if (coordActionStatus == null) {
+                        continue;
+                    }
+                    int coordActions = getTotal(coordActionStatus);
 
-                        if (coordJob.isDoneMaterialization()
-                                && checkCoordTerminalStatus(coordActionStatus, coordActions, coordStatus)) {
-                            LOG.info("Set coordinator job [" + jobId + "] status to '" + coordStatus[0].toString()
-                                    + "' from '" + coordJob.getStatus() + "'");
-                            updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
-                        }
-                        else if (coordJob.isDoneMaterialization()
-                                && checkCoordSuspendStatus(coordActionStatus, coordActions, coordStatus)) {
-                            LOG.info("Set coordinator job [" + jobId + "] status to " + coordStatus[0].toString()
-                                    + "' from '" + coordJob.getStatus() + "'");
-                            updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
-                        }
-                        else if (checkCoordRunningStatus(coordActionStatus, coordActions, coordStatus)) {
-                            LOG.info("Set coordinator job [" + jobId + "] status to " + coordStatus[0].toString()
-                                    + "' from '" + coordJob.getStatus() + "'");
-                            updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
-                        }
-                        // checking pending flag for job when user killed or suspended the job
-                        else {
-                            checkCoordPending(coordActionStatus, coordActions, coordJob, true);
-                        }
+                    if (coordJob.isDoneMaterialization()
+                            && checkCoordTerminalStatus(coordActionStatus, coordActions, coordStatus)) {
+                        LOG.info("Set coordinator job [" + jobId + "] status to '" + coordStatus[0].toString()
+                                + "' from '" + coordJob.getStatus() + "'");
+                        updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
+                    }
+                    else if (coordJob.isDoneMaterialization()
+                            && checkCoordSuspendStatus(coordActionStatus, coordActions, coordStatus)) {
+                        LOG.info("Set coordinator job [" + jobId + "] status to " + coordStatus[0].toString()
+                                + "' from '" + coordJob.getStatus() + "'");
+                        updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
                     }
-                    catch (Exception ex) {
-                        LOG.error("Exception happened during aggregate coordinator job's status, job = "
-                                + coordJob.getId(), ex);
+                    else if (checkCoordRunningStatus(coordActionStatus, coordActions, coordStatus)) {
+                        LOG.info("Set coordinator job [" + jobId + "] status to " + coordStatus[0].toString()
+                                + "' from '" + coordJob.getStatus() + "'");
+                        updateCoordJob(coordActionStatus, coordActions, coordJob, coordStatus[0]);
+                    }
+                    // checking pending flag for job when user killed or suspended the job
+                    else {
+                        checkCoordPending(coordActionStatus, coordActions, coordJob, true);
                     }
                 }
-
+                catch (Exception ex) {
+                    LOG.error("Exception happened during aggregate coordinator job's status, job = "
+                            + coordJob.getId(), ex);
+                }
             }
+            flushUpdates();
         }
 
-        private boolean checkTerminalStatus(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, Job.Status[] bundleStatus) {
+        private boolean checkTerminalStatus(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, Job.Status[] bundleStatus) {
             boolean ret = false;
             int totalValuesSucceed = 0;
             if (bundleActionStatus.containsKey(Job.Status.SUCCEEDED)) {
@@ -325,18 +322,18 @@ public class StatusTransitService implements Service {
                 totalValuesDoneWithError = bundleActionStatus.get(Job.Status.DONEWITHERROR);
             }
 
-            if (bundleActions.size() == (totalValuesSucceed + totalValuesFailed + totalValuesKilled + totalValuesDoneWithError)) {
+            if (bundleActions == (totalValuesSucceed + totalValuesFailed + totalValuesKilled + totalValuesDoneWithError)) {
                 // If all the bundle actions are succeeded then bundle job should be succeeded.
-                if (bundleActions.size() == totalValuesSucceed) {
+                if (bundleActions == totalValuesSucceed) {
                     bundleStatus[0] = Job.Status.SUCCEEDED;
                     ret = true;
                 }
-                else if (bundleActions.size() == totalValuesKilled) {
+                else if (bundleActions == totalValuesKilled) {
                     // If all the bundle actions are KILLED then bundle job should be KILLED.
                     bundleStatus[0] = Job.Status.KILLED;
                     ret = true;
                 }
-                else if (bundleActions.size() == totalValuesFailed) {
+                else if (bundleActions == totalValuesFailed) {
                     // If all the bundle actions are FAILED then bundle job should be FAILED.
                     bundleStatus[0] = Job.Status.FAILED;
                     ret = true;
@@ -349,8 +346,8 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkCoordTerminalStatus(HashMap<CoordinatorAction.Status, Integer> coordActionStatus,
-                List<CoordinatorActionBean> coordActions, Job.Status[] coordStatus) {
+        private boolean checkCoordTerminalStatus(Map<CoordinatorAction.Status, Integer> coordActionStatus,
+                int coordActions, Job.Status[] coordStatus) {
             boolean ret = false;
             int totalValuesSucceed = 0;
             if (coordActionStatus.containsKey(CoordinatorAction.Status.SUCCEEDED)) {
@@ -370,18 +367,18 @@ public class StatusTransitService implements Service {
                 totalValuesTimeOut = coordActionStatus.get(CoordinatorAction.Status.TIMEDOUT);
             }
 
-            if (coordActions.size() == (totalValuesSucceed + totalValuesFailed + totalValuesKilled + totalValuesTimeOut)) {
+            if (coordActions == (totalValuesSucceed + totalValuesFailed + totalValuesKilled + totalValuesTimeOut)) {
                 // If all the coordinator actions are succeeded then coordinator job should be succeeded.
-                if (coordActions.size() == totalValuesSucceed) {
+                if (coordActions == totalValuesSucceed) {
                     coordStatus[0] = Job.Status.SUCCEEDED;
                     ret = true;
                 }
-                else if (coordActions.size() == totalValuesKilled) {
+                else if (coordActions == totalValuesKilled) {
                     // If all the coordinator actions are KILLED then coordinator job should be KILLED.
                     coordStatus[0] = Job.Status.KILLED;
                     ret = true;
                 }
-                else if (coordActions.size() == totalValuesFailed) {
+                else if (coordActions == totalValuesFailed) {
                     // If all the coordinator actions are FAILED then coordinator job should be FAILED.
                     coordStatus[0] = Job.Status.FAILED;
                     ret = true;
@@ -394,12 +391,12 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkPrepStatus(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, Job.Status[] bundleStatus) {
+        private boolean checkPrepStatus(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, Job.Status[] bundleStatus) {
             boolean ret = false;
             if (bundleActionStatus.containsKey(Job.Status.PREP)) {
                 // If all the bundle actions are PREP then bundle job should be RUNNING.
-                if (bundleActions.size() > bundleActionStatus.get(Job.Status.PREP)) {
+                if (bundleActions > bundleActionStatus.get(Job.Status.PREP)) {
                     bundleStatus[0] = Job.Status.RUNNING;
                     ret = true;
                 }
@@ -407,16 +404,16 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkPausedStatus(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, Job.Status[] bundleStatus) {
+        private boolean checkPausedStatus(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, Job.Status[] bundleStatus) {
             boolean ret = false;
             if (bundleActionStatus.containsKey(Job.Status.PAUSED)) {
-                if (bundleActions.size() == bundleActionStatus.get(Job.Status.PAUSED)) {
+                if (bundleActions == bundleActionStatus.get(Job.Status.PAUSED)) {
                     bundleStatus[0] = Job.Status.PAUSED;
                     ret = true;
                 }
                 else if (bundleActionStatus.containsKey(Job.Status.PAUSEDWITHERROR)
-                        && (bundleActions.size() == bundleActionStatus.get(Job.Status.PAUSED)
+                        && (bundleActions == bundleActionStatus.get(Job.Status.PAUSED)
                                 + bundleActionStatus.get(Job.Status.PAUSEDWITHERROR))) {
                     // bundleStatus = Job.Status.PAUSEDWITHERROR;
                     // We need to change this to PAUSEDWITHERROR in future when we add this to coordinator
@@ -427,16 +424,16 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkSuspendStatus(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, Job.Status[] bundleStatus) {
+        private boolean checkSuspendStatus(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, Job.Status[] bundleStatus) {
             boolean ret = false;
             if (bundleActionStatus.containsKey(Job.Status.SUSPENDED)) {
-                if (bundleActions.size() == bundleActionStatus.get(Job.Status.SUSPENDED)) {
+                if (bundleActions == bundleActionStatus.get(Job.Status.SUSPENDED)) {
                     bundleStatus[0] = Job.Status.SUSPENDED;
                     ret = true;
                 }
                 else if (bundleActionStatus.containsKey(Job.Status.SUSPENDEDWITHERROR)
-                        && (bundleActions.size() == bundleActionStatus.get(Job.Status.SUSPENDED)
+                        && (bundleActions == bundleActionStatus.get(Job.Status.SUSPENDED)
                                 + bundleActionStatus.get(Job.Status.SUSPENDEDWITHERROR))) {
                     // bundleStatus = Job.Status.SUSPENDEDWITHERROR;
                     // We need to change this to SUSPENDEDWITHERROR in future when we add this to coordinator
@@ -447,11 +444,11 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkCoordSuspendStatus(HashMap<CoordinatorAction.Status, Integer> coordActionStatus,
-                List<CoordinatorActionBean> coordActions, Job.Status[] coordStatus) {
+        private boolean checkCoordSuspendStatus(Map<CoordinatorAction.Status, Integer> coordActionStatus,
+                int coordActions, Job.Status[] coordStatus) {
             boolean ret = false;
             if (coordActionStatus.containsKey(CoordinatorAction.Status.SUSPENDED)) {
-                if (coordActions.size() == coordActionStatus.get(CoordinatorAction.Status.SUSPENDED)) {
+                if (coordActions == coordActionStatus.get(CoordinatorAction.Status.SUSPENDED)) {
                     coordStatus[0] = Job.Status.SUSPENDED;
                     ret = true;
                 }
@@ -459,12 +456,12 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkCoordRunningStatus(HashMap<CoordinatorAction.Status, Integer> coordActionStatus,
-                List<CoordinatorActionBean> coordActions, Job.Status[] coordStatus) {
+        private boolean checkCoordRunningStatus(Map<CoordinatorAction.Status, Integer> coordActionStatus,
+                int coordActions, Job.Status[] coordStatus) {
             boolean ret = false;
             if (coordActionStatus.containsKey(CoordinatorAction.Status.RUNNING)) {
                 // If all the bundle actions are succeeded then bundle job should be succeeded.
-                if (coordActions.size() == coordActionStatus.get(CoordinatorAction.Status.RUNNING)) {
+                if (coordActions == coordActionStatus.get(CoordinatorAction.Status.RUNNING)) {
                     coordStatus[0] = Job.Status.RUNNING;
                     ret = true;
                 }
@@ -484,12 +481,12 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private boolean checkRunningStatus(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, Job.Status[] bundleStatus) {
+        private boolean checkRunningStatus(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, Job.Status[] bundleStatus) {
             boolean ret = false;
             if (bundleActionStatus.containsKey(Job.Status.RUNNING)) {
                 // If all the bundle actions are succeeded then bundle job should be succeeded.
-                if (bundleActions.size() == bundleActionStatus.get(Job.Status.RUNNING)) {
+                if (bundleActions == bundleActionStatus.get(Job.Status.RUNNING)) {
                     bundleStatus[0] = Job.Status.RUNNING;
                     ret = true;
                 }
@@ -511,10 +508,11 @@ public class StatusTransitService implements Service {
             return ret;
         }
 
-        private void updateBundleJob(HashMap<Job.Status, Integer> bundleActionStatus,
-                List<BundleActionBean> bundleActions, BundleJobBean bundleJob, Job.Status bundleStatus)
+        private void updateBundleJob(Map<Job.Status, Integer> bundleActionStatus,
+                int bundleActions, BundleJobBean bundleJob, Job.Status bundleStatus)
                 throws JPAExecutorException {
             String jobId = bundleJob.getId();
+            Job.Status prevStatus = bundleJob.getStatus();
             boolean pendingBundleJob = bundleJob.isPending();
             // Checking the bundle pending should be updated or not
             int totalNonPendingActions = 0;
@@ -522,7 +520,7 @@ public class StatusTransitService implements Service {
                 totalNonPendingActions += bundleActionStatus.get(js);
             }
 
-            if (totalNonPendingActions == bundleActions.size()) {
+            if (totalNonPendingActions == bundleActions) {
                 pendingBundleJob = false;
             }
 
@@ -536,11 +534,11 @@ public class StatusTransitService implements Service {
                 bundleJob.resetPending();
                 LOG.info("Bundle job [" + jobId + "] Pending set to FALSE");
             }
-            jpaService.execute(new BundleJobUpdateJPAExecutor(bundleJob));
+            addUpdate(new BundleJobUpdateStatusPendingJPAExecutor(bundleJob, prevStatus), null);
         }
 
-        private void updateCoordJob(HashMap<CoordinatorAction.Status, Integer> coordActionStatus,
-                List<CoordinatorActionBean> coordActions, CoordinatorJobBean coordJob, Job.Status coordStatus)
+        private void updateCoordJob(Map<CoordinatorAction.Status, Integer> coordActionStatus,
+                int coordActions, CoordinatorJobBean coordJob, Job.Status coordStatus)
                 throws JPAExecutorException, CommandException {
             Job.Status prevStatus = coordJob.getStatus();
             // Update the Coord Job
@@ -557,18 +555,18 @@ public class StatusTransitService implements Service {
             coordJob.setStatus(coordStatus);
             coordJob.setStatus(StatusUtils.getStatus(coordJob));
             coordJob.setLastModifiedTime(new Date());
-            jpaService.execute(new CoordJobUpdateJPAExecutor(coordJob));
-            // update bundle action only when status changes in coord job
+            // update bundle action only when status changes in coord job, it is done once the update is committed
+            BundleStatusUpdateXCommand bundleStatusUpdate = null;
             if (coordJob.getBundleId() != null) {
                 if (!prevStatus.equals(coordJob.getStatus())) {
-                    BundleStatusUpdateXCommand bundleStatusUpdate = new BundleStatusUpdateXCommand(coordJob, prevStatus);
-                    bundleStatusUpdate.call();
+                    bundleStatusUpdate = new BundleStatusUpdateXCommand(coordJob, prevStatus);
                 }
             }
+            addUpdate(new CoordJobUpdateStatusPendingJPAExecutor(coordJob, prevStatus), bundleStatusUpdate);
         }
 
-        private void checkCoordPending(HashMap<CoordinatorAction.Status, Integer> coordActionStatus,
-                List<CoordinatorActionBean> coordActions, CoordinatorJobBean coordJob, boolean saveToDB) throws JPAExecutorException {
+        private void checkCoordPending(Map<CoordinatorAction.Status, Integer> coordActionStatus,
+                int coordActions, CoordinatorJobBean coordJob, boolean saveToDB) throws JPAExecutorException {
             boolean pendingCoordJob = coordJob.isPending();
             // Checking the coordinator pending should be updated or not
             int totalNonPendingActions = 0;
@@ -576,7 +574,7 @@ public class StatusTransitService implements Service {
                 totalNonPendingActions += coordActionStatus.get(js);
             }
 
-            if (totalNonPendingActions == coordActions.size()) {
+            if (totalNonPendingActions == coordActions) {
                 pendingCoordJob = false;
             }
 
@@ -590,7 +588,91 @@ public class StatusTransitService implements Service {
             }
 
             if (saveToDB) {
-                jpaService.execute(new CoordJobUpdateJPAExecutor(coordJob));
+                addUpdate(new CoordJobUpdateStatusPendingJPAExecutor(coordJob, coordJob.getStatus()), null);
+            }
+        }
+
+        private int getTotal(Map<?, Integer> statusCounts) {
+            int total = 0;
+            for (Integer count : statusCounts.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Kill a bundle job if one of its coordinator jobs failed submission.
+         *
+         * @param jobId bundle job id
+         * @throws JPAExecutorException thrown if failed to load the bundle actions
+         * @throws CommandException thrown if failed to kill the bundle job
+         */
+        private void checkCoordSubmission(String jobId) throws JPAExecutorException, CommandException {
+            List<BundleActionBean> bundleActions = jpaService.execute(new BundleActionsGetJPAExecutor(jobId));
+            for (BundleActionBean bAction : bundleActions) {
+                if (bAction.getCoordId() == null
+                        && (bAction.getStatus() == Job.Status.FAILED || bAction.getStatus() == Job.Status.KILLED)) {
+                    (new BundleKillXCommand(jobId)).call();
+                    LOG.info("Bundle job [" + jobId
+                            + "] has been killed since one of its coordinator job failed submission.");
+                    break;
+                }
+            }
+        }
+
+        private void addUpdate(JPAExecutor<Integer> update, BundleStatusUpdateXCommand bundleStatusUpdate) {
+            updateList.add(update);
+            bundleStatusUpdateList.add(bundleStatusUpdate);
+        }
+
+        /**
+         * Write the job updates collected for a page of jobs in a single JPA batch, then update the bundle actions of
+         * the coordinator jobs whose status changed.
+         * <p/>
+         * The updates write the status and pending columns only, and only if the status read by the aggregation has
+         * not changed meanwhile. If the batch fails, the updates are written one by one so a failed job does not roll
+         * back the updates of the other jobs.
+         */
+        private void flushUpdates() {
+            try {
+                List<Object> updated;
+                try {
+                    updated = jpaService.executeBatch(updateList);
+                    LOG.debug("Updated [{0}] jobs in one batch", updateList.size());
+                }
+                catch (JPAExecutorException ex) {
+                    LOG.warn("Could not update [{0}] jobs in one batch, updating them one by one, {1}",
+                             updateList.size(), ex.getMessage(), ex);
+                    updated = new ArrayList<Object>(updateList.size());
+                    for (JPAExecutor<Integer> update : updateList) {
+                        try {
+                            updated.add(jpaService.execute(update));
+                        }
+                        catch (JPAExecutorException jex) {
+                            LOG.error("Exception happened during job status update", jex);
+                            updated.add(0);
+                        }
+                    }
+                }
+                for (int i = 0; i < updateList.size(); i++) {
+                    BundleStatusUpdateXCommand bundleStatusUpdate = bundleStatusUpdateList.get(i);
+                    if (((Integer) updated.get(i)) == 0) {
+                        LOG.info("Job status changed concurrently or could not be updated, [{0}] skipped",
+                                 updateList.get(i).getName());
+                    }
+                    else if (bundleStatusUpdate != null) {
+                        try {
+                            bundleStatusUpdate.call();
+                        }
+                        catch (CommandException ex) {
+                            LOG.error("Exception happened during bundle status update", ex);
+                        }
+                    }
+                }
+            }
+            finally {
+                updateList.clear();
+                bundleStatusUpdateList.clear();
             }
         }
 
@@ -612,14 +694,10 @@ public class StatusTransitService implements Service {
                         + DateUtils.convertDateToString(lastInstanceStartTime));
                 // this is not the first instance, we should only check jobs that have actions been
                 // updated >= start time of last service run;
-                List<CoordinatorActionBean> actionList = jpaService
-                        .execute(new CoordActionsGetByLastModifiedTimeJPAExecutor(lastInstanceStartTime));
-                Set<String> coordIds = new HashSet<String>();
-                for (CoordinatorActionBean action : actionList) {
-                    coordIds.add(action.getJobId());
-                }
+                List<String> coordIds = jpaService
+                        .execute(new CoordActionsGetJobIdsByLastModifiedTimeJPAExecutor(lastInstanceStartTime));
                 pendingJobCheckList = new ArrayList<CoordinatorJobBean>();
-                for (String coordId : coordIds.toArray(new String[coordIds.size()])) {
+                for (String coordId : coordIds) {
                     CoordinatorJobBean coordJob = jpaService.execute(new CoordJobGetJPAExecutor(coordId));
                     // Running coord job might have pending false
                     if (coordJob.isPending() || coordJob.getStatus().equals(Job.Status.RUNNING)) {
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowDefinitionBean;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionInsertJPAExecutor;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.XLog;
+import org.apache.oozie.workflow.WorkflowException;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+
+/**
+ * Service that stores parsed workflow definitions once, content addressed by their digest.
+ * <p/>
+ * Workflow instances reference their definition by digest instead of embedding it in the instance blob, so the blob
+ * written on every signal only carries the instance state. The service keeps the most recently used definitions in
+ * memory, a definition is read from the DB and deserialized only the first time an instance of it is loaded.
+ */
+public class WorkflowDefinitionService implements Service, Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "wfdefinitions";
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "WorkflowDefinitionService.";
+
+    /**
+     * Max number of definitions kept in memory.
+     */
+    public static final String CONF_CACHE_SIZE = CONF_PREFIX + "cache.size";
+
+    public static final String INSTR_CACHE_HITS = "cache.hits";
+    public static final String INSTR_CACHE_MISSES = "cache.misses";
+    public static final String INSTR_STORED = "stored";
+
+    private Map<String, LiteWorkflowApp> definitions;
+    private JPAService jpaService;
+    private Instrumentation instr;
+
+    /**
+     * Initialize the workflow definition service.
+     *
+     * @param services services instance.
+     * @throws ServiceException thrown if the service could not be initialized.
+     */
+    public void init(Services services) throws ServiceException {
+        Configuration conf = services.getConf();
+        final int cacheSize = conf.getInt(CONF_CACHE_SIZE, 500);
+        jpaService = services.get(JPAService.class);
+        if (jpaService == null) {
+            throw new ServiceException(ErrorCode.E0100, getClass().getName(), "JPAService is not available");
+        }
+        definitions = new LinkedHashMap<String, LiteWorkflowApp>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LiteWorkflowApp> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Destroy the workflow definition service.
+     */
+    public void destroy() {
+        definitions = null;
+    }
+
+    /**
+     * Return the public interface of the workflow definition service.
+     *
+     * @return {@link WorkflowDefinitionService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return WorkflowDefinitionService.class;
+    }
+
+    /**
+     * Instrument the workflow definition service.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        this.instr = instr;
+    }
+
+    /**
+     * Store a workflow definition if it is not stored already.
+     *
+     * @param app workflow definition.
+     * @return the digest of the definition, it is the ID to load it back with {@link #get(String)}.
+     * @throws WorkflowException thrown if the definition could not be stored.
+     */
+    public String store(LiteWorkflowApp app) throws WorkflowException {
+        ParamChecker.notNull(app, "app");
+        String digest = app.getDigest();
+        synchronized (definitions) {
+            if (definitions.containsKey(digest)) {
+                return digest;
+            }
+        }
+        WorkflowDefinitionBean bean = new WorkflowDefinitionBean(digest, WritableUtils.toByteArray(app));
+        try {
+            if (jpaService.execute(new WorkflowDefinitionInsertJPAExecutor(bean))) {
+                incr(INSTR_STORED);
+            }
+        }
+        catch (Exception ex) {
+            // another server may have inserted the same definition concurrently
+            if (!isStored(digest)) {
+                throw new WorkflowException(ErrorCode.E0714, ex.getMessage(), ex);
+            }
+            XLog.getLog(getClass()).debug("Workflow definition [{0}] stored concurrently", digest);
+        }
+        synchronized (definitions) {
+            definitions.put(digest, app);
+        }
+        return digest;
+    }
+
+    /**
+     * Return a stored workflow definition.
+     * <p/>
+     * The returned definition is shared by all the instances of it, it must not be modified.
+     *
+     * @param digest digest of the definition.
+     * @return the workflow definition.
+     * @throws WorkflowException thrown if the definition is not stored or it could not be read.
+     */
+    public LiteWorkflowApp get(String digest) throws WorkflowException {
+        ParamChecker.notEmpty(digest, "digest");
+        LiteWorkflowApp app;
+        synchronized (definitions) {
+            app = definitions.get(digest);
+        }
+        if (app != null) {
+            incr(INSTR_CACHE_HITS);
+            return app;
+        }
+        incr(INSTR_CACHE_MISSES);
+        WorkflowDefinitionBean bean;
+        try {
+            bean = load(digest);
+        }
+        catch (JPAExecutorException ex) {
+            throw new WorkflowException(ErrorCode.E0710, ex.getMessage(), ex);
+        }
+        if (bean == null) {
+            throw new WorkflowException(ErrorCode.E0710, XLog.format("definition [{0}] not found", digest));
+        }
+        app = WritableUtils.fromByteArray(bean.getDefinition(), LiteWorkflowApp.class);
+        synchronized (definitions) {
+            definitions.put(digest, app);
+        }
+        return app;
+    }
+
+    private WorkflowDefinitionBean load(String digest) throws JPAExecutorException {
+        return jpaService.execute(new WorkflowDefinitionGetJPAExecutor(digest));
+    }
+
+    private boolean isStored(String digest) {
+        try {
+            return load(digest) != null;
+        }
+        catch (JPAExecutorException ex) {
+            return false;
+        }
+    }
+
+    private void incr(String name) {
+        if (instr != null) {
+            instr.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
+}
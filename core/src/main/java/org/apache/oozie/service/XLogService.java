@@ -20,6 +20,8 @@ import org.apache.log4j.PropertyConfigurator;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.XLogIndex;
+import org.apache.oozie.util.XLogScanner;
 import org.apache.oozie.util.XLogStreamer;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.BuildInfo;
@@ -83,6 +85,40 @@ public class XLogService implements Service, Instrumentable {
      */
     public static final String DEFAULT_RELOAD_INTERVAL = "10";
 
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "XLogService.";
+
+    /**
+     * Configuration property that enables the indexes of the rotated log files used to stream job logs.
+     */
+    public static final String CONF_LOG_INDEX_ENABLED = CONF_PREFIX + "log.index.enabled";
+
+    /**
+     * Configuration property with the directory of the log index files, if not set it is the <code>index</code>
+     * directory in the logs directory.
+     */
+    public static final String CONF_LOG_INDEX_DIR = CONF_PREFIX + "log.index.dir";
+
+    /**
+     * Configuration property with the gap, in bytes, under which indexed ranges of the same job are merged.
+     */
+    public static final String CONF_LOG_INDEX_MERGE_GAP = CONF_PREFIX + "log.index.merge.gap";
+
+    /**
+     * Configuration property with the number of threads scanning log files, shared by all the log requests, if not
+     * greater than zero it is the number of available processors.
+     */
+    public static final String CONF_LOG_SCAN_THREADS = CONF_PREFIX + "log.scan.threads";
+
+    /**
+     * Configuration property with the number of log files scanned at the same time by a log request.
+     */
+    public static final String CONF_LOG_SCAN_REQUEST_THREADS = CONF_PREFIX + "log.scan.request.threads";
+
+    /**
+     * Configuration property with the number of matching log statements buffered per log file by a log request.
+     */
+    public static final String CONF_LOG_SCAN_QUEUE_SIZE = CONF_PREFIX + "log.scan.queue.size";
+
     private XLog log;
     private long interval;
     private boolean fromClasspath;
@@ -98,6 +134,8 @@ public class XLogService implements Service, Instrumentable {
     private String oozieLogPath;
     private String oozieLogName;
     private int oozieLogRotation = -1;
+    private Instrumentation instrumentation;
+    private XLogScanner.Pool scanPool;
 
     public XLogService() {
     }
@@ -233,6 +271,12 @@ public class XLogService implements Service, Instrumentable {
      * Destroy the log service.
      */
     public void destroy() {
+        synchronized (this) {
+            if (scanPool != null) {
+                scanPool.destroy();
+                scanPool = null;
+            }
+        }
         LogManager.shutdown();
         XLog.Info.reset();
         XLogStreamer.Filter.reset();
@@ -265,6 +309,7 @@ public class XLogService implements Service, Instrumentable {
      * @param instr instrumentation to use.
      */
     public void instrument(Instrumentation instr) {
+        instrumentation = instr;
         instr.addVariable("oozie", "version", new Instrumentation.Variable<String>() {
             public String getValue() {
                 return BuildInfo.getBuildInfo().getProperty(BuildInfo.BUILD_VERSION);
@@ -290,6 +335,63 @@ public class XLogService implements Service, Instrumentable {
                 return logOverWS;
             }
         });
+        instr.addVariable(INSTRUMENTATION_GROUP, "scan.threads.available", new Instrumentation.Variable<Integer>() {
+            public Integer getValue() {
+                XLogScanner.Pool pool = getScanPool();
+                return (pool != null) ? pool.getAvailableThreads() : 0;
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, "index.size", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                long size = 0;
+                File dir = getLogIndexDir();
+                File[] files = (dir != null) ? dir.listFiles() : null;
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(XLogIndex.INDEX_EXTENSION)) {
+                            size += file.length();
+                        }
+                    }
+                }
+                return size;
+            }
+        });
+    }
+
+    /**
+     * Return the pool of threads scanning log files, it is created on first use as the Oozie configuration is not
+     * available when the log service is initialized.
+     *
+     * @return the pool of threads scanning log files, <code>null</code> if the Oozie configuration is not available.
+     */
+    synchronized XLogScanner.Pool getScanPool() {
+        if (scanPool == null) {
+            Services services = Services.get();
+            if (services == null || services.getConf() == null) {
+                return null;
+            }
+            int threads = services.getConf().getInt(CONF_LOG_SCAN_THREADS, 0);
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            scanPool = new XLogScanner.Pool(threads);
+        }
+        return scanPool;
+    }
+
+    /**
+     * Return the directory of the log index files.
+     *
+     * @return the directory of the log index files, <code>null</code> if log indexes are disabled.
+     */
+    File getLogIndexDir() {
+        Services services = Services.get();
+        if (!logOverWS || services == null || services.getConf() == null
+                || !services.getConf().getBoolean(CONF_LOG_INDEX_ENABLED, true)) {
+            return null;
+        }
+        String dir = services.getConf().get(CONF_LOG_INDEX_DIR, "").trim();
+        return (dir.length() > 0) ? new File(dir) : new File(oozieLogPath, "index");
     }
 
     /**
@@ -303,8 +405,28 @@ public class XLogService implements Service, Instrumentable {
      */
     public void streamLog(XLogStreamer.Filter filter, Date startTime, Date endTime, Writer writer) throws IOException {
         if (logOverWS) {
-            new XLogStreamer(filter, writer, oozieLogPath, oozieLogName, oozieLogRotation)
-                    .streamLog(startTime, endTime);
+            Instrumentation.Cron cron = new Instrumentation.Cron();
+            cron.start();
+            XLogStreamer streamer = new XLogStreamer(filter, writer, oozieLogPath, oozieLogName, oozieLogRotation);
+            File indexDir = getLogIndexDir();
+            if (indexDir != null) {
+                streamer.setIndex(indexDir, DagXLogInfoService.JOB, Services.get().getConf().getLong(
+                        CONF_LOG_INDEX_MERGE_GAP, XLogIndex.DEFAULT_MERGE_GAP));
+            }
+            XLogScanner.Pool pool = getScanPool();
+            if (pool != null) {
+                Configuration conf = Services.get().getConf();
+                streamer.setScan(pool, conf.getInt(CONF_LOG_SCAN_REQUEST_THREADS, 4),
+                                 conf.getInt(CONF_LOG_SCAN_QUEUE_SIZE, XLogScanner.DEFAULT_QUEUE_SIZE));
+            }
+            if (instrumentation != null) {
+                streamer.setInstrumentation(instrumentation, INSTRUMENTATION_GROUP);
+            }
+            streamer.streamLog(startTime, endTime);
+            cron.stop();
+            if (instrumentation != null) {
+                instrumentation.addCron(INSTRUMENTATION_GROUP, "stream", cron);
+            }
         }
         else {
             writer.write("Log streaming disabled!!");
@@ -114,6 +114,11 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
             getQueueDump(json);
             sendJsonResponse(response, HttpServletResponse.SC_OK, json);
         }
+        else if (resource.equals(RestConstants.ADMIN_SLOW_COMMANDS_RESOURCE)) {
+            JSONObject json = new JSONObject();
+            getSlowCommands(json);
+            sendJsonResponse(response, HttpServletResponse.SC_OK, json);
+        }
     }
 
     @Override
@@ -145,6 +150,10 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
                     dataJson.put(JsonTags.INSTR_TIMER_OWN_MAX_TIME, timer.getOwnMax());
                     dataJson.put(JsonTags.INSTR_TIMER_TOTAL_MIN_TIME, timer.getTotalMin());
                     dataJson.put(JsonTags.INSTR_TIMER_TOTAL_MAX_TIME, timer.getTotalMax());
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P50_TIME, timer.getTotalPercentile(50));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P95_TIME, timer.getTotalPercentile(95));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P99_TIME, timer.getTotalPercentile(99));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P999_TIME, timer.getTotalPercentile(99.9));
                 }
                 else {
                     dataJson.put(JsonTags.INSTR_VARIABLE_VALUE, value);
@@ -174,4 +183,6 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
 
     protected abstract void getQueueDump(JSONObject json) throws XServletException;
 
+    protected abstract void getSlowCommands(JSONObject json) throws XServletException;
+
 }
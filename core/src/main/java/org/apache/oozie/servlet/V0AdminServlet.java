@@ -106,4 +106,16 @@ public class V0AdminServlet extends BaseAdminServlet {
     protected void getQueueDump(JSONObject json) throws XServletException {
         throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0301);
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.apache.oozie.servlet.BaseAdminServlet#getSlowCommands(org.json.simple
+     * .JSONObject)
+     */
+    @Override
+    protected void getSlowCommands(JSONObject json) throws XServletException {
+        throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0301);
+    }
 }
@@ -16,6 +16,7 @@ package org.apache.oozie.servlet;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -24,9 +25,11 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
 import org.apache.oozie.client.rest.JsonTags;
+import org.apache.oozie.client.rest.JsonUtils;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.service.CallableQueueService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.SlowCommandsService;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -34,7 +37,7 @@ public class V1AdminServlet extends BaseAdminServlet {
 
     private static final long serialVersionUID = 1L;
     private static final String INSTRUMENTATION_NAME = "v1admin";
-    private static final ResourceInfo RESOURCES_INFO[] = new ResourceInfo[7];
+    private static final ResourceInfo RESOURCES_INFO[] = new ResourceInfo[8];
 
     static {
         RESOURCES_INFO[0] = new ResourceInfo(RestConstants.ADMIN_STATUS_RESOURCE, Arrays.asList("PUT", "GET"),
@@ -52,6 +55,8 @@ public class V1AdminServlet extends BaseAdminServlet {
                 Collections.EMPTY_LIST);
         RESOURCES_INFO[6] = new ResourceInfo(RestConstants.ADMIN_QUEUE_DUMP_RESOURCE, Arrays.asList("GET"),
                 Collections.EMPTY_LIST);
+        RESOURCES_INFO[7] = new ResourceInfo(RestConstants.ADMIN_SLOW_COMMANDS_RESOURCE, Arrays.asList("GET"),
+                Collections.EMPTY_LIST);
     }
 
     public V1AdminServlet() {
@@ -126,4 +131,32 @@ public class V1AdminServlet extends BaseAdminServlet {
         json.put(JsonTags.UNIQUE_MAP_DUMP, uniqueDumpArray);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.apache.oozie.servlet.BaseAdminServlet#getSlowCommands(org.json.simple
+     * .JSONObject)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void getSlowCommands(JSONObject json) throws XServletException {
+        JSONArray array = new JSONArray();
+        SlowCommandsService slowCommands = Services.get().get(SlowCommandsService.class);
+        if (slowCommands != null) {
+            for (SlowCommandsService.CommandTrace trace : slowCommands.getSlowest()) {
+                JSONObject jObject = new JSONObject();
+                jObject.put(JsonTags.SLOW_COMMAND_NAME, trace.getName());
+                jObject.put(JsonTags.SLOW_COMMAND_KEY, trace.getKey());
+                jObject.put(JsonTags.SLOW_COMMAND_START, JsonUtils.formatDateRfc822(new Date(trace.getStart())));
+                jObject.put(JsonTags.SLOW_COMMAND_TIME, trace.getTime());
+                JSONObject phases = new JSONObject();
+                phases.putAll(trace.getPhases());
+                jObject.put(JsonTags.SLOW_COMMAND_PHASES, phases);
+                array.add(jObject);
+            }
+        }
+        json.put(JsonTags.SLOW_COMMANDS, array);
+    }
+
 }
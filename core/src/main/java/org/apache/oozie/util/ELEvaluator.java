@@ -14,45 +14,80 @@
  */
 package org.apache.oozie.util;
 
+import org.apache.commons.el.Coercions;
+import org.apache.commons.el.Expression;
 import org.apache.commons.el.ExpressionEvaluatorImpl;
+import org.apache.commons.el.ExpressionString;
+import org.apache.commons.el.Logger;
 
 import javax.servlet.jsp.el.ELException;
-import javax.servlet.jsp.el.ExpressionEvaluator;
 import javax.servlet.jsp.el.FunctionMapper;
 import javax.servlet.jsp.el.VariableResolver;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * JSP Expression Language Evaluator. <p/> It provides a more convenient way of using the JSP EL Evaluator.
+ * <p/>
+ * Parsed expressions are kept in a bounded process wide {@link ExpressionCache}, evaluating an expression that is
+ * in the cache only walks its parsed tree.
  */
 public class ELEvaluator {
 
     /**
      * Provides functions and variables for the EL evaluator. <p/> All functions and variables in the context of an EL
-     * evaluator are accessible from EL expressions.
+     * evaluator are accessible from EL expressions. <p/> A context can be created on top of shared, read only, constant
+     * and function maps. Variables set in the context are kept in its own overlay, functions added to the context
+     * make it copy the shared function map first, the shared maps are never modified.
      */
     public static class Context implements VariableResolver, FunctionMapper {
+        private Map<String, Object> constants;
         private Map<String, Object> vars;
         private Map<String, Method> functions;
+        private boolean sharedFunctions;
 
         /**
          * Create an empty context.
          */
         public Context() {
-            vars = new HashMap<String, Object>();
+            constants = Collections.emptyMap();
             functions = new HashMap<String, Method>();
         }
 
+        /**
+         * Create a context on top of shared constants and functions. <p/> The given maps are not copied and they are
+         * never modified by the context.
+         *
+         * @param constants constants (variables) visible in the context, keyed by <code>PREFIX:NAME</code>.
+         * @param functions functions visible in the context, keyed by <code>PREFIX:NAME</code>.
+         */
+        public Context(Map<String, Object> constants, Map<String, Method> functions) {
+            this.constants = ParamChecker.notNull(constants, "constants");
+            this.functions = ParamChecker.notNull(functions, "functions");
+            sharedFunctions = true;
+        }
+
+        private Map<String, Object> getVars() {
+            if (vars == null) {
+                vars = new HashMap<String, Object>();
+            }
+            return vars;
+        }
+
         /**
          * Add variables to the context. <p/>
          *
          * @param vars variables to add to the context.
          */
         public void setVariables(Map<String, Object> vars) {
-            this.vars.putAll(vars);
+            getVars().putAll(vars);
         }
 
         /**
@@ -62,7 +97,7 @@ public class ELEvaluator {
          * @param value variable value.
          */
         public void setVariable(String name, Object value) {
-            vars.put(name, value);
+            getVars().put(name, value);
         }
 
         /**
@@ -72,7 +107,7 @@ public class ELEvaluator {
          * @return the variable value.
          */
         public Object getVariable(String name) {
-            return vars.get(name);
+            return (vars != null && vars.containsKey(name)) ? vars.get(name) : constants.get(name);
         }
 
         /**
@@ -86,6 +121,10 @@ public class ELEvaluator {
             if ((method.getModifiers() & (Modifier.PUBLIC | Modifier.STATIC)) != (Modifier.PUBLIC | Modifier.STATIC)) {
                 throw new IllegalArgumentException(XLog.format("Method[{0}] must be public and static", method));
             }
+            if (sharedFunctions) {
+                functions = new HashMap<String, Method>(functions);
+                sharedFunctions = false;
+            }
             prefix = (prefix.length() > 0) ? prefix + ":" : "";
             functions.put(prefix + functionName, method);
         }
@@ -98,10 +137,13 @@ public class ELEvaluator {
          * @throws ELException thrown if the variable is not defined in the context.
          */
         public Object resolveVariable(String name) throws ELException {
-            if (!vars.containsKey(name)) {
+            if (vars != null && vars.containsKey(name)) {
+                return vars.get(name);
+            }
+            if (!constants.containsKey(name)) {
                 throw new ELException(XLog.format("variable [{0}] cannot be resolved", name));
             }
-            return vars.get(name);
+            return constants.get(name);
         }
 
         /**
@@ -119,6 +161,124 @@ public class ELEvaluator {
         }
     }
 
+    /**
+     * Bounded cache of parsed EL expressions keyed by expression string. <p/> Lookups do not lock, when the cache is
+     * full the expressions that were parsed first are evicted. <p/> Parsed expressions do not depend on the function
+     * mapper, functions are resolved when the parsed tree is evaluated, so a parsed expression is shared by all the
+     * evaluators.
+     */
+    public static class ExpressionCache {
+        private final ExpressionEvaluatorImpl parser = new ExpressionEvaluatorImpl(true);
+        private final ConcurrentHashMap<String, Object> cache = new ConcurrentHashMap<String, Object>();
+        private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<String>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxSize;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        /**
+         * Create an expression cache.
+         *
+         * @param maxSize maximum number of parsed expressions to keep, if <code>0</code> expressions are not cached.
+         */
+        public ExpressionCache(int maxSize) {
+            this.maxSize = Math.max(0, maxSize);
+        }
+
+        /**
+         * Return the parsed expression, parsing it if it is not in the cache. <p/> A parsed expression is a
+         * <code>String</code> (no EL in it), an {@link Expression} or an {@link ExpressionString}.
+         *
+         * @param expr EL expression.
+         * @return the parsed expression.
+         * @throws ELException thrown if the expression could not be parsed.
+         */
+        Object getParsed(String expr) throws ELException {
+            Object parsed = cache.get(expr);
+            if (parsed != null) {
+                hits.incrementAndGet();
+                return parsed;
+            }
+            misses.incrementAndGet();
+            parsed = parser.parseExpressionString(expr);
+            if (maxSize > 0 && parsed != null && cache.putIfAbsent(expr, parsed) == null) {
+                order.offer(expr);
+                if (size.incrementAndGet() > maxSize) {
+                    String eldest = order.poll();
+                    if (eldest != null) {
+                        cache.remove(eldest);
+                        size.decrementAndGet();
+                    }
+                }
+            }
+            return parsed;
+        }
+
+        /**
+         * Return the number of evaluations that found their expression in the cache.
+         *
+         * @return the number of cache hits.
+         */
+        public long getHits() {
+            return hits.get();
+        }
+
+        /**
+         * Return the number of evaluations that had to parse their expression.
+         *
+         * @return the number of cache misses.
+         */
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * Return the number of parsed expressions in the cache.
+         *
+         * @return the number of parsed expressions in the cache.
+         */
+        public int size() {
+            return size.get();
+        }
+
+        /**
+         * Return the maximum number of parsed expressions the cache keeps.
+         *
+         * @return the maximum number of parsed expressions the cache keeps.
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+    }
+
+    /**
+     * Default size of the expression cache.
+     */
+    public static final int DEFAULT_EXPRESSION_CACHE_SIZE = 1000;
+
+    private static final Logger EL_LOGGER = new Logger(System.out);
+
+    private static volatile ExpressionCache expressionCache = new ExpressionCache(DEFAULT_EXPRESSION_CACHE_SIZE);
+
+    /**
+     * Replace the expression cache with an empty one of the given size. <p/> It is called by the {@link
+     * org.apache.oozie.service.ELService} at initialization.
+     *
+     * @param maxSize maximum number of parsed expressions to keep, if <code>0</code> expressions are not cached.
+     */
+    public static void setExpressionCacheSize(int maxSize) {
+        expressionCache = new ExpressionCache(maxSize);
+    }
+
+    /**
+     * Return the expression cache used by all EL evaluators.
+     *
+     * @return the expression cache.
+     */
+    public static ExpressionCache getExpressionCache() {
+        return expressionCache;
+    }
+
     private static ThreadLocal<ELEvaluator> current = new ThreadLocal<ELEvaluator>();
 
     /**
@@ -135,8 +295,6 @@ public class ELEvaluator {
 
     private Context context;
 
-    private ExpressionEvaluator evaluator = new ExpressionEvaluatorImpl();
-
     /**
      * Creates an ELEvaluator with no functions and no variables defined.
      */
@@ -191,12 +349,19 @@ public class ELEvaluator {
      * @throws Exception thrown if an EL function failed due to a transient error or EL expression could not be
      * evaluated.
      */
-    @SuppressWarnings({"unchecked", "deprecation"})
+    @SuppressWarnings("unchecked")
     public <T> T evaluate(String expr, Class<T> clazz) throws Exception {
         ELEvaluator existing = current.get();
         try {
             current.set(this);
-            return (T) evaluator.evaluate(expr, clazz, context, context);
+            Object value = expressionCache.getParsed(expr);
+            if (value instanceof Expression) {
+                value = ((Expression) value).evaluate(context, context, EL_LOGGER);
+            }
+            else if (value instanceof ExpressionString) {
+                value = ((ExpressionString) value).evaluate(context, context, EL_LOGGER);
+            }
+            return (T) Coercions.coerce(value, clazz, EL_LOGGER);
         }
         catch (ELException ex) {
             if (ex.getRootCause() instanceof Exception) {
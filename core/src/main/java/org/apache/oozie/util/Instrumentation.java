@@ -20,7 +20,6 @@ import org.apache.oozie.service.ConfigurationService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -30,23 +29,23 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instrumentation framework that supports Timers, Counters, Variables and Sampler instrumentation elements. <p/> All
- * instrumentation elements have a group and a name.
+ * instrumentation elements have a group and a name. <p/> Incrementing a counter and adding a cron to a timer do not
+ * lock, timers keep a histogram of their times for percentiles.
  */
 public class Instrumentation {
     private ScheduledExecutorService scheduler;
-    private Lock counterLock;
-    private Lock timerLock;
     private Lock variableLock;
     private Lock samplerLock;
     private Configuration configuration;
     private Map<String, Map<String, Map<String, Object>>> all;
-    private Map<String, Map<String, Element<Long>>> counters;
-    private Map<String, Map<String, Element<Timer>>> timers;
+    private ConcurrentHashMap<String, Map<String, Element<Long>>> counters;
+    private ConcurrentHashMap<String, Map<String, Element<Timer>>> timers;
     private Map<String, Map<String, Element<Variable>>> variables;
     private Map<String, Map<String, Element<Double>>> samplers;
 
@@ -55,8 +54,6 @@ public class Instrumentation {
      */
     @SuppressWarnings("unchecked")
     public Instrumentation() {
-        counterLock = new ReentrantLock();
-        timerLock = new ReentrantLock();
         variableLock = new ReentrantLock();
         samplerLock = new ReentrantLock();
         all = new LinkedHashMap<String, Map<String, Map<String, Object>>>();
@@ -199,9 +196,38 @@ public class Instrumentation {
     }
 
     /**
-     * Counter Instrumentation element.
+     * Counter Instrumentation element. <p/> The counter is striped, threads add to different cells so concurrent
+     * increments do not contend on the same memory location, the counter value is the sum of the cells.
      */
-    private static class Counter extends AtomicLong implements Element<Long> {
+    private static class Counter implements Element<Long> {
+        private static final int STRIPES = 16;
+        // cells are 8 longs apart so two cells do not share a cache line
+        private static final int PAD = 8;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+        /**
+         * Add to the counter.
+         *
+         * @param count value to add.
+         */
+        public void add(long count) {
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+            cells.addAndGet(stripe * PAD, count);
+        }
+
+        /**
+         * Return the counter value.
+         *
+         * @return the counter value.
+         */
+        public long get() {
+            long value = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                value += cells.get(i * PAD);
+            }
+            return value;
+        }
 
         /**
          * Return the counter snapshot.
@@ -224,24 +250,138 @@ public class Instrumentation {
     }
 
     /**
-     * Timer Instrumentation element.
+     * Fixed memory histogram of non negative values (times in milliseconds). <p/> Values up to 15 have their own
+     * bucket, larger values are bucketed in 8 buckets per power of two, so a percentile is reported with an error
+     * below 12.5%. Values above 2^40 go to the last bucket. <p/> Recording a value is lock free.
+     */
+    public static class Histogram {
+        private static final int LINEAR = 16;
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int MAX_EXP = 40;
+        private static final int BUCKETS = LINEAR + (MAX_EXP - 3) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts;
+
+        /**
+         * Create an empty histogram.
+         */
+        public Histogram() {
+            counts = new AtomicLongArray(BUCKETS);
+        }
+
+        private Histogram(long[] values) {
+            counts = new AtomicLongArray(values);
+        }
+
+        static int getBucket(long value) {
+            if (value < LINEAR) {
+                return (value < 0) ? 0 : (int) value;
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            if (exp > MAX_EXP) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR + (exp - 4) * SUB_BUCKETS + sub;
+        }
+
+        static long getBucketMax(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exp = (bucket - LINEAR) / SUB_BUCKETS + 4;
+            long sub = (bucket - LINEAR) % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+        }
+
+        /**
+         * Record a value.
+         *
+         * @param value value to record.
+         */
+        public void record(long value) {
+            counts.incrementAndGet(getBucket(value));
+        }
+
+        /**
+         * Return the number of recorded values.
+         *
+         * @return the number of recorded values.
+         */
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Return a percentile of the recorded values. <p/> The returned value is the upper bound of the bucket the
+         * percentile falls in.
+         *
+         * @param percentile percentile, between 0 and 100.
+         * @return the percentile of the recorded values, <code>0</code> if there are no values.
+         */
+        public long getPercentile(double percentile) {
+            long[] values = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                values[i] = counts.get(i);
+                count += values[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += values[i];
+                if (seen >= rank) {
+                    return getBucketMax(i);
+                }
+            }
+            return getBucketMax(BUCKETS - 1);
+        }
+
+        /**
+         * Return a copy of the histogram.
+         *
+         * @return a copy of the histogram.
+         */
+        public Histogram copy() {
+            long[] values = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                values[i] = counts.get(i);
+            }
+            return new Histogram(values);
+        }
+    }
+
+    /**
+     * Timer Instrumentation element. <p/> Adding a cron to the timer is lock free, a snapshot is not atomic, it may
+     * miss the fields of a cron being added while it is taken. <p/> The timer keeps a {@link Histogram} of the total
+     * times for percentiles.
      */
     public static class Timer implements Element<Timer> {
-        Lock lock = new ReentrantLock();
-        private long ownTime;
-        private long totalTime;
-        private long ticks;
-        private long ownSquareTime;
-        private long totalSquareTime;
-        private long ownMinTime;
-        private long ownMaxTime;
-        private long totalMinTime;
-        private long totalMaxTime;
+        private final AtomicLong ownTime = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong ticks = new AtomicLong();
+        private final AtomicLong ownSquareTime = new AtomicLong();
+        private final AtomicLong totalSquareTime = new AtomicLong();
+        private final AtomicLong ownMinTime = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong ownMaxTime = new AtomicLong();
+        private final AtomicLong totalMinTime = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong totalMaxTime = new AtomicLong();
+        private Histogram histogram;
 
         /**
          * Timer constructor. <p/> It is project private for test purposes.
          */
         Timer() {
+            histogram = new Histogram();
         }
 
         /**
@@ -250,7 +390,8 @@ public class Instrumentation {
          * @return the String representation of the timer value.
          */
         public String toString() {
-            return XLog.format("ticks[{0}] totalAvg[{1}] ownAvg[{2}]", ticks, getTotalAvg(), getOwnAvg());
+            return XLog.format("ticks[{0}] totalAvg[{1}] ownAvg[{2}] totalP99[{3}]", ticks, getTotalAvg(), getOwnAvg(),
+                               getTotalPercentile(99));
         }
 
         /**
@@ -259,23 +400,18 @@ public class Instrumentation {
          * @return the timer snapshot.
          */
         public Timer getValue() {
-            try {
-                lock.lock();
-                Timer timer = new Timer();
-                timer.ownTime = ownTime;
-                timer.totalTime = totalTime;
-                timer.ticks = ticks;
-                timer.ownSquareTime = ownSquareTime;
-                timer.totalSquareTime = totalSquareTime;
-                timer.ownMinTime = ownMinTime;
-                timer.ownMaxTime = ownMaxTime;
-                timer.totalMinTime = totalMinTime;
-                timer.totalMaxTime = totalMaxTime;
-                return timer;
-            }
-            finally {
-                lock.unlock();
-            }
+            Timer timer = new Timer();
+            timer.ownTime.set(ownTime.get());
+            timer.totalTime.set(totalTime.get());
+            timer.ticks.set(ticks.get());
+            timer.ownSquareTime.set(ownSquareTime.get());
+            timer.totalSquareTime.set(totalSquareTime.get());
+            timer.ownMinTime.set(ownMinTime.get());
+            timer.ownMaxTime.set(ownMaxTime.get());
+            timer.totalMinTime.set(totalMinTime.get());
+            timer.totalMaxTime.set(totalMaxTime.get());
+            timer.histogram = histogram.copy();
+            return timer;
         }
 
         /**
@@ -284,40 +420,48 @@ public class Instrumentation {
          * @param cron Cron to add.
          */
         void addCron(Cron cron) {
-            try {
-                lock.lock();
-                long own = cron.getOwn();
-                long total = cron.getTotal();
-                ownTime += own;
-                totalTime += total;
-                ticks++;
-                ownSquareTime += own * own;
-                totalSquareTime += total * total;
-                if (ticks == 1) {
-                    ownMinTime = own;
-                    ownMaxTime = own;
-                    totalMinTime = total;
-                    totalMaxTime = total;
-                }
-                else {
-                    ownMinTime = Math.min(ownMinTime, own);
-                    ownMaxTime = Math.max(ownMaxTime, own);
-                    totalMinTime = Math.min(totalMinTime, total);
-                    totalMaxTime = Math.max(totalMaxTime, total);
-                }
+            add(cron.getOwn(), cron.getTotal());
+        }
+
+        private void add(long own, long total) {
+            ownTime.addAndGet(own);
+            totalTime.addAndGet(total);
+            ownSquareTime.addAndGet(own * own);
+            totalSquareTime.addAndGet(total * total);
+            setMin(ownMinTime, own);
+            setMax(ownMaxTime, own);
+            setMin(totalMinTime, total);
+            setMax(totalMaxTime, total);
+            histogram.record(total);
+            ticks.incrementAndGet();
+        }
+
+        private static void setMin(AtomicLong min, long value) {
+            long current = min.get();
+            while (value < current && !min.compareAndSet(current, value)) {
+                current = min.get();
             }
-            finally {
-                lock.unlock();
+        }
+
+        private static void setMax(AtomicLong max, long value) {
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
             }
         }
 
+        private static long getMin(AtomicLong min) {
+            long value = min.get();
+            return (value == Long.MAX_VALUE) ? 0 : value;
+        }
+
         /**
          * Return the own accumulated computing time by the timer.
          *
          * @return own accumulated computing time by the timer.
          */
         public long getOwn() {
-            return ownTime;
+            return ownTime.get();
         }
 
         /**
@@ -326,7 +470,7 @@ public class Instrumentation {
          * @return total accumulated computing time by the timer.
          */
         public long getTotal() {
-            return totalTime;
+            return totalTime.get();
         }
 
         /**
@@ -335,7 +479,7 @@ public class Instrumentation {
          * @return the number of times a cron was added to the timer.
          */
         public long getTicks() {
-            return ticks;
+            return ticks.get();
         }
 
         /**
@@ -344,7 +488,7 @@ public class Instrumentation {
          * @return the sum of the square own timer.
          */
         public long getOwnSquareSum() {
-            return ownSquareTime;
+            return ownSquareTime.get();
         }
 
         /**
@@ -353,7 +497,7 @@ public class Instrumentation {
          * @return the sum of the square own timer.
          */
         public long getTotalSquareSum() {
-            return totalSquareTime;
+            return totalSquareTime.get();
         }
 
         /**
@@ -362,7 +506,7 @@ public class Instrumentation {
          * @return the own minimum time.
          */
         public long getOwnMin() {
-            return ownMinTime;
+            return getMin(ownMinTime);
         }
 
         /**
@@ -371,7 +515,7 @@ public class Instrumentation {
          * @return the own maximum time.
          */
         public long getOwnMax() {
-            return ownMaxTime;
+            return ownMaxTime.get();
         }
 
         /**
@@ -380,7 +524,7 @@ public class Instrumentation {
          * @return the total minimum time.
          */
         public long getTotalMin() {
-            return totalMinTime;
+            return getMin(totalMinTime);
         }
 
         /**
@@ -389,7 +533,7 @@ public class Instrumentation {
          * @return the total maximum time.
          */
         public long getTotalMax() {
-            return totalMaxTime;
+            return totalMaxTime.get();
         }
 
         /**
@@ -398,7 +542,8 @@ public class Instrumentation {
          * @return the own average time.
          */
         public long getOwnAvg() {
-            return (ticks != 0) ? ownTime / ticks : 0;
+            long n = ticks.get();
+            return (n != 0) ? ownTime.get() / n : 0;
         }
 
         /**
@@ -407,7 +552,8 @@ public class Instrumentation {
          * @return the total average time.
          */
         public long getTotalAvg() {
-            return (ticks != 0) ? totalTime / ticks : 0;
+            long n = ticks.get();
+            return (n != 0) ? totalTime.get() / n : 0;
         }
 
         /**
@@ -416,7 +562,7 @@ public class Instrumentation {
          * @return the total time standard deviation.
          */
         public double getTotalStdDev() {
-            return evalStdDev(ticks, totalTime, totalSquareTime);
+            return evalStdDev(ticks.get(), totalTime.get(), totalSquareTime.get());
         }
 
         /**
@@ -425,7 +571,17 @@ public class Instrumentation {
          * @return the own time standard deviation.
          */
         public double getOwnStdDev() {
-            return evalStdDev(ticks, ownTime, ownSquareTime);
+            return evalStdDev(ticks.get(), ownTime.get(), ownSquareTime.get());
+        }
+
+        /**
+         * Returns a percentile of the total times.
+         *
+         * @param percentile percentile, between 0 and 100.
+         * @return the percentile of the total times.
+         */
+        public long getTotalPercentile(double percentile) {
+            return Math.min(histogram.getPercentile(percentile), getTotalMax());
         }
 
         private double evalStdDev(long n, long sn, long ssn) {
@@ -443,35 +599,35 @@ public class Instrumentation {
      * @param cron cron to add to the timer.
      */
     public void addCron(String group, String name, Cron cron) {
+        getTimer(group, name).addCron(cron);
+    }
+
+    /**
+     * Add a time to an instrumentation timer, as a cron whose own and total times are the given time. The timer is
+     * created if it does not exists. <p/> This method is thread safe.
+     *
+     * @param group timer group.
+     * @param name timer name.
+     * @param time time in milliseconds.
+     */
+    public void addTime(String group, String name, long time) {
+        getTimer(group, name).add(time, time);
+    }
+
+    private Timer getTimer(String group, String name) {
         Map<String, Element<Timer>> map = timers.get(group);
         if (map == null) {
-            try {
-                timerLock.lock();
-                map = timers.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Timer>>();
-                    timers.put(group, map);
-                }
-            }
-            finally {
-                timerLock.unlock();
-            }
+            map = new ConcurrentHashMap<String, Element<Timer>>();
+            Map<String, Element<Timer>> existing = timers.putIfAbsent(group, map);
+            map = (existing != null) ? existing : map;
         }
         Timer timer = (Timer) map.get(name);
         if (timer == null) {
-            try {
-                timerLock.lock();
-                timer = (Timer) map.get(name);
-                if (timer == null) {
-                    timer = new Timer();
-                    map.put(name, timer);
-                }
-            }
-            finally {
-                timerLock.unlock();
-            }
+            timer = new Timer();
+            Timer existing = (Timer) ((ConcurrentHashMap<String, Element<Timer>>) map).putIfAbsent(name, timer);
+            timer = (existing != null) ? existing : timer;
         }
-        timer.addCron(cron);
+        return timer;
     }
 
     /**
@@ -485,33 +641,17 @@ public class Instrumentation {
     public void incr(String group, String name, long count) {
         Map<String, Element<Long>> map = counters.get(group);
         if (map == null) {
-            try {
-                counterLock.lock();
-                map = counters.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Long>>();
-                    counters.put(group, map);
-                }
-            }
-            finally {
-                counterLock.unlock();
-            }
+            map = new ConcurrentHashMap<String, Element<Long>>();
+            Map<String, Element<Long>> existing = counters.putIfAbsent(group, map);
+            map = (existing != null) ? existing : map;
         }
         Counter counter = (Counter) map.get(name);
         if (counter == null) {
-            try {
-                counterLock.lock();
-                counter = (Counter) map.get(name);
-                if (counter == null) {
-                    counter = new Counter();
-                    map.put(name, counter);
-                }
-            }
-            finally {
-                counterLock.unlock();
-            }
+            counter = new Counter();
+            Counter existing = (Counter) ((ConcurrentHashMap<String, Element<Long>>) map).putIfAbsent(name, counter);
+            counter = (existing != null) ? existing : counter;
         }
-        counter.addAndGet(count);
+        counter.add(count);
     }
 
     /**
@@ -536,7 +676,7 @@ public class Instrumentation {
                 variableLock.lock();
                 map = variables.get(group);
                 if (map == null) {
-                    map = new HashMap<String, Element<Variable>>();
+                    map = new ConcurrentHashMap<String, Element<Variable>>();
                     variables.put(group, map);
                 }
             }
@@ -780,7 +920,7 @@ public class Instrumentation {
             if (map == null) {
                 map = samplers.get(group);
                 if (map == null) {
-                    map = new HashMap<String, Element<Double>>();
+                    map = new ConcurrentHashMap<String, Element<Double>>();
                     samplers.put(group, map);
                 }
             }
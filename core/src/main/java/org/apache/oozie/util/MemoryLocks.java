@@ -14,31 +14,89 @@
  */
 package org.apache.oozie.util;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.Lock;
 
 /**
  * In memory resource locking that provides READ/WRITE lock capabilities.
+ * <p/>
+ * Lock entries are kept in a concurrent map, there is no global lock. Each entry is reference counted by the lock
+ * tokens given out for it (including the ones of threads waiting for it), the entry is removed from the map when its
+ * last token is released or gives up waiting. Reentrant acquisitions get their own token, the entry is removed only
+ * once all of them have been released.
+ * <p/>
+ * The time taken to obtain locks is kept in a histogram, see {@link #getWaitHistogram()}.
  */
 public class MemoryLocks {
-    final private HashMap<String, ReentrantReadWriteLock> locks = new HashMap<String, ReentrantReadWriteLock>();
+
+    /**
+     * Upper bounds, in milliseconds, of the lock wait time histogram buckets. There is an additional bucket for the
+     * wait times over the last bound.
+     */
+    public static final long[] WAIT_HISTOGRAM_BOUNDS = {1, 10, 100, 1000, 10000};
+
+    final private ConcurrentHashMap<String, LockEntry> locks = new ConcurrentHashMap<String, LockEntry>();
+
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_HISTOGRAM_BOUNDS.length + 1);
 
     private static enum Type {
         READ, WRITE
     }
 
+    /**
+     * A resource lock with the count of tokens referencing it.
+     * <p/>
+     * Once the count drops to zero the entry is dead, it cannot be referenced again and it is removed from the map.
+     */
+    private static class LockEntry {
+        private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        /**
+         * Add a reference to the entry.
+         *
+         * @return <code>false</code> if the entry is dead and cannot be referenced anymore.
+         */
+        private boolean reference() {
+            int count = references.get();
+            while (count > 0) {
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+                count = references.get();
+            }
+            return false;
+        }
+
+        /**
+         * Remove a reference from the entry.
+         *
+         * @return <code>true</code> if it was the last reference.
+         */
+        private boolean dereference() {
+            return references.decrementAndGet() == 0;
+        }
+    }
+
     /**
      * Lock token returned when obtaining a lock, the token must be released when the lock is not needed anymore.
      */
     public class LockToken {
-        private final ReentrantReadWriteLock rwLock;
+        private final LockEntry entry;
         private final java.util.concurrent.locks.Lock lock;
         private final String resource;
 
-        private LockToken(ReentrantReadWriteLock rwLock, java.util.concurrent.locks.Lock lock, String resource) {
-            this.rwLock = rwLock;
+        private LockToken(LockEntry entry, java.util.concurrent.locks.Lock lock, String resource) {
+            this.entry = entry;
             this.lock = lock;
             this.resource = resource;
         }
@@ -47,13 +105,8 @@ public class MemoryLocks {
          * Release the lock.
          */
         public void release() {
-            int val = rwLock.getQueueLength();
-            if (val == 0) {
-                synchronized (locks) {
-                    locks.remove(resource);
-                }
-            }
             lock.unlock();
+            dereference(resource, entry);
         }
     }
 
@@ -66,6 +119,60 @@ public class MemoryLocks {
         return locks.size();
     }
 
+    /**
+     * Return the lock wait time histogram.
+     * <p/>
+     * The histogram has one count per bound in {@link #WAIT_HISTOGRAM_BOUNDS} (the number of locks obtained in a time
+     * equal or lower than the bound and greater than the previous bound) plus one count for the locks obtained in a
+     * time greater than the last bound. Locks not obtained because the wait timed out are not counted.
+     *
+     * @return the lock wait time histogram.
+     */
+    public long[] getWaitHistogram() {
+        long[] histogram = new long[waitHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the resources with the highest number of threads waiting to lock them.
+     *
+     * @param max maximum number of resources to return.
+     * @return the resources and their number of waiting threads, highest first. Resources with no waiting threads are
+     *         not returned.
+     */
+    public Map<String, Integer> getContendedResources(int max) {
+        List<ContendedResource> contended = new ArrayList<ContendedResource>();
+        for (Map.Entry<String, LockEntry> entry : locks.entrySet()) {
+            int waiting = entry.getValue().rwLock.getQueueLength();
+            if (waiting > 0) {
+                contended.add(new ContendedResource(entry.getKey(), waiting));
+            }
+        }
+        Collections.sort(contended);
+        Map<String, Integer> top = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < contended.size() && i < max; i++) {
+            top.put(contended.get(i).resource, contended.get(i).waiting);
+        }
+        return top;
+    }
+
+    private static class ContendedResource implements Comparable<ContendedResource> {
+        private final String resource;
+        private final int waiting;
+
+        private ContendedResource(String resource, int waiting) {
+            this.resource = resource;
+            this.waiting = waiting;
+        }
+
+        public int compareTo(ContendedResource o) {
+            return (o.waiting < waiting) ? -1 : ((o.waiting == waiting) ? 0 : 1);
+        }
+    }
+
     /**
      * Obtain a READ lock for a source.
      *
@@ -90,41 +197,71 @@ public class MemoryLocks {
         return getLock(resource, Type.WRITE, wait);
     }
 
-    private LockToken getLock(String resource, Type type, long wait) throws InterruptedException {
-        ReentrantReadWriteLock lockEntry;
-        synchronized (locks) {
-            if (locks.containsKey(resource)) {
-                lockEntry = locks.get(resource);
+    /**
+     * Return a referenced lock entry for a resource, creating it if it does not exist or if the existing one is dead.
+     */
+    private LockEntry reference(String resource) {
+        while (true) {
+            LockEntry entry = locks.get(resource);
+            if (entry == null) {
+                LockEntry newEntry = new LockEntry();
+                entry = locks.putIfAbsent(resource, newEntry);
+                if (entry == null) {
+                    return newEntry;
+                }
             }
-            else {
-                lockEntry = new ReentrantReadWriteLock(true);
-                locks.put(resource, lockEntry);
+            if (entry.reference()) {
+                return entry;
             }
+            // dead entry, its last token is removing it from the map, help removing it and retry
+            locks.remove(resource, entry);
         }
+    }
 
-        Lock lock = (type.equals(Type.READ)) ? lockEntry.readLock() : lockEntry.writeLock();
-
-        if (wait == -1) {
-            lock.lock();
+    private void dereference(String resource, LockEntry entry) {
+        if (entry.dereference()) {
+            locks.remove(resource, entry);
         }
-        else {
-            if (wait > 0) {
-                if (!lock.tryLock(wait, TimeUnit.MILLISECONDS)) {
-                    return null;
-                }
+    }
+
+    private LockToken getLock(String resource, Type type, long wait) throws InterruptedException {
+        LockEntry lockEntry = reference(resource);
+        Lock lock = (type.equals(Type.READ)) ? lockEntry.rwLock.readLock() : lockEntry.rwLock.writeLock();
+
+        long start = System.currentTimeMillis();
+        boolean locked = false;
+        try {
+            if (wait == -1) {
+                lock.lock();
+                locked = true;
             }
             else {
-                if (!lock.tryLock()) {
-                    return null;
+                if (wait > 0) {
+                    locked = lock.tryLock(wait, TimeUnit.MILLISECONDS);
+                }
+                else {
+                    locked = lock.tryLock();
                 }
             }
         }
-        synchronized (locks) {
-            if (!locks.containsKey(resource)) {
-                locks.put(resource, lockEntry);
+        finally {
+            if (!locked) {
+                dereference(resource, lockEntry);
             }
         }
+        if (!locked) {
+            return null;
+        }
+        addWaitTime(System.currentTimeMillis() - start);
         return new LockToken(lockEntry, lock, resource);
     }
 
+    private void addWaitTime(long time) {
+        int bucket = 0;
+        while (bucket < WAIT_HISTOGRAM_BOUNDS.length && time > WAIT_HISTOGRAM_BOUNDS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
 }
@@ -14,7 +14,6 @@
  */
 package org.apache.oozie.util;
 
-import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 public class PollablePriorityDelayQueue<E> extends PriorityDelayQueue<E> {
@@ -24,58 +23,46 @@ public class PollablePriorityDelayQueue<E> extends PriorityDelayQueue<E> {
     }
 
     /**
-     * Retrieve and remove the head of this queue if it is eligible to poll. If not, iterate next element until find
-     * the one which is eligible to poll from queue.
-     *
-     * Return <tt>null</tt> if this queue has no elements eligible to run.
-     *
+     * Retrieve and remove the head of the sub-queue if it is eligible to poll. If not, iterate next element until find
+     * the one which is eligible to poll from the sub-queue.
      * <p/>
-     * Invocations to this method run the anti-starvation (once every interval check).
+     * The elements with an expired delay are iterated first. If the head of the sub-queue is not eligible to poll, the
+     * elements with a delay not expired yet are iterated too, the first one eligible to poll is returned regardless of
+     * its delay.
      *
-     * @return the element of this queue, for which eligibleToPoll is true.
+     * Return <tt>null</tt> if the sub-queue has no elements eligible to run.
+     *
+     * @param queue sub-queue to poll.
+     * @return the element of the sub-queue, for which eligibleToPoll is true.
      */
     @Override
-    public QueueElement<E> poll() {
-        try {
-            lock.lock();
-            antiStarvation();
-            QueueElement<E> e = null;
-            int i = priorities;
-            for (; e == null && i > 0; i--) {
-                e = queues[i - 1].peek();
-                if (eligibleToPoll(e)) {
-                    e = queues[i - 1].poll();
-                }
-                else {
-                    if (e != null) {
-                        debug("poll(): the peek element [{0}], from P[{1}] is not eligible to poll", e.getElement().toString(), i);
-                    }
-                    e = null;
-                    Iterator<QueueElement<E>> iter = queues[i - 1].iterator();
-                    while(e == null && iter.hasNext()) {
-                        e = iter.next();
-                        if (eligibleToPoll(e)) {
-                            queues[i - 1].remove(e);
-                        }
-                        else {
-                            debug("poll(): the iterator element [{0}], from P[{1}] is not eligible to poll", e.getElement().toString(), i);
-                            e = null;
-                        }
-                    }
+    protected QueueElement<E> poll(SubQueue<E> queue) {
+        boolean headEligible = true;
+        for (QueueElement<E> e : queue.getReady()) {
+            if (eligibleToPoll(e)) {
+                // the element may have been polled by another thread since the iterator got it
+                if (queue.remove(e)) {
+                    return e;
                 }
             }
-            if (e != null) {
-                if (currentSize != null) {
-                    currentSize.decrementAndGet();
-                }
-                e.inQueue = false;
-                debug("poll(): [{0}], from P[{1}]", e.getElement().toString(), i);
+            else {
+                debug("poll(): the element [{0}], from P[{1}] is not eligible to poll", e.getElement().toString(),
+                      queue.getPriority());
+                headEligible = false;
             }
-            return e;
         }
-        finally {
-            lock.unlock();
+        if (headEligible) {
+            QueueElement<E> e = queue.peekDelayed();
+            headEligible = e == null || eligibleToPoll(e);
+        }
+        if (!headEligible) {
+            for (QueueElement<E> e : queue.getDelayed()) {
+                if (eligibleToPoll(e) && queue.removeDelayed(e)) {
+                    return e;
+                }
+            }
         }
+        return null;
     }
 
     /**
@@ -88,4 +75,4 @@ public class PollablePriorityDelayQueue<E> extends PriorityDelayQueue<E> {
     protected boolean eligibleToPoll(QueueElement<?> element) {
         return true;
     }
-}
\ No newline at end of file
+}
@@ -16,16 +16,17 @@ package org.apache.oozie.util;
 
 import java.util.AbstractQueue;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -33,11 +34,14 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p/>
  * The {@link PriorityDelayQueue} avoids starvation by raising elements priority as they age.
  * <p/>
- * To support queuing elements into the future, the JDK <code>DelayQueue</code> is used.
- * <p/>
- * To support priority queuing, an array of <code>DelayQueue</code> sub-queues is used. Elements are consumed from the
+ * To support priority queuing, an array of sub-queues is used, one per priority. Elements are consumed from the
  * higher priority sub-queues first. From a sub-queue, elements are available based on their age.
  * <p/>
+ * To support queuing elements into the future, each sub-queue keeps the elements with a delay in a heap ordered by
+ * delay. As their delay expires they are moved to a FIFO lock free queue from where they are consumed. Elements
+ * queued without a delay go directly to the FIFO queue. Offering and polling elements without a delay does not
+ * require any lock, and there is no lock shared by all the sub-queues.
+ * <p/>
  * To avoid starvation, there is is maximum wait time for an an element in a sub-queue, after the maximum wait time has
  * elapsed, the element is promoted to the next higher priority sub-queue. Eventually it will reach the maximum priority
  * sub-queue and it will be consumed when it is the oldest element in the that sub-queue.
@@ -45,7 +49,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * Every time an element is promoted to a higher priority sub-queue, a new maximum wait time applies.
  * <p/>
  * This class does not use a separate thread for anti-starvation check, instead, the check is performed on polling and
- * seeking operations. This check is performed, the most every 1/2 second.
+ * seeking operations. This check is performed, the most every 1/2 second, by a single thread at the time.
  */
 public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.QueueElement<E>>
         implements BlockingQueue<PriorityDelayQueue.QueueElement<E>> {
@@ -169,18 +173,198 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
 
     }
 
+    /**
+     * Priority sub-queue.
+     * <p/>
+     * Elements with an expired delay are in a lock free FIFO queue. Elements with a delay are in a heap guarded by the
+     * sub-queue lock, the lock is taken only to add delayed elements and to move them to the FIFO queue once their
+     * delay has expired.
+     */
+    protected static class SubQueue<E> {
+        private final int priority;
+        private final ConcurrentLinkedQueue<QueueElement<E>> ready = new ConcurrentLinkedQueue<QueueElement<E>>();
+        private final PriorityQueue<QueueElement<E>> delayed = new PriorityQueue<QueueElement<E>>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile long nextExpiration = Long.MAX_VALUE;
+
+        SubQueue(int priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Return the priority of the sub-queue.
+         *
+         * @return the priority of the sub-queue.
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Return the elements with an expired delay, in the order they have to be consumed.
+         * <p/>
+         * The returned queue is live, elements must be removed from it using {@link #remove}.
+         *
+         * @return the elements with an expired delay.
+         */
+        public Iterable<QueueElement<E>> getReady() {
+            return ready;
+        }
+
+        /**
+         * Remove an element with an expired delay from the sub-queue.
+         *
+         * @param e element to remove.
+         * @return <tt>true</tt> if the element was removed, <tt>false</tt> if it was not in the sub-queue (it was
+         *         removed by another thread).
+         */
+        public boolean remove(QueueElement<E> e) {
+            boolean removed = ready.remove(e);
+            if (removed) {
+                size.decrementAndGet();
+            }
+            return removed;
+        }
+
+        /**
+         * Return the elements with a delay not expired yet, in no particular order.
+         * <p/>
+         * The returned list is a copy, elements must be removed from the sub-queue using {@link #removeDelayed}.
+         *
+         * @return the elements with a delay not expired yet.
+         */
+        public List<QueueElement<E>> getDelayed() {
+            try {
+                lock.lock();
+                return new ArrayList<QueueElement<E>>(delayed);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Remove an element with a delay not expired yet from the sub-queue.
+         *
+         * @param e element to remove.
+         * @return <tt>true</tt> if the element was removed, <tt>false</tt> if it was not delayed in the sub-queue (it
+         *         was removed by another thread or its delay expired).
+         */
+        public boolean removeDelayed(QueueElement<E> e) {
+            try {
+                lock.lock();
+                boolean removed = delayed.remove(e);
+                if (removed) {
+                    size.decrementAndGet();
+                    nextExpiration = (delayed.peek() != null) ? delayed.peek().baseTime : Long.MAX_VALUE;
+                }
+                return removed;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        QueueElement<E> poll() {
+            QueueElement<E> e = ready.poll();
+            if (e != null) {
+                size.decrementAndGet();
+            }
+            return e;
+        }
+
+        void offer(QueueElement<E> e) {
+            size.incrementAndGet();
+            if (e.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                ready.offer(e);
+            }
+            else {
+                try {
+                    lock.lock();
+                    delayed.offer(e);
+                    nextExpiration = delayed.peek().baseTime;
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Move the elements with an expired delay to the FIFO queue. If no delayed element has expired the lock is not
+         * taken.
+         *
+         * @param now current time in milliseconds.
+         */
+        void expire(long now) {
+            if (now >= nextExpiration) {
+                try {
+                    lock.lock();
+                    QueueElement<E> e = delayed.peek();
+                    while (e != null && e.baseTime <= now) {
+                        ready.offer(delayed.poll());
+                        e = delayed.peek();
+                    }
+                    nextExpiration = (e != null) ? e.baseTime : Long.MAX_VALUE;
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        QueueElement<E> peekDelayed() {
+            try {
+                lock.lock();
+                return delayed.peek();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void snapshot(List<QueueElement<E>> list) {
+            list.addAll(ready);
+            try {
+                lock.lock();
+                list.addAll(delayed);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            while (poll() != null) {
+            }
+            try {
+                lock.lock();
+                size.addAndGet(-delayed.size());
+                delayed.clear();
+                nextExpiration = Long.MAX_VALUE;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            return size.get();
+        }
+
+    }
+
     /**
      * Frequency, in milliseconds, of the anti-starvation check.
      */
     public static final long ANTI_STARVATION_INTERVAL = 500;
 
     protected int priorities;
-    protected DelayQueue<QueueElement<E>>[] queues;
-    protected transient final ReentrantLock lock = new ReentrantLock();
-    private transient long lastAntiStarvationCheck = 0;
+    protected SubQueue<E>[] queues;
+    private final AtomicLong lastAntiStarvationCheck = new AtomicLong();
     private long maxWait;
     private int maxSize;
-    protected AtomicInteger currentSize;
 
     /**
      * Create a <code>PriorityDelayQueue</code>.
@@ -202,15 +386,12 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
             throw new IllegalArgumentException("maxSize must be -1 or greater than 0");
         }
         this.priorities = priorities;
-        queues = new DelayQueue[priorities];
+        queues = new SubQueue[priorities];
         for (int i = 0; i < priorities; i++) {
-            queues[i] = new DelayQueue<QueueElement<E>>();
+            queues[i] = new SubQueue<E>(i);
         }
         this.maxWait = unit.toMillis(maxWait);
         this.maxSize = maxSize;
-        if (maxSize != -1) {
-            currentSize = new AtomicInteger();
-        }
     }
 
     /**
@@ -252,21 +433,10 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      * @return an iterator over the {@link QueueElement} elements in this queue.
      */
     @Override
-    @SuppressWarnings("unchecked")
     public Iterator<QueueElement<E>> iterator() {
-        QueueElement[][] queueElements = new QueueElement[queues.length][];
-        try {
-            lock.lock();
-            for (int i = 0; i < queues.length; i++) {
-                queueElements[i] = queues[i].toArray(new QueueElement[0]);
-            }
-        }
-        finally {
-            lock.unlock();
-        }
         List<QueueElement<E>> list = new ArrayList<QueueElement<E>>();
-        for (QueueElement[] elements : queueElements) {
-            list.addAll(Arrays.asList((QueueElement<E>[]) elements));
+        for (SubQueue<E> queue : queues) {
+            queue.snapshot(list);
         }
         return list.iterator();
     }
@@ -279,7 +449,7 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
     @Override
     public int size() {
         int size = 0;
-        for (DelayQueue<QueueElement<E>> queue : queues) {
+        for (SubQueue<E> queue : queues) {
             size += queue.size();
         }
         return size;
@@ -337,25 +507,21 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
         if (queueElement == null) {
             throw new NullPointerException("queueElement is NULL");
         }
-        if (queueElement.getPriority() < 0 && queueElement.getPriority() >= priorities) {
+        if (queueElement.getPriority() < 0 || queueElement.getPriority() >= priorities) {
             throw new IllegalArgumentException("priority out of range");
         }
         if (queueElement.inQueue) {
             throw new IllegalStateException("queueElement already in a queue");
         }
-        if (!ignoreSize && currentSize != null && currentSize.get() >= maxSize) {
+        if (!ignoreSize && maxSize != -1 && size() >= maxSize) {
             return false;
         }
-        boolean accepted = queues[queueElement.getPriority()].offer(queueElement);
+        // flagged before adding it, once in the sub-queue the element may be polled by another thread right away
+        queueElement.inQueue = true;
+        queues[queueElement.getPriority()].offer(queueElement);
         debug("offer([{0}]), to P[{1}] delay[{2}ms] accepted[{3}]", queueElement.getElement().toString(),
-              queueElement.getPriority(), queueElement.getDelay(TimeUnit.MILLISECONDS), accepted);
-        if (accepted) {
-            if (currentSize != null) {
-                currentSize.incrementAndGet();
-            }
-            queueElement.inQueue = true;
-        }
-        return accepted;
+              queueElement.getPriority(), queueElement.getDelay(TimeUnit.MILLISECONDS), true);
+        return true;
     }
 
     /**
@@ -387,26 +553,34 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      */
     @Override
     public QueueElement<E> poll() {
-        try {
-            lock.lock();
-            antiStarvation();
-            QueueElement<E> e = null;
-            int i = priorities;
-            for (; e == null && i > 0; i--) {
-                e = queues[i - 1].poll();
-            }
-            if (e != null) {
-                if (currentSize != null) {
-                    currentSize.decrementAndGet();
+        antiStarvation();
+        long now = System.currentTimeMillis();
+        for (int i = priorities - 1; i > -1; i--) {
+            SubQueue<E> queue = queues[i];
+            if (queue.size() > 0) {
+                queue.expire(now);
+                QueueElement<E> e = poll(queue);
+                if (e != null) {
+                    e.inQueue = false;
+                    debug("poll(): [{0}], from P[{1}]", e.getElement().toString(), i);
+                    return e;
                 }
-                e.inQueue = false;
-                debug("poll(): [{0}], from P[{1}]", e.getElement().toString(), i);
             }
-            return e;
-        }
-        finally {
-            lock.unlock();
         }
+        return null;
+    }
+
+    /**
+     * Retrieve and remove the element to consume from a sub-queue, or return <tt>null</tt> if the sub-queue has no
+     * elements with an expired delay.
+     * <p/>
+     * This implementation returns the oldest element with an expired delay.
+     *
+     * @param queue sub-queue to poll.
+     * @return the element to consume, or <tt>null</tt> if none.
+     */
+    protected QueueElement<E> poll(SubQueue<E> queue) {
+        return queue.poll();
     }
 
     /**
@@ -418,105 +592,80 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      */
     @Override
     public QueueElement<E> peek() {
-        try {
-            lock.lock();
-            antiStarvation();
-            QueueElement<E> e = null;
-
-            QueueElement<E> [] seeks = new QueueElement[priorities];
-            boolean foundElement = false;
+        antiStarvation();
+        long now = System.currentTimeMillis();
+        QueueElement<E> e = null;
+        for (int i = priorities - 1; e == null && i > -1; i--) {
+            queues[i].expire(now);
+            e = queues[i].ready.peek();
+        }
+        if (e != null) {
+            debug("peek(): choosing [{0}]", e);
+        }
+        else {
             for (int i = priorities - 1; i > -1; i--) {
-                e = queues[i].peek();
-                debug("peek(): considering [{0}] from P[{1}]", e, i);
-                seeks[priorities - i - 1] = e;
-                foundElement |= e != null;
-            }
-            if (foundElement) {
-                e = null;
-                for (int i = 0; e == null && i < priorities; i++) {
-                    if (seeks[i] != null && seeks[i].getDelay(TimeUnit.MILLISECONDS) > 0) {
-                        debug("peek, ignoring [{0}]", seeks[i]);
-                    }
-                    else {
-                        e = seeks[i];
-                    }
+                QueueElement<E> ee = queues[i].peekDelayed();
+                debug("peek(): considering [{0}] from P[{1}]", ee, i);
+                if (ee != null && (e == null || ee.getDelay(TimeUnit.MILLISECONDS) < e.getDelay(TimeUnit.MILLISECONDS))) {
+                    e = ee;
                 }
-                if (e != null) {
-                    debug("peek(): choosing [{0}]", e);
-                }
-                if (e == null) {
-                    int first;
-                    for (first = 0; e == null && first < priorities; first++) {
-                        e = seeks[first];
-                    }
-                    if (e != null) {
-                        debug("peek(): initial choosing [{0}]", e);
-                    }
-                    for (int i = first; i < priorities; i++) {
-                        QueueElement<E> ee = seeks[i];
-                        if (ee != null && ee.getDelay(TimeUnit.MILLISECONDS) < e.getDelay(TimeUnit.MILLISECONDS)) {
-                            debug("peek(): choosing [{0}] over [{1}]", ee, e);
-                            e = ee;
-                        }
-                    }
-                }
-            }
-            if (e != null) {
-                debug("peek(): [{0}], from P[{1}]", e.getElement().toString(), e.getPriority());
             }
-            else {
-                debug("peek(): NULL");
-            }
-            return e;
         }
-        finally {
-            lock.unlock();
+        if (e != null) {
+            debug("peek(): [{0}], from P[{1}]", e.getElement().toString(), e.getPriority());
+        }
+        else {
+            debug("peek(): NULL");
         }
+        return e;
     }
 
     /**
      * Run the anti-starvation check every {@link #ANTI_STARVATION_INTERVAL} milliseconds.
      * <p/>
      * It promotes elements beyond max wait time to the next higher priority sub-queue.
+     * <p/>
+     * If another thread is running the check, this method returns immediately.
      */
     protected void antiStarvation() {
         long now = System.currentTimeMillis();
-        if (now - lastAntiStarvationCheck > ANTI_STARVATION_INTERVAL) {
+        long lastCheck = lastAntiStarvationCheck.get();
+        if (now - lastCheck > ANTI_STARVATION_INTERVAL && lastAntiStarvationCheck.compareAndSet(lastCheck, now)) {
             for (int i = 0; i < queues.length - 1; i++) {
-                antiStarvation(queues[i], queues[i + 1], "from P[" + i + "] to P[" + (i + 1) + "]");
+                antiStarvation(queues[i], queues[i + 1], now, "from P[" + i + "] to P[" + (i + 1) + "]");
             }
             StringBuilder sb = new StringBuilder();
             for (int i = 0; i < queues.length; i++) {
                 sb.append("P[").append(i).append("]=").append(queues[i].size()).append(" ");
             }
             debug("sub-queue sizes: {0}", sb.toString());
-            lastAntiStarvationCheck = System.currentTimeMillis();
         }
     }
 
     /**
      * Promote elements beyond max wait time from a lower priority sub-queue to a higher priority sub-queue.
+     * <p/>
+     * As elements are in the FIFO queue of the sub-queue in the order their delay expired, only the elements at the
+     * head of it are looked at.
      *
      * @param lowerQ lower priority sub-queue.
      * @param higherQ higher priority sub-queue.
+     * @param now current time in milliseconds.
      * @param msg sub-queues msg (from-to) for debugging purposes.
      */
-    private void antiStarvation(DelayQueue<QueueElement<E>> lowerQ, DelayQueue<QueueElement<E>> higherQ, String msg) {
+    private void antiStarvation(SubQueue<E> lowerQ, SubQueue<E> higherQ, long now, String msg) {
         int moved = 0;
-        QueueElement<E> e = lowerQ.poll();
+        lowerQ.expire(now);
+        QueueElement<E> e = lowerQ.ready.peek();
         while (e != null && e.getDelay(TimeUnit.MILLISECONDS) < -maxWait) {
-            e.setDelay(0, TimeUnit.MILLISECONDS);
-            if (!higherQ.offer(e)) {
-                throw new IllegalStateException("Could not move element to higher sub-queue, element rejected");
-            }
-            e.priority++;
-            e = lowerQ.poll();
-            moved++;
-        }
-        if (e != null) {
-            if (!lowerQ.offer(e)) {
-                throw new IllegalStateException("Could not reinsert element to current sub-queue, element rejected");
+            // the element may have been polled by another thread since the peek
+            if (lowerQ.remove(e)) {
+                e.setDelay(0, TimeUnit.MILLISECONDS);
+                e.priority++;
+                higherQ.offer(e);
+                moved++;
             }
+            e = lowerQ.ready.peek();
         }
         debug("anti-starvation, moved {0} element(s) {1}", moved, msg);
     }
@@ -627,7 +776,7 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
             Thread.sleep(10);
             e = poll();
         }
-        return poll();
+        return e;
     }
 
     /**
@@ -677,11 +826,7 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      */
     @Override
     public int drainTo(Collection<? super QueueElement<E>> c) {
-        int count = 0;
-        for (DelayQueue<QueueElement<E>> q : queues) {
-            count += q.drainTo(c);
-        }
-        return count;
+        return drainTo(c, Integer.MAX_VALUE);
     }
 
     /**
@@ -711,12 +856,14 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      */
     @Override
     public int drainTo(Collection<? super QueueElement<E>> c, int maxElements) {
-        int left = maxElements;
+        if (c == this) {
+            throw new IllegalArgumentException("cannot drain a queue to itself");
+        }
         int count = 0;
-        for (DelayQueue<QueueElement<E>> q : queues) {
-            int drained = q.drainTo(c, left);
-            count += drained;
-            left -= drained;
+        QueueElement<E> e = null;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            count++;
         }
         return count;
     }
@@ -726,7 +873,7 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
      */
     @Override
     public void clear() {
-        for (DelayQueue<QueueElement<E>> q : queues) {
+        for (SubQueue<E> q : queues) {
             q.clear();
         }
     }
@@ -24,6 +24,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.DataOutput;
 import java.io.DataInput;
+import java.nio.charset.Charset;
 
 /**
  * Utility class to write/read Hadoop writables to/from a byte array.
@@ -70,6 +71,8 @@ public class WritableUtils {
 
     private static final String NULL = "||";
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /**
      * Write a string to a data output supporting <code>null</code> values. <p/> It uses the '||' token to represent
      * <code>null</code>.
@@ -95,4 +98,41 @@ public class WritableUtils {
         String str = dataInput.readUTF();
         return (str.equals(NULL)) ? null : str;
     }
+
+    /**
+     * Write a string to a data output as a variable length encoded byte count followed by the UTF-8 bytes of the
+     * string, it supports <code>null</code> values and strings longer than 64K characters.
+     *
+     * @param dataOutput data output.
+     * @param str string to write.
+     * @throws IOException thrown if the string could not be written.
+     */
+    public static void writeVStr(DataOutput dataOutput, String str) throws IOException {
+        if (str == null) {
+            org.apache.hadoop.io.WritableUtils.writeVInt(dataOutput, -1);
+        }
+        else {
+            byte[] bytes = str.getBytes(UTF_8);
+            org.apache.hadoop.io.WritableUtils.writeVInt(dataOutput, bytes.length);
+            dataOutput.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string written with {@link #writeVStr(DataOutput, String)}.
+     *
+     * @param dataInput data input.
+     * @return read string, it may be <code>null</code>.
+     * @throws IOException thrown if the string could not be read.
+     */
+    public static String readVStr(DataInput dataInput) throws IOException {
+        int len = org.apache.hadoop.io.WritableUtils.readVInt(dataInput);
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        dataInput.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
 }
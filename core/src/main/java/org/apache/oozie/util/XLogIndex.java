@@ -0,0 +1,529 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the byte ranges of a log file that contain the log statements of a filter parameter value.
+ * <p/>
+ * The index is built scanning the log file once, every log statement (including the lines it spills over) is
+ * recorded under the values of the indexed parameter (i.e. <code>JOB</code>) found in its first line the way the
+ * {@link XLogStreamer.Filter} pattern finds them. Ranges of the same value that are closer than the merge gap are
+ * merged into a single range.
+ * <p/>
+ * Indexes are meant for rotated log files, they are stored in a sidecar index file and they are discarded if the
+ * length or the modification time of the log file changes.
+ */
+public class XLogIndex {
+
+    /**
+     * Extension of the index files.
+     */
+    public static final String INDEX_EXTENSION = ".idx";
+
+    /**
+     * Default gap, in bytes, under which ranges of the same value are merged.
+     */
+    public static final long DEFAULT_MERGE_GAP = 64 * 1024;
+
+    private static final int INDEX_VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LINE_HEAD_SIZE = 8 * 1024;
+    private static final String CHARSET = "ISO-8859-1";
+    private static final byte[] SEPARATOR = {' ', '-', ' '};
+
+    private static final Comparator<long[]> RANGE_COMPARATOR = new Comparator<long[]>() {
+        public int compare(long[] r1, long[] r2) {
+            return (r1[0] < r2[0]) ? -1 : ((r1[0] == r2[0]) ? 0 : 1);
+        }
+    };
+
+    /**
+     * Byte ranges of a parameter value, kept as a growable array of <code>start, end</code> pairs.
+     */
+    private static class Ranges {
+        private long[] offsets = new long[8];
+        private int count;
+
+        void add(long start, long end, long mergeGap) {
+            if (count > 0 && start - offsets[count * 2 - 1] <= mergeGap) {
+                offsets[count * 2 - 1] = end;
+            }
+            else {
+                if (offsets.length < (count + 1) * 2) {
+                    long[] grown = new long[offsets.length * 2];
+                    System.arraycopy(offsets, 0, grown, 0, count * 2);
+                    offsets = grown;
+                }
+                offsets[count * 2] = start;
+                offsets[count * 2 + 1] = end;
+                count++;
+            }
+        }
+    }
+
+    private final String parameter;
+    private final long length;
+    private final long modTime;
+    private final Map<String, Ranges> ranges = new HashMap<String, Ranges>();
+    private int size;
+
+    private XLogIndex(String parameter, long length, long modTime) {
+        this.parameter = parameter;
+        this.length = length;
+        this.modTime = modTime;
+    }
+
+    /**
+     * Return the indexed parameter.
+     *
+     * @return the indexed parameter.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Return the number of distinct parameter values in the index.
+     *
+     * @return the number of distinct parameter values in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the byte ranges of the log file with log statements for any of the given values.
+     * <p/>
+     * The ranges are sorted by offset and they do not overlap, each range starts at the beginning of a log statement
+     * and ends at the end of a line.
+     *
+     * @param values parameter values.
+     * @return list of <code>{start, end}</code> byte ranges, empty if none of the values is in the index.
+     */
+    public List<long[]> getRanges(Collection<String> values) {
+        List<long[]> list = new ArrayList<long[]>();
+        for (String value : values) {
+            Ranges r = ranges.get(value);
+            if (r != null) {
+                for (int i = 0; i < r.count; i++) {
+                    list.add(new long[]{r.offsets[i * 2], r.offsets[i * 2 + 1]});
+                }
+            }
+        }
+        Collections.sort(list, RANGE_COMPARATOR);
+        List<long[]> merged = new ArrayList<long[]>();
+        for (long[] range : list) {
+            long[] last = (merged.isEmpty()) ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            }
+            else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    private void add(List<String> values, long start, long end, long mergeGap) {
+        if (values != null) {
+            for (String value : values) {
+                add(value, start, end, mergeGap);
+            }
+        }
+    }
+
+    private void add(String value, long start, long end, long mergeGap) {
+        Ranges r = ranges.get(value);
+        if (r == null) {
+            r = new Ranges();
+            ranges.put(value, r);
+            size++;
+        }
+        r.add(start, end, mergeGap);
+    }
+
+    /**
+     * Build the index of a log file.
+     *
+     * @param logFile log file to index.
+     * @param parameter parameter to index, i.e. <code>JOB</code>.
+     * @param mergeGap gap, in bytes, under which ranges of the same value are merged.
+     * @return the index of the log file.
+     * @throws IOException thrown if the log file could not be read.
+     */
+    public static XLogIndex build(File logFile, String parameter, long mergeGap) throws IOException {
+        XLogIndex index = new XLogIndex(parameter, logFile.length(), logFile.lastModified());
+        List<String> parameters = new ArrayList<String>(XLogStreamer.Filter.getParameters());
+        if (!parameters.contains(parameter)) {
+            parameters = Collections.singletonList(parameter);
+        }
+        byte[][] tokens = new byte[parameters.size()][];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = (parameters.get(i) + "[").getBytes(CHARSET);
+        }
+        int position = parameters.indexOf(parameter);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] head = new byte[LINE_HEAD_SIZE];
+        int headLen = 0;
+        long offset = 0;
+        long lineStart = 0;
+        long entryStart = 0;
+        List<String> entryValues = null;
+        InputStream is = new FileInputStream(logFile);
+        try {
+            int n = is.read(buffer);
+            while (n != -1) {
+                for (int i = 0; i < n; i++) {
+                    byte b = buffer[i];
+                    offset++;
+                    if (b == '\n') {
+                        if (isEntryStart(head, headLen)) {
+                            index.add(entryValues, entryStart, lineStart, mergeGap);
+                            entryStart = lineStart;
+                            entryValues = getValues(head, headLen, tokens, position);
+                        }
+                        lineStart = offset;
+                        headLen = 0;
+                    }
+                    else if (headLen < head.length) {
+                        head[headLen++] = b;
+                    }
+                }
+                n = is.read(buffer);
+            }
+            if (offset > lineStart && isEntryStart(head, headLen)) {
+                index.add(entryValues, entryStart, lineStart, mergeGap);
+                entryStart = lineStart;
+                entryValues = getValues(head, headLen, tokens, position);
+            }
+            index.add(entryValues, entryStart, offset, mergeGap);
+        }
+        finally {
+            is.close();
+        }
+        return index;
+    }
+
+    /**
+     * Check if a line starts a log statement, <code>yyyy-MM-dd HH:mm:ss,SSS LEVEL </code>, the same way {@link
+     * XLogStreamer.Filter#splitLogMessage} does.
+     */
+    private static boolean isEntryStart(byte[] line, int len) {
+        if (len < 25) {
+            return false;
+        }
+        for (int i = 0; i < 23; i++) {
+            byte b = line[i];
+            boolean ok;
+            switch (i) {
+                case 4:
+                case 7:
+                    ok = b == '-';
+                    break;
+                case 10:
+                    ok = b == ' ';
+                    break;
+                case 13:
+                case 16:
+                    ok = b == ':';
+                    break;
+                case 19:
+                    ok = b == ',';
+                    break;
+                default:
+                    ok = b >= '0' && b <= '9';
+            }
+            if (!ok) {
+                return false;
+            }
+        }
+        int i = 23;
+        if (!Character.isWhitespace(line[i])) {
+            return false;
+        }
+        while (i < len && Character.isWhitespace(line[i])) {
+            i++;
+        }
+        int levelStart = i;
+        while (i < len && (Character.isLetterOrDigit(line[i]) || line[i] == '_')) {
+            i++;
+        }
+        return i > levelStart && i < len && Character.isWhitespace(line[i]);
+    }
+
+    /**
+     * Return the values of the indexed parameter in the first line of a log statement. As in the filter pattern, a
+     * value is taken from a <code> - </code> message separator followed by all the filter parameters in order,
+     * <code>USER[..] GROUP[..] TOKEN[..] APP[..] JOB[..] ACTION[..] </code>. A message quoting another log statement
+     * has several of them, the log statement is recorded under all their values.
+     */
+    private static List<String> getValues(byte[] line, int len, byte[][] tokens, int position) throws IOException {
+        List<String> values = null;
+        int separator = indexOf(line, len, SEPARATOR, 0);
+        while (separator != -1) {
+            String value = getValue(line, len, tokens, position, separator + SEPARATOR.length);
+            if (value != null) {
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                }
+                if (!values.contains(value)) {
+                    values.add(value);
+                }
+            }
+            separator = indexOf(line, len, SEPARATOR, separator + 1);
+        }
+        return values;
+    }
+
+    private static String getValue(byte[] line, int len, byte[][] tokens, int position, int start)
+            throws IOException {
+        String value = null;
+        for (int i = 0; i < tokens.length; i++) {
+            if (!startsWith(line, len, tokens[i], start)) {
+                return null;
+            }
+            start += tokens[i].length;
+            int end = start;
+            while (end < len && line[end] != ']') {
+                end++;
+            }
+            if (end + 1 >= len || line[end + 1] != ' ') {
+                return null;
+            }
+            if (i == position && end > start && !(end - start == 1 && line[start] == '-')) {
+                value = new String(line, start, end - start, CHARSET);
+            }
+            start = end + 2;
+        }
+        return value;
+    }
+
+    private static boolean startsWith(byte[] line, int len, byte[] token, int from) {
+        if (from + token.length > len) {
+            return false;
+        }
+        for (int j = 0; j < token.length; j++) {
+            if (line[from + j] != token[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] line, int len, byte[] token, int from) {
+        for (int i = from; i <= len - token.length; i++) {
+            int j = 0;
+            while (j < token.length && line[i + j] == token[j]) {
+                j++;
+            }
+            if (j == token.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write the index to an index file.
+     * <p/>
+     * The index is written to a temporary file that is renamed to the index file, concurrent readers never see a
+     * partial index.
+     *
+     * @param indexFile index file.
+     * @throws IOException thrown if the index file could not be written.
+     */
+    public void write(File indexFile) throws IOException {
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            throw new IOException(XLog.format("Could not create index dir [{0}]", dir));
+        }
+        File tmp = File.createTempFile(indexFile.getName(), ".tmp", dir);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE));
+        try {
+            out.writeInt(INDEX_VERSION);
+            out.writeUTF(parameter);
+            out.writeLong(length);
+            out.writeLong(modTime);
+            out.writeInt(size);
+            for (Map.Entry<String, Ranges> entry : ranges.entrySet()) {
+                Ranges r = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(r.count);
+                for (int i = 0; i < r.count * 2; i++) {
+                    out.writeLong(r.offsets[i]);
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+        if (!tmp.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!tmp.renameTo(indexFile)) {
+                tmp.delete();
+                throw new IOException(XLog.format("Could not rename [{0}] to [{1}]", tmp, indexFile));
+            }
+        }
+    }
+
+    /**
+     * Read the ranges of the given values from an index file.
+     * <p/>
+     * Only the ranges of the given values are loaded, the ranges of the other values are skipped.
+     *
+     * @param indexFile index file.
+     * @param logFile log file the index is for.
+     * @param parameter indexed parameter.
+     * @param values parameter values to load.
+     * @return the index, <code>null</code> if the index file does not exist, it is for a different parameter or if it
+     *         is stale for the log file.
+     * @throws IOException thrown if the index file could not be read.
+     */
+    public static XLogIndex read(File indexFile, File logFile, String parameter, Collection<String> values)
+            throws IOException {
+        if (!indexFile.exists()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile),
+                                                                         BUFFER_SIZE));
+        try {
+            if (in.readInt() != INDEX_VERSION || !parameter.equals(in.readUTF())) {
+                return null;
+            }
+            long length = in.readLong();
+            long modTime = in.readLong();
+            if (length != logFile.length() || modTime != logFile.lastModified()) {
+                return null;
+            }
+            XLogIndex index = new XLogIndex(parameter, length, modTime);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String value = in.readUTF();
+                int count = in.readInt();
+                if (values.contains(value)) {
+                    Ranges r = new Ranges();
+                    r.offsets = new long[Math.max(2, count * 2)];
+                    for (int j = 0; j < count * 2; j++) {
+                        r.offsets[j] = in.readLong();
+                    }
+                    r.count = count;
+                    index.ranges.put(value, r);
+                }
+                else {
+                    skipFully(in, count * 16L);
+                }
+            }
+            index.size = size;
+            return index;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static void skipFully(InputStream in, long len) throws IOException {
+        while (len > 0) {
+            long skipped = in.skip(len);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            len -= skipped;
+        }
+    }
+
+    /**
+     * Open an input stream that reads only the given byte ranges of a log file, seeking to the start of each range.
+     *
+     * @param logFile log file.
+     * @param ranges <code>{start, end}</code> byte ranges, as returned by {@link #getRanges}.
+     * @return input stream with the contents of the ranges, one after the other.
+     * @throws IOException thrown if the log file could not be opened.
+     */
+    public static InputStream openRanges(File logFile, List<long[]> ranges) throws IOException {
+        return new RangesInputStream(new RandomAccessFile(logFile, "r"), ranges);
+    }
+
+    /**
+     * Input stream that reads byte ranges of a file.
+     */
+    private static class RangesInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private final List<long[]> ranges;
+        private int current = -1;
+        private long remaining;
+
+        RangesInputStream(RandomAccessFile file, List<long[]> ranges) {
+            this.file = file;
+            this.ranges = ranges;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (++current >= ranges.size()) {
+                    return -1;
+                }
+                long[] range = ranges.get(current);
+                file.seek(range[0]);
+                remaining = range[1] - range[0];
+            }
+            int n = file.read(b, off, (int) Math.min(len, remaining));
+            if (n == -1) {
+                remaining = 0;
+                current = ranges.size();
+                return -1;
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+}
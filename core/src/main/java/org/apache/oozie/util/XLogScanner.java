@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans log sources concurrently applying a {@link XLogStreamer.Filter} and writes the matching log statements merged
+ * in timestamp order.
+ * <p/>
+ * Every source is read and filtered by a scanner thread of a shared {@link Pool}, the matching log statements (with
+ * the lines they spill over) are handed to the writing thread through a bounded queue. Up to <code>threads</code>
+ * sources are scanned at the same time, the writing thread merges the statements of the sources being scanned by
+ * timestamp and starts scanning the next source when one is exhausted. Sources must be given in time order (log
+ * rotation order).
+ * <p/>
+ * A scan reserves its threads in the pool before starting, so the sources it waits for are always being scanned.
+ * <p/>
+ * Memory use is bounded by the number of threads times the queue size (in log statements).
+ * <p/>
+ * Without a pool the sources are read one after the other by the writing thread with a {@link XLogReader}.
+ */
+public class XLogScanner {
+
+    /**
+     * A log source, it is opened by the scanner thread.
+     */
+    public interface Source {
+
+        /**
+         * Open the source.
+         *
+         * @return input stream with the log lines of the source.
+         * @throws IOException thrown if the source could not be opened.
+         */
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Default size of the buffer used to read a source, in characters.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Default number of matching log statements buffered per source.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final int TIMESTAMP_LENGTH = 23;
+    private static final int SCANNING = 0;
+    private static final int DONE = 1;
+    private static final int ABORTED = 2;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Log statement (or end of source) handed from a scanner thread to the writing thread.
+     */
+    private static class Statement {
+        private final String timestamp;
+        private final String text;
+        private final IOException error;
+
+        Statement(String timestamp, String text, IOException error) {
+            this.timestamp = timestamp;
+            this.text = text;
+            this.error = error;
+        }
+
+        boolean isEnd() {
+            return text == null;
+        }
+    }
+
+    private static final Statement END = new Statement(null, null, null);
+
+    /**
+     * Bounded pool of scanner threads shared by all the log requests.
+     * <p/>
+     * A scan reserves the threads it uses before starting, all at once, so the threads of a pool are never taken by
+     * sources waiting on a scan that cannot progress.
+     */
+    public static class Pool {
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final int threads;
+
+        /**
+         * Create a pool of scanner threads.
+         *
+         * @param threads number of threads of the pool.
+         */
+        public Pool(int threads) {
+            this.threads = Math.max(1, threads);
+            permits = new Semaphore(this.threads, true);
+            executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "XLogScanner-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        /**
+         * Return the number of threads of the pool.
+         *
+         * @return the number of threads of the pool.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Return the number of threads of the pool not reserved by a scan.
+         *
+         * @return the number of threads of the pool not reserved by a scan.
+         */
+        public int getAvailableThreads() {
+            return permits.availablePermits();
+        }
+
+        int reserve(int count) throws InterruptedIOException {
+            count = Math.min(count, threads);
+            try {
+                permits.acquire(count);
+            }
+            catch (InterruptedException ex) {
+                throw new InterruptedIOException(ex.getMessage());
+            }
+            return count;
+        }
+
+        void release(int count) {
+            permits.release(count);
+        }
+
+        void execute(Runnable runnable) {
+            executor.execute(runnable);
+        }
+
+        /**
+         * Stop the threads of the pool.
+         */
+        public void destroy() {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Scan of a source, run by a scanner thread.
+     */
+    private class Scan implements Runnable {
+        private final Source source;
+        private final BlockingQueue<Statement> queue = new ArrayBlockingQueue<Statement>(queueSize);
+        private final AtomicInteger state = new AtomicInteger(SCANNING);
+        private Thread thread;
+        private Statement head;
+
+        Scan(Source source) {
+            this.source = source;
+        }
+
+        public void run() {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            try {
+                if (state.get() == ABORTED) {
+                    return;
+                }
+                InputStream is = source.open();
+                try {
+                    scan(is);
+                }
+                finally {
+                    is.close();
+                }
+                queue.put(END);
+            }
+            catch (InterruptedException ex) {
+                // the request has been aborted, nobody is reading the queue
+            }
+            catch (Throwable ex) {
+                IOException error;
+                if (ex instanceof IOException) {
+                    error = (IOException) ex;
+                }
+                else {
+                    error = new IOException(XLog.format("Could not scan log, {0}", ex.toString()));
+                    error.initCause(ex);
+                }
+                try {
+                    queue.put(new Statement(null, null, error));
+                }
+                catch (InterruptedException iex) {
+                    // the request has been aborted, nobody is reading the queue
+                }
+            }
+            finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                Thread.interrupted();
+                if (!state.compareAndSet(SCANNING, DONE)) {
+                    pool.release(1);
+                }
+            }
+        }
+
+        /**
+         * Abort the scan if it has not finished, interrupting its thread.
+         *
+         * @return <code>true</code> if the scan was aborted, the scan releases its pool thread when it exits.
+         */
+        synchronized boolean abort() {
+            if (state.compareAndSet(SCANNING, ABORTED)) {
+                if (thread != null) {
+                    thread.interrupt();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void scan(InputStream is) throws IOException, InterruptedException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is), bufferSize);
+            StringBuilder text = null;
+            String timestamp = "";
+            boolean patternMatched = noFilter;
+            String line = reader.readLine();
+            while (line != null) {
+                ArrayList<String> logParts = filter.splitLogMessage(line);
+                if (logParts != null) {
+                    if (text != null) {
+                        queue.put(new Statement(timestamp, text.toString(), null));
+                        text = null;
+                    }
+                    timestamp = line.substring(0, TIMESTAMP_LENGTH);
+                    patternMatched = noFilter || filter.matches(logParts);
+                }
+                if (patternMatched) {
+                    if (text == null) {
+                        text = new StringBuilder(line.length() + 1);
+                    }
+                    text.append(line).append('\n');
+                }
+                line = reader.readLine();
+            }
+            if (text != null) {
+                queue.put(new Statement(timestamp, text.toString(), null));
+            }
+        }
+
+        /**
+         * Return the next statement of the scan without removing it, waiting for it if necessary.
+         */
+        Statement peek() throws IOException {
+            if (head == null) {
+                try {
+                    head = queue.take();
+                }
+                catch (InterruptedException ex) {
+                    throw new InterruptedIOException(ex.getMessage());
+                }
+                if (head.error != null) {
+                    throw head.error;
+                }
+            }
+            return head;
+        }
+
+        Statement take() throws IOException {
+            Statement statement = peek();
+            head = null;
+            return statement;
+        }
+    }
+
+    private final XLogStreamer.Filter logFilter;
+    private final XLogStreamer.Filter filter;
+    private final boolean noFilter;
+    private final Writer writer;
+    private final Pool pool;
+    private final int threads;
+    private final int queueSize;
+    private final int bufferSize;
+
+    /**
+     * Create a log scanner.
+     *
+     * @param filter filter to apply, if <code>null</code> all the log lines are written.
+     * @param writer writer to write the matching log statements to.
+     * @param pool pool of scanner threads, if <code>null</code> the sources are read by the calling thread.
+     * @param threads maximum number of sources scanned at the same time.
+     * @param queueSize number of matching log statements buffered per source.
+     */
+    public XLogScanner(XLogStreamer.Filter filter, Writer writer, Pool pool, int threads, int queueSize) {
+        this(filter, writer, pool, threads, queueSize, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a log scanner.
+     *
+     * @param filter filter to apply, if <code>null</code> all the log lines are written.
+     * @param writer writer to write the matching log statements to.
+     * @param pool pool of scanner threads, if <code>null</code> the sources are read by the calling thread.
+     * @param threads maximum number of sources scanned at the same time.
+     * @param queueSize number of matching log statements buffered per source.
+     * @param bufferSize size of the buffer used to read a source, in characters.
+     */
+    public XLogScanner(XLogStreamer.Filter filter, Writer writer, Pool pool, int threads, int queueSize,
+                       int bufferSize) {
+        this.logFilter = filter;
+        this.noFilter = filter == null || !filter.isFilterPresent();
+        this.filter = (filter != null) ? filter : new XLogStreamer.Filter();
+        this.writer = ParamChecker.notNull(writer, "writer");
+        this.pool = pool;
+        this.threads = Math.max(1, threads);
+        this.queueSize = Math.max(1, queueSize);
+        this.bufferSize = Math.max(1024, bufferSize);
+    }
+
+    /**
+     * Scan the sources and write the matching log statements merged in timestamp order.
+     *
+     * @param sources sources to scan, in time order.
+     * @throws IOException thrown if a source could not be read or the statements could not be written.
+     */
+    public void scan(List<? extends Source> sources) throws IOException {
+        if (sources.isEmpty()) {
+            return;
+        }
+        if (!noFilter) {
+            filter.constructPattern();
+        }
+        if (pool == null) {
+            for (Source source : sources) {
+                InputStream is = source.open();
+                try {
+                    new XLogReader(is, logFilter, writer).processLog();
+                }
+                finally {
+                    is.close();
+                }
+            }
+            return;
+        }
+        int reserved = pool.reserve(Math.min(threads, sources.size()));
+        List<Scan> scans = new ArrayList<Scan>();
+        try {
+            List<Scan> active = new ArrayList<Scan>();
+            int next = 0;
+            int count = 0;
+            while (true) {
+                while (active.size() < reserved && next < sources.size()) {
+                    Scan scan = new Scan(sources.get(next++));
+                    scans.add(scan);
+                    pool.execute(scan);
+                    active.add(scan);
+                }
+                if (active.isEmpty()) {
+                    break;
+                }
+                boolean ended = false;
+                Iterator<Scan> it = active.iterator();
+                while (it.hasNext()) {
+                    if (it.next().peek().isEnd()) {
+                        it.remove();
+                        ended = true;
+                    }
+                }
+                if (ended) {
+                    continue;
+                }
+                Scan min = active.get(0);
+                for (int i = 1; i < active.size(); i++) {
+                    if (active.get(i).peek().timestamp.compareTo(min.peek().timestamp) < 0) {
+                        min = active.get(i);
+                    }
+                }
+                writer.write(min.take().text);
+                if (++count % 20 == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        }
+        finally {
+            int release = reserved;
+            for (Scan scan : scans) {
+                if (scan.abort()) {
+                    release--;
+                }
+            }
+            pool.release(release);
+        }
+    }
+
+}
@@ -14,6 +14,7 @@
  */
 package org.apache.oozie.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -25,11 +26,16 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 /**
  * XLogStreamer streams the given log file to logWriter after applying the given filter.
+ * <p/>
+ * The log files are scanned, concurrently if a scanner pool is set, by a {@link XLogScanner}, rotated log files compressed with gzip (with a
+ * <code>.gz</code> extension) are decompressed while scanned.
  */
 public class XLogStreamer {
 
@@ -90,10 +96,30 @@ public class XLogStreamer {
             }
         }
 
+        /**
+         * Return the value a filter parameter has been set to.
+         *
+         * @param filterParam filter parameter.
+         * @return the value of the parameter, <code>null</code> if the parameter has not been set.
+         */
+        public String getParameter(String filterParam) {
+            String value = filterParams.get(filterParam);
+            return (DEFAULT_REGEX.equals(value)) ? null : value;
+        }
+
         public static void defineParameter(String filterParam) {
             parameters.add(filterParam);
         }
 
+        /**
+         * Return the defined parameters, in the order the filter pattern expects them.
+         *
+         * @return the defined parameters.
+         */
+        static List<String> getParameters() {
+            return Collections.unmodifiableList(parameters);
+        }
+
         public boolean isFilterPresent() {
             if (noFilter && logLevels == null) {
                 return false;
@@ -183,11 +209,23 @@ public class XLogStreamer {
         }
     }
 
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern LITERAL_VALUE = Pattern.compile("[\\w\\-@:/]+");
+
     private String logFile;
     private String logPath;
     private Filter logFilter;
     private Writer logWriter;
     private long logRotation;
+    private File indexDir;
+    private String indexParameter;
+    private long indexMergeGap = XLogIndex.DEFAULT_MERGE_GAP;
+    private XLogScanner.Pool scanPool;
+    private int scanThreads = 1;
+    private int scanQueueSize = XLogScanner.DEFAULT_QUEUE_SIZE;
+    private Instrumentation instr;
+    private String instrGroup;
 
     public XLogStreamer(Filter logFilter, Writer logWriter, String logPath, String logFile, long logRotationSecs) {
         this.logWriter = logWriter;
@@ -200,6 +238,48 @@ public class XLogStreamer {
         this.logRotation = logRotationSecs * 1000l;
     }
 
+    /**
+     * Use sidecar {@link XLogIndex} indexes to read the rotated log files.
+     * <p/>
+     * If the filter sets the indexed parameter, only the byte ranges of the rotated log files indexed under its value
+     * are read. The index of a rotated log file is built and written to the index directory the first time the file is
+     * read. The current log file is always read in full.
+     *
+     * @param indexDir directory of the index files.
+     * @param indexParameter filter parameter to index, i.e. <code>JOB</code>.
+     * @param indexMergeGap gap, in bytes, under which ranges of the same value are merged.
+     */
+    public void setIndex(File indexDir, String indexParameter, long indexMergeGap) {
+        this.indexDir = indexDir;
+        this.indexParameter = indexParameter;
+        this.indexMergeGap = indexMergeGap;
+    }
+
+    /**
+     * Scan the log files concurrently with the threads of a pool, see {@link XLogScanner}. If not set the log files
+     * are read one after the other by the calling thread.
+     *
+     * @param pool pool of scanner threads.
+     * @param threads maximum number of log files scanned at the same time.
+     * @param queueSize number of matching log statements buffered per log file.
+     */
+    public void setScan(XLogScanner.Pool pool, int threads, int queueSize) {
+        this.scanPool = pool;
+        this.scanThreads = threads;
+        this.scanQueueSize = queueSize;
+    }
+
+    /**
+     * Set the instrumentation to record the index build and lookup times and the index hit counters.
+     *
+     * @param instr instrumentation.
+     * @param group instrumentation group.
+     */
+    public void setInstrumentation(Instrumentation instr, String group) {
+        this.instr = instr;
+        this.instrGroup = group;
+    }
+
     /**
      * Gets the files that are modified between startTime and endTime in the given logPath and streams the log after
      * applying the filters.
@@ -211,10 +291,6 @@ public class XLogStreamer {
     public void streamLog(Date startTime, Date endTime) throws IOException {
         long startTimeMillis = 0;
         long endTimeMillis;
-        String fileName;
-        InputStream ifs;
-        XLogReader logReader;
-
         if (startTime != null) {
             startTimeMillis = startTime.getTime();
         }
@@ -226,11 +302,130 @@ public class XLogStreamer {
         }
         File dir = new File(logPath);
         ArrayList<FileInfo> fileList = getFileList(dir, startTimeMillis, endTimeMillis, logRotation, logFile);
+        final String indexValue = getIndexValue();
+        List<XLogScanner.Source> sources = new ArrayList<XLogScanner.Source>();
         for (int i = 0; i < fileList.size(); i++) {
-            fileName = fileList.get(i).getFileName();
-            ifs = new FileInputStream(fileList.get(i).getFileName());
-            logReader = new XLogReader(ifs, logFilter, logWriter);
-            logReader.processLog();
+            final File file = new File(fileList.get(i).getFileName());
+            sources.add(new XLogScanner.Source() {
+                public InputStream open() throws IOException {
+                    return openLogFile(file, indexValue);
+                }
+            });
+        }
+        new XLogScanner(logFilter, logWriter, scanPool, scanThreads, scanQueueSize).scan(sources);
+    }
+
+    /**
+     * Open a log file, reading only its indexed ranges if the file is a rotated log file and the index is in use.
+     * Files with a <code>.gz</code> extension are decompressed while reading.
+     */
+    private InputStream openLogFile(File file, String indexValue) throws IOException {
+        if (file.getName().endsWith(GZIP_EXTENSION)) {
+            incrCounter("index.scans");
+            return new GZIPInputStream(new FileInputStream(file), GZIP_BUFFER_SIZE);
+        }
+        List<long[]> ranges = null;
+        if (indexValue != null && !file.getName().equals(logFile)) {
+            ranges = getIndexedRanges(file, indexValue);
+        }
+        if (ranges == null) {
+            incrCounter("index.scans");
+            return new FileInputStream(file);
+        }
+        else if (ranges.isEmpty()) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        else {
+            return XLogIndex.openRanges(file, ranges);
+        }
+    }
+
+    /**
+     * Return the value of the indexed parameter in the filter if it is a literal value (not a regular expression).
+     */
+    private String getIndexValue() {
+        if (indexDir == null || indexParameter == null || logFilter == null) {
+            return null;
+        }
+        String value = logFilter.getParameter(indexParameter);
+        if (value == null || value.length() == 0 || !LITERAL_VALUE.matcher(value).matches()) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Return the byte ranges of a rotated log file for the given value of the indexed parameter, building and writing
+     * the index of the file if it does not have one.
+     *
+     * @return the byte ranges, <code>null</code> if the index could not be read nor built.
+     */
+    private List<long[]> getIndexedRanges(File file, String value) {
+        File indexFile = new File(indexDir, file.getName() + XLogIndex.INDEX_EXTENSION);
+        Set<String> values = Collections.singleton(value);
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        XLogIndex index = null;
+        try {
+            index = XLogIndex.read(indexFile, file, indexParameter, values);
+        }
+        catch (IOException ex) {
+            XLog.getLog(getClass()).warn("Could not read log index [{0}], {1}", indexFile, ex.getMessage());
+        }
+        cron.stop();
+        if (index != null) {
+            addCron("index.lookup", cron);
+            incrCounter("index.hits");
+            return index.getRanges(values);
+        }
+        cron = new Instrumentation.Cron();
+        cron.start();
+        try {
+            index = XLogIndex.build(file, indexParameter, indexMergeGap);
+        }
+        catch (IOException ex) {
+            XLog.getLog(getClass()).warn("Could not index log file [{0}], {1}", file, ex.getMessage());
+            return null;
+        }
+        try {
+            index.write(indexFile);
+            purgeIndexes(file.getParentFile());
+        }
+        catch (IOException ex) {
+            XLog.getLog(getClass()).warn("Could not write log index [{0}], {1}", indexFile, ex.getMessage());
+        }
+        cron.stop();
+        addCron("index.build", cron);
+        incrCounter("index.builds");
+        return index.getRanges(values);
+    }
+
+    /**
+     * Delete the index files of rotated log files that do not exist anymore.
+     */
+    private void purgeIndexes(File dir) {
+        String[] children = indexDir.list();
+        if (children != null) {
+            for (String child : children) {
+                if (child.startsWith(logFile) && child.endsWith(XLogIndex.INDEX_EXTENSION)) {
+                    String name = child.substring(0, child.length() - XLogIndex.INDEX_EXTENSION.length());
+                    if (!new File(dir, name).exists()) {
+                        new File(indexDir, child).delete();
+                    }
+                }
+            }
+        }
+    }
+
+    private void addCron(String name, Instrumentation.Cron cron) {
+        if (instr != null) {
+            instr.addCron(instrGroup, name, cron);
+        }
+    }
+
+    private void incrCounter(String name) {
+        if (instr != null) {
+            instr.incr(instrGroup, name, 1);
         }
     }
 
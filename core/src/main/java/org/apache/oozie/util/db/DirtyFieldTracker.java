@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util.db;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Tracks the persistent fields of a bean that changed since the bean was read from (or written to) the DB.
+ * <p/>
+ * The tracker keeps a snapshot of the field values taken by {@link #reset(Map)}, {@link #getChanged(Map)} compares
+ * the current values with the snapshot. LOB values are not copied, the snapshot keeps a reference to them, the
+ * beans replace LOB values when they are modified, they are not changed in place.
+ * <p/>
+ * The changed fields are written with a JPQL update created by {@link #createUpdateQuery}, so a status only
+ * transition does not rewrite the LOB columns of the row.
+ */
+public class DirtyFieldTracker {
+    private Map<String, Object> snapshot;
+
+    /**
+     * Take a snapshot of the field values, they become the clean state of the bean.
+     *
+     * @param values field values keyed by JPQL field name.
+     */
+    public void reset(Map<String, Object> values) {
+        Map<String, Object> map = new HashMap<String, Object>(values.size() * 2);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            map.put(entry.getKey(), normalize(entry.getValue()));
+        }
+        snapshot = map;
+    }
+
+    /**
+     * Discard the snapshot, the bean is not tracked anymore.
+     */
+    public void clear() {
+        snapshot = null;
+    }
+
+    /**
+     * Return if there is a snapshot to compare with.
+     *
+     * @return if there is a snapshot to compare with.
+     */
+    public boolean isTracking() {
+        return snapshot != null;
+    }
+
+    /**
+     * Return the fields that changed since the snapshot was taken.
+     *
+     * @param values current field values keyed by JPQL field name.
+     * @return the changed fields with their current values, <code>null</code> if there is no snapshot.
+     */
+    public Map<String, Object> getChanged(Map<String, Object> values) {
+        if (snapshot == null) {
+            return null;
+        }
+        Map<String, Object> changed = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!snapshot.containsKey(entry.getKey())
+                    || !isEqual(snapshot.get(entry.getKey()), normalize(entry.getValue()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Create a JPQL update query that sets only the given fields of an entity.
+     *
+     * @param em entity manager.
+     * @param entityName entity name.
+     * @param idField name of the id field.
+     * @param id id of the entity to update.
+     * @param fields fields to set keyed by JPQL field name, it must not be empty.
+     * @return the update query, ready to be executed.
+     */
+    public static Query createUpdateQuery(EntityManager em, String entityName, String idField, Object id,
+                                          Map<String, Object> fields) {
+        ParamChecker.notNull(fields, "fields");
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("fields cannot be empty");
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("update ").append(entityName).append(" e set ");
+        int i = 0;
+        for (String field : fields.keySet()) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("e.").append(field).append(" = :p").append(i++);
+        }
+        sb.append(" where e.").append(idField).append(" = :id");
+        Query q = em.createQuery(sb.toString());
+        i = 0;
+        for (Object value : fields.values()) {
+            q.setParameter("p" + i++, value);
+        }
+        q.setParameter("id", id);
+        return q;
+    }
+
+    // timestamps are mutable, the snapshot keeps their time
+    private static Object normalize(Object value) {
+        return (value instanceof Date) ? (Object) ((Date) value).getTime() : value;
+    }
+
+    private static boolean isEqual(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        return a.equals(b);
+    }
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util.db;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Bounded LRU cache of entities read from the DB, keyed by entity type and id.
+ * <p/>
+ * Entries expire after a TTL and the least recently used entry is evicted when the cache is full. Writers invalidate
+ * the keys of the entities they change, a reader that started before an invalidation does not populate the cache with
+ * the value it read (see {@link #getGeneration()}), so a stale value read concurrently with a write is not cached.
+ * <p/>
+ * The cache stores values as given, callers must store and hand out copies if the values are mutable.
+ */
+public class EntityCache {
+    private final int maxSize;
+    private final long ttl;
+    private final LinkedHashMap<String, CachedValue> map;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class CachedValue {
+        private final Object value;
+        private final long expiration;
+
+        private CachedValue(Object value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+
+    /**
+     * Create an entity cache.
+     *
+     * @param maxSize maximum number of entries.
+     * @param ttl time to live of the entries in milliseconds.
+     */
+    public EntityCache(final int maxSize, long ttl) {
+        ParamChecker.checkGTZero(maxSize, "maxSize");
+        if (ttl <= 0) {
+            throw new IllegalArgumentException(XLog.format("ttl must be greater than zero, [{0}]", ttl));
+        }
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        map = new LinkedHashMap<String, CachedValue>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Return the cache key of an entity.
+     *
+     * @param klass entity class.
+     * @param id entity id.
+     * @return the cache key.
+     */
+    public static String getKey(Class<?> klass, String id) {
+        return klass.getSimpleName() + "#" + id;
+    }
+
+    /**
+     * Return a cached value.
+     *
+     * @param key cache key.
+     * @return the cached value, <code>null</code> if not cached or expired.
+     */
+    public Object get(String key) {
+        Object value = null;
+        synchronized (map) {
+            CachedValue entry = map.get(key);
+            if (entry != null) {
+                if (entry.expiration > System.currentTimeMillis()) {
+                    value = entry.value;
+                }
+                else {
+                    map.remove(key);
+                }
+            }
+        }
+        if (value != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Return the current invalidation generation.
+     * <p/>
+     * A reader must get the generation before reading the value from the DB and pass it to {@link #put}.
+     *
+     * @return the current invalidation generation.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a value read from the DB.
+     * <p/>
+     * The value is not cached if there was an invalidation after the given generation was obtained.
+     *
+     * @param key cache key.
+     * @param value value to cache.
+     * @param readGeneration generation obtained before reading the value.
+     * @return if the value was cached.
+     */
+    public boolean put(String key, Object value, long readGeneration) {
+        ParamChecker.notNull(value, "value");
+        synchronized (map) {
+            if (generation.get() != readGeneration) {
+                return false;
+            }
+            map.put(key, new CachedValue(value, System.currentTimeMillis() + ttl));
+            return true;
+        }
+    }
+
+    /**
+     * Invalidate cache entries.
+     *
+     * @param keys keys of the entries to invalidate.
+     */
+    public void invalidate(Collection<String> keys) {
+        synchronized (map) {
+            generation.incrementAndGet();
+            for (String key : keys) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Invalidate all the cache entries.
+     */
+    public void clear() {
+        synchronized (map) {
+            generation.incrementAndGet();
+            map.clear();
+        }
+    }
+
+    /**
+     * Return the number of cached entries, including expired ones not evicted yet.
+     *
+     * @return the number of cached entries.
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * Return the maximum number of entries.
+     *
+     * @return the maximum number of entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of lookups that found a value.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of lookups that did not find a value.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+}
@@ -114,6 +114,38 @@ public class SLADbOperations {
         if (eSla == null) {
             return;
         }
+        SLAEventBean sla = createSlaRegistrationEvent(eSla, slaId, appType, user, groupName);
+
+        //SLAStore slaStore = (SLAStore) Services.get().get(StoreService.class)
+        //        .getStore(SLAStore.class, store);
+        //slaStore.insertSLAEvent(sla);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        if (jpaService != null) {
+            jpaService.execute(new SLAEventInsertJPAExecutor(sla));
+        }
+        else {
+            log.error(ErrorCode.E0610);
+        }
+    }
+
+    /**
+     * Create the SLA registration event for an SLA element without writing it, so it can be inserted as part of a
+     * batch.
+     *
+     * @param eSla SLA element, it may be <code>null</code>.
+     * @param slaId SLA id.
+     * @param appType application type.
+     * @param user user.
+     * @param groupName group name.
+     * @return the SLA registration event, <code>null</code> if the SLA element is <code>null</code>.
+     * @throws Exception thrown if the SLA element is not valid.
+     */
+    public static SLAEventBean createSlaRegistrationEvent(Element eSla, String slaId, SlaAppType appType,
+                                                          String user, String groupName) throws Exception {
+        if (eSla == null) {
+            return null;
+        }
         //System.out.println("Writing REG AAAAA " + slaId);
         SLAEventBean sla = new SLAEventBean();
         // sla.setClientId(getTagElement( eSla, "client-id"));
@@ -179,17 +211,7 @@ public class SLADbOperations {
         sla.setJobStatus(Status.CREATED);
         sla.setStatusTimestamp(new Date());
 
-        //SLAStore slaStore = (SLAStore) Services.get().get(StoreService.class)
-        //        .getStore(SLAStore.class, store);
-        //slaStore.insertSLAEvent(sla);
-
-        JPAService jpaService = Services.get().get(JPAService.class);
-        if (jpaService != null) {
-            jpaService.execute(new SLAEventInsertJPAExecutor(sla));
-        }
-        else {
-            log.error(ErrorCode.E0610);
-        }
+        return sla;
     }
 
     public static void writeSlaStatusEvent(String id,
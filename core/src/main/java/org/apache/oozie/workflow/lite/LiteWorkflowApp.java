@@ -19,12 +19,15 @@ import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.oozie.workflow.WorkflowApp;
 import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.WritableUtils;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.ErrorCode;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,6 +41,7 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
     private String definition;
     private Map<String, NodeDef> nodesMap = new LinkedHashMap<String, NodeDef>();
     private boolean complete = false;
+    private String digest;
 
     LiteWorkflowApp() {
     }
@@ -71,6 +75,7 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
                                         XLog.format("Node [{0}] cannot transition to itself", node.getName()));
         }
         nodesMap.put(node.getName(), node);
+        digest = null;
         if (node instanceof EndNodeDef) {
             complete = true;
         }
@@ -93,6 +98,30 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
         return nodesMap.get(name);
     }
 
+    /**
+     * Return the digest of the serialized definition, two definitions with the same digest are the same.
+     * <p/>
+     * It is computed once, the definition does not change once it is complete.
+     *
+     * @return the SHA-1 digest of the serialized definition, hex encoded.
+     */
+    public String getDigest() {
+        if (digest == null) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-1").digest(WritableUtils.toByteArray(this));
+                StringBuilder sb = new StringBuilder(hash.length * 2);
+                for (byte b : hash) {
+                    sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+                }
+                digest = sb.toString();
+            }
+            catch (NoSuchAlgorithmException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return digest;
+    }
+
     public void validateWorkflowIntegrity() {
         //TODO traverse wf, ensure there are not cycles, no open paths, and one END
     }
@@ -14,8 +14,11 @@
  */
 package org.apache.oozie.workflow.lite;
 
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowDefinitionService;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.service.DagXLogInfoService;
+import org.apache.oozie.service.LiteWorkflowStoreService;
 import org.apache.oozie.client.OozieClient;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.util.ReflectionUtils;
@@ -25,6 +28,7 @@ import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.WorkflowInstance;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.WritableUtils;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.ErrorCode;
 
@@ -33,10 +37,15 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 //TODO javadoc
 public class LiteWorkflowInstance implements Writable, WorkflowInstance {
@@ -542,46 +551,210 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         this.status = status;
     }
 
+    /*
+     * The instance blob starts with an empty string, old blobs start with the (never empty) instance ID and embed the
+     * whole definition and the configuration as XML.
+     * Version 1: the definition is stored once by the WorkflowDefinitionService and the blob only carries its digest,
+     * the definition is embedded only if the service is not available.
+     * Version 2: the configuration and the state are binary encoded, strings are written with varint lengths and the
+     * configuration is deflated if it is larger than the configured min size.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int CONF_PLAIN = 0;
+    private static final int CONF_DEFLATED = 1;
+
+    private static final int DEFAULT_COMPRESSION_MIN_SIZE = 4096;
+
     @Override
     public void write(DataOutput dOut) throws IOException {
+        dOut.writeUTF("");
+        dOut.writeInt(FORMAT_VERSION);
         dOut.writeUTF(instanceId);
+        writeConf(dOut);
 
-        //Hadoop Configuration has to get its act right
+        String digest = storeDefinition();
+        dOut.writeBoolean(digest != null);
+        if (digest != null) {
+            dOut.writeUTF(digest);
+        }
+        else {
+            def.write(dOut);
+        }
+        writeState(dOut);
+    }
+
+    private String storeDefinition() {
+        WorkflowDefinitionService defService = (Services.get() != null)
+                ? Services.get().get(WorkflowDefinitionService.class) : null;
+        if (defService != null) {
+            try {
+                return defService.store(def);
+            }
+            catch (WorkflowException ex) {
+                XLog.getLog(getClass()).warn("Could not store definition [{0}], embedding it in the instance, {1}",
+                                             def.getName(), ex.getMessage(), ex);
+            }
+        }
+        return null;
+    }
+
+    private static int getCompressionMinSize() {
+        return (Services.get() != null)
+                ? Services.get().getConf().getInt(LiteWorkflowStoreService.CONF_INSTANCE_COMPRESSION_MIN_SIZE,
+                                                  DEFAULT_COMPRESSION_MIN_SIZE)
+                : DEFAULT_COMPRESSION_MIN_SIZE;
+    }
+
+    private void writeConf(DataOutput dOut) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        conf.writeXml(baos);
-        baos.close();
+        DataOutputStream confOut = new DataOutputStream(baos);
+        org.apache.hadoop.io.WritableUtils.writeVInt(confOut, conf.size());
+        for (Map.Entry<String, String> entry : conf) {
+            WritableUtils.writeVStr(confOut, entry.getKey());
+            WritableUtils.writeVStr(confOut, entry.getValue());
+        }
+        confOut.close();
         byte[] array = baos.toByteArray();
-        dOut.writeInt(array.length);
+
+        int minSize = getCompressionMinSize();
+        if (minSize >= 0 && array.length >= minSize) {
+            baos = new ByteArrayOutputStream(array.length / 2);
+            DeflaterOutputStream deflater = new DeflaterOutputStream(baos);
+            deflater.write(array);
+            deflater.close();
+            byte[] deflated = baos.toByteArray();
+            if (deflated.length < array.length) {
+                dOut.writeByte(CONF_DEFLATED);
+                org.apache.hadoop.io.WritableUtils.writeVInt(dOut, deflated.length);
+                dOut.write(deflated);
+                return;
+            }
+        }
+        dOut.writeByte(CONF_PLAIN);
+        org.apache.hadoop.io.WritableUtils.writeVInt(dOut, array.length);
         dOut.write(array);
+    }
 
-        def.write(dOut);
-        dOut.writeUTF(status.toString());
-        dOut.writeInt(executionPaths.size());
+    private void writeState(DataOutput dOut) throws IOException {
+        WritableUtils.writeVStr(dOut, status.toString());
+        org.apache.hadoop.io.WritableUtils.writeVInt(dOut, executionPaths.size());
         for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
-            dOut.writeUTF(entry.getKey());
-            dOut.writeUTF(entry.getValue().nodeName);
+            WritableUtils.writeVStr(dOut, entry.getKey());
+            WritableUtils.writeVStr(dOut, entry.getValue().nodeName);
             dOut.writeBoolean(entry.getValue().started);
         }
-        dOut.writeInt(persistentVars.size());
+        org.apache.hadoop.io.WritableUtils.writeVInt(dOut, persistentVars.size());
         for (Map.Entry<String, String> entry : persistentVars.entrySet()) {
-            dOut.writeUTF(entry.getKey());
-            dOut.writeUTF(entry.getValue());
+            WritableUtils.writeVStr(dOut, entry.getKey());
+            WritableUtils.writeVStr(dOut, entry.getValue());
         }
     }
 
     @Override
     public void readFields(DataInput dIn) throws IOException {
         instanceId = dIn.readUTF();
+        if (instanceId.length() > 0) {
+            // pre-versioning blob with the definition embedded
+            readXmlConf(dIn);
+            readDefinition(dIn);
+            readUTFState(dIn);
+        }
+        else {
+            int version = dIn.readInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException(XLog.format("Unsupported workflow instance format version [{0}]", version));
+            }
+            instanceId = dIn.readUTF();
+            if (version == 1) {
+                readXmlConf(dIn);
+            }
+            else {
+                readConf(dIn);
+            }
+            if (dIn.readBoolean()) {
+                loadDefinition(dIn.readUTF());
+            }
+            else {
+                readDefinition(dIn);
+            }
+            if (version == 1) {
+                readUTFState(dIn);
+            }
+            else {
+                readState(dIn);
+            }
+        }
+        refreshLog();
+    }
 
+    private void readXmlConf(DataInput dIn) throws IOException {
         //Hadoop Configuration has to get its act right
         int len = dIn.readInt();
         byte[] array = new byte[len];
         dIn.readFully(array);
         ByteArrayInputStream bais = new ByteArrayInputStream(array);
         conf = new XConfiguration(bais);
+    }
 
+    private void readConf(DataInput dIn) throws IOException {
+        int encoding = dIn.readByte();
+        byte[] array = new byte[org.apache.hadoop.io.WritableUtils.readVInt(dIn)];
+        dIn.readFully(array);
+        InputStream is = new ByteArrayInputStream(array);
+        if (encoding == CONF_DEFLATED) {
+            is = new InflaterInputStream(is);
+        }
+        else if (encoding != CONF_PLAIN) {
+            throw new IOException(XLog.format("Unsupported configuration encoding [{0}]", encoding));
+        }
+        DataInputStream confIn = new DataInputStream(is);
+        conf = new XConfiguration();
+        int size = org.apache.hadoop.io.WritableUtils.readVInt(confIn);
+        for (int i = 0; i < size; i++) {
+            // keys are the same for most of the jobs, the instances share them
+            String key = WritableUtils.readVStr(confIn).intern();
+            conf.set(key, WritableUtils.readVStr(confIn));
+        }
+    }
+
+    private void readDefinition(DataInput dIn) throws IOException {
         def = new LiteWorkflowApp();
         def.readFields(dIn);
+    }
+
+    private void loadDefinition(String digest) throws IOException {
+        WorkflowDefinitionService defService = (Services.get() != null)
+                ? Services.get().get(WorkflowDefinitionService.class) : null;
+        if (defService == null) {
+            throw new IOException(XLog.format("Cannot load definition [{0}], WorkflowDefinitionService not available",
+                                              digest));
+        }
+        try {
+            def = defService.get(digest);
+        }
+        catch (WorkflowException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void readState(DataInput dIn) throws IOException {
+        status = Status.valueOf(WritableUtils.readVStr(dIn));
+        int numExPaths = org.apache.hadoop.io.WritableUtils.readVInt(dIn);
+        for (int x = 0; x < numExPaths; x++) {
+            String path = WritableUtils.readVStr(dIn);
+            NodeInstance nodeInstance = new NodeInstance(WritableUtils.readVStr(dIn));
+            nodeInstance.started = dIn.readBoolean();
+            executionPaths.put(path, nodeInstance);
+        }
+        int numVars = org.apache.hadoop.io.WritableUtils.readVInt(dIn);
+        for (int x = 0; x < numVars; x++) {
+            String vName = WritableUtils.readVStr(dIn).intern();
+            persistentVars.put(vName, WritableUtils.readVStr(dIn));
+        }
+    }
+
+    private void readUTFState(DataInput dIn) throws IOException {
         status = Status.valueOf(dIn.readUTF());
         int numExPaths = dIn.readInt();
         for (int x = 0; x < numExPaths; x++) {
@@ -598,7 +771,6 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
             String vVal = dIn.readUTF();
             persistentVars.put(vName, vVal);
         }
-        refreshLog();
     }
 
     @Override
@@ -415,6 +415,93 @@ public class TestJavaActionExecutor extends ActionExecutorTestCase {
         }
     }
 
+    public void testCompletionCallback() throws Exception {
+        String actionXml = "<java>" +
+                "<job-tracker>" + getJobTrackerUri() + "</job-tracker>" +
+                "<name-node>" + getNameNodeUri() + "</name-node>" +
+                "<main-class>" + LauncherMainTester.class.getName() + "</main-class>" +
+                "<capture-output/>" +
+                "</java>";
+        Context context = createContext(actionXml);
+        JavaActionExecutor ae = new JavaActionExecutor();
+        assertTrue(ae.isCompletionCallbackSupported());
+
+        Configuration conf = new XConfiguration();
+        ae.injectLauncherCallback(context, conf);
+        assertEquals(conf.get("job.end.notification.url"), conf.get("oozie.action.callback.url"));
+        assertEquals(1, conf.getInt("mapred.map.max.attempts", 4));
+        String secret = LauncherMapper.getCompletionSecret(conf);
+        assertNotNull(secret);
+        Configuration otherConf = new XConfiguration();
+        ae.injectLauncherCallback(context, otherConf);
+        assertFalse(secret.equals(LauncherMapper.getCompletionSecret(otherConf)));
+
+        // launcher retries set by the workflow are kept
+        Configuration retryConf = new XConfiguration();
+        retryConf.set("oozie.launcher.mapred.map.max.attempts", "3");
+        retryConf.set("mapred.map.max.attempts", "3");
+        ae.injectLauncherCallback(context, retryConf);
+        assertEquals(3, retryConf.getInt("mapred.map.max.attempts", 4));
+
+        WorkflowActionBean action = (WorkflowActionBean) context.getAction();
+        action.setStartData("job_201101010000_0001", getJobTrackerUri(), "http://console");
+        context.setVar(JavaActionExecutor.LAUNCHER_SECRET, secret);
+
+        Properties output = new Properties();
+        output.setProperty("a", "A");
+        ae.check(context, action, LauncherMapper.createCompletionData(action.getExternalId(), secret, true, false,
+                                                                      output, null));
+        assertTrue(context.isExecuted());
+        assertEquals("SUCCEEDED", action.getExternalStatus());
+        Properties props = new Properties();
+        props.load(new StringReader(action.getData()));
+        assertEquals("A", props.get("a"));
+
+        context = createContext(actionXml);
+        action = (WorkflowActionBean) context.getAction();
+        action.setStartData("job_201101010000_0001", getJobTrackerUri(), "http://console");
+        context.setVar(JavaActionExecutor.LAUNCHER_SECRET, secret);
+        Properties error = new Properties();
+        error.setProperty("error.code", "0");
+        error.setProperty("error.reason", "reason");
+        error.setProperty("exception.message", "message");
+        ae.check(context, action, LauncherMapper.createCompletionData(action.getExternalId(), secret, false, false,
+                                                                      null, error));
+        assertTrue(context.isExecuted());
+        assertEquals("FAILED/KILLED", action.getExternalStatus());
+        assertEquals("JA018", action.getErrorCode());
+        assertEquals("message", action.getErrorMessage());
+
+        // completion data of another launcher, the action is checked with the JobTracker
+        context = createContext(actionXml);
+        action = (WorkflowActionBean) context.getAction();
+        action.setStartData("job_201101010000_0001", getJobTrackerUri(), "http://console");
+        context.setVar(JavaActionExecutor.LAUNCHER_SECRET, secret);
+        try {
+            ae.check(context, action, LauncherMapper.createCompletionData("job_201101010000_0002", secret, true,
+                                                                          false, output, null));
+            fail();
+        }
+        catch (ActionExecutorException ex) {
+            assertEquals("JA017", ex.getErrorCode());
+        }
+
+        // completion data with a wrong secret, the action is checked with the JobTracker
+        context = createContext(actionXml);
+        action = (WorkflowActionBean) context.getAction();
+        action.setStartData("job_201101010000_0001", getJobTrackerUri(), "http://console");
+        context.setVar(JavaActionExecutor.LAUNCHER_SECRET, secret);
+        try {
+            ae.check(context, action, LauncherMapper.createCompletionData(action.getExternalId(), "guess", true,
+                                                                          false, output, null));
+            fail();
+        }
+        catch (ActionExecutorException ex) {
+            assertEquals("JA017", ex.getErrorCode());
+        }
+        assertEquals("FAILED", action.getExternalStatus());
+    }
+
     public void testAdditionalJarSubmitOK() throws Exception {
         Path appJarPath = new Path("test-extra.jar");
 
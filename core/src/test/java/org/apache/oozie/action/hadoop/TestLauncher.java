@@ -27,6 +27,7 @@ import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.service.Services;
 
 import java.io.File;
+import java.util.Properties;
 
 public class TestLauncher extends XFsTestCase {
 
@@ -211,4 +212,31 @@ public class TestLauncher extends XFsTestCase {
         assertFalse(fs.exists(LauncherMapper.getOutputDataPath(actionDir)));
     }
 
+    public void testCompletionData() throws Exception {
+        Properties output = new Properties();
+        output.setProperty("a", "A");
+        Properties data = LauncherMapper.createCompletionData("job_1", "secret", true, false, output, null);
+        assertTrue(LauncherMapper.isCompletionData(data, "job_1", "secret"));
+        assertFalse(LauncherMapper.isCompletionData(data, "job_2", "secret"));
+        assertFalse(LauncherMapper.isCompletionData(data, "job_1", "other"));
+        assertFalse(LauncherMapper.isCompletionData(data, "job_1", null));
+        assertFalse(LauncherMapper.isCompletionData(null, "job_1", "secret"));
+        assertFalse(LauncherMapper.isCompletionData(LauncherMapper.createCompletionData("job_1", null, true, false,
+                                                                                        output, null), "job_1", ""));
+        assertTrue(LauncherMapper.isCompletionSuccessful(data));
+        assertFalse(LauncherMapper.hasCompletionIdSwap(data));
+        assertEquals(output, LauncherMapper.getCompletionOutput(data));
+        assertNull(LauncherMapper.getCompletionError(data));
+
+        Properties error = new Properties();
+        error.setProperty("error.code", "1");
+        error.setProperty("error.reason", "reason");
+        data = LauncherMapper.createCompletionData("job_1", "secret", false, true, null, error);
+        assertTrue(LauncherMapper.isCompletionData(data, "job_1", "secret"));
+        assertFalse(LauncherMapper.isCompletionSuccessful(data));
+        assertTrue(LauncherMapper.hasCompletionIdSwap(data));
+        assertTrue(LauncherMapper.getCompletionOutput(data).isEmpty());
+        assertEquals(error, LauncherMapper.getCompletionError(data));
+    }
+
 }
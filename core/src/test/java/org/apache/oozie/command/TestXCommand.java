@@ -14,10 +14,16 @@
  */
 package org.apache.oozie.command;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.MemoryLocksService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.SlowCommandsService;
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.MemoryLocks;
 
 public class TestXCommand extends XTestCase {
@@ -200,6 +206,64 @@ public class TestXCommand extends XTestCase {
         }
     }
 
+    public void testXCommandPhases() throws Exception {
+        AXCommand command = new AXCommand(true) {
+            @Override
+            protected Object execute() throws CommandException {
+                XCommand.addJPATime(7);
+                return super.execute();
+            }
+        };
+        command.setReadyTime(System.currentTimeMillis() - 50);
+        command.call();
+        assertTrue(command.execute);
+        XCommand.addJPATime(100);
+
+        Map<String, Instrumentation.Element<Instrumentation.Timer>> timers = Services.get().get(
+                InstrumentationService.class).get().getTimers().get(XCommand.INSTRUMENTATION_GROUP);
+        for (String phase : new String[]{"call", "queueWait", "acquireLock", "load", "precondition", "execute",
+                "jpa"}) {
+            assertNotNull(phase, timers.get("name." + phase));
+            assertEquals(phase, 1, timers.get("name." + phase).getValue().getTicks());
+        }
+        assertNull(timers.get("name.queueFlush"));
+        assertTrue(timers.get("name.queueWait").getValue().getTotal() >= 50);
+        assertEquals(7, timers.get("name.jpa").getValue().getTotal());
+
+        List<SlowCommandsService.CommandTrace> slowest = Services.get().get(SlowCommandsService.class).getSlowest();
+        assertEquals(1, slowest.size());
+        assertEquals("name", slowest.get(0).getName());
+        assertEquals("key", slowest.get(0).getKey());
+        assertEquals(Long.valueOf(7), slowest.get(0).getPhases().get("jpa"));
+        assertTrue(slowest.get(0).getPhases().get("queueWait") >= 50);
+        assertTrue(slowest.get(0).getPhases().containsKey("execute"));
+    }
+
+    public void testXCommandPhaseTimes() throws Exception {
+        AXCommand command = new AXCommand(true) {
+            @Override
+            protected void eagerVerifyPrecondition() throws CommandException {
+                super.eagerVerifyPrecondition();
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException ex) {
+                    throw new CommandException(ErrorCode.E0000);
+                }
+            }
+        };
+        command.call();
+        assertTrue(command.execute);
+
+        // the eager and the locked loads are added, the time spent between them is not
+        Map<String, Instrumentation.Element<Instrumentation.Timer>> timers = Services.get().get(
+                InstrumentationService.class).get().getTimers().get(XCommand.INSTRUMENTATION_GROUP);
+        assertEquals(1, timers.get("name.load").getValue().getTicks());
+        assertTrue(timers.get("name.load").getValue().getTotal() < 100);
+        assertTrue(timers.get("name.precondition").getValue().getTotal() >= 100);
+        assertEquals(timers.get("name.load").getValue().getOwn(), timers.get("name.load").getValue().getTotal());
+    }
+
     private static class LockGetter extends Thread {
 
         @Override
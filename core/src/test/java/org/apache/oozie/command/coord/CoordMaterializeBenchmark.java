@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.command.coord;
+
+import java.io.StringReader;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobInsertJPAExecutor;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.UUIDService;
+import org.apache.oozie.service.UUIDService.ApplicationType;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.XmlUtils;
+import org.jdom.Element;
+
+/**
+ * Throughput benchmark, in actions materialized per second, for the materialization of a coordinator job behind its
+ * schedule (a backfill).
+ * <p/>
+ * It is not a testcase, it is run manually from the command line (with the test classpath):
+ * <p/>
+ * <code>java org.apache.oozie.command.coord.CoordMaterializeBenchmark [DAYS]</code>
+ * <p/>
+ * A job with a 5 minutes frequency and SLA information is materialized from DAYS ago, one materialization window
+ * (an hour) per command as the materialization trigger does for a job on schedule, and with the backfill
+ * materialization. The EL materialization alone is measured as well, with per action evaluators and with evaluators
+ * shared by all the actions of the job.
+ */
+public class CoordMaterializeBenchmark extends XDataTestCase {
+    private static final int MATERIALIZATION_WINDOW = 3600;
+
+    public static void main(String[] args) throws Exception {
+        int days = (args.length > 0) ? Integer.parseInt(args[0]) : 7;
+        CoordMaterializeBenchmark benchmark = new CoordMaterializeBenchmark();
+        benchmark.setName("benchmark");
+        benchmark.setUp();
+        try {
+            benchmark.run(days);
+        }
+        finally {
+            benchmark.tearDown();
+        }
+        System.exit(0);
+    }
+
+    private void run(int days) throws Exception {
+        // the follow up commands of the materialization are not run
+        setSystemProperty("oozie.service.CallableQueueService.threads", "1");
+        setSystemProperty("oozie.service.CallableQueueService.queue.size", "10");
+        Services services = new Services();
+        services.init();
+        try {
+            int actions = days * 24 * 12;
+            System.out.println(XLog.format("days[{0}] actions[{1}]", days, actions));
+            for (int i = 0; i < 2; i++) {
+                boolean report = i == 1;
+                report("EL per action", actions, materializeEL(actions, false), report);
+                report("EL shared", actions, materializeEL(actions, true), report);
+                services.getConf().setInt(CoordMaterializeTransitionXCommand.CONF_BACKFILL_MAX_ACTIONS, 0);
+                report("materialization window", actions, materializeJob(days), report);
+                services.getConf().setInt(CoordMaterializeTransitionXCommand.CONF_BACKFILL_MAX_ACTIONS, actions);
+                report("backfill", actions, materializeJob(days), report);
+            }
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    private static void report(String name, int actions, long time, boolean report) {
+        if (report) {
+            System.out.println(XLog.format("{0}: {1} ms, {2} actions/sec", name, time,
+                                           (long) (actions * 1000d / Math.max(1, time))));
+        }
+    }
+
+    /**
+     * Materialize the actions of a job from days ago, returns the elapsed time in milliseconds.
+     */
+    private long materializeJob(int days) throws Exception {
+        cleanUpDBTables();
+        Date end = new Date((System.currentTimeMillis() / 3600000) * 3600000);
+        Date start = new Date(end.getTime() - days * 24 * 3600 * 1000L);
+        CoordinatorJobBean job = createJob(start, end);
+        Services.get().get(JPAService.class).execute(new CoordJobInsertJPAExecutor(job));
+        long time = System.currentTimeMillis();
+        while (true) {
+            new CoordMaterializeTransitionXCommand(job.getId(), MATERIALIZATION_WINDOW).call();
+            CoordinatorJobBean coordJob = Services.get().get(JPAService.class).execute(
+                    new CoordJobGetJPAExecutor(job.getId()));
+            if (!coordJob.getNextMaterializedTime().before(end)) {
+                break;
+            }
+        }
+        return System.currentTimeMillis() - time;
+    }
+
+    /**
+     * Materialize the actions XML only, returns the elapsed time in milliseconds.
+     */
+    private long materializeEL(int actions, boolean shared) throws Exception {
+        Date start = DateUtils.parseDateUTC("2009-03-06T10:00Z");
+        CoordinatorJobBean job = createJob(start, new Date(start.getTime() + actions * 5 * 60 * 1000L));
+        Element eJob = XmlUtils.parseXml(job.getJobXml());
+        Configuration conf = new XConfiguration(new StringReader(job.getConf()));
+        CoordCommandUtils.MaterializationContext context = new CoordCommandUtils.MaterializationContext(conf);
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < actions; i++) {
+            Date nominalTime = new Date(start.getTime() + i * 5 * 60 * 1000L);
+            if (shared) {
+                CoordCommandUtils.materializeOneInstance(job.getId(), false, (Element) eJob.clone(), nominalTime,
+                                                         new Date(), i + 1, conf, new CoordinatorActionBean(),
+                                                         context);
+            }
+            else {
+                CoordCommandUtils.materializeOneInstance(job.getId(), false, (Element) eJob.clone(), nominalTime,
+                                                         new Date(), i + 1, conf, new CoordinatorActionBean());
+            }
+        }
+        return System.currentTimeMillis() - time;
+    }
+
+    private CoordinatorJobBean createJob(Date start, Date end) throws Exception {
+        Configuration conf = new XConfiguration();
+        conf.set(OozieClient.COORDINATOR_APP_PATH, "hdfs:///tmp/coord");
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        conf.set(OozieClient.GROUP_NAME, getTestGroup());
+        for (int i = 0; i < 50; i++) {
+            conf.set("property." + i, "value." + i);
+        }
+
+        CoordinatorJobBean coordJob = new CoordinatorJobBean();
+        coordJob.setId(Services.get().get(UUIDService.class).generateId(ApplicationType.COORDINATOR));
+        coordJob.setAppName("COORD-BENCHMARK");
+        coordJob.setAppPath("hdfs:///tmp/coord");
+        coordJob.setStatus(CoordinatorJob.Status.RUNNING);
+        coordJob.setTimeZone("America/Los_Angeles");
+        coordJob.setCreatedTime(new Date());
+        coordJob.setLastModifiedTime(new Date());
+        coordJob.setUser(getTestUser());
+        coordJob.setGroup(getTestGroup());
+        coordJob.setAuthToken("notoken");
+        coordJob.setConf(XmlUtils.prettyPrint(conf).toString());
+        coordJob.setJobXml(getCoordJobXml(null, start, end));
+        coordJob.setFrequency(5);
+        coordJob.setTimeUnit(CoordinatorJob.Timeunit.MINUTE);
+        coordJob.setExecution(CoordinatorJob.Execution.FIFO);
+        coordJob.setConcurrency(1);
+        coordJob.setMatThrottling(Integer.MAX_VALUE);
+        coordJob.setTimeout(-1);
+        coordJob.setStartTime(start);
+        coordJob.setEndTime(end);
+        return coordJob;
+    }
+
+}
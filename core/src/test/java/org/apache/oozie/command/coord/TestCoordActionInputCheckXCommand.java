@@ -18,6 +18,7 @@ package org.apache.oozie.command.coord;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import org.apache.oozie.CoordinatorActionBean;
@@ -30,10 +31,15 @@ import org.apache.oozie.client.CoordinatorJob.Timeunit;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.executor.jpa.CoordActionGetJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordActionInsertJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordActionUpdateJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobInsertJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.service.CallableQueueService;
+import org.apache.oozie.service.DatasetAvailabilityService;
+import org.apache.oozie.service.DependencyRegistryService;
 import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.RecoveryService;
+import org.apache.oozie.service.PollingDependencyAvailabilitySource;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.test.XDataTestCase;
@@ -49,6 +55,8 @@ public class TestCoordActionInputCheckXCommand extends XDataTestCase {
     protected void setUp() throws Exception {
         super.setUp();
         setSystemProperty(XLogService.LOG4J_FILE, "oozie-log4j.properties");
+        // the tests create the missing dependencies, they must not be cached as missing
+        setSystemProperty(DatasetAvailabilityService.CONF_NEGATIVE_TTL, "0");
         services = new Services();
         services.init();
         cleanUpDBTables();
@@ -139,6 +147,94 @@ public class TestCoordActionInputCheckXCommand extends XDataTestCase {
         checkCoordAction(job.getId() + "@1");
     }
 
+    public void testActionInputCheckRegistersDependency() throws Exception {
+        Date startTime = DateUtils.parseDateUTC("2009-02-01T23:59Z");
+        Date endTime = DateUtils.parseDateUTC("2009-02-02T23:59Z");
+        CoordinatorJobBean job = addRecordToCoordJobTableForWaiting("coord-job-for-action-input-check.xml",
+                CoordinatorJob.Status.RUNNING, startTime, endTime, false, true, 3);
+        final CoordinatorActionBean action = addRecordToCoordActionTableForWaiting(job.getId(), 1,
+                CoordinatorAction.Status.WAITING, "coord-action-for-action-input-check.xml");
+        action.setCreatedTime(new Date());
+        services.get(JPAService.class).execute(new CoordActionUpdateJPAExecutor(action));
+        createDir(getTestCaseDir() + "/2009/29/");
+
+        DependencyRegistryService registry = services.get(DependencyRegistryService.class);
+        new CoordActionInputCheckXCommand(action.getId()).call();
+        Collection<String> uris = registry.getURIs(action.getId());
+        assertNotNull(uris);
+        assertEquals(1, uris.size());
+        String uri = uris.iterator().next();
+        assertTrue(uri, uri.contains("/2009/22"));
+
+        // when the URI is available the action is checked again, its next missing URI is registered
+        createDir(getTestCaseDir() + "/2009/22/");
+        assertEquals(1, ((PollingDependencyAvailabilitySource) registry.getSource()).poll());
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                Collection<String> uris = services.get(DependencyRegistryService.class).getURIs(action.getId());
+                return uris != null && uris.iterator().next().contains("/2009/15");
+            }
+        });
+        assertTrue(registry.getURIs(action.getId()).iterator().next().contains("/2009/15"));
+    }
+
+    public void testActionInputCheckSkipsUnchangedUpdate() throws Exception {
+        Date startTime = DateUtils.parseDateUTC("2009-02-01T23:59Z");
+        Date endTime = DateUtils.parseDateUTC("2009-02-02T23:59Z");
+        CoordinatorJobBean job = addRecordToCoordJobTableForWaiting("coord-job-for-action-input-check.xml",
+                CoordinatorJob.Status.RUNNING, startTime, endTime, false, true, 3);
+        CoordinatorActionBean action = addRecordToCoordActionTableForWaiting(job.getId(), 1,
+                CoordinatorAction.Status.WAITING, "coord-action-for-action-input-check.xml");
+        action.setCreatedTime(new Date());
+        JPAService jpaService = services.get(JPAService.class);
+        jpaService.execute(new CoordActionUpdateJPAExecutor(action));
+
+        // the first check finds some of the data, the action is updated
+        createDir(getTestCaseDir() + "/2009/29/");
+        new CoordActionInputCheckXCommand(action.getId()).call();
+        CoordinatorActionBean checked = jpaService.execute(new CoordActionGetJPAExecutor(action.getId()));
+        assertEquals(CoordinatorAction.Status.WAITING, checked.getStatus());
+        assertFalse(checked.getMissingDependencies().contains("/2009/29/"));
+        Date lastModified = checked.getLastModifiedTime();
+        assertNotNull(lastModified);
+
+        // nothing changed, the action is not updated
+        Thread.sleep(1000);
+        new CoordActionInputCheckXCommand(action.getId()).call();
+        checked = jpaService.execute(new CoordActionGetJPAExecutor(action.getId()));
+        assertEquals(CoordinatorAction.Status.WAITING, checked.getStatus());
+        assertEquals(lastModified.getTime(), checked.getLastModifiedTime().getTime());
+    }
+
+    public void testActionInputCheckSetsLastModifiedTime() throws Exception {
+        // the last modified time of an unchanged action is set every second
+        services.getConf().setInt(RecoveryService.CONF_COORD_OLDER_THAN, 2);
+        Date startTime = DateUtils.parseDateUTC("2009-02-01T23:59Z");
+        Date endTime = DateUtils.parseDateUTC("2009-02-02T23:59Z");
+        CoordinatorJobBean job = addRecordToCoordJobTableForWaiting("coord-job-for-action-input-check.xml",
+                CoordinatorJob.Status.RUNNING, startTime, endTime, false, true, 3);
+        CoordinatorActionBean action = addRecordToCoordActionTableForWaiting(job.getId(), 1,
+                CoordinatorAction.Status.WAITING, "coord-action-for-action-input-check.xml");
+        action.setCreatedTime(new Date());
+        JPAService jpaService = services.get(JPAService.class);
+        jpaService.execute(new CoordActionUpdateJPAExecutor(action));
+        String missingDeps = action.getMissingDependencies();
+        Date lastModified = jpaService.execute(new CoordActionGetJPAExecutor(action.getId())).getLastModifiedTime();
+
+        new CoordActionInputCheckXCommand(action.getId()).call();
+        CoordinatorActionBean checked = jpaService.execute(new CoordActionGetJPAExecutor(action.getId()));
+        assertEquals(missingDeps, checked.getMissingDependencies());
+        assertEquals(lastModified.getTime(), checked.getLastModifiedTime().getTime());
+
+        // the action is not changed, only its last modified time is set
+        Thread.sleep(1100);
+        new CoordActionInputCheckXCommand(action.getId()).call();
+        checked = jpaService.execute(new CoordActionGetJPAExecutor(action.getId()));
+        assertEquals(CoordinatorAction.Status.WAITING, checked.getStatus());
+        assertEquals(missingDeps, checked.getMissingDependencies());
+        assertTrue(checked.getLastModifiedTime().getTime() > lastModified.getTime());
+    }
+
     protected CoordinatorJobBean addRecordToCoordJobTableForWaiting(String testFileName, CoordinatorJob.Status status, Date start, Date end,
             boolean pending, boolean doneMatd, int lastActionNum) throws Exception {
 
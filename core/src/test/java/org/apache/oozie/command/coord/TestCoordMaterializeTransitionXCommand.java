@@ -15,6 +15,7 @@
 package org.apache.oozie.command.coord;
 
 import java.sql.Timestamp;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import org.apache.oozie.CoordinatorActionBean;
@@ -22,11 +23,13 @@ import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.SLAEventBean;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.CoordinatorJob.Timeunit;
+import org.apache.oozie.coord.TimeUnit;
 import org.apache.oozie.executor.jpa.CoordActionGetJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetActionsJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobGetRunningActionsCountJPAExecutor;
 import org.apache.oozie.executor.jpa.CoordJobInsertJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobUpdateJPAExecutor;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.executor.jpa.SLAEventsGetForSeqIdJPAExecutor;
 import org.apache.oozie.local.LocalOozie;
@@ -164,6 +167,60 @@ public class TestCoordMaterializeTransitionXCommand extends XDataTestCase {
         checkCoordJobs(job.getId(), CoordinatorJob.Status.PREP);
     }
 
+    /**
+     * Test a coordinator job behind its schedule, the actions are materialized beyond the materialization window.
+     * @throws Exception
+     */
+    public void testBackfill() throws Exception {
+        Date startTime = DateUtils.parseDateUTC("2009-03-06T10:00Z");
+        Date endTime = DateUtils.parseDateUTC("2009-03-07T10:00Z");
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, startTime, endTime, null);
+        job.setMatThrottling(1000);
+        Services.get().get(JPAService.class).execute(new CoordJobUpdateJPAExecutor(job));
+        new CoordMaterializeTransitionXCommand(job.getId(), 3600).call();
+        // one day of 5 minute actions in one go
+        checkCoordActions(job.getId(), 288, null);
+        CoordinatorJobBean coordJob = Services.get().get(JPAService.class).execute(new CoordJobGetJPAExecutor(
+                job.getId()));
+        assertTrue(coordJob.isDoneMaterialization());
+        assertEquals(endTime, coordJob.getNextMaterializedTime());
+        CoordinatorActionBean action = Services.get().get(JPAService.class).execute(
+                new CoordActionGetJPAExecutor(job.getId() + "@288"));
+        assertEquals(DateUtils.parseDateUTC("2009-03-07T09:55Z"), action.getNominalTime());
+    }
+
+    public void testBackfillMaxActions() throws Exception {
+        Services.get().getConf().setInt(CoordMaterializeTransitionXCommand.CONF_BACKFILL_MAX_ACTIONS, 100);
+        Date startTime = DateUtils.parseDateUTC("2009-03-06T10:00Z");
+        Date endTime = DateUtils.parseDateUTC("2009-03-07T10:00Z");
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, startTime, endTime, null);
+        job.setMatThrottling(1000);
+        Services.get().get(JPAService.class).execute(new CoordJobUpdateJPAExecutor(job));
+        new CoordMaterializeTransitionXCommand(job.getId(), 3600).call();
+        checkCoordActions(job.getId(), 100, null);
+        CoordinatorJobBean coordJob = Services.get().get(JPAService.class).execute(new CoordJobGetJPAExecutor(
+                job.getId()));
+        assertFalse(coordJob.isDoneMaterialization());
+        assertEquals(DateUtils.parseDateUTC("2009-03-06T18:20Z"), coordJob.getNextMaterializedTime());
+
+        // backfill materialization disabled, one materialization window
+        Services.get().getConf().setInt(CoordMaterializeTransitionXCommand.CONF_BACKFILL_MAX_ACTIONS, 0);
+        new CoordMaterializeTransitionXCommand(job.getId(), 3600).call();
+        checkCoordActions(job.getId(), 112, null);
+    }
+
+    public void testGetNominalTime() throws Exception {
+        Calendar start = Calendar.getInstance(DateUtils.getTimeZone("America/Los_Angeles"));
+        start.setTime(DateUtils.parseDateUTC("2009-03-07T10:00Z"));
+        assertEquals(DateUtils.parseDateUTC("2009-03-09T10:00Z"),
+                     CoordMaterializeTransitionXCommand.getNominalTime(start, TimeUnit.MINUTE, 60, 48));
+        assertEquals(DateUtils.parseDateUTC("2009-03-09T10:00Z"),
+                     CoordMaterializeTransitionXCommand.getNominalTime(start, TimeUnit.HOUR, 2, 24));
+        // daylight saving time starts on 2009-03-08 in Los Angeles
+        assertEquals(DateUtils.parseDateUTC("2009-03-09T09:00Z"),
+                     CoordMaterializeTransitionXCommand.getNominalTime(start, TimeUnit.DAY, 1, 2));
+    }
+
     protected CoordinatorJobBean addRecordToCoordJobTable(CoordinatorJob.Status status, Date startTime, Date endTime,
             Date pauseTime) throws Exception {
         return addRecordToCoordJobTable(status, startTime, endTime, pauseTime, -1);
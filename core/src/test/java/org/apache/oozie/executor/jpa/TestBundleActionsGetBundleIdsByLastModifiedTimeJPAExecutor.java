@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.BundleJobBean;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestBundleActionsGetBundleIdsByLastModifiedTimeJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testBundleActionsGetBundleIdsByLastModifiedTime() throws Exception {
+        Date start = new Date(System.currentTimeMillis() - 60 * 1000);
+        BundleJobBean job1 = addRecordToBundleJobTable(Job.Status.RUNNING, false);
+        BundleJobBean job2 = addRecordToBundleJobTable(Job.Status.RUNNING, false);
+        addRecordToBundleActionTable(job1.getId(), "action1", 0, Job.Status.SUCCEEDED);
+        addRecordToBundleActionTable(job1.getId(), "action2", 0, Job.Status.RUNNING);
+        addRecordToBundleActionTable(job2.getId(), "action1", 0, Job.Status.RUNNING);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<String> ids = jpaService.execute(new BundleActionsGetBundleIdsByLastModifiedTimeJPAExecutor(start));
+        assertEquals(2, ids.size());
+        assertTrue(ids.contains(job1.getId()));
+        assertTrue(ids.contains(job2.getId()));
+
+        ids = jpaService.execute(new BundleActionsGetBundleIdsByLastModifiedTimeJPAExecutor(
+                new Date(System.currentTimeMillis() + 60 * 1000)));
+        assertEquals(0, ids.size());
+    }
+
+}
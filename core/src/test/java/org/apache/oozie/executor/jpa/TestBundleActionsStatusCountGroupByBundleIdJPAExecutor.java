@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.oozie.BundleJobBean;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestBundleActionsStatusCountGroupByBundleIdJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testBundleActionsStatusCountGroupByBundleId() throws Exception {
+        BundleJobBean job1 = addRecordToBundleJobTable(Job.Status.RUNNING, false);
+        BundleJobBean job2 = addRecordToBundleJobTable(Job.Status.RUNNING, false);
+        addRecordToBundleActionTable(job1.getId(), "action1", 0, Job.Status.SUCCEEDED);
+        addRecordToBundleActionTable(job1.getId(), "action2", 0, Job.Status.RUNNING);
+        addRecordToBundleActionTable(job1.getId(), "action3", 0, Job.Status.SUCCEEDED);
+        addRecordToBundleActionTable(job2.getId(), "action1", 0, Job.Status.SUCCEEDED);
+        addRecordToBundleActionTable(job2.getId(), "action2", 1, Job.Status.RUNNING);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        Map<String, Map<Job.Status, Integer>> counts = jpaService.execute(
+                new BundleActionsStatusCountGroupByBundleIdJPAExecutor(Arrays.asList(job1.getId(), job2.getId(),
+                                                                                     "unknown")));
+        // job2 has a pending action, the unknown bundle has no actions
+        assertEquals(2, counts.size());
+        assertEquals(2, counts.get(job1.getId()).size());
+        assertEquals(2, counts.get(job1.getId()).get(Job.Status.SUCCEEDED).intValue());
+        assertEquals(1, counts.get(job1.getId()).get(Job.Status.RUNNING).intValue());
+        assertNull(counts.get(job2.getId()));
+        assertEquals(0, counts.get("unknown").size());
+
+        counts = jpaService.execute(new BundleActionsStatusCountGroupByBundleIdJPAExecutor(new ArrayList<String>()));
+        assertEquals(0, counts.size());
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordActionUpdateLastModifiedTimeJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordActionUpdateLastModifiedTime() throws Exception {
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        CoordinatorActionBean action1 = addRecordToCoordActionTable(job.getId(), 1, CoordinatorAction.Status.WAITING,
+                "coord-action-get.xml", 0);
+        CoordinatorActionBean action2 = addRecordToCoordActionTable(job.getId(), 2, CoordinatorAction.Status.WAITING,
+                "coord-action-get.xml", 0);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        Date lastModifiedTime = new Date(System.currentTimeMillis() + 60 * 60 * 1000);
+        int updated = jpaService.execute(new CoordActionUpdateLastModifiedTimeJPAExecutor(action1.getId(),
+                                                                                          lastModifiedTime));
+        assertEquals(1, updated);
+
+        CoordinatorActionBean action = jpaService.execute(new CoordActionGetJPAExecutor(action1.getId()));
+        assertEquals(lastModifiedTime.getTime() / 1000, action.getLastModifiedTime().getTime() / 1000);
+        assertEquals(CoordinatorAction.Status.WAITING, action.getStatus());
+        assertEquals(action1.getActionXml(), action.getActionXml());
+        action = jpaService.execute(new CoordActionGetJPAExecutor(action2.getId()));
+        assertEquals(action2.getLastModifiedTime().getTime() / 1000, action.getLastModifiedTime().getTime() / 1000);
+
+        updated = jpaService.execute(new CoordActionUpdateLastModifiedTimeJPAExecutor("missing-C@1",
+                                                                                      lastModifiedTime));
+        assertEquals(0, updated);
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.List;
+
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordActionsGetForRecoveryColumnsJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordActionsGetForRecoveryColumns() throws Exception {
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        CoordinatorActionBean action1 = addRecordToCoordActionTable(job.getId(), 1,
+                CoordinatorAction.Status.WAITING, "coord-action-get.xml", 0);
+        CoordinatorActionBean action2 = addRecordToCoordActionTable(job.getId(), 2,
+                CoordinatorAction.Status.SUBMITTED, "coord-action-get.xml", 0);
+        CoordinatorActionBean action3 = addRecordToCoordActionTable(job.getId(), 3,
+                CoordinatorAction.Status.RUNNING, "coord-action-get.xml", "wf-id", "RUNNING", 1);
+        // not pending and done actions are not recovered
+        addRecordToCoordActionTable(job.getId(), 4, CoordinatorAction.Status.RUNNING, "coord-action-get.xml", 0);
+        addRecordToCoordActionTable(job.getId(), 5, CoordinatorAction.Status.SUCCEEDED, "coord-action-get.xml", 1);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<CoordinatorActionBean> actions = jpaService.execute(
+                new CoordActionsGetForRecoveryColumnsJPAExecutor(0, null, 0));
+        assertEquals(3, actions.size());
+        assertEquals(action1.getId(), actions.get(0).getId());
+        assertEquals(CoordinatorAction.Status.WAITING, actions.get(0).getStatus());
+        assertEquals(action2.getId(), actions.get(1).getId());
+        assertEquals(CoordinatorAction.Status.SUBMITTED, actions.get(1).getStatus());
+        CoordinatorActionBean action = actions.get(2);
+        assertEquals(action3.getId(), action.getId());
+        assertEquals(job.getId(), action.getJobId());
+        assertEquals(CoordinatorAction.Status.RUNNING, action.getStatus());
+        assertEquals("wf-id", action.getExternalId());
+        assertNull(action.getActionXml());
+
+        // paging
+        actions = jpaService.execute(new CoordActionsGetForRecoveryColumnsJPAExecutor(0, null, 2));
+        assertEquals(2, actions.size());
+        actions = jpaService.execute(new CoordActionsGetForRecoveryColumnsJPAExecutor(0, actions.get(1).getId(), 2));
+        assertEquals(1, actions.size());
+        assertEquals(action3.getId(), actions.get(0).getId());
+
+        // modified recently
+        actions = jpaService.execute(new CoordActionsGetForRecoveryColumnsJPAExecutor(600, null, 0));
+        assertEquals(0, actions.size());
+    }
+
+}
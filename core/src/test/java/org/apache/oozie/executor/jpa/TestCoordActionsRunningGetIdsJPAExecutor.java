@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.List;
+
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordActionsRunningGetIdsJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordActionsRunningGetIds() throws Exception {
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        CoordinatorActionBean action1 = addRecordToCoordActionTable(job.getId(), 1,
+                CoordinatorAction.Status.RUNNING, "coord-action-get.xml", 0);
+        CoordinatorActionBean action2 = addRecordToCoordActionTable(job.getId(), 2,
+                CoordinatorAction.Status.RUNNING, "coord-action-get.xml", 0);
+        addRecordToCoordActionTable(job.getId(), 3, CoordinatorAction.Status.SUCCEEDED, "coord-action-get.xml", 0);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<String> ids = jpaService.execute(new CoordActionsRunningGetIdsJPAExecutor(0, null, 0));
+        assertEquals(2, ids.size());
+        assertEquals(action1.getId(), ids.get(0));
+        assertEquals(action2.getId(), ids.get(1));
+
+        // paging
+        ids = jpaService.execute(new CoordActionsRunningGetIdsJPAExecutor(0, null, 1));
+        assertEquals(1, ids.size());
+        assertEquals(action1.getId(), ids.get(0));
+        ids = jpaService.execute(new CoordActionsRunningGetIdsJPAExecutor(0, action1.getId(), 1));
+        assertEquals(1, ids.size());
+        assertEquals(action2.getId(), ids.get(0));
+
+        // modified recently
+        ids = jpaService.execute(new CoordActionsRunningGetIdsJPAExecutor(600, null, 0));
+        assertEquals(0, ids.size());
+    }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordJobUpdateStatusPendingJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordJobUpdateStatusPending() throws Exception {
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, true, false);
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+
+        Date lastModifiedTime = new Date(System.currentTimeMillis() + 60 * 60 * 1000);
+        job.setStatus(CoordinatorJob.Status.SUCCEEDED);
+        job.resetPending();
+        job.setLastModifiedTime(lastModifiedTime);
+        int updated = jpaService.execute(new CoordJobUpdateStatusPendingJPAExecutor(job,
+                                                                                  CoordinatorJob.Status.RUNNING));
+        assertEquals(1, updated);
+        CoordinatorJobBean stored = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        assertEquals(CoordinatorJob.Status.SUCCEEDED, stored.getStatus());
+        assertFalse(stored.isPending());
+        assertEquals(lastModifiedTime.getTime() / 1000, stored.getLastModifiedTime().getTime() / 1000);
+        assertEquals(job.getJobXml(), stored.getJobXml());
+
+        // a status changed since the job was read is not overwritten
+        job.setStatus(CoordinatorJob.Status.RUNNING);
+        job.setPending();
+        updated = jpaService.execute(new CoordJobUpdateStatusPendingJPAExecutor(job,
+                                                                              CoordinatorJob.Status.RUNNING));
+        assertEquals(0, updated);
+        stored = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        assertEquals(CoordinatorJob.Status.SUCCEEDED, stored.getStatus());
+        assertFalse(stored.isPending());
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordJobsGetForMaterializationJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordJobsGetForMaterialization() throws Exception {
+        long now = System.currentTimeMillis();
+        CoordinatorJobBean job1 = addJob(CoordinatorJob.Status.RUNNING, new Date(now - 3 * 60 * 1000));
+        CoordinatorJobBean job2 = addJob(CoordinatorJob.Status.PREP, new Date(now - 2 * 60 * 1000));
+        CoordinatorJobBean job3 = addJob(CoordinatorJob.Status.RUNNING, new Date(now - 60 * 1000));
+        // not qualified, modified after the sweep started or not running
+        addJob(CoordinatorJob.Status.RUNNING, new Date(now + 60 * 1000));
+        addJob(CoordinatorJob.Status.SUCCEEDED, new Date(now - 60 * 1000));
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        Date matTime = new Date(now + 300 * 1000);
+        Date sweepTime = new Date(now);
+        List<CoordinatorJobBean> jobs = jpaService.execute(new CoordJobsGetForMaterializationJPAExecutor(matTime,
+                                                                                                         sweepTime, 0));
+        assertEquals(3, jobs.size());
+        assertEquals(job1.getId(), jobs.get(0).getId());
+        assertEquals(job2.getId(), jobs.get(1).getId());
+        assertEquals(job3.getId(), jobs.get(2).getId());
+        assertEquals(1, jobs.get(0).getMatThrottling());
+        assertEquals(job1.getLastModifiedTime().getTime() / 1000, jobs.get(0).getLastModifiedTime().getTime() / 1000);
+        assertNull(jobs.get(0).getJobXml());
+
+        // paging
+        jobs = jpaService.execute(new CoordJobsGetForMaterializationJPAExecutor(matTime, sweepTime, 2));
+        assertEquals(2, jobs.size());
+        jobs = jpaService.execute(new CoordJobsGetForMaterializationJPAExecutor(matTime, sweepTime, jobs.get(1), 2));
+        assertEquals(1, jobs.size());
+        assertEquals(job3.getId(), jobs.get(0).getId());
+        jobs = jpaService.execute(new CoordJobsGetForMaterializationJPAExecutor(matTime, sweepTime, jobs.get(0), 2));
+        assertEquals(0, jobs.size());
+    }
+
+    private CoordinatorJobBean addJob(CoordinatorJob.Status status, Date lastModifiedTime) throws Exception {
+        CoordinatorJobBean coordJob = createCoordJob(status, false, false);
+        coordJob.setLastModifiedTime(lastModifiedTime);
+        Services.get().get(JPAService.class).execute(new CoordJobInsertJPAExecutor(coordJob));
+        return coordJob;
+    }
+
+}
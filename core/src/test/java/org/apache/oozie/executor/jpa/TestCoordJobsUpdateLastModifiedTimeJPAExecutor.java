@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+
+public class TestCoordJobsUpdateLastModifiedTimeJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testCoordJobsUpdateLastModifiedTime() throws Exception {
+        CoordinatorJobBean job1 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        CoordinatorJobBean job2 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+        CoordinatorJobBean job3 = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, false, false);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        Date lastModifiedTime = new Date(System.currentTimeMillis() + 60 * 60 * 1000);
+        int updated = jpaService.execute(new CoordJobsUpdateLastModifiedTimeJPAExecutor(
+                Arrays.asList(job1.getId(), job2.getId()), lastModifiedTime));
+        assertEquals(2, updated);
+
+        CoordinatorJobBean job = jpaService.execute(new CoordJobGetJPAExecutor(job1.getId()));
+        assertEquals(lastModifiedTime.getTime() / 1000, job.getLastModifiedTime().getTime() / 1000);
+        assertEquals(job1.getJobXml(), job.getJobXml());
+        job = jpaService.execute(new CoordJobGetJPAExecutor(job2.getId()));
+        assertEquals(lastModifiedTime.getTime() / 1000, job.getLastModifiedTime().getTime() / 1000);
+        job = jpaService.execute(new CoordJobGetJPAExecutor(job3.getId()));
+        assertEquals(job3.getLastModifiedTime().getTime() / 1000, job.getLastModifiedTime().getTime() / 1000);
+
+        updated = jpaService.execute(new CoordJobsUpdateLastModifiedTimeJPAExecutor(new ArrayList<String>(),
+                                                                                   lastModifiedTime));
+        assertEquals(0, updated);
+    }
+
+}
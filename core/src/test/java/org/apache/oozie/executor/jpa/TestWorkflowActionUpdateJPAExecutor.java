@@ -63,4 +63,46 @@ public class TestWorkflowActionUpdateJPAExecutor extends XDataTestCase {
         assertEquals(action2.getStatus(), WorkflowAction.Status.RUNNING);
     }
 
+    public void testWorkflowActionPartialUpdate() throws Exception {
+        WorkflowJobBean job = this.addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        WorkflowActionBean action = addRecordToWfActionTable(job.getId(), "1", WorkflowAction.Status.PREP);
+        JPAService jpaService = Services.get().get(JPAService.class);
+
+        WorkflowActionGetJPAExecutor actionGetCmd = new WorkflowActionGetJPAExecutor(action.getId());
+        WorkflowActionBean action1 = jpaService.execute(actionGetCmd);
+        WorkflowActionBean action2 = jpaService.execute(actionGetCmd);
+        assertTrue(action1.getDirtyFields().isEmpty());
+
+        // a status only transition does not write the LOB columns
+        action1.setStatus(WorkflowAction.Status.RUNNING);
+        action1.setPending();
+        assertEquals(3, action1.getDirtyFields().size());
+        assertTrue(action1.getDirtyFields().containsKey("status"));
+        assertTrue(action1.getDirtyFields().containsKey("pending"));
+        assertTrue(action1.getDirtyFields().containsKey("pendingAgeTimestamp"));
+        action2.setConf("<configuration/>");
+        action2.setData("data");
+        jpaService.execute(new WorkflowActionUpdateJPAExecutor(action2));
+        jpaService.execute(new WorkflowActionUpdateJPAExecutor(action1));
+        assertTrue(action1.getDirtyFields().isEmpty());
+
+        WorkflowActionBean action3 = jpaService.execute(actionGetCmd);
+        assertEquals(WorkflowAction.Status.RUNNING, action3.getStatus());
+        assertTrue(action3.isPending());
+        assertEquals("<configuration/>", action3.getConf());
+        assertEquals("data", action3.getData());
+
+        // a bean that is not tracked is fully written
+        WorkflowActionBean action4 = new WorkflowActionBean();
+        action4.setId(action3.getId());
+        action4.setJobId(action3.getJobId());
+        action4.setName(action3.getName());
+        action4.setStatus(WorkflowAction.Status.OK);
+        assertNull(action4.getDirtyFields());
+        jpaService.execute(new WorkflowActionUpdateJPAExecutor(action4));
+        WorkflowActionBean action5 = jpaService.execute(actionGetCmd);
+        assertEquals(WorkflowAction.Status.OK, action5.getStatus());
+        assertNull(action5.getConf());
+    }
+
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestWorkflowActionsGetPendingColumnsJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testWfActionsGetPendingColumns() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        addRecordToWfActionTable(job.getId(), "1", WorkflowAction.Status.OK);
+        Date pendingAge = new Date(System.currentTimeMillis() - 60 * 1000);
+        WorkflowActionBean action2 = addPendingAction(job.getId(), "2", WorkflowAction.Status.PREP, pendingAge);
+        WorkflowActionBean action3 = addPendingAction(job.getId(), "3", WorkflowAction.Status.END_RETRY, pendingAge);
+        addPendingAction(job.getId(), "4", WorkflowAction.Status.RUNNING, pendingAge);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<WorkflowActionBean> actions = jpaService.execute(new WorkflowActionsGetPendingColumnsJPAExecutor(10,
+                                                                                                              null, 0));
+        assertEquals(2, actions.size());
+        WorkflowActionBean action = actions.get(0);
+        assertEquals(action2.getId(), action.getId());
+        assertEquals(job.getId(), action.getJobId());
+        assertEquals(WorkflowAction.Status.PREP, action.getStatus());
+        assertEquals("map-reduce", action.getType());
+        assertEquals(pendingAge.getTime() / 1000, action.getPendingAge().getTime() / 1000);
+        assertNull(action.getConf());
+        assertEquals(WorkflowAction.Status.END_RETRY, actions.get(1).getStatus());
+
+        // paging
+        actions = jpaService.execute(new WorkflowActionsGetPendingColumnsJPAExecutor(10, null, 1));
+        assertEquals(1, actions.size());
+        actions = jpaService.execute(new WorkflowActionsGetPendingColumnsJPAExecutor(10, actions.get(0).getId(), 1));
+        assertEquals(1, actions.size());
+        assertEquals(action3.getId(), actions.get(0).getId());
+        actions = jpaService.execute(new WorkflowActionsGetPendingColumnsJPAExecutor(10, action3.getId(), 1));
+        assertEquals(0, actions.size());
+    }
+
+    private WorkflowActionBean addPendingAction(String wfId, String actionName, WorkflowAction.Status status,
+                                                Date pendingAge) throws Exception {
+        WorkflowActionBean action = createWorkflowAction(wfId, actionName, status);
+        action.setConf("<configuration/>");
+        action.setPending();
+        action.setPendingAge(pendingAge);
+        Services.get().get(JPAService.class).execute(new WorkflowActionInsertJPAExecutor(action));
+        return action;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.executor.jpa;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.JPAService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestWorkflowActionsRunningGetIdsJPAExecutor extends XDataTestCase {
+    Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testWfActionsRunningGetIds() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        addRecordToWfActionTable(job.getId(), "1", WorkflowAction.Status.OK);
+        WorkflowActionBean action2 = addRunningAction(job.getId(), "2");
+        WorkflowActionBean action3 = addRunningAction(job.getId(), "3");
+        WorkflowActionBean action4 = addRunningAction(job.getId(), "4");
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<String> ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, null, 0));
+        assertEquals(3, ids.size());
+        assertEquals(action2.getId(), ids.get(0));
+        assertEquals(action3.getId(), ids.get(1));
+        assertEquals(action4.getId(), ids.get(2));
+
+        // paging
+        ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, null, 2));
+        assertEquals(2, ids.size());
+        assertEquals(action3.getId(), ids.get(1));
+        ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, ids.get(1), 2));
+        assertEquals(1, ids.size());
+        assertEquals(action4.getId(), ids.get(0));
+
+        // checked recently
+        ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(600, null, 0));
+        assertEquals(0, ids.size());
+    }
+
+    public void testWfActionsRunningGetIdsOfTypes() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        WorkflowActionBean action1 = addRunningAction(job.getId(), "1", "java");
+        WorkflowActionBean action2 = addRunningAction(job.getId(), "2", "fs");
+        WorkflowActionBean action3 = addRunningAction(job.getId(), "3", "pig");
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        assertNotNull(jpaService);
+        List<String> types = Arrays.asList("java", "pig");
+        List<String> ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, null, 0, types, true));
+        assertEquals(2, ids.size());
+        assertEquals(action1.getId(), ids.get(0));
+        assertEquals(action3.getId(), ids.get(1));
+
+        ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, null, 0, types, false));
+        assertEquals(1, ids.size());
+        assertEquals(action2.getId(), ids.get(0));
+
+        // no types, all the actions
+        ids = jpaService.execute(new WorkflowActionsRunningGetIdsJPAExecutor(10, null, 0, null, true));
+        assertEquals(3, ids.size());
+    }
+
+    private WorkflowActionBean addRunningAction(String wfId, String actionName) throws Exception {
+        return addRunningAction(wfId, actionName, null);
+    }
+
+    private WorkflowActionBean addRunningAction(String wfId, String actionName, String type) throws Exception {
+        WorkflowActionBean action = createWorkflowAction(wfId, actionName, WorkflowAction.Status.RUNNING);
+        if (type != null) {
+            action.setType(type);
+        }
+        action.setPending();
+        action.setLastCheckTime(new Date(System.currentTimeMillis() - 60 * 1000));
+        Services.get().get(JPAService.class).execute(new WorkflowActionInsertJPAExecutor(action));
+        return action;
+    }
+
+}
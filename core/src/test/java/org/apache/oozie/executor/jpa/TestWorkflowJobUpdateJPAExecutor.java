@@ -66,4 +66,28 @@ public class TestWorkflowJobUpdateJPAExecutor extends XDataTestCase {
         assertEquals(wfBean2.getStatusStr(), "RUNNING");
     }
 
-}
\ No newline at end of file
+    public void testWorkflowJobPartialUpdate() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+
+        JPAService jpaService = Services.get().get(JPAService.class);
+        WorkflowJobGetJPAExecutor wfGetCmd = new WorkflowJobGetJPAExecutor(job.getId());
+        WorkflowJobBean wfBean1 = jpaService.execute(wfGetCmd);
+        WorkflowJobBean wfBean2 = jpaService.execute(wfGetCmd);
+        assertTrue(wfBean1.getDirtyFields().isEmpty());
+
+        // only the status and the last modified time are written, the LOB columns are not
+        wfBean1.setStatus(WorkflowJob.Status.RUNNING);
+        assertEquals(1, wfBean1.getDirtyFields().size());
+        wfBean2.setProtoActionConf("<configuration/>");
+        jpaService.execute(new WorkflowJobUpdateJPAExecutor(wfBean2));
+        jpaService.execute(new WorkflowJobUpdateJPAExecutor(wfBean1));
+        assertTrue(wfBean1.getDirtyFields().isEmpty());
+
+        WorkflowJobBean wfBean3 = jpaService.execute(wfGetCmd);
+        assertEquals(WorkflowJob.Status.RUNNING, wfBean3.getStatus());
+        assertEquals("<configuration/>", wfBean3.getProtoActionConf());
+        assertEquals(job.getConf(), wfBean3.getConf());
+        assertEquals(WorkflowInstance.Status.PREP, wfBean3.getWorkflowInstance().getStatus());
+    }
+
+}
@@ -14,6 +14,7 @@
  */
 package org.apache.oozie.service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -596,4 +597,61 @@ public class TestCallableQueueService extends XTestCase {
         services.destroy();
     }
 
+    public void testConcurrentQueuing() throws Exception {
+        Services services = new Services();
+        services.init();
+        final CallableQueueService queueservice = services.get(CallableQueueService.class);
+
+        final AtomicInteger executions = new AtomicInteger();
+        final List<MyCallable> callables = new ArrayList<MyCallable>();
+        for (int i = 0; i < 50; i++) {
+            callables.add(new MyCallable("ConcurrentQueuing" + i, "ConcurrentQueuing" + (i % 5), 0, 0) {
+                @Override
+                public Void call() throws Exception {
+                    executions.incrementAndGet();
+                    return super.call();
+                }
+            });
+        }
+
+        // all producers queue the same callables, the delay keeps them queued until all producers are done,
+        // each key must be queued only once
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            producers.add(new Thread() {
+                public void run() {
+                    for (MyCallable c : callables) {
+                        queueservice.queue(c, 2000);
+                    }
+                }
+            });
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        waitFor(6000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                for (MyCallable c : callables) {
+                    if (c.executed == 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+
+        for (MyCallable c : callables) {
+            assertTrue(c.executed != 0);
+        }
+        assertEquals(50, executions.get());
+        assertNotNull(services.get(InstrumentationService.class).get().getTimers().get("callablequeue")
+                .get("time.admission"));
+
+        services.destroy();
+    }
+
 }
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestCoordInputCheckBackoffService extends XTestCase {
+    private static final long MINUTE = 60 * 1000;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (Services.get() != null) {
+            Services.get().destroy();
+        }
+        super.tearDown();
+    }
+
+    public void testDelay() throws Exception {
+        new Services().init();
+        CoordInputCheckBackoffService backoff = Services.get().get(CoordInputCheckBackoffService.class);
+        String jobId = getTestCaseDir() + "-delay";
+        assertEquals(-1, backoff.getLateness(jobId));
+
+        // min and max intervals
+        assertEquals(MINUTE, backoff.getDelay(jobId, 0, -1, -1));
+        assertEquals(MINUTE, backoff.getDelay(jobId, 5 * MINUTE, -1, -1));
+        assertEquals(3 * MINUTE, backoff.getDelay(jobId, 30 * MINUTE, -1, -1));
+        assertEquals(5 * MINUTE, backoff.getDelay(jobId, 24 * 60 * MINUTE, -1, -1));
+
+        // bounded by the frequency and by the time left before the timeout, even below the min interval
+        assertEquals(4 * MINUTE, backoff.getDelay(jobId, 24 * 60 * MINUTE, 4 * MINUTE, -1));
+        assertEquals(2 * MINUTE, backoff.getDelay(jobId, 24 * 60 * MINUTE, -1, 2 * MINUTE));
+        assertEquals(MINUTE / 2, backoff.getDelay(jobId, 24 * 60 * MINUTE, -1, MINUTE / 2));
+        assertEquals(0, backoff.getDelay(jobId, 24 * 60 * MINUTE, -1, 0));
+    }
+
+    public void testLateness() throws Exception {
+        setSystemProperty(CoordInputCheckBackoffService.CONF_MAX_INTERVAL, "600");
+        new Services().init();
+        CoordInputCheckBackoffService backoff = Services.get().get(CoordInputCheckBackoffService.class);
+        String jobId = getTestCaseDir() + "-lateness";
+        backoff.recordArrival(jobId, 60 * MINUTE);
+        assertEquals(60 * MINUTE, backoff.getLateness(jobId));
+        backoff.recordArrival(jobId, 50 * MINUTE);
+        assertEquals(57 * MINUTE, backoff.getLateness(jobId));
+
+        // half way to the usual arrival time
+        assertEquals(10 * MINUTE, backoff.getDelay(jobId, 0, -1, -1));
+        assertEquals(8 * MINUTE + MINUTE / 2, backoff.getDelay(jobId, 40 * MINUTE, -1, -1));
+        assertEquals(MINUTE, backoff.getDelay(jobId, 56 * MINUTE, -1, -1));
+        // late, back to the waiting time backoff
+        assertEquals(9 * MINUTE, backoff.getDelay(jobId, 90 * MINUTE, -1, -1));
+    }
+
+    public void testDestroy() throws Exception {
+        new Services().init();
+        String jobId = getTestCaseDir() + "-destroy";
+        Services.get().get(CoordInputCheckBackoffService.class).recordArrival(jobId, 60 * MINUTE);
+        assertEquals(60 * MINUTE, Services.get().get(CoordInputCheckBackoffService.class).getLateness(jobId));
+        Services.get().destroy();
+
+        // the lateness does not outlive the services
+        new Services().init();
+        assertEquals(-1, Services.get().get(CoordInputCheckBackoffService.class).getLateness(jobId));
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestDatasetAvailabilityService extends XTestCase {
+
+    private static class MyDatasetAvailabilityService extends DatasetAvailabilityService {
+        private Set<String> available = Collections.synchronizedSet(new HashSet<String>());
+        private AtomicInteger checks = new AtomicInteger();
+        private CountDownLatch latch;
+        private long latency;
+        private ConcurrentHashMap<String, AtomicInteger> concurrent = new ConcurrentHashMap<String, AtomicInteger>();
+        private Map<String, Integer> maxConcurrent = new ConcurrentHashMap<String, Integer>();
+
+        @Override
+        protected boolean checkExists(String uri, String user, String group) throws IOException {
+            checks.incrementAndGet();
+            if (latency > 0) {
+                String fileSystem = String.valueOf(new Path(uri).toUri().getAuthority());
+                concurrent.putIfAbsent(fileSystem, new AtomicInteger());
+                int count = concurrent.get(fileSystem).incrementAndGet();
+                synchronized (maxConcurrent) {
+                    if (!maxConcurrent.containsKey(fileSystem) || maxConcurrent.get(fileSystem) < count) {
+                        maxConcurrent.put(fileSystem, count);
+                    }
+                }
+                try {
+                    Thread.sleep(latency);
+                }
+                catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+                finally {
+                    concurrent.get(fileSystem).decrementAndGet();
+                }
+            }
+            if (latch != null) {
+                try {
+                    latch.await();
+                }
+                catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            if (uri.startsWith("error")) {
+                throw new IOException("error");
+            }
+            return available.contains(uri);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(DatasetAvailabilityService.CONF_NEGATIVE_TTL, "1");
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private MyDatasetAvailabilityService createService(Instrumentation instr) throws Exception {
+        MyDatasetAvailabilityService service = new MyDatasetAvailabilityService();
+        service.init(Services.get());
+        service.instrument(instr);
+        return service;
+    }
+
+    public void testCache() throws Exception {
+        MyDatasetAvailabilityService service = createService(new Instrumentation());
+
+        // negative results are cached for the TTL
+        assertFalse(service.exists("a", getTestUser(), getTestGroup()));
+        service.available.add("a");
+        assertFalse(service.exists("a", getTestUser(), getTestGroup()));
+        assertEquals(1, service.checks.get());
+        Thread.sleep(1100);
+        assertTrue(service.exists("a", getTestUser(), getTestGroup()));
+        assertEquals(2, service.checks.get());
+
+        // positive results are cached until purged
+        service.available.remove("a");
+        Thread.sleep(1100);
+        assertTrue(service.exists("a", getTestUser(), getTestGroup()));
+        assertEquals(2, service.checks.get());
+
+        // failed checks are not cached
+        try {
+            service.exists("error", getTestUser(), getTestGroup());
+            fail();
+        }
+        catch (IOException ex) {
+            //nop
+        }
+        try {
+            service.exists("error", getTestUser(), getTestGroup());
+            fail();
+        }
+        catch (IOException ex) {
+            //nop
+        }
+        assertEquals(4, service.checks.get());
+    }
+
+    public void testPurge() throws Exception {
+        Services.get().getConf().set(DatasetAvailabilityService.CONF_POSITIVE_RETENTION, "1");
+        MyDatasetAvailabilityService service = createService(new Instrumentation());
+        service.available.add("a");
+        assertTrue(service.exists("a", getTestUser(), getTestGroup()));
+        assertFalse(service.exists("b", getTestUser(), getTestGroup()));
+        service.purge();
+        assertTrue(service.exists("a", getTestUser(), getTestGroup()));
+        assertEquals(2, service.checks.get());
+
+        Thread.sleep(1100);
+        service.purge();
+        service.available.remove("a");
+        assertFalse(service.exists("a", getTestUser(), getTestGroup()));
+        assertEquals(3, service.checks.get());
+    }
+
+    public void testConcurrentChecks() throws Exception {
+        final Instrumentation instr = new Instrumentation();
+        final MyDatasetAvailabilityService service = createService(instr);
+        service.available.add("a");
+        service.latch = new CountDownLatch(1);
+        final AtomicInteger found = new AtomicInteger();
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        if (service.exists("a", getTestUser(), getTestGroup())) {
+                            found.incrementAndGet();
+                        }
+                    }
+                    catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        // all the threads but the one checking wait for the check in progress
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                Map<String, Instrumentation.Element<Long>> counters = instr.getCounters().get("dataset-availability");
+                return counters.containsKey(DatasetAvailabilityService.INSTR_DEDUPLICATED)
+                        && counters.get(DatasetAvailabilityService.INSTR_DEDUPLICATED).getValue() == 4;
+            }
+        });
+        service.latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length, found.get());
+        assertEquals(1, service.checks.get());
+    }
+
+    public void testAvailableCount() throws Exception {
+        Services.get().getConf().setInt(DatasetAvailabilityService.CONF_CHECKS_PER_FILESYSTEM, 2);
+        MyDatasetAvailabilityService service = createService(new Instrumentation());
+        service.latency = 50;
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            String uri = "hdfs://nn" + (i % 2) + ":8020/data/" + i;
+            uris.add(uri);
+            service.available.add(uri);
+        }
+        assertEquals(0, service.getAvailableCount(new ArrayList<String>(), getTestUser(), getTestGroup()));
+        long start = System.currentTimeMillis();
+        assertEquals(20, service.getAvailableCount(uris, getTestUser(), getTestGroup()));
+        // 2 file systems, 2 concurrent checks each
+        assertTrue(System.currentTimeMillis() - start < 20 * 50);
+        assertEquals(20, service.checks.get());
+        assertEquals(2, service.maxConcurrent.size());
+        for (int max : service.maxConcurrent.values()) {
+            assertTrue(max <= 2);
+        }
+
+        // positive results are cached
+        assertEquals(20, service.getAvailableCount(uris, getTestUser(), getTestGroup()));
+        assertEquals(20, service.checks.get());
+
+        // the count stops at the first URI not available
+        uris.add(5, "hdfs://nn0:8020/data/missing");
+        assertEquals(5, service.getAvailableCount(uris, getTestUser(), getTestGroup()));
+        uris.add(0, "hdfs://nn1:8020/data/missing");
+        assertEquals(0, service.getAvailableCount(uris, getTestUser(), getTestGroup()));
+
+        uris.add(3, "error");
+        service.available.add("hdfs://nn1:8020/data/missing");
+        Thread.sleep(1100);
+        try {
+            service.getAvailableCount(uris, getTestUser(), getTestGroup());
+            fail();
+        }
+        catch (IOException ex) {
+            //nop
+        }
+        service.destroy();
+    }
+
+    public void testExistsInFileSystem() throws Exception {
+        DatasetAvailabilityService service = Services.get().get(DatasetAvailabilityService.class);
+        assertNotNull(service);
+        File file = new File(getTestCaseDir(), "_SUCCESS");
+        String uri = "file://" + file.getAbsolutePath();
+        assertFalse(service.exists(uri, getTestUser(), getTestGroup()));
+        assertTrue(file.createNewFile());
+        Thread.sleep(1100);
+        assertTrue(service.exists(uri, getTestUser(), getTestGroup()));
+
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(2, instr.getCounters().get("dataset-availability").get(DatasetAvailabilityService.INSTR_CHECKS)
+                .getValue().longValue());
+        Instrumentation.Element<?> cacheSize = instr.getVariables().get("dataset-availability").get(
+                DatasetAvailabilityService.INSTR_CACHE_SIZE);
+        assertEquals(1L, cacheSize.getValue());
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.File;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestDatasetIndexService extends XTestCase {
+    private Configuration conf = new Configuration();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(DatasetAvailabilityService.CONF_NEGATIVE_TTL, "0");
+        setSystemProperty(DatasetIndexService.CONF_LISTING_TTL, "1");
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private DatasetIndexService createService(Instrumentation instr) throws Exception {
+        DatasetIndexService service = new DatasetIndexService();
+        service.init(Services.get());
+        service.instrument(instr);
+        return service;
+    }
+
+    private long getCounter(Instrumentation instr, String name) {
+        Instrumentation.Element<Long> counter = instr.getCounters().get("dataset-index").get(name);
+        return (counter != null) ? counter.getValue() : 0;
+    }
+
+    public void testGetListableParent() throws Exception {
+        assertEquals("hdfs://nn/data", DatasetIndexService.getListableParent("hdfs://nn/data/${YEAR}${MONTH}"));
+        assertEquals("hdfs://nn/data", DatasetIndexService.getListableParent("hdfs://nn/data/${YEAR}-${MONTH}/"));
+        assertEquals("file:///tmp", DatasetIndexService.getListableParent("file:///tmp/${YEAR}"));
+        assertNull(DatasetIndexService.getListableParent("hdfs://nn/data/${YEAR}/${MONTH}"));
+        assertNull(DatasetIndexService.getListableParent("hdfs://nn/${YEAR}"));
+        assertNull(DatasetIndexService.getListableParent("hdfs://nn/data/static"));
+    }
+
+    public void testListing() throws Exception {
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        String template = dir + "/${YEAR}${MONTH}${DAY}";
+        new File(getTestCaseDir(), "20090101").mkdir();
+        new File(getTestCaseDir(), "20090103").mkdir();
+
+        // a single listing resolves all the instances of a dataset without done flag
+        assertTrue(service.isAvailable(template, "", dir + "/20090101", getTestUser(), getTestGroup(), conf));
+        assertFalse(service.isAvailable(template, "", dir + "/20090102", getTestUser(), getTestGroup(), conf));
+        assertTrue(service.isAvailable(template, "", dir + "/20090103", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_LISTING_MISSES));
+        assertEquals(0, getCounter(instr, DatasetIndexService.INSTR_CHECKS));
+
+        // available instances are indexed, new instances are seen once the listing expires
+        new File(getTestCaseDir(), "20090102").mkdir();
+        assertFalse(service.isAvailable(template, "", dir + "/20090102", getTestUser(), getTestGroup(), conf));
+        Thread.sleep(1100);
+        assertTrue(service.isAvailable(template, "", dir + "/20090101", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertTrue(service.isAvailable(template, "", dir + "/20090102", getTestUser(), getTestGroup(), conf));
+        assertEquals(2, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+
+        // a missing parent directory is an empty listing
+        String missing = dir + "/missing";
+        assertFalse(service.isAvailable(missing + "/${YEAR}", "", missing + "/2009", getTestUser(), getTestGroup(),
+                                        conf));
+    }
+
+    public void testDoneFlag() throws Exception {
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        String template = dir + "/${YEAR}${MONTH}${DAY}";
+        new File(getTestCaseDir(), "20090101").mkdir();
+        new File(getTestCaseDir(), "20090102").mkdir();
+        new File(getTestCaseDir(), "20090102/_SUCCESS").createNewFile();
+
+        // instances not in the listing are not checked, instances in the listing are checked for the done flag
+        assertFalse(service.isAvailable(template, "_SUCCESS", dir + "/20090101", getTestUser(), getTestGroup(), conf));
+        assertTrue(service.isAvailable(template, "_SUCCESS", dir + "/20090102", getTestUser(), getTestGroup(), conf));
+        assertFalse(service.isAvailable(template, "_SUCCESS", dir + "/20090103", getTestUser(), getTestGroup(), conf));
+        assertEquals(2, getCounter(instr, DatasetIndexService.INSTR_CHECKS));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_LISTING_MISSES));
+
+        // the done flag is part of the dataset index
+        assertTrue(service.isAvailable(template, "_SUCCESS", dir + "/20090102", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+        assertTrue(service.isAvailable(template, "", dir + "/20090101", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+    }
+
+    public void testInstanceUri() throws Exception {
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        String template = dir + "/${YEAR}${MONTH}${DAY}";
+        new File(getTestCaseDir(), "20090101").mkdir();
+
+        // datasets with the same template in different timezones resolve the same instance time to different URIs,
+        // the index is keyed by the instance URI
+        assertTrue(service.isAvailable(template, "", dir + "/20090101", getTestUser(), getTestGroup(), conf));
+        assertFalse(service.isAvailable(template, "", dir + "/20081231", getTestUser(), getTestGroup(), conf));
+        assertTrue(service.isAvailable(template, "", dir + "/20090101/", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+    }
+
+    public void testListingPerUser() throws Exception {
+        Services.get().getConf().setInt(DatasetIndexService.CONF_LISTING_TTL, 60);
+        Services.get().getConf().setInt(DatasetIndexService.CONF_MAX_LISTINGS, 2);
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        new File(getTestCaseDir(), "a/20090101").mkdirs();
+        new File(getTestCaseDir(), "b/20090101").mkdirs();
+        String templateA = dir + "/a/${YEAR}${MONTH}${DAY}";
+        String templateB = dir + "/b/${YEAR}${MONTH}${DAY}";
+
+        // the listings are cached per user
+        assertFalse(service.isAvailable(templateA, "", dir + "/a/20090102", getTestUser(), getTestGroup(), conf));
+        assertFalse(service.isAvailable(templateA, "", dir + "/a/20090103", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertFalse(service.isAvailable(templateA, "", dir + "/a/20090102", getTestUser2(), getTestGroup(), conf));
+        assertEquals(2, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+
+        // the least recently used listing is dropped
+        assertFalse(service.isAvailable(templateB, "", dir + "/b/20090102", getTestUser(), getTestGroup(), conf));
+        assertEquals(3, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertFalse(service.isAvailable(templateA, "", dir + "/a/20090102", getTestUser2(), getTestGroup(), conf));
+        assertEquals(3, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertFalse(service.isAvailable(templateA, "", dir + "/a/20090102", getTestUser(), getTestGroup(), conf));
+        assertEquals(4, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+    }
+
+    public void testNotListable() throws Exception {
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        String template = dir + "/${YEAR}/${MONTH}";
+        new File(getTestCaseDir(), "2009/01").mkdirs();
+
+        assertTrue(service.isAvailable(template, "", dir + "/2009/01", getTestUser(), getTestGroup(), conf));
+        assertFalse(service.isAvailable(template, "", dir + "/2009/02", getTestUser(), getTestGroup(), conf));
+        assertTrue(service.isAvailable(template, "", dir + "/2009/01", getTestUser(), getTestGroup(), conf));
+        assertEquals(0, getCounter(instr, DatasetIndexService.INSTR_LISTINGS));
+        assertEquals(2, getCounter(instr, DatasetIndexService.INSTR_CHECKS));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+    }
+
+    public void testInstanceTtl() throws Exception {
+        Services.get().getConf().setInt(DatasetIndexService.CONF_INSTANCE_TTL, 1);
+        Instrumentation instr = new Instrumentation();
+        DatasetIndexService service = createService(instr);
+        String dir = "file://" + getTestCaseDir();
+        String template = dir + "/${YEAR}/${MONTH}";
+        File instance = new File(getTestCaseDir(), "2009/01");
+        instance.mkdirs();
+
+        assertTrue(service.isAvailable(template, "", dir + "/2009/01", getTestUser(), getTestGroup(), conf));
+        instance.delete();
+        assertTrue(service.isAvailable(template, "", dir + "/2009/01", getTestUser(), getTestGroup(), conf));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+
+        // an instance deleted after it was indexed is not available once its entry expires
+        Thread.sleep(1100);
+        assertFalse(service.isAvailable(template, "", dir + "/2009/01", getTestUser(), getTestGroup(), conf));
+        assertEquals(2, getCounter(instr, DatasetIndexService.INSTR_CHECKS));
+        assertEquals(1, getCounter(instr, DatasetIndexService.INSTR_INDEX_HITS));
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestDependencyRegistryService extends XTestCase {
+
+    private static class MyDependencyRegistryService extends DependencyRegistryService {
+        private List<String> queued = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        protected void queueInputCheck(String actionId) {
+            queued.add(actionId);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(DatasetAvailabilityService.CONF_NEGATIVE_TTL, "0");
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private MyDependencyRegistryService createRegistry() throws Exception {
+        MyDependencyRegistryService registry = new MyDependencyRegistryService();
+        registry.init(Services.get());
+        return registry;
+    }
+
+    public void testRegister() throws Exception {
+        MyDependencyRegistryService registry = createRegistry();
+        assertNotNull(Services.get().get(DependencyRegistryService.class));
+        assertTrue(registry.getSource() instanceof PollingDependencyAvailabilitySource);
+
+        registry.register("a1", Arrays.asList("u1", "u2"), getTestUser(), getTestGroup());
+        registry.register("a2", Arrays.asList("u1"), getTestUser(), getTestGroup());
+        registry.register("a3", Arrays.asList("u3"), getTestUser(), getTestGroup());
+        assertEquals(3, registry.getDependencies().size());
+        assertEquals(Arrays.asList("u1", "u2"), registry.getURIs("a1"));
+
+        // a new registration replaces the previous one
+        registry.register("a3", Arrays.asList("u4"), getTestUser(), getTestGroup());
+        assertEquals(3, registry.getDependencies().size());
+        assertEquals(Arrays.asList("u4"), registry.getURIs("a3"));
+
+        // only the actions waiting for the URI are queued
+        assertEquals(Arrays.asList("a1", "a2"), sort(registry.available("u1")));
+        assertEquals(Arrays.asList("a1", "a2"), sort(registry.queued));
+        assertNull(registry.getURIs("a1"));
+        assertNull(registry.getURIs("a2"));
+        assertEquals(1, registry.getDependencies().size());
+        assertEquals("u4", registry.getDependencies().get(0).getURI());
+        assertTrue(registry.available("u1").isEmpty());
+
+        assertTrue(registry.unregister("a3"));
+        assertFalse(registry.unregister("a3"));
+        assertTrue(registry.getDependencies().isEmpty());
+    }
+
+    public void testPurge() throws Exception {
+        Services.get().getConf().setInt(DependencyRegistryService.CONF_REQUEUE_INTERVAL, 1);
+        MyDependencyRegistryService registry = createRegistry();
+        registry.register("a1", Arrays.asList("u1"), getTestUser(), getTestGroup());
+        registry.purge();
+        assertNotNull(registry.getURIs("a1"));
+        Thread.sleep(2100);
+        registry.purge();
+        assertNull(registry.getURIs("a1"));
+        assertTrue(registry.getDependencies().isEmpty());
+    }
+
+    public void testPollingSource() throws Exception {
+        MyDependencyRegistryService registry = createRegistry();
+        PollingDependencyAvailabilitySource source = (PollingDependencyAvailabilitySource) registry.getSource();
+        File file = new File(getTestCaseDir(), "_SUCCESS");
+        String uri = "file://" + file.getAbsolutePath();
+        registry.register("a1", Arrays.asList(uri), getTestUser(), getTestGroup());
+        registry.register("a2", Arrays.asList(uri), getTestUser(), getTestGroup());
+        assertEquals(0, source.poll());
+        assertTrue(registry.queued.isEmpty());
+
+        assertTrue(file.createNewFile());
+        assertEquals(1, source.poll());
+        assertEquals(Arrays.asList("a1", "a2"), sort(registry.queued));
+        assertTrue(registry.getDependencies().isEmpty());
+
+        registry.destroy();
+        registry.register("a1", Arrays.asList(uri), getTestUser(), getTestGroup());
+        assertEquals(0, source.poll());
+    }
+
+    private List<String> sort(List<String> list) {
+        List<String> sorted = new ArrayList<String>(list);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+}
@@ -14,10 +14,13 @@
  */
 package org.apache.oozie.service;
 
+import java.util.Map;
+
 import javax.servlet.jsp.el.ELException;
 
 import org.apache.oozie.test.XTestCase;
 import org.apache.oozie.util.ELEvaluator;
+import org.apache.oozie.util.Instrumentation;
 
 public class TestELService extends XTestCase {
 
@@ -39,4 +42,50 @@ public class TestELService extends XTestCase {
         services.destroy();
     }
 
+    public void testEvaluatorsAreIsolated() throws Exception {
+        Services services = new Services();
+        services.init();
+        try {
+            ELEvaluator eval1 = services.get(ELService.class).createEvaluator("workflow");
+            ELEvaluator eval2 = services.get(ELService.class).createEvaluator("workflow");
+            eval1.setVariable("KB", 1L);
+            eval1.setVariable("x", "X");
+            assertEquals(Long.valueOf(1), eval1.evaluate("${KB}", Long.class));
+            assertEquals(Long.valueOf(1024), eval2.evaluate("${KB}", Long.class));
+            assertNull(eval2.getVariable("x"));
+            assertEquals(Long.valueOf(1024),
+                         services.get(ELService.class).createEvaluator("workflow").evaluate("${KB}", Long.class));
+            try {
+                services.get(ELService.class).createEvaluator("undefined");
+                fail();
+            }
+            catch (IllegalArgumentException ex) {
+                //nop
+            }
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    public void testExpressionCache() throws Exception {
+        setSystemProperty(ELService.CONF_EXPRESSION_CACHE_SIZE, "10");
+        Services services = new Services();
+        services.init();
+        try {
+            assertEquals(10, ELEvaluator.getExpressionCache().getMaxSize());
+            ELEvaluator eval = services.get(ELService.class).createEvaluator("workflow");
+            assertEquals(Long.valueOf(1024), eval.evaluate("${KB}", Long.class));
+            eval = services.get(ELService.class).createEvaluator("workflow");
+            assertEquals(Long.valueOf(1024), eval.evaluate("${KB}", Long.class));
+            Map<String, Instrumentation.Element<Instrumentation.Variable>> vars = services.get(
+                    InstrumentationService.class).get().getVariables().get(ELService.INSTRUMENTATION_GROUP);
+            assertEquals(1L, ((Instrumentation.Element) vars.get("expression.cache.hits")).getValue());
+            assertEquals(1L, ((Instrumentation.Element) vars.get("expression.cache.misses")).getValue());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
 }
@@ -15,6 +15,7 @@
 package org.apache.oozie.service;
 
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.fs.FileSystem;
@@ -78,4 +79,86 @@ public class TestHadoopAccessorService extends XTestCase {
         assertNotNull(fs);
     }
 
+    public void testJobClientPool() throws Exception {
+        HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+        JobConf conf = new JobConf();
+        conf.set("mapred.job.tracker", getJobTrackerUri());
+        conf.set("fs.default.name", getNameNodeUri());
+        injectKerberosInfo(conf);
+
+        JobClient jc1 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        JobClient jc2 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        assertNotSame(jc1, jc2);
+
+        // closing twice must not pool it twice
+        jc1.close();
+        jc1.close();
+        JobClient jc3 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        assertSame(jc1, jc3);
+        JobClient jc4 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        assertNotSame(jc1, jc4);
+
+        // other group, other pool
+        jc2.close();
+        JobClient jc5 = has.createJobClient(getTestUser(), getTestGroup() + "x", conf);
+        assertNotSame(jc2, jc5);
+        jc3.close();
+        jc4.close();
+        jc5.close();
+
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(new Long(1), instr.getCounters().get(HadoopAccessorService.INSTRUMENTATION_GROUP).get(
+                HadoopAccessorService.INSTR_JOBCLIENT_HITS).getValue());
+        assertEquals(new Long(4), instr.getCounters().get(HadoopAccessorService.INSTRUMENTATION_GROUP).get(
+                HadoopAccessorService.INSTR_JOBCLIENT_MISSES).getValue());
+        assertEquals(4, instr.getTimers().get(HadoopAccessorService.INSTRUMENTATION_GROUP).get(
+                HadoopAccessorService.INSTR_JOBCLIENT_CREATE).getValue().getTicks());
+
+        // idle for longer than the idle timeout
+        Thread.sleep(10);
+        setSystemProperty(HadoopAccessorService.CONF_POOL_IDLE_TIMEOUT, "0");
+        Services.get().destroy();
+        new Services().init();
+        has = Services.get().get(HadoopAccessorService.class);
+        jc1 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        jc1.close();
+        Thread.sleep(10);
+        has.evict();
+        assertNotSame(jc1, has.createJobClient(getTestUser(), getTestGroup(), conf));
+    }
+
+    public void testFileSystemPool() throws Exception {
+        HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+        JobConf conf = new JobConf();
+        conf.set("mapred.job.tracker", getJobTrackerUri());
+        conf.set("fs.default.name", getNameNodeUri());
+        injectKerberosInfo(conf);
+        URI uri = new URI(getNameNodeUri());
+
+        FileSystem fs = has.createFileSystem(getTestUser(), getTestGroup(), uri, conf);
+        assertSame(fs, has.createFileSystem(getTestUser(), getTestGroup(), uri, conf));
+        assertSame(fs, has.createFileSystem(getTestUser(), getTestGroup(), conf));
+
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(new Long(2), instr.getCounters().get(HadoopAccessorService.INSTRUMENTATION_GROUP).get(
+                HadoopAccessorService.INSTR_FILESYSTEM_HITS).getValue());
+        assertEquals(new Long(1), instr.getCounters().get(HadoopAccessorService.INSTRUMENTATION_GROUP).get(
+                HadoopAccessorService.INSTR_FILESYSTEM_MISSES).getValue());
+    }
+
+    public void testPoolDisabled() throws Exception {
+        setSystemProperty(HadoopAccessorService.CONF_POOL_ENABLED, "false");
+        Services.get().destroy();
+        new Services().init();
+        HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+        JobConf conf = new JobConf();
+        conf.set("mapred.job.tracker", getJobTrackerUri());
+        conf.set("fs.default.name", getNameNodeUri());
+        injectKerberosInfo(conf);
+
+        JobClient jc = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        jc.close();
+        assertNotSame(jc, has.createJobClient(getTestUser(), getTestGroup(), conf));
+    }
+
 }
@@ -14,8 +14,19 @@
 */
 package org.apache.oozie.service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.SLAEventBean;
+import org.apache.oozie.client.SLAEvent;
 import org.apache.oozie.executor.jpa.JPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.SLAEventInsertJPAExecutor;
+import org.apache.oozie.executor.jpa.SLAEventsGetJPAExecutor;
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import javax.persistence.EntityManager;
 
 public class TestJPAService extends XTestCase {
@@ -51,4 +62,70 @@ public class TestJPAService extends XTestCase {
         assertEquals("ret", ret);
     }
 
-}
\ No newline at end of file
+    public static class MyFailingJPAExecutor implements JPAExecutor<String> {
+        @Override
+        public String getName() {
+            return "myfailing";
+        }
+
+        @Override
+        public String execute(EntityManager em) throws JPAExecutorException {
+            throw new JPAExecutorException(ErrorCode.E0603, "myfailing", "failing on purpose");
+        }
+    }
+
+    private SLAEventBean createSLAEvent(String slaId) {
+        SLAEventBean sla = new SLAEventBean();
+        sla.setSlaId(slaId);
+        sla.setAppName("app-name");
+        sla.setAppType(SLAEvent.SlaAppType.WORKFLOW_JOB);
+        sla.setUser(getTestUser());
+        sla.setGroupName(getTestGroup());
+        sla.setJobStatus(SLAEvent.Status.CREATED);
+        sla.setStatusTimestamp(new Date());
+        return sla;
+    }
+
+    public void testExecuteBatch() throws Exception {
+        JPAService jpaService = Services.get().get(JPAService.class);
+        int events = jpaService.execute(new SLAEventsGetJPAExecutor()).size();
+
+        List<JPAExecutor<?>> batch = new ArrayList<JPAExecutor<?>>();
+        batch.add(new MyJPAExecutor());
+        batch.add(new SLAEventInsertJPAExecutor(createSLAEvent("sla-1")));
+        batch.add(new SLAEventInsertJPAExecutor(createSLAEvent("sla-2")));
+        batch.add(new MyJPAExecutor());
+        List<Object> ret = jpaService.executeBatch(batch);
+        assertEquals(4, ret.size());
+        assertEquals("ret", ret.get(0));
+        assertNull(ret.get(1));
+        assertEquals("ret", ret.get(3));
+        assertEquals(events + 2, jpaService.execute(new SLAEventsGetJPAExecutor()).size());
+
+        assertTrue(jpaService.executeBatch(new ArrayList<JPAExecutor<?>>()).isEmpty());
+
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(1, instr.getCounters().get("jpa").get(JPAService.INSTR_BATCH).getValue().longValue());
+        assertEquals(4, instr.getCounters().get("jpa").get(JPAService.INSTR_BATCH_EXECUTORS).getValue().longValue());
+        assertEquals(2, instr.getCounters().get("jpa").get("SLAEventInsertJPAExecutor").getValue().longValue());
+    }
+
+    public void testExecuteBatchRollback() throws Exception {
+        JPAService jpaService = Services.get().get(JPAService.class);
+        int events = jpaService.execute(new SLAEventsGetJPAExecutor()).size();
+
+        List<JPAExecutor<?>> batch = new ArrayList<JPAExecutor<?>>();
+        batch.add(new SLAEventInsertJPAExecutor(createSLAEvent("sla-1")));
+        batch.add(new MyFailingJPAExecutor());
+        batch.add(new SLAEventInsertJPAExecutor(createSLAEvent("sla-2")));
+        try {
+            jpaService.executeBatch(batch);
+            fail();
+        }
+        catch (JPAExecutorException ex) {
+            assertEquals(ErrorCode.E0603, ex.getErrorCode());
+        }
+        assertEquals(events, jpaService.execute(new SLAEventsGetJPAExecutor()).size());
+    }
+
+}
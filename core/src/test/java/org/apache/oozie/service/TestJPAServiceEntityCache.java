@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.executor.jpa.CoordJobDeleteJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobGetJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobUpdateJPAExecutor;
+import org.apache.oozie.executor.jpa.CoordJobsUpdateLastModifiedTimeJPAExecutor;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.WorkflowJobGetJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowJobUpdateJPAExecutor;
+import org.apache.oozie.test.XDataTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestJPAServiceEntityCache extends XDataTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(JPAService.CONF_CACHE_SIZE, "100");
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private long getCounter(String name) {
+        Instrumentation instr = services.get(InstrumentationService.class).get();
+        Instrumentation.Element<Long> counter = instr.getCounters().get("jpa").get(name);
+        return (counter != null) ? counter.getValue() : 0;
+    }
+
+    public void testWorkflowJobCache() throws Exception {
+        JPAService jpaService = services.get(JPAService.class);
+        assertNotNull(jpaService.getCache());
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        long executions = getCounter("WorkflowJobGetJPAExecutor");
+
+        WorkflowJobBean job1 = jpaService.execute(new WorkflowJobGetJPAExecutor(job.getId()));
+        WorkflowJobBean job2 = jpaService.execute(new WorkflowJobGetJPAExecutor(job.getId()));
+        assertEquals(executions + 1, getCounter("WorkflowJobGetJPAExecutor"));
+        assertEquals(1, getCounter(JPAService.INSTR_CACHE_HITS));
+        assertNotSame(job1, job2);
+        assertEquals(job1.getAppPath(), job2.getAppPath());
+        assertEquals(job1.getConf(), job2.getConf());
+        assertEquals(job1.getCreatedTime(), job2.getCreatedTime());
+        assertNotNull(job2.getWorkflowInstance());
+        assertEquals(WorkflowInstance.Status.RUNNING, job2.getWorkflowInstance().getStatus());
+        assertTrue(job2.getDirtyFields().isEmpty());
+
+        // callers get copies, changing one does not change the cached job
+        job2.setStatus(WorkflowJob.Status.SUSPENDED);
+        assertEquals(WorkflowJob.Status.RUNNING,
+                     jpaService.execute(new WorkflowJobGetJPAExecutor(job.getId())).getStatus());
+
+        // the update evicts the job, the next read goes to the DB
+        jpaService.execute(new WorkflowJobUpdateJPAExecutor(job2));
+        assertEquals(1, getCounter(JPAService.INSTR_CACHE_INVALIDATIONS));
+        assertEquals(WorkflowJob.Status.SUSPENDED,
+                     jpaService.execute(new WorkflowJobGetJPAExecutor(job.getId())).getStatus());
+        assertEquals(executions + 2, getCounter("WorkflowJobGetJPAExecutor"));
+    }
+
+    public void testCoordinatorJobCache() throws Exception {
+        JPAService jpaService = services.get(JPAService.class);
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, true, false);
+
+        CoordinatorJobBean job1 = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        CoordinatorJobBean job2 = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        assertEquals(1, getCounter(JPAService.INSTR_CACHE_MISSES));
+        assertEquals(1, getCounter(JPAService.INSTR_CACHE_HITS));
+        assertNotSame(job1, job2);
+        assertEquals(job1.getJobXml(), job2.getJobXml());
+        assertEquals(job1.getStartTime(), job2.getStartTime());
+        assertEquals(job1.getTimeUnit(), job2.getTimeUnit());
+        assertEquals(job1.getMatThrottling(), job2.getMatThrottling());
+        assertTrue(job2.isPending());
+
+        job2.setStatus(CoordinatorJob.Status.SUSPENDED);
+        jpaService.execute(new CoordJobUpdateJPAExecutor(job2));
+        assertEquals(CoordinatorJob.Status.SUSPENDED,
+                     jpaService.execute(new CoordJobGetJPAExecutor(job.getId())).getStatus());
+        assertEquals(2, getCounter(JPAService.INSTR_CACHE_MISSES));
+
+        Date lastModified = new Date(job1.getLastModifiedTime().getTime() + 60 * 1000);
+        jpaService.execute(new CoordJobsUpdateLastModifiedTimeJPAExecutor(Collections.singletonList(job.getId()),
+                                                                          lastModified));
+        assertEquals(lastModified.getTime() / 1000, jpaService.execute(new CoordJobGetJPAExecutor(job.getId()))
+                .getLastModifiedTime().getTime() / 1000);
+
+        jpaService.execute(new CoordJobDeleteJPAExecutor(job.getId()));
+        try {
+            jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+            fail();
+        }
+        catch (JPAExecutorException ex) {
+            assertEquals(ErrorCode.E0604, ex.getErrorCode());
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestSlowCommandsService extends XTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(SlowCommandsService.CONF_SIZE, "2");
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private static SlowCommandsService.CommandTrace trace(String name, long start, long time) {
+        return new SlowCommandsService.CommandTrace(name, "key", start, time, Collections.<String, Long>emptyMap());
+    }
+
+    public void testSlowest() throws Exception {
+        SlowCommandsService service = Services.get().get(SlowCommandsService.class);
+        assertNotNull(service);
+        long now = System.currentTimeMillis();
+        assertEquals(0, service.getSlowest().size());
+        service.add(trace("a", now, 10));
+        service.add(trace("b", now, 30));
+        service.add(trace("c", now, 20));
+        service.add(trace("d", now, 5));
+        List<SlowCommandsService.CommandTrace> slowest = service.getSlowest();
+        assertEquals(2, slowest.size());
+        assertEquals("b", slowest.get(0).getName());
+        assertEquals("c", slowest.get(1).getName());
+        service.add(trace("e", now, 25));
+        slowest = service.getSlowest();
+        assertEquals("b", slowest.get(0).getName());
+        assertEquals("e", slowest.get(1).getName());
+    }
+
+    public void testWindow() throws Exception {
+        SlowCommandsService service = Services.get().get(SlowCommandsService.class);
+        long now = System.currentTimeMillis();
+        service.add(trace("old1", now - 2 * 3600 * 1000, 1000));
+        service.add(trace("old2", now - 2 * 3600 * 1000, 1000));
+        assertEquals(0, service.getSlowest().size());
+
+        service.add(trace("a", now, 1000));
+        service.add(trace("b", now, 2000));
+        service.add(trace("c", now, 10));
+        assertEquals(2, service.getSlowest().size());
+        assertEquals("b", service.getSlowest().get(0).getName());
+        assertEquals("a", service.getSlowest().get(1).getName());
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowDefinitionBean;
+import org.apache.oozie.executor.jpa.WorkflowDefinitionGetJPAExecutor;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.workflow.WorkflowException;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.StartNodeDef;
+
+public class TestWorkflowDefinitionService extends XTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        new Services().init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Services.get().destroy();
+        super.tearDown();
+    }
+
+    private LiteWorkflowApp createApp(String name) throws WorkflowException {
+        return new LiteWorkflowApp(name, "<worklfow-app/>", new StartNodeDef("end")).addNode(new EndNodeDef("end"));
+    }
+
+    public void testStoreAndGet() throws Exception {
+        WorkflowDefinitionService defService = Services.get().get(WorkflowDefinitionService.class);
+        assertNotNull(defService);
+        LiteWorkflowApp app = createApp("one");
+        String digest = defService.store(app);
+        assertEquals(digest, app.getDigest());
+        assertEquals(digest, createApp("one").getDigest());
+        assertFalse(digest.equals(createApp("two").getDigest()));
+
+        // the same definition, parsed again, is stored once
+        assertEquals(digest, defService.store(createApp("one")));
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(1, instr.getCounters().get("wfdefinitions").get(WorkflowDefinitionService.INSTR_STORED)
+                .getValue().longValue());
+        WorkflowDefinitionBean bean = Services.get().get(JPAService.class).execute(
+                new WorkflowDefinitionGetJPAExecutor(digest));
+        assertNotNull(bean);
+        assertNotNull(bean.getCreatedTime());
+
+        assertSame(app, defService.get(digest));
+    }
+
+    public void testGetNotStored() throws Exception {
+        WorkflowDefinitionService defService = Services.get().get(WorkflowDefinitionService.class);
+        try {
+            defService.get("not-stored");
+            fail();
+        }
+        catch (WorkflowException ex) {
+            assertEquals(ErrorCode.E0710, ex.getErrorCode());
+        }
+    }
+
+}
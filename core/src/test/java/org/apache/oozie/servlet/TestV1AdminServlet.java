@@ -29,6 +29,8 @@ import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
 import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.service.SlowCommandsService;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 
@@ -120,6 +122,35 @@ public class TestV1AdminServlet extends DagServletTestCase {
         });
     }
 
+    public void testSlowCommands() throws Exception {
+        runTest("/v1/admin/*", V1AdminServlet.class, IS_SECURITY_ENABLED, new Callable<Void>() {
+            public Void call() throws Exception {
+                Map<String, Long> phases = new HashMap<String, Long>();
+                phases.put("execute", 5L);
+                Services.get().get(SlowCommandsService.class).add(new SlowCommandsService.CommandTrace(
+                        "command", "key", System.currentTimeMillis(), 5, phases));
+                URL url = createURL(RestConstants.ADMIN_SLOW_COMMANDS_RESOURCE, Collections.EMPTY_MAP);
+                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+                conn.setRequestMethod("GET");
+                assertEquals(HttpServletResponse.SC_OK, conn.getResponseCode());
+                assertTrue(conn.getHeaderField("content-type").startsWith(RestConstants.JSON_CONTENT_TYPE));
+                JSONObject json = (JSONObject) JSONValue.parse(new InputStreamReader(conn.getInputStream()));
+                JSONArray array = (JSONArray) json.get(JsonTags.SLOW_COMMANDS);
+                assertNotNull(array);
+                JSONObject command = null;
+                for (Object o : array) {
+                    if ("command".equals(((JSONObject) o).get(JsonTags.SLOW_COMMAND_NAME))) {
+                        command = (JSONObject) o;
+                    }
+                }
+                assertNotNull(command);
+                assertEquals(5L, command.get(JsonTags.SLOW_COMMAND_TIME));
+                assertEquals(5L, ((JSONObject) command.get(JsonTags.SLOW_COMMAND_PHASES)).get("execute"));
+                return null;
+            }
+        });
+    }
+
     public void testSafeMode() throws Exception {
         runTest(new String[]{"/v1/admin/*", "/v1/job/*"}, new Class[]{V1AdminServlet.class, V1JobServlet.class},
                 IS_SECURITY_ENABLED, new Callable<Void>() {
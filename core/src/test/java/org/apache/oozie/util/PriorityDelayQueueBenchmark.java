@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput benchmark for {@link PriorityDelayQueue} and {@link PollablePriorityDelayQueue}.
+ * <p/>
+ * It is not a testcase, it is run manually from the command line (with the test classpath):
+ * <p/>
+ * <code>java org.apache.oozie.util.PriorityDelayQueueBenchmark [PRODUCERS] [CONSUMERS] [ELEMENTS]</code>
+ * <p/>
+ * Two scenarios are measured for each queue, a mixed one where producers and consumers run concurrently and 20% of
+ * the elements are delayed, and a drain one where the queue is pre-filled (like a backlog of queued callables) and
+ * the consumers drain it.
+ */
+public class PriorityDelayQueueBenchmark {
+    private static final int PRIORITIES = 3;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int producers = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int consumers = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int elements = (args.length > 2) ? Integer.parseInt(args[2]) : 50000;
+
+        System.out.println(XLog.format("producers[{0}] consumers[{1}] elements[{2}]", producers, consumers,
+                                       elements));
+        for (boolean pollable : new boolean[]{false, true}) {
+            String name = (pollable) ? "PollablePriorityDelayQueue" : "PriorityDelayQueue";
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                runMixed(pollable, producers, consumers, elements);
+                runDrain(pollable, consumers, elements);
+            }
+            long mixed = 0;
+            long drain = 0;
+            for (int i = 0; i < RUNS; i++) {
+                mixed += runMixed(pollable, producers, consumers, elements);
+                drain += runDrain(pollable, consumers, elements);
+            }
+            System.out.println(XLog.format("{0} mixed: {1} ops/sec, drain: {2} ops/sec", name,
+                                           (long) (elements * RUNS * 1000d / Math.max(1, mixed)),
+                                           (long) (elements * RUNS * 1000d / Math.max(1, drain))));
+        }
+    }
+
+    private static PriorityDelayQueue<Integer> createQueue(boolean pollable) {
+        if (pollable) {
+            return new PollablePriorityDelayQueue<Integer>(PRIORITIES, 1000 * 30, TimeUnit.MILLISECONDS, -1) {
+                @Override
+                protected boolean eligibleToPoll(QueueElement<?> element) {
+                    return element != null && ((Integer) element.getElement()) % 10 != 0;
+                }
+            };
+        }
+        return new PriorityDelayQueue<Integer>(PRIORITIES, 1000 * 30, TimeUnit.MILLISECONDS, -1);
+    }
+
+    /**
+     * Concurrent producers and consumers, returns the elapsed time in milliseconds.
+     */
+    private static long runMixed(boolean pollable, final int producers, int consumers, final int elements)
+            throws Exception {
+        final PriorityDelayQueue<Integer> queue = createQueue(pollable);
+        final AtomicInteger consumed = new AtomicInteger();
+        // with the pollable queue every 10th element is never eligible, it is not waited for
+        final int expected = (pollable) ? elements - elements / 10 : elements;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads.add(new Thread() {
+                public void run() {
+                    Random random = new Random(producer);
+                    await(start);
+                    for (int i = producer; i < elements; i += producers) {
+                        int delay = (random.nextInt(5) == 0) ? random.nextInt(50) : 0;
+                        queue.offer(new PriorityDelayQueue.QueueElement<Integer>(i, random.nextInt(PRIORITIES),
+                                                                                 delay, TimeUnit.MILLISECONDS));
+                    }
+                }
+            });
+        }
+        addConsumers(threads, queue, consumed, expected, consumers, start);
+        return run(threads, start);
+    }
+
+    /**
+     * Consumers draining a pre-filled queue, returns the elapsed time in milliseconds.
+     */
+    private static long runDrain(boolean pollable, int consumers, int elements) throws Exception {
+        PriorityDelayQueue<Integer> queue = createQueue(pollable);
+        Random random = new Random(0);
+        for (int i = 0; i < elements; i++) {
+            queue.offer(new PriorityDelayQueue.QueueElement<Integer>(i, random.nextInt(PRIORITIES), 0,
+                                                                     TimeUnit.MILLISECONDS));
+        }
+        int expected = (pollable) ? elements - elements / 10 : elements;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        addConsumers(threads, queue, new AtomicInteger(), expected, consumers, start);
+        return run(threads, start);
+    }
+
+    private static void addConsumers(List<Thread> threads, final PriorityDelayQueue<Integer> queue,
+                                     final AtomicInteger consumed, final int expected, int consumers,
+                                     final CountDownLatch start) {
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread() {
+                public void run() {
+                    await(start);
+                    while (consumed.get() < expected) {
+                        if (queue.poll() != null) {
+                            consumed.incrementAndGet();
+                        }
+                        else {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private static long run(List<Thread> threads, CountDownLatch start) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long time = System.currentTimeMillis();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.currentTimeMillis() - time;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
@@ -101,6 +101,40 @@ public class TestELEvaluator extends XTestCase {
         assertEquals(functionA, support.resolveFunction("a", "a"));
     }
 
+    public void testSharedContext() throws Exception {
+        Map<String, Object> constants = new HashMap<String, Object>();
+        constants.put("a", "A");
+        constants.put("n", null);
+        Map<String, Method> functions = new HashMap<String, Method>();
+        functions.put("a:a", functionA);
+        ELEvaluator.Context support1 = new ELEvaluator.Context(constants, functions);
+        ELEvaluator.Context support2 = new ELEvaluator.Context(constants, functions);
+
+        assertEquals("A", support1.resolveVariable("a"));
+        assertNull(support1.resolveVariable("n"));
+        support1.setVariable("a", "AA");
+        support1.setVariable("b", "B");
+        assertEquals("AA", support1.getVariable("a"));
+        assertEquals("B", support1.resolveVariable("b"));
+        assertEquals("A", support2.getVariable("a"));
+        try {
+            support2.resolveVariable("b");
+            fail();
+        }
+        catch (ELException ex) {
+            //nop
+        }
+
+        support1.addFunction("b", "b", functionA);
+        assertEquals(functionA, support1.resolveFunction("b", "b"));
+        assertEquals(functionA, support1.resolveFunction("a", "a"));
+        assertNull(support2.resolveFunction("b", "b"));
+        assertEquals(1, functions.size());
+        assertEquals(2, constants.size());
+
+        assertEquals("Aa", new ELEvaluator(support2).evaluate("${a}${a:a()}", String.class));
+    }
+
     public void testVars() throws Exception {
         ELEvaluator.Context support = new ELEvaluator.Context();
         support.setVariable("a", "A");
@@ -164,4 +198,62 @@ public class TestELEvaluator extends XTestCase {
         }
     }
 
+    public void testExpressionCache() throws Exception {
+        ELEvaluator.setExpressionCacheSize(16);
+        try {
+            ELEvaluator.ExpressionCache cache = ELEvaluator.getExpressionCache();
+            ELEvaluator.Context support1 = new ELEvaluator.Context();
+            support1.setVariable("a", "A");
+            support1.addFunction("a", "a", functionA);
+            ELEvaluator.Context support2 = new ELEvaluator.Context();
+            support2.setVariable("a", "B");
+
+            assertEquals("Aa", new ELEvaluator(support1).evaluate("${a}${a:a()}", String.class));
+            assertEquals(0, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals("Aa", new ELEvaluator(support1).evaluate("${a}${a:a()}", String.class));
+            assertEquals(1, cache.getHits());
+
+            // the parsed expression is shared by evaluators with different variables and functions
+            assertEquals("B", new ELEvaluator(support2).evaluate("${a}", String.class));
+            assertEquals("A", new ELEvaluator(support1).evaluate("${a}", String.class));
+            assertEquals(2, cache.getHits());
+            try {
+                new ELEvaluator(support2).evaluate("${a}${a:a()}", String.class);
+                fail();
+            }
+            catch (ELException ex) {
+                //nop
+            }
+
+            assertEquals(Long.valueOf(3), new ELEvaluator(support1).evaluate("${1 + 2}", Long.class));
+            assertEquals(Boolean.TRUE, new ELEvaluator(support1).evaluate("${a == 'A'}", Boolean.class));
+            assertEquals("x", new ELEvaluator(support1).evaluate("x", String.class));
+
+            for (int i = 0; i < 100; i++) {
+                new ELEvaluator(support1).evaluate("${" + i + "}", String.class);
+            }
+            assertTrue(cache.size() <= cache.getMaxSize());
+        }
+        finally {
+            ELEvaluator.setExpressionCacheSize(ELEvaluator.DEFAULT_EXPRESSION_CACHE_SIZE);
+        }
+    }
+
+    public void testExpressionCacheDisabled() throws Exception {
+        ELEvaluator.setExpressionCacheSize(0);
+        try {
+            ELEvaluator.Context support = new ELEvaluator.Context();
+            support.setVariable("a", "A");
+            ELEvaluator evaluator = new ELEvaluator(support);
+            assertEquals("A", evaluator.evaluate("${a}", String.class));
+            assertEquals("A", evaluator.evaluate("${a}", String.class));
+            assertEquals(0, ELEvaluator.getExpressionCache().getHits());
+            assertEquals(0, ELEvaluator.getExpressionCache().size());
+        }
+        finally {
+            ELEvaluator.setExpressionCacheSize(ELEvaluator.DEFAULT_EXPRESSION_CACHE_SIZE);
+        }
+    }
+
 }
@@ -300,4 +300,75 @@ public class TestInstrumentation extends XTestCase {
                 get("timers").get("a").get("1")).getValue()).getOwn());
     }
 
+    public void testHistogram() throws Exception {
+        Instrumentation.Histogram histogram = new Instrumentation.Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+
+        for (long v : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 12345, 1L << 40, Long.MAX_VALUE}) {
+            long max = Instrumentation.Histogram.getBucketMax(Instrumentation.Histogram.getBucket(v));
+            if (v <= 1L << 40) {
+                assertTrue(v + " " + max, max >= v && max <= v + v / 8);
+            }
+        }
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentile(50), 500 / 8);
+        assertEquals(950, histogram.getPercentile(95), 950 / 8);
+        assertEquals(990, histogram.getPercentile(99), 990 / 8);
+        assertTrue(histogram.getPercentile(99.9) >= 999);
+        assertTrue(histogram.getPercentile(50) <= histogram.getPercentile(95));
+
+        Instrumentation.Histogram copy = histogram.copy();
+        histogram.record(1);
+        assertEquals(1000, copy.getCount());
+        assertEquals(1001, histogram.getCount());
+    }
+
+    public void testTimerPercentiles() throws Exception {
+        Instrumentation.Timer timer = new Instrumentation.Timer();
+        assertEquals(0, timer.getTotalPercentile(50));
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        Thread.sleep(INTERVAL);
+        cron.stop();
+        timer.addCron(cron);
+        assertTrue(timer.getTotalPercentile(50) <= cron.getTotal());
+        assertTrue(timer.getTotalPercentile(50) >= cron.getTotal() - cron.getTotal() / 8);
+        assertEquals(timer.getTotalPercentile(99), timer.getValue().getTotalPercentile(99));
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final Instrumentation inst = new Instrumentation();
+        final int count = 10000;
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < count; j++) {
+                        inst.incr("g", "c" + (j % 4), 1);
+                        Instrumentation.Cron cron = new Instrumentation.Cron();
+                        inst.addCron("g", "t", cron);
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = 0;
+        for (Instrumentation.Element<Long> counter : inst.getCounters().get("g").values()) {
+            total += counter.getValue();
+        }
+        assertEquals(4, inst.getCounters().get("g").size());
+        assertEquals(threads.length * count, total);
+        assertEquals(threads.length * count, inst.getTimers().get("g").get("t").getValue().getTicks());
+    }
+
 }
@@ -214,4 +214,69 @@ public class TestMemoryLocks extends XTestCase {
         assertEquals("a:1-L a:1-U a:2-L a:2-U", sb.toString().trim());
     }
 
+    public void testReentrantWriteLock() throws Exception {
+        MemoryLocks.LockToken token1 = locks.getWriteLock("a", -1);
+        MemoryLocks.LockToken token2 = locks.getWriteLock("a", -1);
+        assertEquals(1, locks.size());
+
+        // the lock is still held after releasing the first token, the resource must still be locked
+        token1.release();
+        assertEquals(1, locks.size());
+
+        StringBuffer sb = new StringBuffer("");
+        Locker l1 = new WriteLocker("a", 1, 0, sb);
+        Thread t = new Thread(l1);
+        t.start();
+        t.join();
+        assertEquals("a:1-N", sb.toString().trim());
+        assertEquals(1, locks.size());
+
+        token2.release();
+        assertEquals(0, locks.size());
+    }
+
+    public void testLockCleanup() throws Exception {
+        StringBuffer sb = new StringBuffer("");
+        Locker l1 = new WriteLocker("a", 1, -1, sb);
+        Locker l2 = new WriteLocker("a", 2, -1, sb);
+        Locker l3 = new WriteLocker("b", 3, 50, sb);
+
+        new Thread(l1).start();
+        Thread.sleep(500);
+        new Thread(l2).start();
+        Thread.sleep(500);
+        assertEquals(1, locks.size());
+        assertEquals(1, locks.getContendedResources(10).size());
+        assertEquals(1, (int) locks.getContendedResources(10).get("a"));
+        l1.finish();
+        Thread.sleep(500);
+        assertEquals(1, locks.size());
+        assertEquals(0, locks.getContendedResources(10).size());
+        l2.finish();
+        Thread.sleep(500);
+        assertEquals(0, locks.size());
+
+        // locks not obtained are cleaned up as well
+        MemoryLocks.LockToken token = locks.getReadLock("b", -1);
+        Thread t = new Thread(l3);
+        t.start();
+        t.join();
+        token.release();
+        assertEquals(0, locks.size());
+        assertEquals("a:1-L a:1-U a:2-L a:2-U b:3-N", sb.toString().trim());
+    }
+
+    public void testWaitHistogram() throws Exception {
+        locks.getWriteLock("a", -1).release();
+        locks.getWriteLock("b", -1).release();
+        long[] histogram = locks.getWaitHistogram();
+        assertEquals(MemoryLocks.WAIT_HISTOGRAM_BOUNDS.length + 1, histogram.length);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        assertEquals(2, total);
+        assertEquals(2, histogram[0] + histogram[1]);
+    }
+
 }
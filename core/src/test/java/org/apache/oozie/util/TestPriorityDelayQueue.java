@@ -386,4 +386,47 @@ public class TestPriorityDelayQueue extends TestCase {
         assertEquals(0, q.size());
     }
 
+    public void testPollableEligibility() throws Exception {
+        PriorityDelayQueue<Integer> q = new PollablePriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1) {
+            @Override
+            protected boolean eligibleToPoll(QueueElement<?> element) {
+                return element != null && ((Integer) element.getElement()) % 2 == 0;
+            }
+        };
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(1, 2, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(3, 1, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(4, 1, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(2, 0, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(6, 2, 60000, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(8, 0, 60000, TimeUnit.MILLISECONDS));
+
+        // the head of P2 is not eligible, the next eligible element is polled regardless of its delay
+        assertEquals((Integer) 6, q.poll().getElement());
+        assertEquals((Integer) 4, q.poll().getElement());
+        assertEquals((Integer) 2, q.poll().getElement());
+        // the head of P0 is eligible but its delay has not expired
+        assertNull(q.poll());
+        assertEquals(3, q.size());
+    }
+
+    public void testDrainTo() throws Exception {
+        PriorityDelayQueue<Integer> q = new PriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(10, 0, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(30, 2, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(20, 1, 0, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(40, 2, 1000, TimeUnit.MILLISECONDS));
+
+        List<QueueElement<Integer>> list = new ArrayList<QueueElement<Integer>>();
+        assertEquals(2, q.drainTo(list, 2));
+        assertEquals((Integer) 30, list.get(0).getElement());
+        assertEquals((Integer) 20, list.get(1).getElement());
+        assertEquals(1, q.drainTo(list));
+        assertEquals((Integer) 10, list.get(2).getElement());
+        assertEquals(1, q.size());
+
+        assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+        q.offer(new PriorityDelayQueue.QueueElement<Integer>(50, 0, 0, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 50, q.poll(10, TimeUnit.MILLISECONDS).getElement());
+    }
+
 }
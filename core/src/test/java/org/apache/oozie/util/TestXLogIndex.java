@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestXLogIndex extends XTestCase {
+
+    private static final String JOB_A = "0000001-090624024313958-oozie-W";
+    private static final String JOB_B = "0000002-090624024313958-oozie-W";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XLogStreamer.Filter.reset();
+        super.tearDown();
+    }
+
+    private String line(int i, String job, String message) {
+        return "2009-06-24 02:43:" + (10 + i) + ",958  INFO _L" + i + "_:323 - USER[oozie] GROUP[-] TOKEN[-] "
+                + "APP[app] JOB[" + job + "] ACTION[-] " + message + "\n";
+    }
+
+    private String createLog(File file) throws IOException {
+        StringBuilder a = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        sb.append(line(1, JOB_B, "started"));
+        a.append(line(2, JOB_A, "started"));
+        sb.append(line(2, JOB_A, "started"));
+        sb.append(line(3, "-", "purged"));
+        sb.append(line(4, JOB_B, "failed"));
+        sb.append("_L4A_java.lang.Exception\n");
+        a.append(line(5, JOB_A, "failed")).append("_L5A_java.lang.Exception\n").append("_L5B_\tat Foo\n");
+        sb.append(line(5, JOB_A, "failed")).append("_L5A_java.lang.Exception\n").append("_L5B_\tat Foo\n");
+        sb.append("2009-06-24 02:43:16,431  WARN _L6_:661 - No job jar file set.\n");
+        a.append(line(7, JOB_A, "ended"));
+        sb.append(line(7, JOB_A, "ended"));
+        FileWriter fw = new FileWriter(file);
+        fw.write(sb.toString());
+        fw.close();
+        return a.toString();
+    }
+
+    private String read(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = is.read();
+        while (c != -1) {
+            sb.append((char) c);
+            c = is.read();
+        }
+        is.close();
+        return sb.toString();
+    }
+
+    public void testBuild() throws Exception {
+        File logFile = new File(getTestCaseDir(), "oozie.log.2009-06-24-02");
+        String expected = createLog(logFile);
+
+        XLogIndex index = XLogIndex.build(logFile, "JOB", 0);
+        assertEquals("JOB", index.getParameter());
+        assertEquals(2, index.size());
+
+        List<long[]> ranges = index.getRanges(Collections.singleton(JOB_A));
+        assertEquals(3, ranges.size());
+        assertEquals(expected, read(XLogIndex.openRanges(logFile, ranges)));
+
+        assertEquals(3, index.getRanges(Arrays.asList(JOB_A, JOB_B)).size());
+        assertTrue(index.getRanges(Collections.singleton("-")).isEmpty());
+
+        index = XLogIndex.build(logFile, "JOB", 1024);
+        ranges = index.getRanges(Collections.singleton(JOB_A));
+        assertEquals(1, ranges.size());
+        assertTrue(read(XLogIndex.openRanges(logFile, ranges)).contains("_L6_"));
+    }
+
+    public void testFilterPrefix() throws Exception {
+        File logFile = new File(getTestCaseDir(), "oozie.log.2009-06-24-02");
+        String quoting = line(1, JOB_B, "quoting - USER[oozie] GROUP[-] TOKEN[-] APP[app] JOB[" + JOB_A
+                + "] ACTION[-] started");
+        String mention = line(2, JOB_B, "waiting for JOB[" + JOB_A + "]");
+        FileWriter fw = new FileWriter(logFile);
+        fw.write(quoting + mention);
+        fw.close();
+
+        // the index records a log statement under the values the filter pattern matches, a message quoting another
+        // log statement is recorded under both jobs, a parameter outside of the prefix is not a value
+        XLogIndex index = XLogIndex.build(logFile, "JOB", 0);
+        assertEquals(2, index.size());
+        assertEquals(quoting, read(XLogIndex.openRanges(logFile, index.getRanges(Collections.singleton(JOB_A)))));
+        assertEquals(quoting + mention, read(XLogIndex.openRanges(logFile,
+                index.getRanges(Collections.singleton(JOB_B)))));
+
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", JOB_A);
+        filter.constructPattern();
+        assertTrue(filter.matches(filter.splitLogMessage(quoting.trim())));
+        assertFalse(filter.matches(filter.splitLogMessage(mention.trim())));
+    }
+
+    public void testWriteRead() throws Exception {
+        File logFile = new File(getTestCaseDir(), "oozie.log.2009-06-24-02");
+        String expected = createLog(logFile);
+        File indexFile = new File(getTestCaseDir(), "index/" + logFile.getName() + XLogIndex.INDEX_EXTENSION);
+
+        assertNull(XLogIndex.read(indexFile, logFile, "JOB", Collections.singleton(JOB_A)));
+        XLogIndex.build(logFile, "JOB", 0).write(indexFile);
+        assertTrue(indexFile.exists());
+
+        XLogIndex index = XLogIndex.read(indexFile, logFile, "JOB", Collections.singleton(JOB_A));
+        assertNotNull(index);
+        assertEquals(2, index.size());
+        assertEquals(expected, read(XLogIndex.openRanges(logFile, index.getRanges(Collections.singleton(JOB_A)))));
+        assertTrue(index.getRanges(Collections.singleton(JOB_B)).isEmpty());
+
+        assertNull(XLogIndex.read(indexFile, logFile, "ACTION", Collections.singleton(JOB_A)));
+
+        FileWriter fw = new FileWriter(logFile, true);
+        fw.write(line(8, JOB_A, "appended"));
+        fw.close();
+        assertNull(XLogIndex.read(indexFile, logFile, "JOB", Collections.singleton(JOB_A)));
+    }
+
+    public void testStreamLog() throws Exception {
+        File logDir = new File(getTestCaseDir(), "logs");
+        logDir.mkdirs();
+        createLog(new File(logDir, "oozie.log.2009-06-24-02"));
+        createLog(new File(logDir, "oozie.log"));
+        File indexDir = new File(logDir, "index");
+
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", JOB_A);
+        StringWriter scanned = new StringWriter();
+        new XLogStreamer(filter, scanned, logDir.getAbsolutePath(), "oozie.log", 3600).streamLog(null, null);
+        String[] lines = scanned.toString().split("\n");
+        assertEquals(10, lines.length);
+
+        Instrumentation instr = new Instrumentation();
+        for (int i = 0; i < 2; i++) {
+            StringWriter indexed = new StringWriter();
+            XLogStreamer streamer = new XLogStreamer(filter, indexed, logDir.getAbsolutePath(), "oozie.log", 3600);
+            streamer.setIndex(indexDir, "JOB", 0);
+            streamer.setInstrumentation(instr, "logging");
+            streamer.streamLog(null, null);
+            assertEquals(scanned.toString(), indexed.toString());
+        }
+        assertTrue(new File(indexDir, "oozie.log.2009-06-24-02" + XLogIndex.INDEX_EXTENSION).exists());
+        assertFalse(new File(indexDir, "oozie.log" + XLogIndex.INDEX_EXTENSION).exists());
+        assertEquals(1, (long) instr.getCounters().get("logging").get("index.builds").getValue());
+        assertEquals(1, (long) instr.getCounters().get("logging").get("index.hits").getValue());
+        assertEquals(2, (long) instr.getCounters().get("logging").get("index.scans").getValue());
+        assertEquals(1, instr.getTimers().get("logging").get("index.build").getValue().getTicks());
+    }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestXLogScanner extends XTestCase {
+
+    private static final String JOB = "0000001-090624024313958-oozie-W";
+
+    private XLogScanner.Pool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        pool = new XLogScanner.Pool(4);
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.destroy();
+        XLogStreamer.Filter.reset();
+        super.tearDown();
+    }
+
+    private static String line(int second, String job, String message) {
+        return "2009-06-24 02:43:" + second + ",958  INFO _L" + second + "_:323 - USER[oozie] GROUP[-] TOKEN[-] "
+                + "APP[app] JOB[" + job + "] ACTION[-] " + message + "\n";
+    }
+
+    private static XLogScanner.Source source(final String log) {
+        return new XLogScanner.Source() {
+            public InputStream open() throws IOException {
+                return new ByteArrayInputStream(log.getBytes());
+            }
+        };
+    }
+
+    private XLogStreamer.Filter createFilter() {
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", JOB);
+        return filter;
+    }
+
+    public void testMerge() throws Exception {
+        String log1 = line(10, JOB, "a") + line(12, "-", "b") + line(14, JOB, "c") + "_L14A_ trace\n";
+        String log2 = line(11, JOB, "d") + line(13, JOB, "e") + line(15, "-", "f") + "_L15A_ trace\n";
+        String log3 = line(16, JOB, "g");
+        List<XLogScanner.Source> sources = Arrays.asList(source(log1), source(log2), source(log3));
+
+        StringWriter writer = new StringWriter();
+        new XLogScanner(createFilter(), writer, pool, 4, 1).scan(sources);
+        assertEquals(line(10, JOB, "a") + line(11, JOB, "d") + line(13, JOB, "e") + line(14, JOB, "c")
+                + "_L14A_ trace\n" + line(16, JOB, "g"), writer.toString());
+
+        writer = new StringWriter();
+        new XLogScanner(null, writer, pool, 2, 1).scan(sources);
+        assertEquals(line(10, JOB, "a") + line(11, JOB, "d") + line(12, "-", "b") + line(13, JOB, "e")
+                + line(14, JOB, "c") + "_L14A_ trace\n" + line(15, "-", "f") + "_L15A_ trace\n" + line(16, JOB, "g"),
+                     writer.toString());
+
+        writer = new StringWriter();
+        new XLogScanner(createFilter(), writer, pool, 1, 10).scan(sources);
+        assertEquals(line(10, JOB, "a") + line(14, JOB, "c") + "_L14A_ trace\n" + line(11, JOB, "d")
+                + line(13, JOB, "e") + line(16, JOB, "g"), writer.toString());
+
+        writer = new StringWriter();
+        new XLogScanner(createFilter(), writer, null, 4, 1).scan(sources);
+        assertEquals(line(10, JOB, "a") + line(14, JOB, "c") + "_L14A_ trace\n" + line(11, JOB, "d")
+                + line(13, JOB, "e") + line(16, JOB, "g"), writer.toString());
+        // a scanner thread releases its pool thread as it exits, after the statements it queued were written
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return pool.getAvailableThreads() == 4;
+            }
+        });
+        assertEquals(4, pool.getAvailableThreads());
+    }
+
+    public void testSameAsReader() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 10; i < 60; i++) {
+            sb.append(line(i, (i % 3 == 0) ? JOB : "-", "message " + i));
+            if (i % 5 == 0) {
+                sb.append("_L").append(i).append("A_ trace\n");
+            }
+        }
+        String log = sb.toString();
+        XLogStreamer.Filter filter = createFilter();
+        filter.setLogLevel("INFO");
+
+        StringWriter expected = new StringWriter();
+        new XLogReader(new ByteArrayInputStream(log.getBytes()), filter, expected).processLog();
+        StringWriter writer = new StringWriter();
+        new XLogScanner(filter, writer, pool, 2, 3).scan(Arrays.asList(source(log)));
+        assertEquals(expected.toString(), writer.toString());
+    }
+
+    public void testError() throws Exception {
+        List<XLogScanner.Source> sources = new ArrayList<XLogScanner.Source>();
+        sources.add(source(line(10, JOB, "a")));
+        sources.add(new XLogScanner.Source() {
+            public InputStream open() throws IOException {
+                throw new IOException("missing");
+            }
+        });
+        try {
+            new XLogScanner(createFilter(), new StringWriter(), pool, 2, 1).scan(sources);
+            fail();
+        }
+        catch (IOException ex) {
+            assertEquals("missing", ex.getMessage());
+        }
+
+        sources.set(1, new XLogScanner.Source() {
+            public InputStream open() throws IOException {
+                throw new IllegalStateException("broken");
+            }
+        });
+        try {
+            new XLogScanner(createFilter(), new StringWriter(), pool, 2, 1).scan(sources);
+            fail();
+        }
+        catch (IOException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return pool.getAvailableThreads() == 4;
+            }
+        });
+        assertEquals(4, pool.getAvailableThreads());
+    }
+
+    public void testSharedPool() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 10; i < 60; i++) {
+            sb.append(line(i, JOB, "message " + i));
+        }
+        final List<XLogScanner.Source> sources = new ArrayList<XLogScanner.Source>();
+        for (int i = 0; i < 6; i++) {
+            sources.add(source(sb.toString()));
+        }
+        final List<String> outputs = new ArrayList<String>();
+        List<Thread> requests = new ArrayList<Thread>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(new Thread() {
+                public void run() {
+                    try {
+                        StringWriter writer = new StringWriter();
+                        new XLogScanner(createFilter(), writer, pool, 3, 2).scan(sources);
+                        synchronized (outputs) {
+                            outputs.add(writer.toString());
+                        }
+                    }
+                    catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            });
+        }
+        for (Thread request : requests) {
+            request.start();
+        }
+        for (Thread request : requests) {
+            request.join(30 * 1000);
+        }
+        assertEquals(6, outputs.size());
+        for (String output : outputs) {
+            assertEquals(6 * 50, output.split("\n").length);
+        }
+        // a scanner thread releases its pool thread as it exits, after the statements it queued were written
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return pool.getAvailableThreads() == 4;
+            }
+        });
+        assertEquals(4, pool.getAvailableThreads());
+    }
+
+    public void testStreamGzipLog() throws Exception {
+        File logDir = new File(getTestCaseDir(), "logs");
+        logDir.mkdirs();
+        OutputStream os = new GZIPOutputStream(new FileOutputStream(new File(logDir, "oozie.log.2009-06-24-01.gz")));
+        os.write((line(10, JOB, "a") + line(11, "-", "b")).getBytes());
+        os.close();
+        os = new FileOutputStream(new File(logDir, "oozie.log.2009-06-24-02"));
+        os.write((line(12, JOB, "c") + line(13, "-", "d")).getBytes());
+        os.close();
+        os = new FileOutputStream(new File(logDir, "oozie.log"));
+        os.write((line(14, JOB, "e")).getBytes());
+        os.close();
+
+        StringWriter writer = new StringWriter();
+        XLogStreamer streamer = new XLogStreamer(createFilter(), writer, logDir.getAbsolutePath(), "oozie.log", 3600);
+        streamer.setScan(pool, 3, 10);
+        streamer.streamLog(null, null);
+        assertEquals(line(10, JOB, "a") + line(12, JOB, "c") + line(14, JOB, "e"), writer.toString());
+    }
+
+}
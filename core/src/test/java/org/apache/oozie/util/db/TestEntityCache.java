@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util.db;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class TestEntityCache extends TestCase {
+
+    public void testGetPut() {
+        EntityCache cache = new EntityCache(10, 60 * 1000);
+        assertEquals("WorkflowJobBean#1", EntityCache.getKey(org.apache.oozie.WorkflowJobBean.class, "1"));
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "A", cache.getGeneration()));
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testLRUEviction() {
+        EntityCache cache = new EntityCache(2, 60 * 1000);
+        cache.put("a", "A", cache.getGeneration());
+        cache.put("b", "B", cache.getGeneration());
+        // 'a' becomes the most recently used entry
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C", cache.getGeneration());
+        assertEquals(2, cache.size());
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    public void testExpiration() throws Exception {
+        EntityCache cache = new EntityCache(10, 50);
+        cache.put("a", "A", cache.getGeneration());
+        assertEquals("A", cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    public void testInvalidate() {
+        EntityCache cache = new EntityCache(10, 60 * 1000);
+        cache.put("a", "A", cache.getGeneration());
+        cache.put("b", "B", cache.getGeneration());
+        cache.invalidate(Collections.singletonList("a"));
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        cache.clear();
+        assertNull(cache.get("b"));
+    }
+
+    public void testPutAfterInvalidation() {
+        EntityCache cache = new EntityCache(10, 60 * 1000);
+        // a reader starts before a writer invalidates the entity, the value it read may be stale
+        long generation = cache.getGeneration();
+        cache.invalidate(Collections.singletonList("a"));
+        assertFalse(cache.put("a", "A", generation));
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "A", cache.getGeneration()));
+        assertEquals("A", cache.get("a"));
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.workflow.lite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.oozie.service.DagXLogInfoService;
+import org.apache.oozie.service.XLogService;
+import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.util.XLog;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+/**
+ * Deserialization benchmark for the {@link LiteWorkflowInstance} blob, the cost paid by
+ * <code>WorkflowJobBean.getWorkflowInstance()</code> each time a job is loaded by the
+ * <code>WorkflowJobGetJPAExecutor</code>.
+ * <p/>
+ * It is not a testcase, it is run manually from the command line (with the test classpath):
+ * <p/>
+ * <code>java org.apache.oozie.workflow.lite.LiteWorkflowInstanceBenchmark [PROPERTIES] [VARS] [LOADS]</code>
+ * <p/>
+ * The pre-versioning blob (XML configuration, <code>writeUTF</code> state) is compared with the current binary
+ * encoding, both with the definition embedded as no <code>WorkflowDefinitionService</code> is running.
+ */
+public class LiteWorkflowInstanceBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int properties = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int vars = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        int loads = (args.length > 2) ? Integer.parseInt(args[2]) : 5000;
+
+        // the log info parameters set by the instance are defined by the XLog services when Oozie runs
+        for (String param : new String[]{XLogService.USER, XLogService.GROUP, DagXLogInfoService.TOKEN,
+                DagXLogInfoService.APP, DagXLogInfoService.JOB, DagXLogInfoService.ACTION}) {
+            XLog.Info.defineParameter(param);
+        }
+
+        LiteWorkflowInstance job = createInstance(properties, vars);
+        byte[] legacy = writeLegacy(job);
+        byte[] current = WritableUtils.toByteArray(job);
+        System.out.println(XLog.format("properties[{0}] vars[{1}] loads[{2}]", properties, vars, loads));
+        System.out.println(XLog.format("blob size, legacy: {0} bytes, current: {1} bytes", legacy.length,
+                                       current.length));
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(legacy, loads);
+            run(current, loads);
+        }
+        long legacyTime = 0;
+        long currentTime = 0;
+        for (int i = 0; i < RUNS; i++) {
+            legacyTime += run(legacy, loads);
+            currentTime += run(current, loads);
+        }
+        System.out.println(XLog.format("deserialize, legacy: {0} us/load, current: {1} us/load",
+                                       legacyTime / 1000 / ((long) loads * RUNS),
+                                       currentTime / 1000 / ((long) loads * RUNS)));
+    }
+
+    private static LiteWorkflowInstance createInstance(int properties, int vars) throws Exception {
+        LiteWorkflowApp def = new LiteWorkflowApp("wf", "<worklfow-app/>", new StartNodeDef("one"))
+                .addNode(new NodeDef("one", null, NodeHandler.class, Arrays.asList(new String[]{"end"})))
+                .addNode(new EndNodeDef("end"));
+        XConfiguration conf = new XConfiguration();
+        for (int i = 0; i < properties; i++) {
+            conf.set("oozie.benchmark.property." + i, "hdfs://namenode:8020/user/test/app/" + i);
+        }
+        LiteWorkflowInstance job = new LiteWorkflowInstance(def, conf, "0000000-000000000000000-oozie-W");
+        for (int i = 0; i < vars; i++) {
+            job.setVar("action" + i + WorkflowInstance.NODE_VAR_SEPARATOR + "status", "OK");
+        }
+        return job;
+    }
+
+    /**
+     * Writes the instance the way it was written before the blob was versioned.
+     */
+    private static byte[] writeLegacy(LiteWorkflowInstance job) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dOut = new DataOutputStream(baos);
+        dOut.writeUTF(job.getId());
+        ByteArrayOutputStream confBaos = new ByteArrayOutputStream();
+        ((XConfiguration) job.getConf()).writeXml(confBaos);
+        dOut.writeInt(confBaos.size());
+        dOut.write(confBaos.toByteArray());
+        ((LiteWorkflowApp) job.getApp()).write(dOut);
+        dOut.writeUTF(job.getStatus().toString());
+        dOut.writeInt(0);
+        Map<String, String> vars = job.getAllVars();
+        dOut.writeInt(vars.size());
+        for (Map.Entry<String, String> entry : vars.entrySet()) {
+            dOut.writeUTF(entry.getKey());
+            dOut.writeUTF(entry.getValue());
+        }
+        dOut.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Deserializes the blob <code>loads</code> times, returns the elapsed time in nanoseconds.
+     */
+    private static long run(byte[] blob, int loads) throws IOException {
+        long time = System.nanoTime();
+        for (int i = 0; i < loads; i++) {
+            WritableUtils.fromByteArray(blob, LiteWorkflowInstance.class).getConf();
+        }
+        return System.nanoTime() - time;
+    }
+
+}
@@ -23,6 +23,8 @@ import org.apache.oozie.util.WritableUtils;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.ErrorCode;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -704,6 +706,120 @@ public class TestLiteWorkflowLib extends XTestCase {
         assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
     }
 
+    public void testJobPersistanceDefinitionReference() throws Exception {
+        StringBuilder sb = new StringBuilder("<worklfow-app>");
+        for (int i = 0; i < 1000; i++) {
+            sb.append("<action name='a").append(i).append("'/>");
+        }
+        String definition = sb.append("</worklfow-app>").toString();
+        LiteWorkflowApp def = new LiteWorkflowApp("wf", definition, new StartNodeDef("one"))
+                .addNode(new NodeDef("one", null, AsynchNodeHandler.class, Arrays.asList(new String[]{"end"})))
+                .addNode(new EndNodeDef("end"));
+
+        LiteWorkflowInstance job = new LiteWorkflowInstance(def, new XConfiguration(), "1");
+        job.setVar("a", "A");
+        byte[] array = WritableUtils.toByteArray(job);
+        // the definition is referenced by digest, it is not embedded
+        assertTrue(array.length < definition.length());
+        byte[] array2 = WritableUtils.toByteArray(new LiteWorkflowInstance(def, new XConfiguration(), "2"));
+        assertTrue(array2.length < definition.length());
+
+        // the definition is read back from the DB by a new service instance
+        services.destroy();
+        services = new Services();
+        services.init();
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals("1", job.getId());
+        assertEquals("A", job.getVar("a"));
+        assertEquals(definition, job.getApp().getDefinition());
+        assertEquals(def.getDigest(), ((LiteWorkflowApp) job.getApp()).getDigest());
+        LiteWorkflowInstance job2 = WritableUtils.fromByteArray(array2, LiteWorkflowInstance.class);
+        assertSame(job.getApp(), job2.getApp());
+
+        job.start();
+        job = WritableUtils.fromByteArray(WritableUtils.toByteArray(job), LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        job.signal("/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+    public void testReadEmbeddedDefinition() throws Exception {
+        LiteWorkflowApp def = new LiteWorkflowApp("wf", "<worklfow-app/>", new StartNodeDef("one"))
+                .addNode(new NodeDef("one", null, AsynchNodeHandler.class, Arrays.asList(new String[]{"end"})))
+                .addNode(new EndNodeDef("end"));
+
+        // blob written before the definitions were stored apart from the instances
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dOut = new DataOutputStream(baos);
+        dOut.writeUTF("1");
+        ByteArrayOutputStream confBaos = new ByteArrayOutputStream();
+        XConfiguration conf = new XConfiguration();
+        conf.set("c", "C");
+        conf.writeXml(confBaos);
+        dOut.writeInt(confBaos.size());
+        dOut.write(confBaos.toByteArray());
+        def.write(dOut);
+        dOut.writeUTF(WorkflowInstance.Status.RUNNING.toString());
+        dOut.writeInt(1);
+        dOut.writeUTF("/");
+        dOut.writeUTF("one");
+        dOut.writeBoolean(true);
+        dOut.writeInt(1);
+        dOut.writeUTF("a");
+        dOut.writeUTF("A");
+        dOut.close();
+
+        LiteWorkflowInstance job = WritableUtils.fromByteArray(baos.toByteArray(), LiteWorkflowInstance.class);
+        assertEquals("1", job.getId());
+        assertEquals("C", job.getConf().get("c"));
+        assertEquals("A", job.getVar("a"));
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertEquals(def.getDigest(), ((LiteWorkflowApp) job.getApp()).getDigest());
+        job.signal("/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+    public void testCompactEncoding() throws Exception {
+        LiteWorkflowApp def = new LiteWorkflowApp("wf", "<worklfow-app/>", new StartNodeDef("one"))
+                .addNode(new NodeDef("one", null, AsynchNodeHandler.class, Arrays.asList(new String[]{"end"})))
+                .addNode(new EndNodeDef("end"));
+
+        XConfiguration conf = new XConfiguration();
+        conf.set("c", "C");
+        LiteWorkflowInstance job = new LiteWorkflowInstance(def, conf, "1");
+        job.setVar("a", "A");
+        byte[] small = WritableUtils.toByteArray(job);
+        job = WritableUtils.fromByteArray(small, LiteWorkflowInstance.class);
+        assertEquals("C", job.getConf().get("c"));
+        assertEquals("A", job.getVar("a"));
+
+        // a large configuration is deflated, vars are not limited to 64K like with writeUTF
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("value").append(i).append(' ');
+        }
+        String large = sb.toString();
+        for (int i = 0; i < 100; i++) {
+            conf.set("property.name." + i, "value" + i);
+        }
+        conf.set("large", large);
+        job = new LiteWorkflowInstance(def, conf, "2");
+        job.setVar("large", large);
+        byte[] array = WritableUtils.toByteArray(job);
+        assertTrue(array.length < large.length() * 2);
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals("2", job.getId());
+        assertEquals(large, job.getConf().get("large"));
+        assertEquals("value99", job.getConf().get("property.name.99"));
+        assertEquals("C", job.getConf().get("c"));
+        assertEquals(large, job.getVar("large"));
+
+        job.start();
+        job = WritableUtils.fromByteArray(WritableUtils.toByteArray(job), LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        job.signal("/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
 
     public void testImmediateError() throws WorkflowException {
         LiteWorkflowApp workflowDef = new LiteWorkflowApp("testWf", "<worklfow-app/>", new StartNodeDef("one"))
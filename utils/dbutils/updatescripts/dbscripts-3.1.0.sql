@@ -374,6 +374,17 @@
   PCTINCREASE 0 FREELISTS 1 FREELIST GROUPS 1 BUFFER_POOL DEFAULT FLASH_CACHE DEFAULT CELL_FLASH_CACHE DEFAULT)
   TABLESPACE "OOZIEDB" ;
 
+  CREATE TABLE "OOZIEDB"."WF_DEFINITIONS" 
+   (	"ID" VARCHAR2(255) NOT NULL ENABLE, 
+	"CREATED_TIME" TIMESTAMP (6), 
+	"DEFINITION" BLOB, 
+	 PRIMARY KEY ("ID")
+  USING INDEX PCTFREE 10 INITRANS 2 MAXTRANS 255 COMPUTE STATISTICS 
+  TABLESPACE "OOZIEDB"  ENABLE
+   ) SEGMENT CREATION DEFERRED 
+  PCTFREE 10 PCTUSED 40 INITRANS 1 MAXTRANS 255 NOCOMPRESS LOGGING
+  TABLESPACE "OOZIEDB" ;
+
   CREATE TABLE "OOZIEDB"."VALIDATE_CONN" 
    (	"ID" NUMBER NOT NULL ENABLE, 
 	"DUMMY" NUMBER, 
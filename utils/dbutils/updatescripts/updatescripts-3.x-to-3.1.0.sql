@@ -1,3 +1,4 @@
 ALTER TABLE WF_ACTIONS ADD USER_RETRY_COUNT NUMBER DEFAULT 0;
 ALTER TABLE WF_ACTIONS ADD USER_RETRY_MAX NUMBER DEFAULT 0;
-ALTER TABLE WF_ACTIONS ADD USER_RETRY_INTERVAL NUMBER DEFAULT 0;
\ No newline at end of file
+ALTER TABLE WF_ACTIONS ADD USER_RETRY_INTERVAL NUMBER DEFAULT 0;
+CREATE TABLE WF_DEFINITIONS (ID VARCHAR2(255) NOT NULL, CREATED_TIME TIMESTAMP, DEFINITION BLOB, PRIMARY KEY (ID));
\ No newline at end of file